@@ -15,6 +15,8 @@
  */
 package com.android.tools.adtui.model;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.util.List;
 
 /**
@@ -23,4 +25,16 @@ import java.util.List;
 public interface DataSeries<E> {
 
   List<SeriesData<E>> getDataForXRange(Range xRange);
+
+  /**
+   * Fills {@code view} with the same data as {@link #getDataForXRange(Range)} for [minX, maxX]. The default implementation
+   * adapts that list, implementations that can produce their samples directly should override this to avoid creating a
+   * {@link SeriesData} per sample.
+   */
+  default void getDataForXRange(double minX, double maxX, @NotNull SeriesView<E> view) {
+    view.clear();
+    for (SeriesData<E> data : getDataForXRange(new Range(minX, maxX))) {
+      view.add(data.x, data.value);
+    }
+  }
 }
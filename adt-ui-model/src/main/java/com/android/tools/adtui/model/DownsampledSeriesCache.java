@@ -0,0 +1,485 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Caches the samples of a {@link RangedContinuousSeries} together with min/max aggregates, so a view of the series can be
+ * read with a number of points bounded by the caller (e.g. the width of the chart in pixels) rather than by the number of
+ * samples in range.
+ * <p>
+ * Samples are stored in blocks of {@link #BLOCK_SIZE}, each with a pyramid of min/max aggregates: level k of a block
+ * aggregates {@code 4^k} consecutive samples into one bucket which remembers the indices of its minimum and maximum samples.
+ * The cache is filled incrementally: samples are only requested from the underlying {@link DataSeries} for the part of the
+ * range that has not been fetched yet, on either side of the cached samples, so the series is expected to be append-only.
+ * Samples that show up later with a timestamp older than the last cached one are ignored. Once more than the maximum number
+ * of samples are cached, the blocks farthest from the requested range are dropped, and fetched again if they are needed.
+ * <p>
+ * {@link #getSeries(int, LongSeriesView)} emits a downsampled bucket as two points placed at the x of its first and last
+ * samples, and each series keeps its own extremes. The points of different series don't represent the same samples, so
+ * stacked series use {@link #getAlignedSeries(int, LongSeriesView)} instead.
+ */
+public final class DownsampledSeriesCache {
+  /**
+   * log2 of the number of buckets of a level aggregated into one bucket of the next level.
+   */
+  private static final int LEVEL_SHIFT = 2;
+
+  /**
+   * Number of levels of the pyramid of a block, the last one aggregating the whole block.
+   */
+  private static final int BLOCK_LEVELS = 5;
+
+  private static final int BLOCK_SIZE = 1 << (LEVEL_SHIFT * BLOCK_LEVELS);
+
+  private static final int DEFAULT_MAX_CACHED_SAMPLES = 256 * BLOCK_SIZE;
+
+  @NotNull private final RangedContinuousSeries mySeries;
+
+  private final int myMaxBlocks;
+
+  @NotNull private final List<Block> myBlocks = new ArrayList<>();
+
+  /**
+   * Index of the first sample of each block among all the cached samples.
+   */
+  @NotNull private final TIntArrayList myBlockStarts = new TIntArrayList();
+
+  private int mySize;
+
+  /**
+   * Index of the first cached sample counted from the first sample ever cached, which goes down as samples are added on the
+   * left. Downsampled buckets are aligned on it, so they don't move as samples are added or dropped on either side.
+   */
+  private long myFirstIndex;
+
+  /**
+   * All the samples from this x up to the last cached one are cached, as well as the last one before it.
+   */
+  private double myFetchedMin = Double.MAX_VALUE;
+
+  @NotNull private final LongSeriesView myFetchBuffer = new LongSeriesView();
+
+  /**
+   * Result of {@link #computeMinMax(int, int)}.
+   */
+  private int myMinIndex;
+  private int myMaxIndex;
+  private long myMinY;
+  private long myMaxY;
+
+  public DownsampledSeriesCache(@NotNull RangedContinuousSeries series) {
+    this(series, DEFAULT_MAX_CACHED_SAMPLES);
+  }
+
+  DownsampledSeriesCache(@NotNull RangedContinuousSeries series, int maxCachedSamples) {
+    mySeries = series;
+    // Two blocks at least, so the block being filled doesn't get dropped.
+    myMaxBlocks = Math.max(2, (maxCachedSamples + BLOCK_SIZE - 1) / BLOCK_SIZE);
+  }
+
+  @NotNull
+  public RangedContinuousSeries getSeries() {
+    return mySeries;
+  }
+
+  /**
+   * Fills {@code view} with the samples of the series' current x range, downsampled to at most about {@code maxPoints}.
+   * Like {@link BaseDataSeries#getDataForXRange(Range)}, the last sample at or before the range min is included.
+   */
+  public void getSeries(int maxPoints, @NotNull LongSeriesView view) {
+    view.clear();
+    Range xRange = mySeries.getXRange();
+    if (xRange.isEmpty()) {
+      return;
+    }
+    fetch(xRange.getMin(), xRange.getMax());
+    if (mySize == 0) {
+      return;
+    }
+
+    int from = floorIndex((long)xRange.getMin());
+    int to = floorIndex((long)xRange.getMax()) + 1;
+    int level = 0;
+    // Each bucket is emitted as up to two points.
+    while ((((long)(to - from) >> (LEVEL_SHIFT * level)) + 1) * 2 > Math.max(maxPoints, 2)) {
+      level++;
+    }
+    if (level == 0) {
+      addSamples(view, from, to);
+      return;
+    }
+
+    int shift = LEVEL_SHIFT * level;
+    for (long bucket = (myFirstIndex + from) >> shift, last = (myFirstIndex + to - 1) >> shift; bucket <= last; bucket++) {
+      int first = (int)Math.max(from, (bucket << shift) - myFirstIndex);
+      int end = (int)Math.min(to - 1, ((bucket + 1) << shift) - 1 - myFirstIndex);
+      computeMinMax(first, end);
+      // The extreme value reached first goes at the x of the first sample, and the other one at the x of the last sample.
+      boolean minFirst = myMinIndex < myMaxIndex;
+      view.add(getX(first), minFirst ? myMinY : myMaxY);
+      if (end != first) {
+        view.add(getX(end), minFirst ? myMaxY : myMinY);
+      }
+    }
+  }
+
+  /**
+   * Like {@link #getSeries(int, LongSeriesView)}, but the points of all the series sharing the same x range are placed at the
+   * same x, so they can be stacked as long as the series have samples at the same x. When the range has to be downsampled, it
+   * is split into slots whose boundaries only depend on the range, and each slot is represented by one point holding the
+   * maximum of the samples in it, so the stacked total is an upper bound of the actual one.
+   */
+  public void getAlignedSeries(int maxPoints, @NotNull LongSeriesView view) {
+    view.clear();
+    Range xRange = mySeries.getXRange();
+    if (xRange.isEmpty()) {
+      return;
+    }
+    fetch(xRange.getMin(), xRange.getMax());
+    if (mySize == 0) {
+      return;
+    }
+
+    long min = (long)xRange.getMin();
+    long max = (long)xRange.getMax();
+    int from = floorIndex(min);
+    int to = floorIndex(max) + 1;
+    if (to - from <= Math.max(maxPoints, 2)) {
+      addSamples(view, from, to);
+      return;
+    }
+
+    // Slots are a power of 2 wide and start at a multiple of their width, so they don't move while the range scrolls.
+    long slotWidth = Math.max(1, (max - min + Math.max(maxPoints, 2) - 1) / Math.max(maxPoints, 2));
+    if (Long.highestOneBit(slotWidth) != slotWidth) {
+      slotWidth = Long.highestOneBit(slotWidth) << 1;
+    }
+    for (long slot = Math.floorDiv(min, slotWidth) * slotWidth; slot <= max; slot += slotWidth) {
+      int end = floorIndexOrNone(slot + slotWidth - 1);
+      if (end < 0) {
+        continue;
+      }
+      // The value at the start of the slot is the one of the last sample before it.
+      computeMinMax(Math.max(0, floorIndexOrNone(slot)), end);
+      view.add(slot, myMaxY);
+    }
+  }
+
+  /**
+   * Drops all the cached samples, e.g. when the data of the underlying series has been replaced.
+   */
+  public void reset() {
+    myBlocks.clear();
+    myBlockStarts.clear();
+    mySize = 0;
+    myFirstIndex = 0;
+    myFetchedMin = Double.MAX_VALUE;
+  }
+
+  int getCachedSampleCount() {
+    return mySize;
+  }
+
+  private void fetch(double min, double max) {
+    if (mySize == 0) {
+      // Until the first sample arrives, keep querying from the start of the fetched range, as samples can be reported after
+      // the range has moved past their timestamps.
+      myFetchedMin = Math.min(myFetchedMin, min);
+      fetchAfter(myFetchedMin, max);
+    }
+    else {
+      if (min < myFetchedMin) {
+        fetchBefore(min);
+        myFetchedMin = min;
+      }
+      // Query from the last sample rather than from the last range fetched, for the same reason.
+      long lastX = getX(mySize - 1);
+      if (lastX < max) {
+        fetchAfter(lastX, max);
+      }
+    }
+    dropBlocksOutside(min, max);
+  }
+
+  /**
+   * Appends the samples of [min, max] newer than the last cached one.
+   */
+  private void fetchAfter(double min, double max) {
+    getDataForXRange(new Range(min, max));
+    for (int i = 0; i < myFetchBuffer.size(); i++) {
+      long x = myFetchBuffer.getX(i);
+      if (mySize > 0 && x <= getX(mySize - 1)) {
+        continue;
+      }
+      Block last = myBlocks.isEmpty() ? null : myBlocks.get(myBlocks.size() - 1);
+      if (last == null || last.mySize == BLOCK_SIZE) {
+        last = new Block();
+        myBlocks.add(last);
+        myBlockStarts.add(mySize);
+      }
+      last.add(x, myFetchBuffer.getY(i));
+      mySize++;
+    }
+    myFetchBuffer.clear();
+  }
+
+  /**
+   * Prepends the samples from {@code min} up to the first cached one, in new blocks, so the cached ones are left as is.
+   */
+  private void fetchBefore(double min) {
+    long firstX = getX(0);
+    getDataForXRange(new Range(min, firstX));
+    int count = 0;
+    while (count < myFetchBuffer.size() && myFetchBuffer.getX(count) < firstX) {
+      count++;
+    }
+    // Only the first new block is partial, so the ones next to the cached blocks are full.
+    List<Block> blocks = new ArrayList<>();
+    Block block = null;
+    int blockCapacity = count % BLOCK_SIZE == 0 ? BLOCK_SIZE : count % BLOCK_SIZE;
+    int added = 0;
+    for (int i = 0; i < count; i++) {
+      long x = myFetchBuffer.getX(i);
+      if (block != null && block.mySize > 0 && x <= block.myX[block.mySize - 1]) {
+        continue;
+      }
+      if (block == null || block.mySize == blockCapacity) {
+        block = new Block();
+        blocks.add(block);
+        blockCapacity = blocks.size() == 1 ? blockCapacity : BLOCK_SIZE;
+      }
+      block.add(x, myFetchBuffer.getY(i));
+      added++;
+    }
+    myFetchBuffer.clear();
+    myBlocks.addAll(0, blocks);
+    mySize += added;
+    myFirstIndex -= added;
+    updateBlockStarts();
+  }
+
+  private void getDataForXRange(@NotNull Range range) {
+    DataSeries<Long> dataSeries = mySeries.getDataSeries();
+    if (dataSeries instanceof LongValueDataSeries) {
+      ((LongValueDataSeries)dataSeries).getDataForXRange(range.getMin(), range.getMax(), myFetchBuffer);
+    }
+    else {
+      myFetchBuffer.copyFrom(dataSeries.getDataForXRange(range));
+    }
+  }
+
+  /**
+   * Drops the blocks farthest from [min, max] while too many samples are cached. Blocks overlapping the range, and the one
+   * holding the last sample before it, are kept.
+   */
+  private void dropBlocksOutside(double min, double max) {
+    while (myBlocks.size() > myMaxBlocks) {
+      Block first = myBlocks.get(0);
+      Block last = myBlocks.get(myBlocks.size() - 1);
+      double distanceBefore = myBlocks.get(1).myX[0] <= min ? min - first.myX[first.mySize - 1] : -1;
+      double distanceAfter = last.myX[0] > max ? last.myX[0] - max : -1;
+      if (distanceBefore < 0 && distanceAfter < 0) {
+        break;
+      }
+      if (distanceBefore >= distanceAfter) {
+        myBlocks.remove(0);
+        mySize -= first.mySize;
+        myFirstIndex += first.mySize;
+        myFetchedMin = myBlocks.get(0).myX[0];
+      }
+      else {
+        myBlocks.remove(myBlocks.size() - 1);
+        mySize -= last.mySize;
+      }
+      updateBlockStarts();
+    }
+  }
+
+  private void updateBlockStarts() {
+    myBlockStarts.clear();
+    int start = 0;
+    for (Block block : myBlocks) {
+      myBlockStarts.add(start);
+      start += block.mySize;
+    }
+  }
+
+  private void addSamples(@NotNull LongSeriesView view, int from, int to) {
+    for (int blockIndex = getBlockIndex(from); from < to; blockIndex++) {
+      Block block = myBlocks.get(blockIndex);
+      int start = myBlockStarts.get(blockIndex);
+      for (int i = from - start, end = Math.min(to - start, block.mySize); i < end; i++) {
+        view.add(block.myX[i], block.myY[i]);
+      }
+      from = start + block.mySize;
+    }
+  }
+
+  /**
+   * Finds the samples with the min and max values among the samples [from, to].
+   */
+  private void computeMinMax(int from, int to) {
+    myMinIndex = myMaxIndex = -1;
+    for (int blockIndex = getBlockIndex(from); blockIndex < myBlocks.size(); blockIndex++) {
+      int start = myBlockStarts.get(blockIndex);
+      if (start > to) {
+        break;
+      }
+      Block block = myBlocks.get(blockIndex);
+      long minMax = block.computeMinMax(Math.max(0, from - start), Math.min(to - start, block.mySize - 1));
+      int minIndex = (int)(minMax >>> 32);
+      int maxIndex = (int)minMax;
+      if (myMinIndex < 0 || block.myY[minIndex] < myMinY) {
+        myMinIndex = start + minIndex;
+        myMinY = block.myY[minIndex];
+      }
+      if (myMaxIndex < 0 || block.myY[maxIndex] > myMaxY) {
+        myMaxIndex = start + maxIndex;
+        myMaxY = block.myY[maxIndex];
+      }
+    }
+  }
+
+  private long getX(int index) {
+    int blockIndex = getBlockIndex(index);
+    return myBlocks.get(blockIndex).myX[index - myBlockStarts.get(blockIndex)];
+  }
+
+  private int getBlockIndex(int index) {
+    int blockIndex = myBlockStarts.binarySearch(index);
+    return blockIndex < 0 ? -blockIndex - 2 : blockIndex;
+  }
+
+  /**
+   * @return the index of the last sample at or before {@code x}, clamped to the valid indices.
+   */
+  private int floorIndex(long x) {
+    return Math.max(0, floorIndexOrNone(x));
+  }
+
+  /**
+   * @return the index of the last sample at or before {@code x}, or -1 if all the samples are after it.
+   */
+  private int floorIndexOrNone(long x) {
+    int low = 0;
+    int high = myBlocks.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (myBlocks.get(mid).myX[0] <= x) {
+        low = mid;
+      }
+      else {
+        high = mid - 1;
+      }
+    }
+    Block block = myBlocks.get(low);
+    int index = Arrays.binarySearch(block.myX, 0, block.mySize, x);
+    if (index < 0) {
+      index = -index - 2;
+    }
+    return index < 0 ? -1 : myBlockStarts.get(low) + index;
+  }
+
+  /**
+   * Up to {@link #BLOCK_SIZE} consecutive samples and their min/max pyramid.
+   */
+  private static final class Block {
+    @NotNull final long[] myX = new long[BLOCK_SIZE];
+    @NotNull final long[] myY = new long[BLOCK_SIZE];
+
+    /**
+     * For levels 1 to {@link #BLOCK_LEVELS}, the indices of the samples with the min and the max values of each bucket.
+     */
+    @NotNull final int[][] myMinIndices = new int[BLOCK_LEVELS][];
+    @NotNull final int[][] myMaxIndices = new int[BLOCK_LEVELS][];
+
+    int mySize;
+
+    Block() {
+      for (int level = 1; level <= BLOCK_LEVELS; level++) {
+        myMinIndices[level - 1] = new int[BLOCK_SIZE >> (LEVEL_SHIFT * level)];
+        myMaxIndices[level - 1] = new int[BLOCK_SIZE >> (LEVEL_SHIFT * level)];
+      }
+    }
+
+    void add(long x, long y) {
+      int index = mySize++;
+      myX[index] = x;
+      myY[index] = y;
+      for (int level = 1; level <= BLOCK_LEVELS; level++) {
+        int shift = LEVEL_SHIFT * level;
+        int bucket = index >> shift;
+        int[] minIndices = myMinIndices[level - 1];
+        int[] maxIndices = myMaxIndices[level - 1];
+        if ((index & ((1 << shift) - 1)) == 0) {
+          minIndices[bucket] = index;
+          maxIndices[bucket] = index;
+        }
+        else {
+          if (y < myY[minIndices[bucket]]) {
+            minIndices[bucket] = index;
+          }
+          if (y > myY[maxIndices[bucket]]) {
+            maxIndices[bucket] = index;
+          }
+        }
+      }
+    }
+
+    /**
+     * @return the indices of the samples with the min and max values among the samples [from, to] of this block, packed in
+     * the high and low halves of a long. The range is covered with the largest buckets fitting in it.
+     */
+    long computeMinMax(int from, int to) {
+      int minIndex = from;
+      int maxIndex = from;
+      int index = from;
+      while (index <= to) {
+        int level = 0;
+        while (level < BLOCK_LEVELS) {
+          int bucketSize = 1 << (LEVEL_SHIFT * (level + 1));
+          // The last bucket of the block may be partial, its aggregate then covers the samples up to the end of the block.
+          if ((index & (bucketSize - 1)) != 0 || Math.min(index + bucketSize, mySize) - 1 > to) {
+            break;
+          }
+          level++;
+        }
+        int bucketMin = index;
+        int bucketMax = index;
+        if (level > 0) {
+          int bucket = index >> (LEVEL_SHIFT * level);
+          bucketMin = myMinIndices[level - 1][bucket];
+          bucketMax = myMaxIndices[level - 1][bucket];
+        }
+        if (myY[bucketMin] < myY[minIndex]) {
+          minIndex = bucketMin;
+        }
+        if (myY[bucketMax] > myY[maxIndex]) {
+          maxIndex = bucketMax;
+        }
+        index += 1 << (LEVEL_SHIFT * level);
+      }
+      return ((long)minIndex << 32) | (maxIndex & 0xFFFFFFFFL);
+    }
+  }
+}
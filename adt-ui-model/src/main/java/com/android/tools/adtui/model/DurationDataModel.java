@@ -89,6 +89,11 @@ public class DurationDataModel<E extends DurationData> extends AspectModel<Durat
     myRenderSeriesPredicate = renderSeriesPredicate;
   }
 
+  @Override
+  public boolean isAnimating() {
+    return false;
+  }
+
   @Override
   public void update(long elapsedNs) {
     // TODO: perhaps only update on model change
@@ -60,6 +60,19 @@ public class EaseOutModel extends AspectModel<EaseOutModel.Aspect> implements Up
     }
   }
 
+  /**
+   * Nothing changes until the easing starts, so the updater doesn't need to tick in the meantime.
+   */
+  @Override
+  public boolean isAnimating() {
+    return myTimeRemainingUntilEaseOut < 0;
+  }
+
+  @Override
+  public long getIdleTimeNs() {
+    return Math.max(0, myTimeRemainingUntilEaseOut);
+  }
+
   @Override
   public void update(long elapsedNs) {
     myTimeRemainingUntilEaseOut -= elapsedNs;
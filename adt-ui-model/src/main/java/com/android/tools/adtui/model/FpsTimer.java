@@ -18,6 +18,7 @@ package com.android.tools.adtui.model;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Timer which tries to tick at a rate to match the passed in fps. Each tick, it will report how
@@ -29,10 +30,17 @@ public final class FpsTimer extends StopwatchTimer implements ActionListener {
   private static final int DEFAULT_FPS = 60;
 
   private final Timer myTimer;
+  /**
+   * Wakes the timer up when the maximum idle time passes.
+   */
+  private final Timer myWakeTimer;
   private long myFrameTime;
+  private volatile boolean myIdle;
 
   public FpsTimer(int fps) {
     myTimer = new Timer(1000 / fps, this);
+    myWakeTimer = new Timer(0, e -> wake());
+    myWakeTimer.setRepeats(false);
   }
 
   public FpsTimer() {
@@ -49,16 +57,42 @@ public final class FpsTimer extends StopwatchTimer implements ActionListener {
 
   @Override
   public boolean isRunning() {
-    return myTimer.isRunning();
+    return myTimer.isRunning() || myIdle;
   }
 
   @Override
   public void stop() {
     if (isRunning()) {
+      myIdle = false;
+      myWakeTimer.stop();
       myTimer.stop();
     }
   }
 
+  @Override
+  public synchronized void idle(long maxIdleNs) {
+    if (!myTimer.isRunning()) {
+      return;
+    }
+    myIdle = true;
+    myTimer.stop();
+    if (maxIdleNs < Long.MAX_VALUE) {
+      myWakeTimer.setInitialDelay((int)Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(maxIdleNs)));
+      myWakeTimer.restart();
+    }
+  }
+
+  @Override
+  public synchronized void wake() {
+    if (!myIdle) {
+      return;
+    }
+    myIdle = false;
+    myWakeTimer.stop();
+    // Keeps myFrameTime, so the next tick accounts for the time spent idle.
+    myTimer.restart();
+  }
+
   @Override
   public long getCurrentTimeNs() {
     return System.nanoTime();
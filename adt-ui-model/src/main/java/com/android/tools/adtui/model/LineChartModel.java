@@ -38,6 +38,16 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
    */
   private boolean myFirstUpdate = true;
 
+  /**
+   * Whether a y range didn't reach the max value of its series during the last update.
+   */
+  private boolean myInterpolating;
+
+  @Override
+  public boolean isAnimating() {
+    return myInterpolating;
+  }
+
   @Override
   public void update(long elapsedNs) {
     Map<Range, Double> maxPerRangeObject = new HashMap<>();
@@ -66,6 +76,7 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
     }
 
     boolean changed = myFirstUpdate; // Always fire aspect on first update.
+    boolean interpolating = false;
     for (Map.Entry<Range, Double> entry : maxPerRangeObject.entrySet()) {
       Range range = entry.getKey();
       // Prevent the LineChart to update the range below its current max.
@@ -76,9 +87,11 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
                                     (float)(entry.getValue() * Updater.DEFAULT_LERP_THRESHOLD_PERCENTAGE));
         range.setMax(max);
         changed = true;
+        interpolating |= max < entry.getValue();
       }
     }
 
+    myInterpolating = interpolating;
     myFirstUpdate = false;
     // TODO: Depend on the other things
     if (changed) {
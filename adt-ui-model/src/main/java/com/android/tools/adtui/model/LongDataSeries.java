@@ -18,7 +18,7 @@ package com.android.tools.adtui.model;
 import gnu.trove.TLongArrayList;
 import org.jetbrains.annotations.NotNull;
 
-public class LongDataSeries extends BaseDataSeries<Long> {
+public class LongDataSeries extends BaseDataSeries<Long> implements LongValueDataSeries {
 
   @NotNull
   private final TLongArrayList mY = new TLongArrayList();
@@ -33,4 +33,22 @@ public class LongDataSeries extends BaseDataSeries<Long> {
   public Long getY(int index) {
     return mY.get(index);
   }
+
+  /**
+   * Reads the samples straight from the arrays. Note: subclasses that override {@link #getDataForXRange(Range)} should override
+   * this method as well.
+   */
+  @Override
+  public void getDataForXRange(double minX, double maxX, @NotNull LongSeriesView view) {
+    view.clear();
+    if (size() == 0 || minX > maxX) {
+      return;
+    }
+
+    int fromIndex = getNearestXIndex((long)minX);
+    int toIndex = getNearestXIndex((long)maxX) + 1;
+    for (int i = fromIndex; i < toIndex; i++) {
+      view.add(mX.get(i), mY.get(i));
+    }
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A reusable window of (x, y) samples backed by primitive arrays. This is the unboxed counterpart of a
+ * {@code List<SeriesData<Long>>}: charts keep one instance per series and refill it each frame, so reading a series
+ * does not allocate an object per sample.
+ */
+public final class LongSeriesView {
+  private static final int INITIAL_CAPACITY = 64;
+
+  @NotNull private long[] myX = new long[INITIAL_CAPACITY];
+  @NotNull private long[] myY = new long[INITIAL_CAPACITY];
+  private int mySize;
+
+  public int size() {
+    return mySize;
+  }
+
+  public boolean isEmpty() {
+    return mySize == 0;
+  }
+
+  public long getX(int index) {
+    return myX[index];
+  }
+
+  public long getY(int index) {
+    return myY[index];
+  }
+
+  public void setY(int index, long y) {
+    myY[index] = y;
+  }
+
+  /**
+   * Overwrites the sample at {@code index}, which must be lower than or equal to {@link #size()}.
+   */
+  public void set(int index, long x, long y) {
+    if (index == mySize) {
+      add(x, y);
+      return;
+    }
+    myX[index] = x;
+    myY[index] = y;
+  }
+
+  public void add(long x, long y) {
+    if (mySize == myX.length) {
+      int capacity = myX.length * 2;
+      myX = Arrays.copyOf(myX, capacity);
+      myY = Arrays.copyOf(myY, capacity);
+    }
+    myX[mySize] = x;
+    myY[mySize] = y;
+    mySize++;
+  }
+
+  /**
+   * Drops all the samples from {@code size} onward.
+   */
+  public void truncate(int size) {
+    assert size <= mySize;
+    mySize = size;
+  }
+
+  public void clear() {
+    mySize = 0;
+  }
+
+  public void copyFrom(@NotNull LongSeriesView other) {
+    clear();
+    for (int i = 0; i < other.mySize; i++) {
+      add(other.myX[i], other.myY[i]);
+    }
+  }
+
+  /**
+   * Replaces the content of this view with the given boxed samples. This is the adapter used for {@link DataSeries}
+   * that do not provide their data unboxed.
+   */
+  public void copyFrom(@NotNull List<SeriesData<Long>> data) {
+    clear();
+    for (SeriesData<Long> sample : data) {
+      add(sample.x, sample.value);
+    }
+  }
+
+  @NotNull
+  public List<SeriesData<Long>> toSeriesDataList() {
+    List<SeriesData<Long>> data = new ArrayList<>(mySize);
+    for (int i = 0; i < mySize; i++) {
+      data.add(new SeriesData<>(myX[i], myY[i]));
+    }
+    return data;
+  }
+}
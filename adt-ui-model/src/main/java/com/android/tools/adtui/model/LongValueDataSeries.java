@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link DataSeries} of long values, which can be read into a {@link LongSeriesView} without boxing them.
+ */
+public interface LongValueDataSeries extends DataSeries<Long> {
+  /**
+   * Fills {@code view} with the same data as {@link #getDataForXRange(Range)} for [minX, maxX]. The default implementation
+   * adapts that list, implementations should override this to skip the {@link SeriesData} and the boxing of each sample.
+   */
+  default void getDataForXRange(double minX, double maxX, @NotNull LongSeriesView view) {
+    view.copyFrom(getDataForXRange(new Range(minX, maxX)));
+  }
+}
@@ -36,6 +36,19 @@ public class RangedContinuousSeries extends RangedSeries<Long> {
     myName = name;
   }
 
+  /**
+   * Fills {@code view} with the data in range. A {@link LongValueDataSeries} fills it directly, other series are adapted from
+   * {@link #getSeries()}.
+   */
+  public void getSeries(@NotNull LongSeriesView view) {
+    if (mSeries instanceof LongValueDataSeries) {
+      ((LongValueDataSeries)mSeries).getDataForXRange(mXRange.getMin(), mXRange.getMax(), view);
+    }
+    else {
+      view.copyFrom(getSeries());
+    }
+  }
+
   @NotNull
   public Range getYRange() {
     return mYRange;
@@ -50,6 +50,14 @@ public class RangedSeries<E> {
     return mSeries.getDataForXRange(mXRange);
   }
 
+  /**
+   * Fills {@code view} with the data in range, without creating a {@link SeriesData} per sample when the underlying
+   * {@link DataSeries} supports it.
+   */
+  public void getSeries(@NotNull SeriesView<E> view) {
+    mSeries.getDataForXRange(mXRange.getMin(), mXRange.getMax(), view);
+  }
+
   /**
    * @return The {@link Range} object that represents the xRange of this series.
    */
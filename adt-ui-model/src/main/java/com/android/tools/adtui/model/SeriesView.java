@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A reusable window of (x, value) samples where x is kept in a primitive array. Unlike a {@code List<SeriesData<E>>}, filling
+ * it does not allocate a {@link SeriesData} per sample. See {@link LongSeriesView} for the fully unboxed variant.
+ */
+public final class SeriesView<E> {
+  private static final int INITIAL_CAPACITY = 64;
+
+  @NotNull private long[] myX = new long[INITIAL_CAPACITY];
+  @NotNull private Object[] myValues = new Object[INITIAL_CAPACITY];
+  private int mySize;
+
+  public int size() {
+    return mySize;
+  }
+
+  public boolean isEmpty() {
+    return mySize == 0;
+  }
+
+  public long getX(int index) {
+    return myX[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  public E getValue(int index) {
+    return (E)myValues[index];
+  }
+
+  public void add(long x, E value) {
+    if (mySize == myX.length) {
+      int capacity = myX.length * 2;
+      myX = Arrays.copyOf(myX, capacity);
+      myValues = Arrays.copyOf(myValues, capacity);
+    }
+    myX[mySize] = x;
+    myValues[mySize] = value;
+    mySize++;
+  }
+
+  public void clear() {
+    // Release the references so the view does not keep old values alive.
+    Arrays.fill(myValues, 0, mySize, null);
+    mySize = 0;
+  }
+}
@@ -43,6 +43,21 @@ public abstract class StopwatchTimer {
   public abstract void stop();
   public abstract long getCurrentTimeNs();
 
+  /**
+   * Stops ticking while running until {@link #wake()} is called or the given time passes, without losing track of time: the first tick
+   * after waking up reports all the time elapsed since the previous tick. Timers that can't idle keep ticking.
+   *
+   * @param maxIdleNs how long to idle at most, or {@link Long#MAX_VALUE} to idle until woken up.
+   */
+  public void idle(long maxIdleNs) {
+  }
+
+  /**
+   * Resumes ticking after {@link #idle(long)}.
+   */
+  public void wake() {
+  }
+
   /**
    * Child classes are responsible for signaling when and how much time has elapsed.
    *
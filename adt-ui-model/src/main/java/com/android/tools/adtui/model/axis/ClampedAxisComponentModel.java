@@ -25,6 +25,11 @@ public final class ClampedAxisComponentModel extends AxisComponentModel implemen
   // This needs to be removed once AxisComponentModel separates the target lerp Range from the current lerp state Range.
   private boolean myIsUpdating = false;
 
+  /**
+   * Whether the range's max didn't reach its clamped target during the last update.
+   */
+  private boolean myInterpolating = false;
+
   private ClampedAxisComponentModel(@NotNull BaseBuilder<ClampedAxisComponentModel> builder) {
     super(builder);
   }
@@ -49,6 +54,7 @@ public final class ClampedAxisComponentModel extends AxisComponentModel implemen
       needsUpdate = true;
     }
 
+    myInterpolating = Double.compare(max, clampedMaxTarget) != 0;
     myFirstUpdate = false;
 
     if (needsUpdate) {
@@ -59,6 +65,11 @@ public final class ClampedAxisComponentModel extends AxisComponentModel implemen
     myIsUpdating = false;
   }
 
+  @Override
+  public boolean isAnimating() {
+    return myInterpolating;
+  }
+
   @Override
   public void updateImmediately() {
     update(0);
@@ -32,6 +32,23 @@ public interface Updatable {
    */
   void update(long elapsedNs);
 
+  /**
+   * Whether this {@link Updatable} needs the {@link Updater} to keep ticking, e.g while it's interpolating towards a target value. Once
+   * none of the registered updatables is animating, the updater stops ticking until it's woken up, see {@link Updater#wakeOn}.
+   * Updatables that aren't animating are still updated on every tick that happens.
+   */
+  default boolean isAnimating() {
+    return true;
+  }
+
+  /**
+   * How long after its last {@link #update(long)} this {@link Updatable} has nothing to do, e.g because it polls at a fixed interval. The
+   * {@link Updater} skips it in the meantime, and the skipped time is added to the elapsed time of its next update.
+   */
+  default long getIdleTimeNs() {
+    return 0;
+  }
+
   /**
    * Triggered by the {@link Choreographer} after all components have finished animating.
    * This allows an {@link Updatable} to read any data modified by other components
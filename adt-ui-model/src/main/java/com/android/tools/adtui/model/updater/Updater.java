@@ -16,16 +16,26 @@
 
 package com.android.tools.adtui.model.updater;
 
+import com.android.tools.adtui.model.AspectModel;
+import com.android.tools.adtui.model.AspectObserver;
+import com.android.tools.adtui.model.FpsTimer;
 import com.android.tools.adtui.model.StopwatchTimer;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * An auxiliary object that synchronizes a group of {@link Updatable} via a simple update loop
  * running at a specific frame rate. This ensures all UI components and model classes are reading
  * and displaying consistent information at any given time.
+ *
+ * Updatables that have nothing to do for a while are skipped (see {@link Updatable#getIdleTimeNs()}), and when none of them is animating
+ * (see {@link Updatable#isAnimating()}) the timer idles until the next skipped updatable is due, or until one of the models passed to
+ * {@link #wakeOn} changes, e.g because the user zoomed.
  */
 public class Updater implements StopwatchTimer.TickHandler {
 
@@ -40,8 +50,20 @@ public class Updater implements StopwatchTimer.TickHandler {
 
   private boolean mUpdating;
 
+  /**
+   * Time elapsed since the last update of each component.
+   */
+  private final Map<Updatable, Long> mElapsedSinceUpdateNs;
+  private final AspectObserver mObserver;
+  /**
+   * Whether {@link #wake()} was called during the current tick, in which case the timer shouldn't idle after it.
+   */
+  private boolean mWoken;
+
   public Updater(@NotNull StopwatchTimer timer) {
     mComponents = new LinkedList<>();
+    mElapsedSinceUpdateNs = new IdentityHashMap<>();
+    mObserver = new AspectObserver();
     mToRegister = new LinkedList<>();
     mToUnregister = new LinkedList<>();
     mUpdating = false;
@@ -60,7 +82,9 @@ public class Updater implements StopwatchTimer.TickHandler {
     }
     else {
       mComponents.add(updatable);
+      mElapsedSinceUpdateNs.put(updatable, 0L);
     }
+    wake();
   }
 
   public void register(@NotNull List<Updatable> updatables) {
@@ -75,6 +99,28 @@ public class Updater implements StopwatchTimer.TickHandler {
     }
     else {
       mComponents.remove(updatable);
+      if (!mComponents.contains(updatable)) {
+        mElapsedSinceUpdateNs.remove(updatable);
+      }
+    }
+  }
+
+  /**
+   * Wakes the timer up, if it's idle, whenever the given aspect of the model changes.
+   */
+  public <T extends Enum<T>> void wakeOn(@NotNull AspectModel<T> model, @NotNull T aspect) {
+    model.addDependency(mObserver).onChange(aspect, this::wake);
+  }
+
+  /**
+   * Wakes the timer up if it's idle, e.g because an {@link Updatable} started animating.
+   */
+  public void wake() {
+    if (mUpdating) {
+      mWoken = true;
+    }
+    else {
+      mTimer.wake();
     }
   }
 
@@ -95,20 +141,56 @@ public class Updater implements StopwatchTimer.TickHandler {
   @Override
   public void onTick(long elapsedNs) {
     mUpdating = true;
+    mWoken = false;
+    boolean reset = mReset;
     if (mReset) {
       mComponents.forEach(Updatable::reset);
       mReset = false;
     }
 
-    mComponents.forEach(component -> component.update(elapsedNs));
-    mComponents.forEach(Updatable::postUpdate);
+    List<Updatable> updated = new ArrayList<>();
+    for (Updatable component : mComponents) {
+      long elapsedSinceUpdateNs = mElapsedSinceUpdateNs.getOrDefault(component, 0L) + elapsedNs;
+      // The idle time is checked right before updating, as it may have changed by updating the components before.
+      if (reset || elapsedSinceUpdateNs >= component.getIdleTimeNs()) {
+        component.update(elapsedSinceUpdateNs);
+        updated.add(component);
+        elapsedSinceUpdateNs = 0;
+      }
+      mElapsedSinceUpdateNs.put(component, elapsedSinceUpdateNs);
+    }
+    updated.forEach(Updatable::postUpdate);
     mUpdating = false;
 
     mToUnregister.forEach(this::unregister);
     mToRegister.forEach(this::register);
 
+    boolean woken = mWoken || !mToRegister.isEmpty();
     mToUnregister.clear();
     mToRegister.clear();
+
+    if (!woken) {
+      idleIfPossible();
+    }
+  }
+
+  /**
+   * Idles the timer if none of the components is animating, until the next skipped component is due.
+   */
+  private void idleIfPossible() {
+    long idleNs = Long.MAX_VALUE;
+    for (Updatable component : mComponents) {
+      if (component.isAnimating()) {
+        return;
+      }
+      long componentIdleNs = component.getIdleTimeNs();
+      if (componentIdleNs > 0 && componentIdleNs < Long.MAX_VALUE) {
+        idleNs = Math.min(idleNs, componentIdleNs - mElapsedSinceUpdateNs.getOrDefault(component, 0L));
+      }
+    }
+    if (idleNs > FpsTimer.ONE_FRAME_IN_NS) {
+      mTimer.idle(idleNs);
+    }
   }
 
   /**
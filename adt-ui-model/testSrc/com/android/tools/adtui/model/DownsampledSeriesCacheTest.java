@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DownsampledSeriesCacheTest {
+
+  @Test
+  public void testSmallRangeIsNotDownsampled() {
+    LongDataSeries data = new LongDataSeries();
+    for (long i = 0; i < 10; i++) {
+      data.add(i, i * 2);
+    }
+    Range xRange = new Range(2, 5);
+    DownsampledSeriesCache cache = new DownsampledSeriesCache(new RangedContinuousSeries("test", xRange, new Range(), data));
+
+    LongSeriesView view = new LongSeriesView();
+    cache.getSeries(100, view);
+    assertThat(view.size()).isEqualTo(4);
+    assertThat(view.getX(0)).isEqualTo(2);
+    assertThat(view.getY(3)).isEqualTo(10);
+  }
+
+  @Test
+  public void testLargeRangeIsBoundedAndKeepsExtremes() {
+    LongDataSeries data = new LongDataSeries();
+    int count = 100000;
+    for (long i = 0; i < count; i++) {
+      // A flat line with a single spike, which must survive downsampling.
+      data.add(i, i == 54321 ? 1000L : 1L);
+    }
+    Range xRange = new Range(0, count - 1);
+    DownsampledSeriesCache cache = new DownsampledSeriesCache(new RangedContinuousSeries("test", xRange, new Range(), data));
+
+    LongSeriesView view = new LongSeriesView();
+    cache.getSeries(500, view);
+    assertThat(view.size()).isAtMost(500);
+    assertThat(view.getX(0)).isEqualTo(0);
+    assertThat(view.getX(view.size() - 1)).isEqualTo(count - 1);
+    long max = 0;
+    for (int i = 0; i < view.size(); i++) {
+      max = Math.max(max, view.getY(i));
+      if (i > 0) {
+        assertThat(view.getX(i)).isGreaterThan(view.getX(i - 1));
+      }
+    }
+    assertThat(max).isEqualTo(1000);
+  }
+
+  @Test
+  public void testNewSamplesAreFetchedIncrementally() {
+    LongDataSeries data = new LongDataSeries();
+    for (long i = 0; i < 10; i++) {
+      data.add(i, i);
+    }
+    Range xRange = new Range(0, 9);
+    DownsampledSeriesCache cache = new DownsampledSeriesCache(new RangedContinuousSeries("test", xRange, new Range(), data));
+    LongSeriesView view = new LongSeriesView();
+    cache.getSeries(100, view);
+    assertThat(view.size()).isEqualTo(10);
+
+    for (long i = 10; i < 20; i++) {
+      data.add(i, i);
+    }
+    xRange.setMax(19);
+    cache.getSeries(100, view);
+    List<SeriesData<Long>> series = view.toSeriesDataList();
+    assertThat(series).hasSize(20);
+    for (int i = 0; i < series.size(); i++) {
+      assertThat(series.get(i).x).isEqualTo(i);
+      assertThat(series.get(i).value).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testSeriesWithSameTimestampsStayAligned() {
+    LongDataSeries first = new LongDataSeries();
+    LongDataSeries second = new LongDataSeries();
+    for (long i = 0; i < 5000; i++) {
+      first.add(i * 10, i % 7);
+      second.add(i * 10, i % 13);
+    }
+    Range xRange = new Range(0, 49990);
+    DownsampledSeriesCache firstCache = new DownsampledSeriesCache(new RangedContinuousSeries("1", xRange, new Range(), first));
+    DownsampledSeriesCache secondCache = new DownsampledSeriesCache(new RangedContinuousSeries("2", xRange, new Range(), second));
+
+    LongSeriesView firstView = new LongSeriesView();
+    LongSeriesView secondView = new LongSeriesView();
+    firstCache.getSeries(200, firstView);
+    secondCache.getSeries(200, secondView);
+    assertThat(firstView.size()).isEqualTo(secondView.size());
+    for (int i = 0; i < firstView.size(); i++) {
+      assertThat(firstView.getX(i)).isEqualTo(secondView.getX(i));
+    }
+  }
+
+  @Test
+  public void testSamplesReportedBeforeTheFirstOneArrivesAreFetched() {
+    LongDataSeries data = new LongDataSeries();
+    Range xRange = new Range(0, 10);
+    DownsampledSeriesCache cache = new DownsampledSeriesCache(new RangedContinuousSeries("test", xRange, new Range(), data));
+    LongSeriesView view = new LongSeriesView();
+    cache.getSeries(100, view);
+    assertThat(view.size()).isEqualTo(0);
+
+    // The range moves on before the first samples are reported, with timestamps inside the range already queried.
+    xRange.setMax(20);
+    cache.getSeries(100, view);
+    data.add(5, 1L);
+    data.add(15, 2L);
+    xRange.setMax(30);
+    cache.getSeries(100, view);
+    assertThat(view.size()).isEqualTo(2);
+    assertThat(view.getX(0)).isEqualTo(5);
+    assertThat(view.getX(1)).isEqualTo(15);
+  }
+
+  @Test
+  public void testZoomingOutOnlyFetchesTheNewSamples() {
+    CountingDataSeries data = new CountingDataSeries();
+    for (long i = 0; i < 10000; i++) {
+      data.add(i, i);
+    }
+    Range xRange = new Range(5000, 9999);
+    DownsampledSeriesCache cache = new DownsampledSeriesCache(new RangedContinuousSeries("test", xRange, new Range(), data));
+    LongSeriesView view = new LongSeriesView();
+    cache.getSeries(100000, view);
+    assertThat(view.size()).isEqualTo(5000);
+    int fetchedCount = data.myFetchedCount;
+
+    xRange.setMin(0);
+    cache.getSeries(100000, view);
+    // Only the samples before the cached ones, and the first cached one bounding the query, are fetched again.
+    assertThat(data.myFetchedCount - fetchedCount).isAtMost(5001);
+    assertThat(view.size()).isEqualTo(10000);
+    for (int i = 0; i < view.size(); i++) {
+      assertThat(view.getX(i)).isEqualTo(i);
+      assertThat(view.getY(i)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testCachedSamplesAreBounded() {
+    LongDataSeries data = new LongDataSeries();
+    for (long i = 0; i < 100000; i++) {
+      data.add(i, i);
+    }
+    Range xRange = new Range(0, 999);
+    DownsampledSeriesCache cache = new DownsampledSeriesCache(new RangedContinuousSeries("test", xRange, new Range(), data), 4096);
+    LongSeriesView view = new LongSeriesView();
+    // Scroll through the whole series, then back to the start.
+    for (long min = 0; min < 99000; min += 1000) {
+      xRange.set(min, min + 999);
+      cache.getSeries(100000, view);
+      assertThat(view.size()).isEqualTo(1000);
+      assertThat(view.getX(0)).isEqualTo(min);
+      assertThat(cache.getCachedSampleCount()).isAtMost(4096 + 1024);
+    }
+    xRange.set(0, 99999);
+    cache.getSeries(500, view);
+    assertThat(view.getX(0)).isEqualTo(0);
+    assertThat(view.getX(view.size() - 1)).isEqualTo(99999);
+    assertThat(cache.getCachedSampleCount()).isEqualTo(100000);
+
+    xRange.set(10000, 10999);
+    cache.getSeries(100000, view);
+    assertThat(cache.getCachedSampleCount()).isAtMost(4096);
+    assertThat(view.size()).isEqualTo(1000);
+    assertThat(view.getX(0)).isEqualTo(10000);
+  }
+
+  @Test
+  public void testAlignedSeriesShareTheirXAndKeepTheirPeaks() {
+    LongDataSeries first = new LongDataSeries();
+    LongDataSeries second = new LongDataSeries();
+    for (long i = 0; i < 50000; i++) {
+      // Series whose extremes don't fall on the same samples, with a spike in the first one.
+      first.add(i * 10, i == 12345 ? 1000 : i % 7);
+      second.add(i * 10, i % 13);
+    }
+    Range xRange = new Range(1234, 499990);
+    DownsampledSeriesCache firstCache = new DownsampledSeriesCache(new RangedContinuousSeries("1", xRange, new Range(), first));
+    DownsampledSeriesCache secondCache = new DownsampledSeriesCache(new RangedContinuousSeries("2", xRange, new Range(), second));
+
+    LongSeriesView firstView = new LongSeriesView();
+    LongSeriesView secondView = new LongSeriesView();
+    firstCache.getAlignedSeries(200, firstView);
+    secondCache.getAlignedSeries(200, secondView);
+    assertThat(firstView.size()).isAtMost(200);
+    assertThat(firstView.size()).isEqualTo(secondView.size());
+    long max = 0;
+    for (int i = 0; i < firstView.size(); i++) {
+      assertThat(firstView.getX(i)).isEqualTo(secondView.getX(i));
+      max = Math.max(max, firstView.getY(i));
+    }
+    assertThat(max).isEqualTo(1000);
+  }
+
+  private static final class CountingDataSeries extends LongDataSeries {
+    private int myFetchedCount;
+
+    @Override
+    public void getDataForXRange(double minX, double maxX, @NotNull LongSeriesView view) {
+      super.getDataForXRange(minX, maxX, view);
+      myFetchedCount += view.size();
+    }
+  }
+}
@@ -26,6 +26,8 @@ public final class FakeTimer extends StopwatchTimer {
 
   private boolean myRunning;
   private long myCurrentTimeNs;
+  private boolean myIdle;
+  private long myMaxIdleNs;
 
   @Override
   public void start() {
@@ -51,6 +53,28 @@ public final class FakeTimer extends StopwatchTimer {
     myCurrentTimeNs = currentTimeNs;
   }
 
+  @Override
+  public void idle(long maxIdleNs) {
+    myIdle = true;
+    myMaxIdleNs = maxIdleNs;
+  }
+
+  @Override
+  public void wake() {
+    myIdle = false;
+  }
+
+  /**
+   * Whether the timer was asked to idle, which doesn't prevent ticking it manually.
+   */
+  public boolean isIdle() {
+    return myIdle;
+  }
+
+  public long getMaxIdleNs() {
+    return myMaxIdleNs;
+  }
+
   public boolean step() {
     if (!isRunning()) {
       return false;
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class RangedContinuousSeriesTest {
+
+  @Test
+  public void testViewContainsDataInRange() {
+    LongDataSeries data = new LongDataSeries();
+    for (long i = 0; i < 10; i++) {
+      data.add(i, i * 2);
+    }
+    RangedContinuousSeries series = new RangedContinuousSeries("test", new Range(2, 5), new Range(), data);
+
+    LongSeriesView view = new LongSeriesView();
+    series.getSeries(view);
+    assertThat(view.size()).isEqualTo(4);
+    assertThat(view.getX(0)).isEqualTo(2);
+    assertThat(view.getY(3)).isEqualTo(10);
+  }
+
+  @Test
+  public void testViewsOfOtherSeriesGoThroughDataForXRange() {
+    DefaultDataSeries<Long> data = new ReturnAllDataSeries();
+    for (long i = 0; i < 10; i++) {
+      data.add(i, i);
+    }
+    RangedContinuousSeries series = new RangedContinuousSeries("test", new Range(2, 5), new Range(), data);
+
+    LongSeriesView longView = new LongSeriesView();
+    series.getSeries(longView);
+    assertThat(longView.size()).isEqualTo(10);
+
+    SeriesView<Long> view = new SeriesView<>();
+    series.getSeries(view);
+    assertThat(view.size()).isEqualTo(10);
+  }
+
+  private static final class ReturnAllDataSeries extends DefaultDataSeries<Long> {
+    @Override
+    public List<SeriesData<Long>> getDataForXRange(Range xRange) {
+      return getAllData();
+    }
+  }
+}
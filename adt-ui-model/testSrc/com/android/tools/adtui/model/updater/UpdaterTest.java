@@ -16,6 +16,8 @@
 package com.android.tools.adtui.model.updater;
 
 import com.android.tools.adtui.model.FakeTimer;
+import com.android.tools.adtui.model.FpsTimer;
+import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.updater.Updatable;
 import com.android.tools.adtui.model.updater.Updater;
 import org.junit.Before;
@@ -29,11 +31,13 @@ import java.util.List;
 import static org.junit.Assert.*;
 
 public class UpdaterTest {
+  private FakeTimer myTimer;
   private Updater myUpdater;
 
   @Before
   public void setUp() {
-    myUpdater = new Updater(new FakeTimer());
+    myTimer = new FakeTimer();
+    myUpdater = new Updater(myTimer);
   }
 
   @Test
@@ -150,16 +154,88 @@ public class UpdaterTest {
     assertEquals(Arrays.asList(updatableA, updatableB), reset);
   }
 
+  @Test
+  public void idleUpdatableIsSkippedUntilDue() {
+    List<Updatable> updated = new ArrayList<>();
+    FakeUpdatable updatable = new FakeUpdatable(updated, 10);
+    myUpdater.register(updatable);
+
+    myTimer.tick(4);
+    myTimer.tick(4);
+    assertTrue(updated.isEmpty());
+
+    // The skipped time is added to the elapsed time of the next update.
+    myTimer.tick(4);
+    assertEquals(Collections.singletonList(updatable), updated);
+    assertEquals(12, updatable.myLastElapsedNs);
+  }
+
+  @Test
+  public void timerIdlesUntilNextUpdatableIsDue() {
+    List<Updatable> updated = new ArrayList<>();
+    myUpdater.register(new FakeUpdatable(updated, FakeTimer.ONE_SECOND_IN_NS) {
+      @Override
+      public boolean isAnimating() {
+        return false;
+      }
+    });
+
+    myTimer.tick(FpsTimer.ONE_FRAME_IN_NS);
+    assertTrue(myTimer.isIdle());
+    assertEquals(FakeTimer.ONE_SECOND_IN_NS - FpsTimer.ONE_FRAME_IN_NS, myTimer.getMaxIdleNs());
+  }
+
+  @Test
+  public void timerDoesNotIdleWhileAnimating() {
+    List<Updatable> updated = new ArrayList<>();
+    myUpdater.register(new FakeUpdatable(updated));
+
+    myTimer.tick(FpsTimer.ONE_FRAME_IN_NS);
+    assertFalse(myTimer.isIdle());
+  }
+
+  @Test
+  public void timerWakesOnModelChange() {
+    List<Updatable> updated = new ArrayList<>();
+    myUpdater.register(new FakeUpdatable(updated) {
+      @Override
+      public boolean isAnimating() {
+        return false;
+      }
+    });
+    Range range = new Range(0, 10);
+    myUpdater.wakeOn(range, Range.Aspect.RANGE);
+
+    myTimer.tick(FpsTimer.ONE_FRAME_IN_NS);
+    assertTrue(myTimer.isIdle());
+
+    range.setMax(20);
+    assertFalse(myTimer.isIdle());
+  }
+
   private static class FakeUpdatable implements Updatable {
     private final List<Updatable> myUpdated;
+    private final long myIdleTimeNs;
+    private long myLastElapsedNs;
 
     private FakeUpdatable(List<Updatable> updated) {
+      this(updated, 0);
+    }
+
+    private FakeUpdatable(List<Updatable> updated, long idleTimeNs) {
       myUpdated = updated;
+      myIdleTimeNs = idleTimeNs;
+    }
+
+    @Override
+    public long getIdleTimeNs() {
+      return myIdleTimeNs;
     }
 
     @Override
     public void update(long elapsedNs) {
       myUpdated.add(this);
+      myLastElapsedNs = elapsedNs;
     }
   }
 }
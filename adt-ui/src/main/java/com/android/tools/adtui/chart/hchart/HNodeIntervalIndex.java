@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.chart.hchart;
+
+import com.android.tools.adtui.model.HNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spatial index over the intervals of an {@link HNode} tree, grouped by depth. Within a depth nodes are kept in their breadth-first order,
+ * which for call and flame charts is also their order on the X axis, so the nodes intersecting a range can be found by binary search
+ * instead of walking the whole tree.
+ *
+ * The index is a snapshot: it must be rebuilt if the tree is modified.
+ */
+class HNodeIntervalIndex<N extends HNode<N>> {
+
+  interface Visitor<N> {
+    /**
+     * Called for every node (or block of merged nodes) intersecting the queried range.
+     *
+     * @param node  the node to render, i.e. the first node of the block if several nodes were merged
+     * @param start the start of the block
+     * @param end   the end of the block
+     */
+    void visit(@NotNull N node, long start, long end);
+  }
+
+  /**
+   * Nodes of each depth, indexed by depth - {@link #myMinDepth}.
+   */
+  @NotNull private final List<Row<N>> myRows = new ArrayList<>();
+
+  private final int myMinDepth;
+
+  private final int myMaxDepth;
+
+  HNodeIntervalIndex(@Nullable N root) {
+    if (root == null) {
+      myMinDepth = 0;
+      myMaxDepth = -1;
+      return;
+    }
+
+    List<List<N>> nodesByDepth = new ArrayList<>();
+    List<N> queue = new ArrayList<>();
+    queue.add(root);
+    int minDepth = root.getDepth();
+    for (int head = 0; head < queue.size(); ++head) {
+      N node = queue.get(head);
+      minDepth = Math.min(minDepth, node.getDepth());
+      for (int i = 0; i < node.getChildCount(); ++i) {
+        queue.add(node.getChildAt(i));
+      }
+    }
+
+    int maxDepth = -1;
+    for (N node : queue) {
+      int row = node.getDepth() - minDepth;
+      while (nodesByDepth.size() <= row) {
+        nodesByDepth.add(new ArrayList<>());
+      }
+      nodesByDepth.get(row).add(node);
+      maxDepth = Math.max(maxDepth, node.getDepth());
+    }
+    for (List<N> nodes : nodesByDepth) {
+      myRows.add(new Row<>(nodes));
+    }
+    myMinDepth = minDepth;
+    myMaxDepth = maxDepth;
+  }
+
+  /**
+   * @return the depth of the deepest node in the tree, or -1 if the tree is empty.
+   */
+  int getMaxDepth() {
+    return myMaxDepth;
+  }
+
+  /**
+   * Visits the nodes intersecting [minX, maxX] whose depth is within [fromDepth, toDepth], depth by depth and in X order within a depth.
+   * Consecutive nodes of a depth that start and end inside the same pixel, given the width of a pixel in X units, are merged into a
+   * single block, so that the number of visited nodes is bounded by the number of pixels rather than by the size of the tree.
+   */
+  void query(double minX, double maxX, double unitsPerPixel, int fromDepth, int toDepth, @NotNull Visitor<N> visitor) {
+    int from = Math.max(0, fromDepth - myMinDepth);
+    int to = Math.min(myRows.size() - 1, toDepth - myMinDepth);
+    for (int row = from; row <= to; ++row) {
+      myRows.get(row).query(minX, maxX, unitsPerPixel, visitor);
+    }
+  }
+
+  private static class Row<N extends HNode<N>> {
+    @NotNull private final List<N> myNodes;
+    @NotNull private final long[] myStarts;
+    @NotNull private final long[] myEnds;
+
+    /**
+     * Whether both the starts and the ends of the nodes are non-decreasing, which is required to binary search them. This holds for any
+     * well formed call or flame chart, but isn't enforced by {@link HNode}, so unsorted rows fall back to a linear scan.
+     */
+    private final boolean mySorted;
+
+    private Row(@NotNull List<N> nodes) {
+      myNodes = nodes;
+      myStarts = new long[nodes.size()];
+      myEnds = new long[nodes.size()];
+      boolean sorted = true;
+      for (int i = 0; i < nodes.size(); ++i) {
+        N node = nodes.get(i);
+        myStarts[i] = node.getStart();
+        myEnds[i] = node.getEnd();
+        if (i > 0 && (myStarts[i] < myStarts[i - 1] || myEnds[i] < myEnds[i - 1])) {
+          sorted = false;
+        }
+      }
+      mySorted = sorted;
+    }
+
+    private void query(double minX, double maxX, double unitsPerPixel, @NotNull Visitor<N> visitor) {
+      int n = myNodes.size();
+      if (!mySorted || unitsPerPixel <= 0) {
+        for (int i = 0; i < n; ++i) {
+          if (myStarts[i] <= maxX && myEnds[i] >= minX) {
+            visitor.visit(myNodes.get(i), myStarts[i], myEnds[i]);
+          }
+        }
+        return;
+      }
+
+      int i = firstEndAtLeast(minX, 0);
+      while (i < n && myStarts[i] <= maxX) {
+        double startPixel = Math.floor((myStarts[i] - minX) / unitsPerPixel);
+        double endPixel = Math.floor((myEnds[i] - minX) / unitsPerPixel);
+        if (startPixel < endPixel) {
+          visitor.visit(myNodes.get(i), myStarts[i], myEnds[i]);
+          ++i;
+          continue;
+        }
+        // The node is within a single pixel: merge it with the following nodes ending in the same pixel.
+        int next = Math.max(i + 1, firstEndAtLeast(minX + (endPixel + 1) * unitsPerPixel, i + 1));
+        visitor.visit(myNodes.get(i), myStarts[i], myEnds[next - 1]);
+        i = next;
+      }
+    }
+
+    /**
+     * @return the index of the first node, at or after {@code fromIndex}, whose end is at least {@code x}.
+     */
+    private int firstEndAtLeast(double x, int fromIndex) {
+      int low = fromIndex;
+      int high = myEnds.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (myEnds[mid] < x) {
+          low = mid + 1;
+        }
+        else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
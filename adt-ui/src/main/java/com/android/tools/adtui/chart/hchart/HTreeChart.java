@@ -37,9 +37,7 @@ import java.awt.event.MouseWheelEvent;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import javax.swing.AbstractAction;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
@@ -66,6 +64,7 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
   private static final int INITIAL_Y_POSITION = 0;
   private static final int HEIGHT_PADDING = 15;
   private static final int MOUSE_WHEEL_SCROLL_FACTOR = 8;
+  private static final double EPSILON = 1e-6;
 
   private final Orientation myOrientation;
 
@@ -75,6 +74,9 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
   @Nullable
   private N myRoot;
 
+  @NotNull
+  private HNodeIntervalIndex<N> myIndex;
+
   @NotNull
   private final Range myXRange;
 
@@ -116,7 +118,16 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
    */
   private boolean myDataUpdated;
 
-  private int myCachedMaxHeight;
+  /**
+   * The canvas is taller than the chart by half the chart's height on each side, so panning vertically only moves the canvas around
+   * until the visible area leaves it. This is the Y position the top of the canvas was rendered at.
+   */
+  private double myCanvasYMin;
+
+  /**
+   * Where the canvas was last drawn on the chart, which is needed to map points of the chart to {@link #myDrawnRectangles}.
+   */
+  private int myCanvasOffsetY;
 
   /**
    * Creates a Horizontal Tree Chart.
@@ -125,6 +136,7 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
     myGlobalXRange = builder.myGlobalXRange;
     myXRange = builder.myXRange;
     myRoot = builder.myRoot;
+    myIndex = new HNodeIntervalIndex<>(myRoot);
     myReducer = builder.myReducer;
     myRenderer = builder.myRenderer;
     myOrientation = builder.myOrientation;
@@ -141,7 +153,8 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
     initializeMouseEvents();
     setFont(AdtUiUtils.DEFAULT_FONT);
     myXRange.addDependency(myAspectObserver).onChange(Range.Aspect.RANGE, this::changed);
-    myYRange.addDependency(myAspectObserver).onChange(Range.Aspect.RANGE, this::changed);
+    // Vertical panning doesn't invalidate the canvas, draw() decides whether it can be reused.
+    myYRange.addDependency(myAspectObserver).onChange(Range.Aspect.RANGE, this::opaqueRepaint);
     changed();
   }
 
@@ -159,7 +172,6 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
 
   private void changed() {
     myDataUpdated = true;
-    myCachedMaxHeight = calculateMaximumHeight();
     opaqueRepaint();
   }
 
@@ -168,7 +180,7 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
     long startTime = System.nanoTime();
     if (myDataUpdated) {
       // Nulling out the canvas will trigger a render pass, below
-      updateNodesAndClearCanvas();
+      myCanvas = null;
       myDataUpdated = false;
     }
     g.setFont(getFont());
@@ -185,17 +197,38 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
       return;
     }
 
-    if (myCanvas == null || ImageUtil.getUserHeight(myCanvas) != dim.height || ImageUtil.getUserWidth(myCanvas) != dim.width) {
-      redrawToCanvas(dim);
+    int margin = dim.height / 2;
+    Dimension canvasDim = new Dimension(dim.width, dim.height + 2 * margin);
+    boolean redraw = myCanvas == null ||
+                     ImageUtil.getUserHeight(myCanvas) != canvasDim.height || ImageUtil.getUserWidth(myCanvas) != canvasDim.width ||
+                     !canvasCoversYRange(margin);
+    if (redraw) {
+      myCanvasYMin = myYRange.getMin() - margin;
+      updateNodes(canvasDim);
+      redrawToCanvas(canvasDim);
     }
-    UIUtil.drawImage(g, myCanvas, 0, 0, null);
+
+    // The canvas only has to be moved by how much the chart was panned vertically since it was rendered.
+    int shift = (int)Math.round(myYRange.getMin() - myCanvasYMin);
+    myCanvasOffsetY = myOrientation == Orientation.TOP_DOWN ? -shift : shift - 2 * margin;
+    UIUtil.drawImage(g, myCanvas, 0, myCanvasOffsetY, null);
     addDebugInfo("Draw time %.2fms", (System.nanoTime() - startTime) / 1e6);
     addDebugInfo("# of nodes %d", myNodes.size());
     addDebugInfo("# of reduced nodes %d", myDrawnNodes.size());
+    addDebugInfo("Canvas redrawn %b", redraw);
+  }
+
+  /**
+   * @return true if the canvas contains the whole visible area, rendered at a whole number of pixels from where it is now, in which case
+   * it can be drawn as is.
+   */
+  private boolean canvasCoversYRange(int margin) {
+    double shift = myYRange.getMin() - myCanvasYMin;
+    return shift >= 0 && shift <= 2 * margin && Math.abs(shift - Math.rint(shift)) < EPSILON;
   }
 
   private void redrawToCanvas(@NotNull Dimension dim) {
-    if (myCanvas == null || (ImageUtil.getUserWidth(myCanvas) < dim.width || ImageUtil.getUserHeight(myCanvas) < dim.height)) {
+    if (myCanvas == null || ImageUtil.getUserWidth(myCanvas) != dim.width || ImageUtil.getUserHeight(myCanvas) != dim.height) {
       // Note: We intentionally create an RGB image, not an ARGB image, because this allows nodes
       // to render their text clearly (ARGB prevents LCD rendering from working).
       myCanvas = UIUtil.createImage(dim.width, dim.height, BufferedImage.TYPE_INT_RGB);
@@ -244,49 +277,36 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
     g.dispose();
   }
 
-  private void updateNodesAndClearCanvas() {
+  /**
+   * Collects the nodes to render on a canvas of the given size. Only the rows overlapping the canvas and the nodes overlapping the X range
+   * are looked up, and nodes narrower than a pixel come already merged into blocks, so the work doesn't grow with the size of the tree.
+   */
+  private void updateNodes(@NotNull Dimension canvasDim) {
     myNodes.clear();
     myRectangles.clear();
-    myCanvas = null;
     if (myRoot == null) {
       return;
     }
 
-    if (inRange(myRoot)) {
-      myNodes.add(myRoot);
-      myRectangles.add(createRectangle(myRoot));
-    }
-
-    int head = 0;
-    while (head < myNodes.size()) {
-      N curNode = myNodes.get(head++);
-
-      for (int i = 0; i < curNode.getChildCount(); ++i) {
-        N child = curNode.getChildAt(i);
-        if (inRange(child)) {
-          myNodes.add(child);
-          myRectangles.add(createRectangle(child));
-        }
+    int rowHeight = mDefaultFontMetrics.getHeight() + PADDING;
+    int fromDepth = (int)Math.floor(myCanvasYMin / rowHeight);
+    int toDepth = (int)Math.ceil((myCanvasYMin + canvasDim.height) / rowHeight);
+    double unitsPerPixel = myXRange.getLength() / Math.max(1, canvasDim.width);
+    myIndex.query(myXRange.getMin(), myXRange.getMax(), unitsPerPixel, fromDepth, toDepth, (node, start, end) -> {
+      if (node != myRoot || myRootVisible) {
+        myNodes.add(node);
+        myRectangles.add(createRectangle(node, start, end));
       }
-    }
-    if (!myRootVisible && !myNodes.isEmpty()) {
-      myNodes.remove(0);
-      myRectangles.remove(0);
-    }
-  }
-
-  private boolean inRange(@NotNull N node) {
-    return node.getStart() <= myXRange.getMax() && node.getEnd() >= myXRange.getMin();
+    });
   }
 
   @NotNull
-  private Rectangle2D.Float createRectangle(@NotNull N node) {
-    float left = (float)((node.getStart() - myXRange.getMin()) / myXRange.getLength());
-    float right = (float)((node.getEnd() - myXRange.getMin()) / myXRange.getLength());
+  private Rectangle2D.Float createRectangle(@NotNull N node, long start, long end) {
+    float left = (float)((start - myXRange.getMin()) / myXRange.getLength());
+    float right = (float)((end - myXRange.getMin()) / myXRange.getLength());
     Rectangle2D.Float rect = new Rectangle2D.Float();
     rect.x = left;
-    rect.y = (float)((mDefaultFontMetrics.getHeight() + PADDING) * node.getDepth()
-                     - getYRange().getMin());
+    rect.y = (float)((mDefaultFontMetrics.getHeight() + PADDING) * node.getDepth() - myCanvasYMin);
     rect.width = right - left;
     rect.height = mDefaultFontMetrics.getHeight();
     return rect;
@@ -298,6 +318,7 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
 
   public void setHTree(@Nullable N root) {
     this.myRoot = root;
+    myIndex = new HNodeIntervalIndex<>(root);
     changed();
   }
 
@@ -305,7 +326,7 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
   public N getNodeAt(Point point) {
     if (point != null) {
       for (int i = 0; i < myDrawnNodes.size(); ++i) {
-        if (contains(myDrawnRectangles.get(i), point)) {
+        if (contains(myDrawnRectangles.get(i), point.getX(), point.getY() - myCanvasOffsetY)) {
           return myDrawnNodes.get(i);
         }
       }
@@ -313,9 +334,9 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
     return null;
   }
 
-  private static boolean contains(@NotNull Rectangle2D rectangle, @NotNull Point p) {
-    return rectangle.getMinX() <= p.getX() && p.getX() <= rectangle.getMaxX() &&
-           rectangle.getMinY() <= p.getY() && p.getY() <= rectangle.getMaxY();
+  private static boolean contains(@NotNull Rectangle2D rectangle, double x, double y) {
+    return rectangle.getMinX() <= x && x <= rectangle.getMaxX() &&
+           rectangle.getMinY() <= y && y <= rectangle.getMaxY();
   }
 
   @NotNull
@@ -461,30 +482,11 @@ public class HTreeChart<N extends HNode<N>> extends AnimatedComponent {
   }
 
   public int getMaximumHeight() {
-    return myCachedMaxHeight;
-  }
-
-  private int calculateMaximumHeight() {
     if (myRoot == null) {
       return 0;
     }
 
-    int maxDepth = -1;
-    Queue<N> queue = new LinkedList<>();
-    queue.add(myRoot);
-
-    while (!queue.isEmpty()) {
-      N n = queue.poll();
-      assert n != null;
-      if (n.getDepth() > maxDepth) {
-        maxDepth = n.getDepth();
-      }
-
-      for (int i = 0; i < n.getChildCount(); ++i) {
-        queue.add(n.getChildAt(i));
-      }
-    }
-    maxDepth += 1;
+    int maxDepth = myIndex.getMaxDepth() + 1;
     // The HEIGHT_PADDING is for the chart's toe (the innermost frame on call stacks).
     // We have this because the padding near the chart's head (the outermost frame on call stacks)
     // is there because the root node of the tree is invisible.
@@ -28,6 +28,9 @@ public interface HTreeChartReducer<N extends HNode<N>> {
    * reduced. When the {@link HTreeChart} is drawn using modified {@code rectangles} and {@code nodes}, it should be visually similar
    * as if it was drawn without reducing.
    *
+   * The rectangles only cover the visible rows, and consecutive nodes of a row which fall inside a single pixel already come merged into
+   * one rectangle, attributed to the first of those nodes.
+   *
    * {@link HTreeChart} will throw an {@link AssertionError} if the reducer does not ensure that the
    * length of {@code nodes} is the same as the length of {@code rectangles}.
    */
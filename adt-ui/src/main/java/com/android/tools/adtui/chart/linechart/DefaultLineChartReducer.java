@@ -15,6 +15,7 @@
  */
 package com.android.tools.adtui.chart.linechart;
 
+import com.android.tools.adtui.model.LongSeriesView;
 import com.android.tools.adtui.model.SeriesData;
 import org.jetbrains.annotations.NotNull;
 
@@ -66,6 +67,34 @@ class DefaultLineChartReducer implements LineChartReducer {
     return reduced;
   }
 
+  /**
+   * Same reduction as {@link #reduceData(List, LineConfig)}, compacting the primitive view in place.
+   */
+  @Override
+  public void reduceData(@NotNull LongSeriesView data, @NotNull LineConfig config) {
+    if (config.getDataBucketInterval() > 0) {
+      return;
+    }
+
+    // The reduced points are written over the input ones, which is safe as the write index never passes the read index.
+    int reducedSize = 0;
+    for (int i = 0; i < data.size(); i++) {
+      long y = data.getY(i);
+      while (reducedSize >= 2) {
+        long preLast = data.getY(reducedSize - 2);
+        long last = data.getY(reducedSize - 1);
+
+        if (preLast == last && (config.isStepped() || last == y)) {
+          reducedSize--;
+        } else {
+          break;
+        }
+      }
+      data.set(reducedSize++, data.getX(i), y);
+    }
+    data.truncate(reducedSize);
+  }
+
   /**
   * The basic idea behind this algorithm is to reduce number of points to available pixels.
   * For every pixel it draws 4 points: the first point, the last point,
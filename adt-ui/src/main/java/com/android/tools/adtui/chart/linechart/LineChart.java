@@ -18,9 +18,10 @@ package com.android.tools.adtui.chart.linechart;
 
 import com.android.annotations.VisibleForTesting;
 import com.android.tools.adtui.AnimatedComponent;
+import com.android.tools.adtui.model.DownsampledSeriesCache;
 import com.android.tools.adtui.model.LineChartModel;
+import com.android.tools.adtui.model.LongSeriesView;
 import com.android.tools.adtui.model.RangedContinuousSeries;
-import com.android.tools.adtui.model.SeriesData;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
@@ -115,6 +116,20 @@ public class LineChart extends AnimatedComponent {
 
   private Map<LineConfig, DashInfo> myDashInfoCache = new HashMap<>();
 
+  /**
+   * Buffers reused across redraws, so reading and reducing the series does not allocate per data point.
+   */
+  @NotNull private final LongSeriesView mySeriesView = new LongSeriesView();
+  @NotNull private final LongSeriesView myStackedSeriesView = new LongSeriesView();
+
+  /**
+   * If true, series are read through a {@link DownsampledSeriesCache} so the number of points processed per redraw is
+   * bounded by the width of the chart rather than by the number of samples in range.
+   */
+  private boolean myDownsamplingEnabled;
+
+  @NotNull private final Map<RangedContinuousSeries, DownsampledSeriesCache> myDownsampledSeries = new HashMap<>();
+
   @VisibleForTesting
   public LineChart(@NotNull LineChartModel model, @NotNull LineChartReducer reducer) {
     myLinePaths = new ArrayList<>();
@@ -148,6 +163,16 @@ public class LineChart extends AnimatedComponent {
     myLinesConfig.put(series, config);
   }
 
+  /**
+   * Enables caching and downsampling the series of this chart. This is only correct for series whose data is append-only
+   * and whose points are not computed from the queried range. Lines showing buckets are never downsampled. Stacked lines
+   * are downsampled to the same x values, as long as the stacked series have samples at the same x.
+   */
+  public void setDownsamplingEnabled(boolean enabled) {
+    myDownsamplingEnabled = enabled;
+    myDownsampledSeries.clear();
+  }
+
   public void addCustomRenderer(@NotNull LineChartCustomRenderer renderer) {
     myCustomRenderers.add(renderer);
   }
@@ -172,7 +197,7 @@ public class LineChart extends AnimatedComponent {
 
     // Store the last stacked series to use them to increment the Y values
     // of the current stacked series.
-    List<SeriesData<Long>> lastStackedSeries = null;
+    boolean hasStackedSeries = false;
 
     Deque<Path2D> orderedPaths = new ArrayDeque<>(myLinesConfig.size());
     Deque<RangedContinuousSeries> orderedSeries = new ArrayDeque<>(myLinesConfig.size());
@@ -184,10 +209,26 @@ public class LineChart extends AnimatedComponent {
       }
       final LineConfig config = getLineConfig(ranged);
 
-      List<SeriesData<Long>> seriesList = ranged.getSeries();
+      LongSeriesView seriesList = mySeriesView;
+      if (myDownsamplingEnabled && config.getDataBucketInterval() == 0) {
+        // Two points per pixel, which is what reducePath keeps at most.
+        int maxPoints = Math.max(1, dim.width) * 2;
+        DownsampledSeriesCache cache = myDownsampledSeries.computeIfAbsent(ranged, DownsampledSeriesCache::new);
+        if (config.isStacked()) {
+          // Stacked values are summed point by point, so all the stacked series need their points at the same x.
+          cache.getAlignedSeries(maxPoints, seriesList);
+        }
+        else {
+          cache.getSeries(maxPoints, seriesList);
+        }
+      }
+      else {
+        ranged.getSeries(seriesList);
+      }
       if (config.isStacked()) {
-        if (lastStackedSeries == null) {
-          lastStackedSeries = new ArrayList<>(seriesList);
+        if (!hasStackedSeries) {
+          myStackedSeriesView.copyFrom(seriesList);
+          hasStackedSeries = true;
         }
         else {
           // If the current series is stacked, increment its value by the value of the last stacked
@@ -195,11 +236,11 @@ public class LineChart extends AnimatedComponent {
           // points than the last stacked series (meaning that the last one was populated in a
           // prior iteration). In this case, ignore the new points (i.e. we take only the intersection
           // across all series).
-          for (int i = 0; i < seriesList.size() && i < lastStackedSeries.size(); ++i) {
+          for (int i = 0; i < seriesList.size() && i < myStackedSeriesView.size(); ++i) {
             // An assumption is made here that the x values across series are aligned.
-            lastStackedSeries.get(i).value += seriesList.get(i).value;
+            myStackedSeriesView.setY(i, myStackedSeriesView.getY(i) + seriesList.getY(i));
           }
-          seriesList = lastStackedSeries;
+          seriesList.copyFrom(myStackedSeriesView);
         }
       }
 
@@ -213,19 +254,19 @@ public class LineChart extends AnimatedComponent {
       double firstXd = 0f;
       // Actual value of first point
       double firstX = 0;
-      seriesList = myReducer.reduceData(seriesList, config);
+      myReducer.reduceData(seriesList, config);
       double xBucketInterval = config.getDataBucketInterval() / xLength;
       double xBucketBarWidth = xBucketInterval * BUCKET_BAR_PERCENTAGE;
       // If we are a stepped chart or bar chart, we don't need to worry about start and end points' Y value.
       boolean optimizeYZooming = !config.isStepped() && xBucketInterval == 0;
       for (int i = 0; i < seriesList.size(); i++) {
-        SeriesData<Long> data = seriesList.get(i);
-        SeriesData<Long> dataNext = seriesList.get(i + 1 == seriesList.size() ? i : i + 1);
-        SeriesData<Long> dataPrev = seriesList.get(i - 1 < 0 ? i : i - 1);
+        int nextIndex = i + 1 == seriesList.size() ? i : i + 1;
+        int prevIndex = i - 1 < 0 ? i : i - 1;
+        long dataX = seriesList.getX(i);
         // TODO: refactor to allow different types (e.g. double)
-        double xd = (data.x - xMin) / xLength;
+        double xd = (dataX - xMin) / xLength;
         // Swing's (0, 0) coordinate is in top-left. As we use bottom-left (0, 0), we need to adjust the y coordinate.
-        double yd = 1 - (data.value - yMin) / yLength;
+        double yd = 1 - (seriesList.getY(i) - yMin) / yLength;
 
         // This change significantly speeds up drawing when zoomed into the chart. Without this change a line could extend
         // a few thousand pixels off the screen in both directions. The fill/draw function would then spend a lot of time
@@ -242,14 +283,14 @@ public class LineChart extends AnimatedComponent {
 
         double originalXd = xd;
         if (xd < 0) {
-          double xdNext = (dataNext.x - xMin) / xLength;
+          double xdNext = (seriesList.getX(nextIndex) - xMin) / xLength;
           // If our next point is also offscreen then ignore this point and continue.
           if (xdNext < 0) {
             continue;
           }
 
           //Get the Y offset of our next point.
-          double ydNext = 1 - (dataNext.value - yMin) / yLength;
+          double ydNext = 1 - (seriesList.getY(nextIndex) - yMin) / yLength;
 
           // If we are a dash line we get the closest normalized point to are graph otherwise we just set our point to 0.
           double newPosition = 0;
@@ -264,13 +305,13 @@ public class LineChart extends AnimatedComponent {
           // Set our new X position and carry on.
           xd = newPosition;
         } else if (xd > 1) {
-          double xdPrev = (dataPrev.x - xMin) / xLength;
+          double xdPrev = (seriesList.getX(prevIndex) - xMin) / xLength;
           if (xdPrev > 1) {
             break;
           }
           if (optimizeYZooming) {
             double ratio = (1 - xdPrev) / (xd - xdPrev);
-            double ydPrev = 1 - (dataPrev.value - yMin) / yLength;
+            double ydPrev = 1 - (seriesList.getY(prevIndex) - yMin) / yLength;
             yd = (1 - ratio) * ydPrev + (ratio * yd);
           }
           xd = 1;
@@ -278,7 +319,7 @@ public class LineChart extends AnimatedComponent {
 
         if (path.getCurrentPoint() == null) {
           firstXd = xd;
-          firstX = data.x;
+          firstX = dataX;
           // If for bucket data, because the previous ending x value is next data point's starting
           // x value, i.e. (xd + interval, 1), move the path start point to (xd, 1).
           // Otherwise, move the path start point to (xd, yd).
@@ -352,6 +393,11 @@ public class LineChart extends AnimatedComponent {
       }
     }
 
+    if (!myDownsampledSeries.isEmpty()) {
+      // Drop the caches of series removed from the model.
+      myDownsampledSeries.keySet().retainAll(myModel.getSeries());
+    }
+
     myLinePaths.clear();
     myLinePaths.addAll(orderedPaths);
 
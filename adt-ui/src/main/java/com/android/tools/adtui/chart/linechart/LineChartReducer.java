@@ -15,7 +15,9 @@
  */
 package com.android.tools.adtui.chart.linechart;
 
+import com.android.tools.adtui.model.LongSeriesView;
 import com.android.tools.adtui.model.SeriesData;
+import org.jetbrains.annotations.NotNull;
 
 import java.awt.geom.Path2D;
 import java.util.List;
@@ -31,6 +33,14 @@ public interface LineChartReducer {
    */
   List<SeriesData<Long>> reduceData(List<SeriesData<Long>> data, LineConfig config);
 
+  /**
+   * Unboxed variant of {@link #reduceData(List, LineConfig)} which reduces {@code data} in place. {@link LineChart} uses this
+   * method, the default implementation adapts to the boxed variant so existing reducers keep working.
+   */
+  default void reduceData(@NotNull LongSeriesView data, @NotNull LineConfig config) {
+    data.copyFrom(reduceData(data.toSeriesDataList(), config));
+  }
+
   /**
    * Reduces the given path in a pixel level, i.e when dimensions are available.
    * The result shouldn't affect the looking of the line when it's drawn.
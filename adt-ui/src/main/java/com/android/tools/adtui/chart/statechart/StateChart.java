@@ -21,6 +21,7 @@ import com.android.tools.adtui.AnimatedComponent;
 import com.android.tools.adtui.common.AdtUiUtils;
 import com.android.tools.adtui.model.RangedSeries;
 import com.android.tools.adtui.model.SeriesData;
+import com.android.tools.adtui.model.SeriesView;
 import com.android.tools.adtui.model.StateChartModel;
 import com.android.tools.adtui.model.Stopwatch;
 import com.intellij.openapi.diagnostic.Logger;
@@ -58,6 +59,11 @@ public final class StateChart<T> extends AnimatedComponent {
 
   private StateChartModel<T> myModel;
 
+  /**
+   * Buffer reused across frames to read each series without allocating a {@link SeriesData} per state change.
+   */
+  @NotNull private final SeriesView<T> mySeriesView = new SeriesView<>();
+
   /**
    * An object that maps between a type T, and a color to be used in the StateChart, all values of T should return a valid color.
    */
@@ -236,18 +242,18 @@ public final class StateChart<T> extends AnimatedComponent {
       final double invRange = 1.0 / (max - min);
       float startHeight = 1.0f - (rectHeight * (seriesIndex + 1));
 
-      List<SeriesData<T>> seriesDataList = data.getSeries();
-      if (seriesDataList.isEmpty()) {
+      SeriesView<T> seriesView = mySeriesView;
+      data.getSeries(seriesView);
+      if (seriesView.isEmpty()) {
         continue;
       }
 
       // Construct rectangles.
-      long previousX = seriesDataList.get(0).x;
-      T previousValue = seriesDataList.get(0).value;
-      for (int i = 1; i < seriesDataList.size(); i++) {
-        SeriesData<T> seriesData = seriesDataList.get(i);
-        long x = seriesData.x;
-        T value = seriesData.value;
+      long previousX = seriesView.getX(0);
+      T previousValue = seriesView.getValue(0);
+      for (int i = 1; i < seriesView.size(); i++) {
+        long x = seriesView.getX(i);
+        T value = seriesView.getValue(i);
 
         if (value.equals(previousValue)) {
           // Ignore repeated values.
@@ -276,6 +282,7 @@ public final class StateChart<T> extends AnimatedComponent {
         addRectangleDelta(previousValue, Math.max(min, previousX), max, min, invRange, startHeight + gap * 0.5f, barHeight);
       }
     }
+    mySeriesView.clear();
   }
 
   @Override
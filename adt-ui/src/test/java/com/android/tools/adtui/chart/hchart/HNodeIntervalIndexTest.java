@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.chart.hchart;
+
+import com.android.tools.adtui.model.DefaultHNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class HNodeIntervalIndexTest {
+
+  /**
+   * The structure of the tree:
+   *   0  10  20  30  40  50  60  70  80  90  100
+   *   A+++++++++++++++++++++++++++++++++++++++++
+   *   B+++++++++++++++++++     C++++++++++++++++
+   *   D+++  E+++ F+G+H+        I+++++++++++++
+   */
+  private static DefaultHNode<String> createTree() {
+    DefaultHNode<String> a = newNode("A", 0, 100, 0);
+    DefaultHNode<String> b = newNode("B", 0, 50, 1);
+    DefaultHNode<String> c = newNode("C", 60, 100, 1);
+    a.addChild(b);
+    a.addChild(c);
+    b.addChild(newNode("D", 0, 10, 2));
+    b.addChild(newNode("E", 15, 25, 2));
+    b.addChild(newNode("F", 30, 31, 2));
+    b.addChild(newNode("G", 31, 32, 2));
+    b.addChild(newNode("H", 33, 34, 2));
+    c.addChild(newNode("I", 60, 95, 2));
+    return a;
+  }
+
+  @Test
+  public void testMaxDepth() {
+    assertThat(new HNodeIntervalIndex<>(createTree()).getMaxDepth()).isEqualTo(2);
+    assertThat(new HNodeIntervalIndex<DefaultHNode<String>>(null).getMaxDepth()).isEqualTo(-1);
+  }
+
+  @Test
+  public void testOnlyNodesInRangeAreVisited() {
+    HNodeIntervalIndex<DefaultHNode<String>> index = new HNodeIntervalIndex<>(createTree());
+    assertThat(query(index, 12, 40, 0.1, 0, 2)).containsExactly("A", "B", "E", "F", "G", "H").inOrder();
+    assertThat(query(index, 55, 58, 0.1, 0, 2)).containsExactly("A");
+    assertThat(query(index, 96, 200, 0.1, 0, 2)).containsExactly("A", "C").inOrder();
+  }
+
+  @Test
+  public void testOnlyRequestedDepthsAreVisited() {
+    HNodeIntervalIndex<DefaultHNode<String>> index = new HNodeIntervalIndex<>(createTree());
+    assertThat(query(index, 0, 100, 0.1, 1, 1)).containsExactly("B", "C").inOrder();
+    assertThat(query(index, 0, 100, 0.1, 2, 10)).containsExactly("D", "E", "F", "G", "H", "I").inOrder();
+    assertThat(query(index, 0, 100, 0.1, 3, 10)).isEmpty();
+  }
+
+  @Test
+  public void testSubPixelNodesAreMerged() {
+    HNodeIntervalIndex<DefaultHNode<String>> index = new HNodeIntervalIndex<>(createTree());
+    // With 5 units per pixel, F, G and H all fall inside the pixel [30, 35).
+    List<String> visits = new ArrayList<>();
+    index.query(0, 100, 5, 2, 2, (node, start, end) -> visits.add(node.getData() + "[" + start + "," + end + "]"));
+    assertThat(visits).containsExactly("D[0,10]", "E[15,25]", "F[30,34]", "I[60,95]").inOrder();
+  }
+
+  @Test
+  public void testUnsortedRowsAreScanned() {
+    DefaultHNode<String> root = newNode("A", 0, 100, 0);
+    root.addChild(newNode("C", 60, 100, 1));
+    root.addChild(newNode("B", 0, 50, 1));
+    HNodeIntervalIndex<DefaultHNode<String>> index = new HNodeIntervalIndex<>(root);
+    assertThat(query(index, 0, 55, 1, 1, 1)).containsExactly("B");
+    assertThat(query(index, 0, 100, 1, 1, 1)).containsExactly("C", "B").inOrder();
+  }
+
+  @Test
+  public void testLargeRowIsBoundedByPixels() {
+    DefaultHNode<String> root = newNode("root", 0, 1000000, 0);
+    for (int i = 0; i < 1000000; i++) {
+      root.addChild(newNode("child", i, i + 1, 1));
+    }
+    HNodeIntervalIndex<DefaultHNode<String>> index = new HNodeIntervalIndex<>(root);
+    // 1000 pixels wide. A node ending on a pixel boundary crosses two pixels and isn't merged, so there are at most two blocks per pixel.
+    assertThat(query(index, 0, 1000000, 1000, 1, 1).size()).isAtMost(2 * 1001);
+    // Zoomed in, every node is wider than a pixel and only the ones in range are visited.
+    assertThat(query(index, 500000, 500010, 0.01, 1, 1).size()).isEqualTo(12);
+  }
+
+  private static List<String> query(HNodeIntervalIndex<DefaultHNode<String>> index, double minX, double maxX, double unitsPerPixel,
+                                    int fromDepth, int toDepth) {
+    List<String> visited = new ArrayList<>();
+    index.query(minX, maxX, unitsPerPixel, fromDepth, toDepth, (node, start, end) -> visited.add(node.getData()));
+    return visited;
+  }
+
+  private static DefaultHNode<String> newNode(String data, long start, long end, int depth) {
+    DefaultHNode<String> node = new DefaultHNode<>(data, start, end);
+    node.setDepth(depth);
+    return node;
+  }
+}
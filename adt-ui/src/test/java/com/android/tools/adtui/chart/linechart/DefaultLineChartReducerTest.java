@@ -15,6 +15,7 @@
  */
 package com.android.tools.adtui.chart.linechart;
 
+import com.android.tools.adtui.model.LongSeriesView;
 import com.android.tools.adtui.model.SeriesData;
 import com.google.common.collect.ImmutableList;
 import org.junit.Before;
@@ -89,6 +90,26 @@ public class DefaultLineChartReducerTest {
     assertSeriesEquals(expected, result);
   }
 
+  @Test
+  public void reduceDataInPlaceMatchesBoxedReduction() {
+    long[] values = {10, 10, 13, 13, 13, 13, 5, 5};
+    List<SeriesData<Long>> data = new ArrayList<>();
+    LongSeriesView view = new LongSeriesView();
+    for (int i = 0; i < values.length; i++) {
+      data.add(new SeriesData<>(i, values[i]));
+      view.add(i, values[i]);
+    }
+    LongSeriesView steppedView = new LongSeriesView();
+    steppedView.copyFrom(view);
+
+    myReducer.reduceData(view, myConfig);
+    assertSeriesEquals(myReducer.reduceData(data, myConfig), view.toSeriesDataList());
+
+    myConfig.setStepped(true);
+    myReducer.reduceData(steppedView, myConfig);
+    assertSeriesEquals(myReducer.reduceData(data, myConfig), steppedView.toSeriesDataList());
+  }
+
   @Test
   public void simpleReducePath() {
     float[][] given = {{0, 0}, {0.1f, 1}, {0.2f, 6}, {0.3f, 4}, {1, 2}, {1.1f, 5}};
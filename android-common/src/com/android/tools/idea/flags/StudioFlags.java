@@ -169,6 +169,37 @@ public final class StudioFlags {
     false
   );
 
+  public static final Flag<Integer> PROFILER_RETENTION_MAX_SESSION_AGE_DAYS = Flag.create(
+    PROFILER, "retention.max.session.age.days", "Maximum age of kept sessions",
+    "Number of days after which ended sessions are removed from the profiler database, or 0 to keep them.",
+    0
+  );
+
+  public static final Flag<Integer> PROFILER_RETENTION_MAX_SESSION_COUNT = Flag.create(
+    PROFILER, "retention.max.session.count", "Maximum number of kept sessions",
+    "Number of ended sessions above which the oldest ones are removed from the profiler database, or 0 to keep them.",
+    0
+  );
+
+  public static final Flag<Integer> PROFILER_RETENTION_MAX_DATABASE_MB = Flag.create(
+    PROFILER, "retention.max.database.mb", "Maximum size of the profiler database",
+    "Size in MB above which the oldest ended sessions are removed from the profiler database, or 0 for no limit.",
+    0
+  );
+
+  public static final Flag<Integer> PROFILER_RETENTION_RAW_DATA_MINUTES = Flag.create(
+    PROFILER, "retention.raw.data.minutes", "Duration of full resolution samples",
+    "Number of minutes after which the high-frequency samples of a session are downsampled to one per second, or 0 to keep them.",
+    0
+  );
+
+  public static final Flag<Integer> PROFILER_SAMPLE_STORE_MB = Flag.create(
+    PROFILER, "sample.store.mb", "In-memory copy of the CPU and memory samples",
+    "Number of megabytes of each type of CPU and memory usage samples also kept in memory to speed up range queries, or 0 to " +
+    "read them from the database only.",
+    0
+  );
+
   private static final FlagGroup NELE = new FlagGroup(FLAGS, "nele", "Layout Editor");
   public static final Flag<Boolean> NELE_ANIMATIONS_PREVIEW = Flag.create(
     NELE, "animated.preview", "Show preview animations toolbar",
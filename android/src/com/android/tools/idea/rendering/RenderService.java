@@ -63,6 +63,7 @@ import org.jetbrains.annotations.TestOnly;
 import java.io.IOException;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.android.SdkConstants.TAG_PREFERENCE_SCREEN;
@@ -86,6 +87,8 @@ public class RenderService implements Disposable {
   private static final AtomicReference<Thread> ourRenderingThread = new AtomicReference<>();
   private static ExecutorService ourRenderingExecutor;
   private static final AtomicInteger ourTimeoutExceptionCounter = new AtomicInteger(0);
+  /** Sequence number of the render actions, used to run the actions of the same {@link Priority} in the order they were submitted */
+  private static final AtomicLong ourRenderActionSequence = new AtomicLong(0);
 
   private static final Key<RenderService> KEY = Key.create(RenderService.class.getName());
   private static boolean isFirstCall = true;
@@ -98,10 +101,26 @@ public class RenderService implements Disposable {
 
   private final Project myProject;
 
+  /**
+   * Priority of a render action. Layoutlib is not thread safe so all the render actions run on a single thread, but the queued actions
+   * with a higher priority run first, so that renders of the surface the user is looking at don't wait behind background renders
+   * such as thumbnails or palette previews.
+   */
+  public enum Priority {
+    /** Actions whose result somebody is synchronously waiting for */
+    HIGH,
+    /** Renders of the visible design surface */
+    NORMAL,
+    /** Background renders, e.g. thumbnails and previews */
+    LOW
+  }
+
   private static void innerInitializeRenderExecutor() {
+    // Only PrioritizedRenderAction instances are passed to the executor, so the queue can order them. Do not call submit() on it since
+    // the FutureTask it creates is not Comparable.
     ourRenderingExecutor = new ThreadPoolExecutor(0, 1,
                              RENDER_THREAD_IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS,
-                             new LinkedBlockingQueue<>(),
+                             new PriorityBlockingQueue<>(),
                              (Runnable r) -> {
                                Thread renderingThread =
                                  new Thread(null, r, "Layoutlib Render Thread");
@@ -288,7 +307,7 @@ public class RenderService implements Disposable {
       // If the number of timeouts exceeds a certain threshold, stop waiting so the caller doesn't block. We try to submit a task that
       // clean-up the timeout counter instead. If it goes through, it means the queue is free.
       if (ourTimeoutExceptionCounter.get() > 3) {
-        ourRenderingExecutor.submit(() -> ourTimeoutExceptionCounter.set(0)).get(50, TimeUnit.MILLISECONDS);
+        execute(ListenableFutureTask.create(() -> ourTimeoutExceptionCounter.set(0), null), Priority.HIGH).get(50, TimeUnit.MILLISECONDS);
       }
       long timeout = ourRenderThreadTimeoutMs;
       if (isFirstCall) {
@@ -297,7 +316,7 @@ public class RenderService implements Disposable {
         isFirstCall = false;
         timeout *= 2;
       }
-      T result = ourRenderingExecutor.submit(callable).get(timeout, TimeUnit.MILLISECONDS);
+      T result = execute(ListenableFutureTask.create(callable), Priority.HIGH).get(timeout, TimeUnit.MILLISECONDS);
       // The executor seems to be taking tasks so reset the counter
       ourTimeoutExceptionCounter.set(0);
 
@@ -325,10 +344,19 @@ public class RenderService implements Disposable {
    */
   @NotNull
   public static <T> ListenableFuture<T> runAsyncRenderAction(@NotNull Callable<T> callable) {
-    ListenableFutureTask<T> future = ListenableFutureTask.create(callable);
-    ourRenderingExecutor.submit(future);
+    return runAsyncRenderAction(callable, Priority.NORMAL);
+  }
 
-    return future;
+  /**
+   * Runs an action that requires the rendering lock. Layoutlib is not thread safe so any rendering actions should be called using this
+   * method.
+   * <p/>
+   * This method will run the passed action asynchronously and return a {@link ListenableFuture}. The action runs before the queued
+   * actions with a lower {@link Priority}, and after the queued actions with the same or a higher one.
+   */
+  @NotNull
+  public static <T> ListenableFuture<T> runAsyncRenderAction(@NotNull Callable<T> callable, @NotNull Priority priority) {
+    return execute(ListenableFutureTask.create(callable), priority);
   }
 
   /**
@@ -338,7 +366,50 @@ public class RenderService implements Disposable {
    * This method will run the passed action asynchronously
    */
   public static void runAsyncRenderAction(@NotNull Runnable runnable) {
-    ourRenderingExecutor.submit(runnable);
+    runAsyncRenderAction(runnable, Priority.NORMAL);
+  }
+
+  /**
+   * Runs an action that requires the rendering lock. Layoutlib is not thread safe so any rendering actions should be called using this
+   * method.
+   * <p/>
+   * This method will run the passed action asynchronously, before the queued actions with a lower {@link Priority}, and after the
+   * queued actions with the same or a higher one.
+   */
+  public static void runAsyncRenderAction(@NotNull Runnable runnable, @NotNull Priority priority) {
+    execute(ListenableFutureTask.create(runnable, null), priority);
+  }
+
+  @NotNull
+  private static <T> ListenableFutureTask<T> execute(@NotNull ListenableFutureTask<T> future, @NotNull Priority priority) {
+    ourRenderingExecutor.execute(new PrioritizedRenderAction(future, priority, ourRenderActionSequence.getAndIncrement()));
+    return future;
+  }
+
+  /**
+   * A render action queued in the render executor, ordered by {@link Priority} and then by submission order.
+   */
+  private static final class PrioritizedRenderAction implements Runnable, Comparable<PrioritizedRenderAction> {
+    @NotNull private final Runnable myAction;
+    @NotNull private final Priority myPriority;
+    private final long mySequence;
+
+    private PrioritizedRenderAction(@NotNull Runnable action, @NotNull Priority priority, long sequence) {
+      myAction = action;
+      myPriority = priority;
+      mySequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      myAction.run();
+    }
+
+    @Override
+    public int compareTo(@NotNull PrioritizedRenderAction other) {
+      int comp = myPriority.compareTo(other.myPriority);
+      return comp != 0 ? comp : Long.compare(mySequence, other.mySequence);
+    }
   }
 
 
@@ -106,7 +106,7 @@ public class RenderTask {
 
   @NotNull private final ImagePool myImagePool;
   @NotNull private final RenderTaskContext myContext;
-  @NotNull private final RenderLogger myLogger;
+  @NotNull private RenderLogger myLogger;
   @NotNull private final LayoutlibCallbackImpl myLayoutlibCallback;
   @NotNull private final LayoutLibrary myLayoutLib;
   @NotNull private final HardwareConfigHelper myHardwareConfigHelper;
@@ -117,6 +117,7 @@ public class RenderTask {
   private boolean myShowDecorations = true;
   @NotNull private final AssetRepositoryImpl myAssetRepository;
   private long myTimeout;
+  @NotNull private RenderService.Priority myPriority = RenderService.Priority.NORMAL;
   @NotNull private final Locale myLocale;
   @NotNull private final Object myCredential;
   private boolean myProvideCookiesForIncludedViews = false;
@@ -225,6 +226,15 @@ public class RenderTask {
     return myLogger;
   }
 
+  /**
+   * Replaces the logger of the task. It's meant to be called before inflating an already inflated task again, so that the new
+   * inflation doesn't report the problems logged by the previous ones.
+   */
+  public void setLogger(@NotNull RenderLogger logger) {
+    myLogger = logger;
+    myLayoutlibCallback.setLogger(logger);
+  }
+
   @NotNull
   public HardwareConfigHelper getHardwareConfigHelper() {
     return myHardwareConfigHelper;
@@ -266,7 +276,8 @@ public class RenderTask {
       myLayoutlibCallback.setResourceResolver(null);
       if (myRenderSession != null) {
         try {
-          RenderService.runAsyncRenderAction(myRenderSession::dispose);
+          // Same priority as the renders of this task, so the dispose can not overtake any of them still waiting in the queue
+          RenderService.runAsyncRenderAction(myRenderSession::dispose, myPriority);
           myRenderSession = null;
         }
         catch (Exception ignored) {
@@ -338,6 +349,20 @@ public class RenderTask {
     return this;
   }
 
+  /**
+   * Sets the priority of the render actions of this task, relative to the ones of other tasks waiting for the render thread.
+   * The default is {@link RenderService.Priority#NORMAL}. Tasks rendering in the background, e.g. thumbnails, should use
+   * {@link RenderService.Priority#LOW} so they don't delay the renders the user is waiting for.
+   *
+   * @return this (such that chains of setters can be stringed together)
+   */
+  @SuppressWarnings("UnusedReturnValue")
+  @NotNull
+  public RenderTask setPriority(@NotNull RenderService.Priority priority) {
+    myPriority = priority;
+    return this;
+  }
+
   /**
    * Sets the overriding background color to be used, if any. The color should be a bitmask of AARRGGBB.
    * The default is null.
@@ -508,6 +533,11 @@ public class RenderTask {
       }
 
       try {
+        if (myRenderSession != null) {
+          // The task is being inflated again, e.g. after an edit of its layout, so the previous session is replaced
+          myRenderSession.dispose();
+          myRenderSession = null;
+        }
         RenderSession session = myLayoutLib.createSession(params);
 
         if (session.getResult().isSuccess()) {
@@ -597,7 +627,7 @@ public class RenderTask {
     }
 
     synchronized (myRunningFutures) {
-      ListenableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable);
+      ListenableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable, myPriority);
       Futures.addCallback(newFuture, new FutureCallback<V>() {
         @Override
         public void onSuccess(@Nullable V result) {
@@ -620,7 +650,8 @@ public class RenderTask {
   }
 
   /**
-   * Inflates the layout but does not render it.
+   * Inflates the layout but does not render it. If the task was already inflated, its current session is replaced by a new one
+   * inflated from the current contents of the layout, reusing the rest of the task's state.
    * @return A {@link RenderResult} with the result of inflating the inflate call. The result might not contain a result bitmap.
    */
   @Nullable
@@ -944,7 +975,7 @@ public class RenderTask {
 
         return map;
       } finally {
-        RenderService.runAsyncRenderAction(session::dispose);
+        RenderService.runAsyncRenderAction(session::dispose, myPriority);
       }
     }
 
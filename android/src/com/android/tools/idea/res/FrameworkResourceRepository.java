@@ -44,11 +44,14 @@ import org.w3c.dom.*;
 import org.xmlpull.v1.XmlPullParser;
 
 import java.io.*;
+import java.lang.ref.SoftReference;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -72,6 +75,9 @@ import static com.google.common.collect.Sets.newLinkedHashSetWithExpectedSize;
  * of the Android plugin. For the built-in framework resources used by LayoutLib this also guarantees
  * freshness of the cache when the Android plugin is updated.
  *
+ * <p>Framework repositories are large, so a single repository per resource directory is shared by all
+ * projects through {@link #getShared}.
+ *
  * @see ResourceRepositoryManager#getFrameworkResources(boolean)
  */
 public final class FrameworkResourceRepository extends AarSourceResourceRepository {
@@ -85,6 +91,15 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
 
   private static final Logger LOG = Logger.getInstance(FrameworkResourceRepository.class);
 
+  /** Repositories shared by all projects, see {@link #getShared}. */
+  private static final ConcurrentMap<String, SoftReference<FrameworkResourceRepository>> ourSharedRepositories = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Object> ourSharedRepositoryLocks = new ConcurrentHashMap<>();
+  /**
+   * Strings read from cache files. Element and attribute names and values repeat a lot, both within a repository and between the
+   * repositories of different API levels, so each of them is kept once.
+   */
+  private static final Interner<String> ourStringInterner = Interners.newWeakInterner();
+
   /** Namespace prefixes used in framework resources and the corresponding URIs. */
   private static final String[] WELL_KNOWN_NAMESPACES = new String[] {
     SdkConstants.ANDROID_NS_NAME, SdkConstants.ANDROID_URI,
@@ -162,6 +177,51 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
     return repository;
   }
 
+  /**
+   * Returns the Android framework resource repository shared by all projects, creating it if needed.
+   * If the repository with locale-specific resources has already been created, it is returned even if
+   * locale-specific resources are not needed, since it is a superset of the repository without them.
+   *
+   * @param resFolder the folder containing resources of the Android framework
+   * @param withLocaleResources whether to include locale-specific resources or not
+   * @return the shared resource repository, loaded from the persistent cache when possible
+   */
+  @NotNull
+  public static FrameworkResourceRepository getShared(@NotNull File resFolder, boolean withLocaleResources) {
+    FrameworkResourceRepository repository = getSharedIfCreated(resFolder, withLocaleResources);
+    if (repository != null) {
+      return repository;
+    }
+
+    String key = getSharedKey(resFolder, withLocaleResources);
+    synchronized (ourSharedRepositoryLocks.computeIfAbsent(key, k -> new Object())) {
+      repository = getSharedIfCreated(resFolder, withLocaleResources);
+      if (repository == null) {
+        repository = create(resFolder, withLocaleResources, true);
+        ourSharedRepositories.put(key, new SoftReference<>(repository));
+        if (withLocaleResources) {
+          // From now on, the repository with locale-specific resources is shared instead of the one without them.
+          ourSharedRepositories.remove(getSharedKey(resFolder, false));
+        }
+      }
+    }
+    return repository;
+  }
+
+  @Nullable
+  private static FrameworkResourceRepository getSharedIfCreated(@NotNull File resFolder, boolean withLocaleResources) {
+    SoftReference<FrameworkResourceRepository> reference = ourSharedRepositories.get(getSharedKey(resFolder, true));
+    if (reference == null && !withLocaleResources) {
+      reference = ourSharedRepositories.get(getSharedKey(resFolder, false));
+    }
+    return reference == null ? null : reference.get();
+  }
+
+  @NotNull
+  private static String getSharedKey(@NotNull File resFolder, boolean withLocaleResources) {
+    return withLocaleResources ? resFolder.getAbsolutePath() + "_L" : resFolder.getAbsolutePath();
+  }
+
   private void createPersistentCacheAsynchronously() {
     myCacheCreatedFuture = ApplicationManager.getApplication().executeOnPooledThread(this::createPersistentCache);
   }
@@ -928,6 +988,12 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
       super(new BufferedInputStream(new FileInputStream(file)));
     }
 
+    @Override
+    @NotNull
+    public String readUTF() throws IOException {
+      return ourStringInterner.intern(super.readUTF());
+    }
+
     @Override
     protected void readStreamHeader() throws IOException {
       for (int i = 0; i < CACHE_FILE_HEADER.length(); i++) {
@@ -32,6 +32,9 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.concurrent.GuardedBy;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * The  is a super class for several of the other repositories; it’s not really used on its own. Its only purpose is to be able to combine
@@ -39,22 +42,30 @@ import java.util.*;
  * same resource type+name combination will replace/hide any previous definitions of the same resource.
  *
  * <p>In the resource repository hierarchy, the MultiResourceRepository is an internal node, never a leaf.
+ *
+ * <p>The merged maps are immutable snapshots, published per namespace and type, so they are read without taking {@code ITEM_MAP_LOCK}.
+ * Merging still happens under the lock, since the leaf repositories update their maps under it, and a change in a child only discards
+ * the snapshots of the types it changed.
  */
 @SuppressWarnings("InstanceGuardedByStatic") // TODO: The whole locking scheme for resource repositories needs to be reworked.
 public abstract class MultiResourceRepository extends LocalResourceRepository {
-  @GuardedBy("ITEM_MAP_LOCK")
-  private List<? extends LocalResourceRepository> myChildren;
-  @GuardedBy("ITEM_MAP_LOCK")
-  private final Multimap<ResourceNamespace, LocalResourceRepository> myRepositoriesByNamespace = HashMultimap.create();
+  /** Written under ITEM_MAP_LOCK, read without it. */
+  private volatile ImmutableList<LocalResourceRepository> myChildren = ImmutableList.of();
+  /** Written under ITEM_MAP_LOCK, read without it. */
+  private volatile ImmutableSetMultimap<ResourceNamespace, LocalResourceRepository> myRepositoriesByNamespace = ImmutableSetMultimap.of();
 
   @GuardedBy("ITEM_MAP_LOCK")
   private long[] myModificationCounts;
 
-  @GuardedBy("ITEM_MAP_LOCK")
-  private ResourceTable myFullTable;
+  /** Written under ITEM_MAP_LOCK, read without it. */
+  private volatile ResourceTable myFullTable;
 
-  @GuardedBy("ITEM_MAP_LOCK")
-  private final ResourceTable myCachedMaps = new ResourceTable();
+  /**
+   * Immutable merged maps by namespace, indexed by {@link ResourceType#ordinal()}. Snapshots are published and discarded under
+   * ITEM_MAP_LOCK, and read without it.
+   */
+  private final ConcurrentMap<ResourceNamespace, AtomicReferenceArray<ListMultimap<String, ResourceItem>>> myCachedMaps =
+    new ConcurrentHashMap<>();
 
   @GuardedBy("ITEM_MAP_LOCK")
   private Map<String, DataBindingInfo> myDataBindingResourceFiles = new HashMap<>();
@@ -68,14 +79,12 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
 
   protected void setChildren(@NotNull List<? extends LocalResourceRepository> children) {
     synchronized (ITEM_MAP_LOCK) {
-      if (myChildren != null) {
-        for (int i = myChildren.size(); --i >= 0;) {
-          LocalResourceRepository resources = myChildren.get(i);
-          resources.removeParent(this);
-        }
+      for (int i = myChildren.size(); --i >= 0;) {
+        LocalResourceRepository resources = myChildren.get(i);
+        resources.removeParent(this);
       }
       setModificationCount(ourModificationCounter.incrementAndGet());
-      myChildren = children;
+      myChildren = ImmutableList.copyOf(children);
       myModificationCounts = new long[children.size()];
       if (children.size() == 1) {
         // Make sure that the modification count of the child and the parent are same. This is
@@ -91,8 +100,9 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
       myFullTable = null;
       myCachedMaps.clear();
 
-      myRepositoriesByNamespace.clear();
-      populateNamespaceMap(this, myRepositoriesByNamespace);
+      Multimap<ResourceNamespace, LocalResourceRepository> repositoriesByNamespace = HashMultimap.create();
+      populateNamespaceMap(this, repositoriesByNamespace);
+      myRepositoriesByNamespace = ImmutableSetMultimap.copyOf(repositoriesByNamespace);
     }
 
     invalidateParentCaches();
@@ -114,9 +124,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
 
   @NotNull
   public final List<LocalResourceRepository> getChildren() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myChildren == null ? Collections.emptyList() : ImmutableList.copyOf(myChildren);
-    }
+    return myChildren;
   }
 
   /**
@@ -130,9 +138,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
    */
   @NotNull
   public final List<LocalResourceRepository> getRepositoriesForNamespace(@NotNull ResourceNamespace namespace) {
-    synchronized (ITEM_MAP_LOCK) {
-      return ImmutableList.copyOf(myRepositoriesByNamespace.get(namespace));
-    }
+    return ImmutableList.copyOf(myRepositoriesByNamespace.get(namespace));
   }
 
   @Override
@@ -199,29 +205,33 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
   @Override
   @NotNull
   public Set<ResourceNamespace> getNamespaces() {
-    synchronized (ITEM_MAP_LOCK) {
-      return ImmutableSet.copyOf(myRepositoriesByNamespace.keySet());
-    }
+    return myRepositoriesByNamespace.keySet();
   }
 
   @NotNull
   @Override
   protected ResourceTable getFullTable() {
+    ResourceTable fullTable = myFullTable;
+    if (fullTable != null) {
+      return fullTable;
+    }
+
     synchronized (ITEM_MAP_LOCK) {
       if (myFullTable == null) {
         if (myChildren.size() == 1) {
           myFullTable = myChildren.get(0).getFullTablePackageAccessible();
         }
         else {
-          myFullTable = new ResourceTable();
+          fullTable = new ResourceTable();
           for (ResourceNamespace namespace : getNamespaces()) {
             for (ResourceType type : ResourceType.values()) {
               ListMultimap<String, ResourceItem> map = getMap(namespace, type, false);
               if (map != null) {
-                myFullTable.put(namespace, type, map);
+                fullTable.put(namespace, type, map);
               }
             }
           }
+          myFullTable = fullTable;
         }
       }
 
@@ -229,38 +239,64 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
     }
   }
 
+  /**
+   * Returns the merged items of the given type without taking ITEM_MAP_LOCK once they have been merged.
+   */
+  @Override
+  @NotNull
+  public ListMultimap<String, ResourceItem> getResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    ListMultimap<String, ResourceItem> map = getMap(namespace, type, false);
+    return map == null ? ImmutableListMultimap.of() : map;
+  }
+
   @Override
   @Nullable
   protected ListMultimap<String, ResourceItem> getMap(@NotNull ResourceNamespace namespace,
                                                       @NotNull ResourceType type,
                                                       boolean create) {
+    // Should I assert !create here? If we try to manipulate the cache it won't work right...
+    ListMultimap<String, ResourceItem> map = getCachedMap(namespace, type);
+    if (map != null) {
+      return map;
+    }
+
+    List<LocalResourceRepository> children = myChildren;
+    if (children.size() == 1) {
+      LocalResourceRepository child = children.get(0);
+      if (child instanceof MultiResourceRepository) {
+        return ((MultiResourceRepository)child).getMap(namespace, type);
+      }
+      synchronized (ITEM_MAP_LOCK) {
+        return child.getFullTablePackageAccessible().get(namespace, type);
+      }
+    }
+
     synchronized (ITEM_MAP_LOCK) {
-      // Should I assert !create here? If we try to manipulate the cache it won't work right...
-      ListMultimap<String, ResourceItem> map = myCachedMaps.get(namespace, type);
+      // Another thread may have merged the items while this one was waiting for the lock.
+      map = getCachedMap(namespace, type);
       if (map != null) {
         return map;
       }
 
-      if (myChildren.size() == 1) {
-        LocalResourceRepository child = myChildren.get(0);
-        if (child instanceof MultiResourceRepository) {
-          return ((MultiResourceRepository)child).getMap(namespace, type);
-        }
-        return child.getFullTablePackageAccessible().get(namespace, type);
-      }
-
-      map = ArrayListMultimap.create();
+      ListMultimap<String, ResourceItem> merged = ArrayListMultimap.create();
       Set<LocalResourceRepository> visited = new HashSet<>();
       SetMultimap<String, String> seenQualifiers = HashMultimap.create();
       // Merge all items of the given type.
-      merge(visited, namespace, type, seenQualifiers, map);
+      merge(visited, namespace, type, seenQualifiers, merged);
 
-      myCachedMaps.put(namespace, type, map);
+      map = ImmutableListMultimap.copyOf(merged);
+      myCachedMaps.computeIfAbsent(namespace, key -> new AtomicReferenceArray<>(ResourceType.values().length)).set(type.ordinal(), map);
 
       return map;
     }
   }
 
+  @Nullable
+  private ListMultimap<String, ResourceItem> getCachedMap(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    AtomicReferenceArray<ListMultimap<String, ResourceItem>> maps = myCachedMaps.get(namespace);
+    return maps == null ? null : maps.get(type.ordinal());
+  }
+
   @Override
   protected void doMerge(@NotNull Set<LocalResourceRepository> visited,
                          @NotNull ResourceNamespace namespace,
@@ -276,6 +312,11 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
 
   @Override
   public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    ListMultimap<String, ResourceItem> cachedMap = getCachedMap(namespace, type);
+    if (cachedMap != null) {
+      return !cachedMap.isEmpty();
+    }
+
     synchronized (ITEM_MAP_LOCK) {
       if (myChildren.size() == 1) {
         return myChildren.get(0).hasResources(namespace, type);
@@ -337,8 +378,11 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
     synchronized (ITEM_MAP_LOCK) {
       assert myChildren.contains(repository) : repository;
 
-      for (ResourceType type : types) {
-        myCachedMaps.remove(namespace, type);
+      AtomicReferenceArray<ListMultimap<String, ResourceItem>> maps = myCachedMaps.get(namespace);
+      if (maps != null) {
+        for (ResourceType type : types) {
+          maps.set(type.ordinal(), null);
+        }
       }
 
       myFullTable = null;
@@ -35,6 +35,7 @@ import com.android.utils.ILogger;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Table;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
@@ -53,6 +54,8 @@ import com.intellij.psi.impl.PsiTreeChangeEventImpl;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.*;
 import com.intellij.util.ArrayUtil;
+import com.intellij.util.ExceptionUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.android.dom.manifest.AndroidManifestUtils;
 import org.jetbrains.android.facet.AndroidFacet;
@@ -67,6 +70,9 @@ import javax.annotation.concurrent.GuardedBy;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static com.android.SdkConstants.*;
@@ -95,6 +101,12 @@ import static com.android.tools.lint.detector.api.Lint.stripIdPrefix;
  */
 public final class ResourceFolderRepository extends LocalResourceRepository implements SingleNamespaceResourceRepository {
   private static final Logger LOG = Logger.getInstance(ResourceFolderRepository.class);
+  /**
+   * Parses the folders of resource directories during the initial scan. Like the population of the repositories in
+   * {@link ResourceFolderRegistry}, it is capped to 4 threads, which is where scaling stops paying off.
+   */
+  private static final ExecutorService ourFolderScanExecutor =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("ResourceFolderRepository", Math.min(4, Runtime.getRuntime().availableProcessors()));
 
   private final Module myModule;
   private final AndroidFacet myFacet;
@@ -134,8 +146,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     myResourceDir = resourceDir;
     myNamespace = namespace;
 
-    ResourceMerger merger = loadPreviousStateIfExists();
-    myInitialScanState = new InitialScanState(merger, VfsUtilCore.virtualToIoFile(myResourceDir));
+    myInitialScanState = new InitialScanState(VfsUtilCore.virtualToIoFile(myResourceDir));
+    loadPreviousStateIfExists();
     scanRemainingFiles();
     Application app = ApplicationManager.getApplication();
 
@@ -143,7 +155,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     if (!hasFreshFileCache() && !namespacesUsed() && !app.isUnitTestMode()) {
       saveStateToFile();
     }
-    // Clear some unneeded state (myInitialScanState's resource merger holds a second map of items).
+    // Clear some unneeded state (myInitialScanState holds a second list of the parsed resource files).
     // Skip for unit tests, which may need to test saving separately (saving is normally skipped for unit tests).
     if (!app.isUnitTestMode()) {
       myInitialScanState = null;
@@ -181,7 +193,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
   }
 
   /**
-   * Saves the non-Psi XML state as a single blob for faster loading the second time
+   * Saves the non-Psi XML state as a single snapshot file for faster loading the second time
    * by {@link #loadPreviousStateIfExists}.
    */
   @VisibleForTesting
@@ -193,17 +205,10 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     }
 
     try {
-      ResourcePreprocessor preprocessor = NoOpResourcePreprocessor.INSTANCE;
-      File tempDirectory = FileUtil.createTempDirectory("resource", "tmp", false);
-      try {
-        MergeConsumer<ResourceMergerItem> consumer =
-            MergedResourceWriter.createWriterWithoutPngCruncher(blobRoot, null, null, preprocessor, tempDirectory);
-        myInitialScanState.myResourceMerger.writeBlobToWithTimestamps(blobRoot, consumer);
-      } finally {
-        FileUtil.delete(tempDirectory);
-      }
+      ResourceFolderSnapshot.write(new File(blobRoot, ResourceFolderSnapshot.FILE_NAME), myInitialScanState.myResourceDir,
+                                   myInitialScanState.mySnapshotEntries);
     }
-    catch (MergingException | IOException e) {
+    catch (IOException e) {
       LOG.error("Failed to saveStateToFile", e);
       // Delete the blob root just in case it's in an inconsistent state.
       FileUtil.delete(blobRoot);
@@ -214,81 +219,54 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
    * Reloads ResourceFile and ResourceItems which have not changed since the last {@link #saveStateToFile}.
    * Some Resource file and items may not be covered, so {@link #scanRemainingFiles} should be run
    * to load the rest of the items.
-   *
-   * @return the loaded ResourceMerger -- this can be used to save state again, if the cache isn't fresh
    */
-  private ResourceMerger loadPreviousStateIfExists() {
+  private void loadPreviousStateIfExists() {
     if (namespacesUsed()) {
       // TODO(b/76409654): figure out how to store the state in namespaced projects.
-      return createFreshResourceMerger();
+      return;
     }
 
     File blobRoot = ResourceFolderRepositoryFileCacheService.get().getResourceDir(myModule.getProject(), myResourceDir);
-    if (blobRoot == null || !blobRoot.exists()) {
-      return createFreshResourceMerger();
-    }
-    ResourceMerger merger = new ResourceMerger(0 /* minSdk */);
-    // This load may fail if the data is in an inconsistent state or the xml contains illegal
-    // resource names, which the Psi parser would otherwise allow, so load failures are not
-    // strictly an error.
-    // loadFromBlob will check timestamps for stale data and skip.
-    try {
-      if (!merger.loadFromBlob(blobRoot, false)) {
-        LOG.warn("failed to loadPreviousStateIfExists " + blobRoot);
-        return createFreshResourceMerger();
-      }
+    if (blobRoot == null) {
+      return;
     }
-    catch (MergingException e) {
-      LOG.warn("failed to loadPreviousStateIfExists " + blobRoot, e);
-      return createFreshResourceMerger();
+    File snapshotFile = new File(blobRoot, ResourceFolderSnapshot.FILE_NAME);
+    if (!snapshotFile.exists()) {
+      return;
     }
-    // This temp resourceFiles set is just to avoid calling VfsUtil.findFileByIoFile repeatedly.
-    Set<ResourceFile> resourceFiles = new HashSet<>();
-    List<ResourceSet> resourceSets = merger.getDataSets();
-    if (resourceSets.size() != 1) {
-      LOG.error("Expecting exactly one resource set, but found " + resourceSets.size());
-      return createFreshResourceMerger();
+    // This load may fail if the data is in an inconsistent state, so load failures are not strictly an error.
+    // Entries of files modified since the snapshot was written are skipped, so that the files are parsed again.
+    List<ResourceFolderSnapshot.Entry> entries;
+    try {
+      entries = ResourceFolderSnapshot.read(snapshotFile, myInitialScanState.myResourceDir, myNamespace, getLibraryName());
     }
-    ResourceSet dataSet = resourceSets.get(0);
-    List<File> sourceFiles = dataSet.getSourceFiles();
-    if (sourceFiles.size() != 1) {
-      LOG.error("Expecting exactly source files (res/ directories), but found " + sourceFiles.size());
-      return createFreshResourceMerger();
+    catch (IOException e) {
+      LOG.warn("failed to loadPreviousStateIfExists " + snapshotFile, e);
+      return;
     }
-    File myResourceDirFile = VfsUtilCore.virtualToIoFile(myResourceDir);
-    // Check that the dataSet we're loading actually corresponds to this resource directory.
-    // This could happen if there's a hash collision in naming the cache directory.
-    if (!FileUtil.filesEqual(sourceFiles.get(0), myResourceDirFile)) {
-      LOG.warn(String.format("source file %1$s, does not match resource dir %2$s", sourceFiles.get(0), myResourceDirFile));
-      return createFreshResourceMerger();
+    if (entries == null) {
+      LOG.warn("failed to loadPreviousStateIfExists " + snapshotFile);
+      return;
     }
 
     // Items to be inserted into the repo, while holding ITEM_MAP_LOCK. The loop below does too much I/O to hold the lock the whole time.
     Map<ResourceType, ListMultimap<String, ResourceItem>> result = new HashMap<>();
 
-    for (ResourceMergerItem item: dataSet.getDataMap().values()) {
-      ResourceFile file = item.getSourceFile();
-      if (file != null) {
-        if (!resourceFiles.contains(file)) {
-          VirtualFile vFile = VfsUtil.findFileByIoFile(file.getFile(), false);
-          if (vFile == null) {
-            // Cannot handle this item, mark it ignored so that it doesn't persist.
-            item.setIgnoredFromDiskMerge(true);
-            continue;
-          }
-          resourceFiles.add(file);
-          sources.put(vFile, new ResourceFileAdapter(file));
-        }
+    for (ResourceFolderSnapshot.Entry entry : entries) {
+      ResourceFile file = entry.resourceFile;
+      VirtualFile vFile = VfsUtil.findFileByIoFile(file.getFile(), false);
+      if (vFile == null) {
+        // Cannot handle this file, leave it out so that it doesn't persist.
+        continue;
+      }
+      sources.put(vFile, new ResourceFileAdapter(file));
+      for (ResourceMergerItem item : file.getItems()) {
         addToResult(result, item);
-      } else {
-        // Cannot handle this item, mark it ignored to that it doesn't persist.
-        item.setIgnoredFromDiskMerge(true);
       }
+      myInitialScanState.mySnapshotEntries.add(entry);
     }
 
     commitToRepository(result);
-
-    return merger;
   }
 
   private boolean namespacesUsed() {
@@ -311,15 +289,6 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     }
   }
 
-  private ResourceMerger createFreshResourceMerger() {
-    ResourceMerger merger = new ResourceMerger(0 /* minSdk */);
-    ResourceSet myData = new ResourceSet(myResourceDir.getName(), myNamespace, getLibraryName(), false /* validateEnabled */);
-    File resourceDir = VfsUtilCore.virtualToIoFile(myResourceDir);
-    myData.addSource(resourceDir);
-    merger.addDataSet(myData);
-    return merger;
-  }
-
   /**
    * Determine if it's unnecessary to write or update the file-backed cache.
    * If only a few items are reparsed, then the cache is fresh enough.
@@ -341,35 +310,70 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     int numXml; // Doesn't count files that are explicitly skipped
     int numXmlReparsed;
 
-    final ResourceMerger myResourceMerger;
-    final ResourceSet myResourceSet;
     final ILogger myILogger;
     final File myResourceDir;
+    /** The XML files loaded from the snapshot or parsed by the scan, which make up the next snapshot. */
+    final List<ResourceFolderSnapshot.Entry> mySnapshotEntries = new ArrayList<>();
     final Collection<PsiFileResourceQueueEntry> myPsiFileResourceQueue = new ArrayList<>();
     final Collection<PsiValueResourceQueueEntry> myPsiValueResourceQueue = new ArrayList<>();
 
-    InitialScanState(ResourceMerger merger, File resourceDir) {
-      myResourceMerger = merger;
-      assert myResourceMerger.getDataSets().size() == 1;
-      myResourceSet = myResourceMerger.getDataSets().get(0);
-      myResourceSet.setShouldParseResourceIds(true);
-      myResourceSet.setDontNormalizeQualifiers(true);
-      myResourceSet.setTrackSourcePositions(false);
+    InitialScanState(File resourceDir) {
       myILogger = new LogWrapper(LOG).alwaysLogAsDebug(true).allowVerbose(false);
       myResourceDir = resourceDir;
     }
+  }
+
+  /**
+   * The initial scan of one folder of the resource directory. Folders are parsed concurrently, each one with its own {@link ResourceSet}
+   * and into its own map of items, and are then committed to the repository in the order of the folders, so the order of the items
+   * doesn't depend on how the scans were scheduled.
+   */
+  private final class FolderScan {
+    final VirtualFile myDirectory;
+    final ResourceFolderType myFolderType;
+    final String myQualifiers;
+    final FolderConfiguration myFolderConfiguration;
+
+    final Map<ResourceType, ListMultimap<String, ResourceItem>> myResult = new HashMap<>();
+    final Map<VirtualFile, ResourceItemSource<? extends ResourceItem>> mySources = new LinkedHashMap<>();
+    final List<ResourceFolderSnapshot.Entry> mySnapshotEntries = new ArrayList<>();
+    final List<PsiFileResourceQueueEntry> myPsiFileResourceQueue = new ArrayList<>();
+    final List<PsiValueResourceQueueEntry> myPsiValueResourceQueue = new ArrayList<>();
+    int numXml;
+    int numXmlReparsed;
+    @Nullable private ResourceSet myResourceSet;
 
-    public void countCacheHit() {
+    FolderScan(VirtualFile directory, ResourceFolderType folderType, String qualifiers, FolderConfiguration folderConfiguration) {
+      myDirectory = directory;
+      myFolderType = folderType;
+      myQualifiers = qualifiers;
+      myFolderConfiguration = folderConfiguration;
+    }
+
+    /**
+     * Parses the files of the folder. It only reads the state of the repository, so scans of different folders can run concurrently.
+     */
+    FolderScan run() {
+      if (myFolderType == VALUES) {
+        scanValueResFolder(this);
+      }
+      else {
+        scanFileResourceFolder(this);
+      }
+      return this;
+    }
+
+    void countCacheHit() {
       ++numXml;
     }
 
-    public void countCacheMiss() {
+    void countCacheMiss() {
       ++numXml;
       ++numXmlReparsed;
     }
 
     /**
-     * Load a ResourceFile into the resource merger's resource set and return it.
+     * Load a ResourceFile into the resource set of this folder and return it.
      *
      * @param file a resource XML file to load and parse
      * @return the resulting ResourceFile, if there is no parse error.
@@ -377,16 +381,44 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
      */
     @Nullable
     ResourceFile loadFile(File file) throws MergingException {
-      return myResourceSet.loadFile(myResourceDir, file, myILogger);
+      if (myResourceSet == null) {
+        myResourceSet = new ResourceSet(myResourceDir.getName(), myNamespace, getLibraryName(), false /* validateEnabled */);
+        myResourceSet.addSource(myInitialScanState.myResourceDir);
+        myResourceSet.setShouldParseResourceIds(true);
+        myResourceSet.setDontNormalizeQualifiers(true);
+        myResourceSet.setTrackSourcePositions(false);
+      }
+      // Take the time stamp before parsing, so that a concurrent change makes the snapshot entry stale rather than wrong.
+      long timeStamp = file.lastModified();
+      ResourceFile resourceFile = myResourceSet.loadFile(myInitialScanState.myResourceDir, file, myInitialScanState.myILogger);
+      if (resourceFile != null) {
+        mySnapshotEntries.add(new ResourceFolderSnapshot.Entry(resourceFile, timeStamp));
+      }
+      return resourceFile;
     }
 
-    public void queuePsiFileResourceScan(PsiFileResourceQueueEntry data) {
+    void queuePsiFileResourceScan(PsiFileResourceQueueEntry data) {
       myPsiFileResourceQueue.add(data);
     }
 
-    public void queuePsiValueResourceScan(PsiValueResourceQueueEntry data) {
+    void queuePsiValueResourceScan(PsiValueResourceQueueEntry data) {
       myPsiValueResourceQueue.add(data);
     }
+
+    /**
+     * Adds the items and sources found in the folder to the result of the initial scan.
+     */
+    void commit(@NotNull Map<ResourceType, ListMultimap<String, ResourceItem>> result) {
+      for (Map.Entry<ResourceType, ListMultimap<String, ResourceItem>> entry : myResult.entrySet()) {
+        result.computeIfAbsent(entry.getKey(), t -> LinkedListMultimap.create()).putAll(entry.getValue());
+      }
+      sources.putAll(mySources);
+      myInitialScanState.numXml += numXml;
+      myInitialScanState.numXmlReparsed += numXmlReparsed;
+      myInitialScanState.mySnapshotEntries.addAll(mySnapshotEntries);
+      myInitialScanState.myPsiFileResourceQueue.addAll(myPsiFileResourceQueue);
+      myInitialScanState.myPsiValueResourceQueue.addAll(myPsiValueResourceQueue);
+    }
   }
 
   /**
@@ -494,6 +526,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
 
   private void scanResFolder(@NotNull Map<ResourceType, ListMultimap<String, ResourceItem>> result,
                              @NotNull VirtualFile resDir) {
+    List<Future<FolderScan>> scans = new ArrayList<>();
     for (VirtualFile subDir : resDir.getChildren()) {
       if (subDir.isValid() && subDir.isDirectory()) {
         String name = subDir.getName();
@@ -504,15 +537,26 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
             continue;
           }
           String qualifiers = getQualifiers(name);
-          if (folderType == VALUES) {
-            scanValueResFolder(result, subDir, qualifiers, folderConfiguration);
-          }
-          else {
-            scanFileResourceFolder(result, subDir, folderType, qualifiers, folderConfiguration);
-          }
+          FolderScan scan = new FolderScan(subDir, folderType, qualifiers, folderConfiguration);
+          scans.add(ourFolderScanExecutor.submit(scan::run));
         }
       }
     }
+
+    // The scans read the sources loaded from the snapshot, so they are committed only once all of them are done.
+    List<FolderScan> doneScans = new ArrayList<>(scans.size());
+    for (Future<FolderScan> scan : scans) {
+      try {
+        doneScans.add(Uninterruptibles.getUninterruptibly(scan));
+      }
+      catch (ExecutionException e) {
+        ExceptionUtil.rethrowUnchecked(e.getCause());
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    for (FolderScan scan : doneScans) {
+      scan.commit(result);
+    }
   }
 
   private static String getQualifiers(String dirName) {
@@ -520,23 +564,19 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     return index != -1 ? dirName.substring(index + 1) : "";
   }
 
-  private void scanFileResourceFolder(@NotNull Map<ResourceType, ListMultimap<String, ResourceItem>> result,
-                                      @NotNull VirtualFile directory,
-                                      ResourceFolderType folderType,
-                                      String qualifiers,
-                                      FolderConfiguration folderConfiguration) {
-    List<ResourceType> resourceTypes = FolderTypeRelationship.getRelatedResourceTypes(folderType);
-    assert resourceTypes.size() >= 1 : folderType;
+  private void scanFileResourceFolder(@NotNull FolderScan scan) {
+    List<ResourceType> resourceTypes = FolderTypeRelationship.getRelatedResourceTypes(scan.myFolderType);
+    assert resourceTypes.size() >= 1 : scan.myFolderType;
     ResourceType type = resourceTypes.get(0);
 
-    boolean idGeneratingFolder = FolderTypeRelationship.isIdGeneratingFolderType(folderType);
+    boolean idGeneratingFolder = FolderTypeRelationship.isIdGeneratingFolderType(scan.myFolderType);
 
-    for (VirtualFile file : directory.getChildren()) {
+    for (VirtualFile file : scan.myDirectory.getChildren()) {
       if (file.isValid() && !file.isDirectory()) {
         FileType fileType = file.getFileType();
         boolean idGeneratingFile = idGeneratingFolder && fileType == StdFileTypes.XML;
-        if (PsiProjectListener.isRelevantFileType(fileType) || folderType == RAW) {
-          scanFileResourceFile(result, qualifiers, folderType, folderConfiguration, type, idGeneratingFile, file);
+        if (PsiProjectListener.isRelevantFileType(fileType) || scan.myFolderType == RAW) {
+          scanFileResourceFile(scan, type, idGeneratingFile, file);
         } // TODO: Else warn about files that aren't expected to be found here?
       }
     }
@@ -567,60 +607,44 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     }
   }
 
-  private void scanFileResourceFile(Map<ResourceType, ListMultimap<String, ResourceItem>> result,
-                                    String qualifiers,
-                                    ResourceFolderType folderType,
-                                    FolderConfiguration folderConfiguration,
-                                    ResourceType type,
-                                    boolean idGenerating,
-                                    VirtualFile file) {
+  private void scanFileResourceFile(FolderScan scan, ResourceType type, boolean idGenerating, VirtualFile file) {
     ResourceFile resourceFile;
     if (idGenerating) {
       if (sources.containsKey(file)) {
-        myInitialScanState.countCacheHit();
+        scan.countCacheHit();
         return;
       }
       try {
-        resourceFile = myInitialScanState.loadFile(VfsUtilCore.virtualToIoFile(file));
+        resourceFile = scan.loadFile(VfsUtilCore.virtualToIoFile(file));
         if (resourceFile == null) {
           // The file-based parser failed for some reason. Fall back to Psi in case it is more lax.
           // Don't count Psi items in myInitialScanState.numXml, because they are never cached.
-          myInitialScanState.queuePsiFileResourceScan(
-            new PsiFileResourceQueueEntry(file, qualifiers, folderType, folderConfiguration));
+          scan.queuePsiFileResourceScan(
+            new PsiFileResourceQueueEntry(file, scan.myQualifiers, scan.myFolderType, scan.myFolderConfiguration));
           return;
         }
-        boolean isDensityBasedResource = folderType == DRAWABLE || folderType == MIPMAP;
-        // We skip caching density-based resources, so don't count those against cache statistics.
-        if (!isDensityBasedResource) {
-          myInitialScanState.countCacheMiss();
-        }
+        // Density-based resources are cached too, since their items are recreated from the folder they are in.
+        scan.countCacheMiss();
         for (ResourceMergerItem item : resourceFile.getItems()) {
-          addToResult(result, item);
-          // It's not yet safe to serialize density-based resources items to blob files.
-          // The ResourceValue should be an instance of DensityBasedResourceValue, but no flags are
-          // serialized to the blob to indicate that.
-          if (isDensityBasedResource) {
-            item.setIgnoredFromDiskMerge(true);
-          }
+          addToResult(scan.myResult, item);
         }
       }
       catch (MergingException e) {
         // The file-based parser may not be able handle the file if it is a data-binding file.
-        myInitialScanState.queuePsiFileResourceScan(
-          new PsiFileResourceQueueEntry(file, qualifiers, folderType, folderConfiguration));
+        scan.queuePsiFileResourceScan(
+          new PsiFileResourceQueueEntry(file, scan.myQualifiers, scan.myFolderType, scan.myFolderConfiguration));
         return;
       }
     }
     else {
-      // We create the items without adding it to the resource set / resource merger.
-      // No need to write these out to blob files, as the item is easily reconstructed from the filename.
+      // We create the items without adding it to the resource set.
+      // No need to write these out to the snapshot, as the item is easily reconstructed from the filename.
       String name = ResourceHelper.getResourceName(file);
       ResourceMergerItem item = new ResourceMergerItem(name, myNamespace, type, null, getLibraryName());
-      addToResult(result, item);
-      resourceFile = new ResourceFile(VfsUtilCore.virtualToIoFile(file), item, folderConfiguration);
-      item.setIgnoredFromDiskMerge(true);
+      addToResult(scan.myResult, item);
+      resourceFile = new ResourceFile(VfsUtilCore.virtualToIoFile(file), item, scan.myFolderConfiguration);
     }
-    sources.put(file, new ResourceFileAdapter(resourceFile));
+    scan.mySources.put(file, new ResourceFileAdapter(resourceFile));
   }
 
   @Nullable
@@ -893,16 +917,13 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     }
   }
 
-  private void scanValueResFolder(Map<ResourceType, ListMultimap<String, ResourceItem>> result,
-                                  @NotNull VirtualFile directory,
-                                  String qualifiers,
-                                  FolderConfiguration folderConfiguration) {
+  private void scanValueResFolder(@NotNull FolderScan scan) {
     //noinspection ConstantConditions
-    assert directory.getName().startsWith(FD_RES_VALUES);
+    assert scan.myDirectory.getName().startsWith(FD_RES_VALUES);
 
-    for (VirtualFile file : directory.getChildren()) {
+    for (VirtualFile file : scan.myDirectory.getChildren()) {
       if (file.isValid() && !file.isDirectory()) {
-        scanValueFile(result, qualifiers, file, folderConfiguration);
+        scanValueFile(scan, file);
       }
     }
   }
@@ -966,33 +987,30 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     return added;
   }
 
-  private void scanValueFile(Map<ResourceType, ListMultimap<String, ResourceItem>> result,
-                             String qualifiers,
-                             VirtualFile virtualFile,
-                             FolderConfiguration folderConfiguration) {
+  private void scanValueFile(FolderScan scan, VirtualFile virtualFile) {
     FileType fileType = virtualFile.getFileType();
     if (fileType == StdFileTypes.XML) {
       if (sources.containsKey(virtualFile)) {
-        myInitialScanState.countCacheHit();
+        scan.countCacheHit();
         return;
       }
       File file = VfsUtilCore.virtualToIoFile(virtualFile);
       try {
-        ResourceFile resourceFile = myInitialScanState.loadFile(file);
+        ResourceFile resourceFile = scan.loadFile(file);
         if (resourceFile == null) {
           // The file-based parser failed for some reason. Fall back to Psi in case it is more lax.
-          myInitialScanState.queuePsiValueResourceScan(new PsiValueResourceQueueEntry(virtualFile, qualifiers, folderConfiguration));
+          scan.queuePsiValueResourceScan(new PsiValueResourceQueueEntry(virtualFile, scan.myQualifiers, scan.myFolderConfiguration));
           return;
         }
         for (ResourceItem item : resourceFile.getItems()) {
-          addToResult(result, item);
+          addToResult(scan.myResult, item);
         }
-        myInitialScanState.countCacheMiss();
-        sources.put(virtualFile, new ResourceFileAdapter(resourceFile));
+        scan.countCacheMiss();
+        scan.mySources.put(virtualFile, new ResourceFileAdapter(resourceFile));
       }
       catch (MergingException e) {
         // The file-based parser failed for some reason. Fall back to Psi in case it is more lax.
-        myInitialScanState.queuePsiValueResourceScan(new PsiValueResourceQueueEntry(virtualFile, qualifiers, folderConfiguration));
+        scan.queuePsiValueResourceScan(new PsiValueResourceQueueEntry(virtualFile, scan.myQualifiers, scan.myFolderConfiguration));
       }
     }
   }
@@ -53,7 +53,7 @@ class ResourceFolderRepositoryFileCacheImpl implements ResourceFolderRepositoryF
   private static final String CACHE_DIRECTORY = "resource_folder_cache";
   private static final String INVALIDATE_CACHE_STAMP = "invalidate_caches_stamp.dat";
 
-  static final int EXPECTED_CACHE_VERSION = 1;
+  static final int EXPECTED_CACHE_VERSION = 2;
   private static final String CACHE_VERSION_FILENAME = "cache_version";
   // The cache version previously read from the CACHE_VERSION_FILENAME (to avoid re-reading).
   private Integer myCacheVersion = null;
@@ -0,0 +1,439 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res;
+
+import com.android.ide.common.rendering.api.ResourceNamespace;
+import com.android.ide.common.resources.DataFile;
+import com.android.ide.common.resources.ResourceFile;
+import com.android.ide.common.resources.ResourceMergerItem;
+import com.android.ide.common.resources.configuration.FolderConfiguration;
+import com.android.resources.ResourceType;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.util.containers.ObjectIntHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.*;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Snapshot of the resource files parsed by the initial scan of a {@link ResourceFolderRepository}, used to skip parsing the files that
+ * haven't changed the next time the repository is created.
+ *
+ * <p>The snapshot file has the following format:
+ * <ol>
+ *   <li>The {@linkplain #FILE_HEADER} string, a space, the {@linkplain #FILE_FORMAT_VERSION} string and a space (one byte per
+ *       character)</li>
+ *   <li>Path of the resource directory (raw string, see below)</li>
+ *   <li>Number of strings (int)</li>
+ *   <li>Strings (raw strings)</li>
+ *   <li>Number of resource file entries (int)</li>
+ *   <li>Resource file entries (see below)</li>
+ * </ol>
+ * A raw string is its number of UTF-8 bytes (int) followed by the bytes. All the other strings of the file are stored once in the
+ * strings above and referred to by their index, and the ints that follow are variable-length encoded, seven bits per byte.
+ *
+ * <p>A resource file entry contains:
+ * <ol>
+ *   <li>Path of the file relative to the resource directory (string index)</li>
+ *   <li>Modification time of the file when it was parsed (long)</li>
+ *   <li>The {@linkplain DataFile.FileType} of the file represented by its ordinal (byte)</li>
+ *   <li>Number of bytes of the rest of the entry (int), so that the entries of modified files are skipped without being read</li>
+ *   <li>Number of resource items (int)</li>
+ *   <li>Resource items, each one being its {@linkplain ResourceType} ordinal (byte), its name (string index), and its XML node</li>
+ * </ol>
+ *
+ * <p>An XML node is its type (byte), zero if there is no node, followed by:
+ * <ul>
+ *   <li>For an {@link Element}, its namespace URI (string index plus one, zero if none), its name (string index), its number of
+ *       attributes (int), the namespace URI, name and value of each attribute, its number of children (int) and its children</li>
+ *   <li>For a {@link Text} or a {@link CDATASection}, its value (string index)</li>
+ * </ul>
+ * Comments are left out.
+ *
+ * <p>Unlike the blobs written by {@link com.android.ide.common.resources.ResourceMerger}, the snapshot includes the files of
+ * density-based folders, because their items are recreated from the folder name the same way the initial scan creates them.
+ * It is read with a single read of the whole file, rather than through buffered streams.
+ */
+final class ResourceFolderSnapshot {
+  static final String FILE_NAME = "resources.bin";
+
+  private static final String FILE_HEADER = "Resource folder snapshot";
+  private static final String FILE_FORMAT_VERSION = "1";
+
+  /**
+   * A resource file, with the modification time of the file when it was parsed.
+   */
+  static final class Entry {
+    @NotNull final ResourceFile resourceFile;
+    final long timeStamp;
+
+    Entry(@NotNull ResourceFile resourceFile, long timeStamp) {
+      this.resourceFile = resourceFile;
+      this.timeStamp = timeStamp;
+    }
+  }
+
+  private ResourceFolderSnapshot() {
+  }
+
+  /**
+   * Writes the given entries to the snapshot file, replacing it atomically. Entries that can't be represented in the snapshot are left
+   * out, so their files are parsed again the next time.
+   */
+  static void write(@NotNull File snapshotFile, @NotNull File resourceDir, @NotNull Collection<Entry> entries) throws IOException {
+    StringTable strings = new StringTable();
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    SnapshotOutputStream bodyOut = new SnapshotOutputStream(body, strings);
+    int numEntries = 0;
+    String resourceDirPath = resourceDir.getPath();
+    for (Entry entry : entries) {
+      ResourceFile resourceFile = entry.resourceFile;
+      DataFile.FileType fileType = resourceFile.getType();
+      String path = resourceFile.getFile().getPath();
+      if (fileType == DataFile.FileType.GENERATED_FILES || !FileUtil.startsWith(path, resourceDirPath)) {
+        continue;
+      }
+
+      ByteArrayOutputStream items = new ByteArrayOutputStream();
+      SnapshotOutputStream itemsOut = new SnapshotOutputStream(items, strings);
+      try {
+        Collection<ResourceMergerItem> resourceItems = resourceFile.getItems();
+        itemsOut.writeVarInt(resourceItems.size());
+        for (ResourceMergerItem item : resourceItems) {
+          itemsOut.writeByte(item.getType().ordinal());
+          itemsOut.writeString(item.getName());
+          itemsOut.writeNode(item.getValue());
+        }
+      }
+      catch (UnsupportedNodeException e) {
+        continue;
+      }
+      itemsOut.flush();
+
+      bodyOut.writeString(FileUtil.getRelativePath(resourceDirPath, path, File.separatorChar));
+      bodyOut.writeLong(entry.timeStamp);
+      bodyOut.writeByte(fileType.ordinal());
+      bodyOut.writeVarInt(items.size());
+      items.writeTo(bodyOut);
+      numEntries++;
+    }
+    bodyOut.flush();
+
+    FileUtil.ensureExists(snapshotFile.getParentFile());
+    // Write to a temporary file first, then rename to the final name.
+    File tempFile = FileUtilRt.createTempFile(snapshotFile.getParentFile(), snapshotFile.getName(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeBytes(FILE_HEADER + ' ' + FILE_FORMAT_VERSION + ' ');
+        writeRawString(out, resourceDirPath);
+        out.writeInt(strings.size());
+        for (String string : strings.myStrings) {
+          writeRawString(out, string);
+        }
+        out.writeInt(numEntries);
+        body.writeTo(out);
+      }
+      Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally {
+      FileUtil.delete(tempFile);
+    }
+  }
+
+  /**
+   * Reads the entries of the files that haven't been modified since the snapshot file was written.
+   *
+   * @return the entries, or null if the snapshot file has a different format or is for a different resource directory
+   */
+  @Nullable
+  static List<Entry> read(@NotNull File snapshotFile,
+                          @NotNull File resourceDir,
+                          @NotNull ResourceNamespace namespace,
+                          @Nullable String libraryName) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile.toPath()));
+    try {
+      byte[] header = (FILE_HEADER + ' ' + FILE_FORMAT_VERSION + ' ').getBytes(StandardCharsets.US_ASCII);
+      for (byte b : header) {
+        if (buffer.get() != b) {
+          return null; // Not a snapshot file, or a different version of the format.
+        }
+      }
+      if (!FileUtil.pathsEqual(readRawString(buffer), resourceDir.getPath())) {
+        return null; // The snapshot is for a different resource directory, which has the same cache directory.
+      }
+
+      String[] strings = new String[buffer.getInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = readRawString(buffer);
+      }
+
+      DocumentBuilder documentBuilder = createDocumentBuilder();
+      Map<String, FolderConfiguration> folderConfigurations = new HashMap<>();
+      int numEntries = buffer.getInt();
+      List<Entry> entries = new ArrayList<>(numEntries);
+      SnapshotReader in = new SnapshotReader(buffer, strings);
+      for (int i = 0; i < numEntries; i++) {
+        File file = new File(resourceDir, in.readString());
+        long timeStamp = buffer.getLong();
+        DataFile.FileType fileType = DataFile.FileType.values()[buffer.get()];
+        int length = in.readVarInt();
+        int end = buffer.position() + length;
+        if (file.lastModified() != timeStamp) {
+          buffer.position(end); // The file was modified or deleted, so it has to be parsed again.
+          continue;
+        }
+
+        String folderName = file.getParentFile().getName();
+        FolderConfiguration folderConfiguration =
+            folderConfigurations.computeIfAbsent(folderName, FolderConfiguration::getConfigForFolder);
+        if (folderConfiguration == null) {
+          buffer.position(end);
+          continue;
+        }
+
+        Document document = documentBuilder.newDocument();
+        int numItems = in.readVarInt();
+        List<ResourceMergerItem> items = new ArrayList<>(numItems);
+        for (int j = 0; j < numItems; j++) {
+          ResourceType type = ResourceType.values()[buffer.get()];
+          String name = in.readString();
+          Node node = in.readNode(document);
+          items.add(new ResourceMergerItem(name, namespace, type, node, libraryName));
+        }
+        if (buffer.position() != end) {
+          throw new StreamCorruptedException("Unexpected length of the entry of " + file);
+        }
+
+        ResourceFile resourceFile;
+        if (fileType == DataFile.FileType.SINGLE_FILE && items.size() == 1) {
+          resourceFile = new ResourceFile(file, items.get(0), folderConfiguration);
+        }
+        else {
+          resourceFile = new ResourceFile(file, items, folderConfiguration);
+        }
+        entries.add(new Entry(resourceFile, timeStamp));
+      }
+      return entries;
+    }
+    catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new StreamCorruptedException("Invalid snapshot file " + snapshotFile + ": " + e);
+    }
+  }
+
+  private static void writeRawString(@NotNull DataOutputStream out, @NotNull String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @NotNull
+  private static String readRawString(@NotNull ByteBuffer buffer) {
+    int length = buffer.getInt();
+    String string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return string;
+  }
+
+  @NotNull
+  private static DocumentBuilder createDocumentBuilder() throws IOException {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    try {
+      return factory.newDocumentBuilder();
+    }
+    catch (ParserConfigurationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Strings of a snapshot file, each one stored once.
+   */
+  private static class StringTable {
+    private final List<String> myStrings = new ArrayList<>();
+    private final ObjectIntHashMap<String> myIndexes = new ObjectIntHashMap<>();
+
+    int indexOf(@NotNull String string) {
+      if (myIndexes.containsKey(string)) {
+        return myIndexes.get(string);
+      }
+      int index = myStrings.size();
+      myStrings.add(string);
+      myIndexes.put(string, index);
+      return index;
+    }
+
+    int size() {
+      return myStrings.size();
+    }
+  }
+
+  private static class UnsupportedNodeException extends IOException {
+    UnsupportedNodeException(short nodeType) {
+      super("Unsupported XML node type: " + nodeType);
+    }
+  }
+
+  private static class SnapshotOutputStream extends DataOutputStream {
+    @NotNull private final StringTable myStrings;
+
+    SnapshotOutputStream(@NotNull OutputStream out, @NotNull StringTable strings) {
+      super(out);
+      myStrings = strings;
+    }
+
+    void writeVarInt(int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      writeByte(value);
+    }
+
+    void writeString(@NotNull String string) throws IOException {
+      writeVarInt(myStrings.indexOf(string));
+    }
+
+    void writeNullableString(@Nullable String string) throws IOException {
+      writeVarInt(string == null ? 0 : myStrings.indexOf(string) + 1);
+    }
+
+    void writeNode(@Nullable Node node) throws IOException {
+      if (node == null) {
+        writeByte(0);
+        return;
+      }
+      synchronized (node.getOwnerDocument()) {
+        short nodeType = node.getNodeType();
+        switch (nodeType) {
+          case Node.ELEMENT_NODE: {
+            writeByte(nodeType);
+            writeNullableString(node.getNamespaceURI());
+            writeString(node.getNodeName());
+            NamedNodeMap attributes = node.getAttributes();
+            writeVarInt(attributes.getLength());
+            for (int i = 0; i < attributes.getLength(); i++) {
+              Node attribute = attributes.item(i);
+              writeNullableString(attribute.getNamespaceURI());
+              writeString(attribute.getNodeName());
+              writeString(attribute.getNodeValue());
+            }
+            NodeList children = node.getChildNodes();
+            int numSignificantChildren = 0;
+            for (int i = 0; i < children.getLength(); i++) {
+              if (children.item(i).getNodeType() != Node.COMMENT_NODE) {
+                numSignificantChildren++;
+              }
+            }
+            writeVarInt(numSignificantChildren);
+            for (int i = 0; i < children.getLength(); i++) {
+              Node child = children.item(i);
+              if (child.getNodeType() != Node.COMMENT_NODE) {
+                writeNode(child);
+              }
+            }
+            break;
+          }
+          case Node.TEXT_NODE:
+          case Node.CDATA_SECTION_NODE:
+            writeByte(nodeType);
+            writeString(node.getNodeValue());
+            break;
+          default:
+            throw new UnsupportedNodeException(nodeType);
+        }
+      }
+    }
+  }
+
+  private static class SnapshotReader {
+    @NotNull private final ByteBuffer myBuffer;
+    @NotNull private final String[] myStrings;
+
+    SnapshotReader(@NotNull ByteBuffer buffer, @NotNull String[] strings) {
+      myBuffer = buffer;
+      myStrings = strings;
+    }
+
+    int readVarInt() throws StreamCorruptedException {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        byte b = myBuffer.get();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new StreamCorruptedException("Invalid variable-length int");
+    }
+
+    @NotNull
+    String readString() throws StreamCorruptedException {
+      return myStrings[readVarInt()];
+    }
+
+    @Nullable
+    String readNullableString() throws StreamCorruptedException {
+      int index = readVarInt();
+      return index == 0 ? null : myStrings[index - 1];
+    }
+
+    @Nullable
+    Node readNode(@NotNull Document document) throws StreamCorruptedException {
+      byte nodeType = myBuffer.get();
+      switch (nodeType) {
+        case 0:
+          return null;
+
+        case Node.ELEMENT_NODE: {
+          Element element = document.createElementNS(readNullableString(), readString());
+          int numAttributes = readVarInt();
+          for (int i = 0; i < numAttributes; i++) {
+            element.setAttributeNS(readNullableString(), readString(), readString());
+          }
+          int numChildren = readVarInt();
+          for (int i = 0; i < numChildren; i++) {
+            Node child = readNode(document);
+            if (child != null) {
+              element.appendChild(child);
+            }
+          }
+          return element;
+        }
+
+        case Node.TEXT_NODE:
+          return document.createTextNode(readString());
+
+        case Node.CDATA_SECTION_NODE:
+          return document.createCDATASection(readString());
+
+        default:
+          throw new StreamCorruptedException("Unexpected node type: " + nodeType);
+      }
+    }
+  }
+}
@@ -836,6 +836,18 @@ public class ResourceNotificationManager {
       myOtherGeneration = otherGeneration;
     }
 
+    /**
+     * Returns true if the only change between the given earlier version and this one is an edit of the observed file, i.e. the file
+     * changed but the resources, the configuration and the project didn't.
+     */
+    public boolean isFileEditOf(@NotNull ResourceVersion version) {
+      return myFileGeneration != version.myFileGeneration &&
+             myResourceGeneration == version.myResourceGeneration &&
+             myConfigurationGeneration == version.myConfigurationGeneration &&
+             myProjectConfigurationGeneration == version.myProjectConfigurationGeneration &&
+             myOtherGeneration == version.myOtherGeneration;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
@@ -19,6 +19,10 @@ import com.android.ide.common.rendering.api.ViewInfo;
 import com.google.common.util.concurrent.ListenableFuture;
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -79,4 +83,70 @@ public class RenderServiceTest extends TestCase {
     future.get();
     assertTrue(called.get());
   }
-}
\ No newline at end of file
+
+  public void testAsyncRenderActionPriority() throws ExecutionException, InterruptedException {
+    CountDownLatch countDownLatch = new CountDownLatch(1);
+    // Keep the render thread busy so that the following actions are queued.
+    ListenableFuture<Void> blocker = RenderService.runAsyncRenderAction(() -> {
+      countDownLatch.await();
+      return null;
+    });
+
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    ListenableFuture<Void> low1 = RenderService.runAsyncRenderAction(() -> {
+      order.add("low1");
+      return null;
+    }, RenderService.Priority.LOW);
+    ListenableFuture<Void> normal = RenderService.runAsyncRenderAction(() -> {
+      order.add("normal");
+      return null;
+    }, RenderService.Priority.NORMAL);
+    ListenableFuture<Void> low2 = RenderService.runAsyncRenderAction(() -> {
+      order.add("low2");
+      return null;
+    }, RenderService.Priority.LOW);
+    ListenableFuture<Void> high = RenderService.runAsyncRenderAction(() -> {
+      order.add("high");
+      return null;
+    }, RenderService.Priority.HIGH);
+
+    countDownLatch.countDown();
+    blocker.get();
+    low1.get();
+    normal.get();
+    low2.get();
+    high.get();
+    assertEquals(Arrays.asList("high", "normal", "low1", "low2"), order);
+  }
+
+  public void testAsyncRenderRunnableKeepsOrderWithinPriority() throws ExecutionException, InterruptedException {
+    CountDownLatch countDownLatch = new CountDownLatch(1);
+    ListenableFuture<Void> blocker = RenderService.runAsyncRenderAction(() -> {
+      countDownLatch.await();
+      return null;
+    });
+
+    // A low priority render followed by its dispose, e.g. of a thumbnail, and then a normal priority render.
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch disposed = new CountDownLatch(1);
+    ListenableFuture<Void> render = RenderService.runAsyncRenderAction(() -> {
+      order.add("render");
+      return null;
+    }, RenderService.Priority.LOW);
+    RenderService.runAsyncRenderAction(() -> {
+      order.add("dispose");
+      disposed.countDown();
+    }, RenderService.Priority.LOW);
+    ListenableFuture<Void> normal = RenderService.runAsyncRenderAction(() -> {
+      order.add("normal");
+      return null;
+    }, RenderService.Priority.NORMAL);
+
+    countDownLatch.countDown();
+    blocker.get();
+    render.get();
+    normal.get();
+    disposed.await();
+    assertEquals(Arrays.asList("normal", "render", "dispose"), order);
+  }
+}
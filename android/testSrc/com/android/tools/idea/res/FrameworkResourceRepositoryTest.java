@@ -112,6 +112,14 @@ public class FrameworkResourceRepositoryTest extends AndroidTestCase {
     }
   }
 
+  public void testSharing() {
+    FrameworkResourceRepository withLocaleResources = FrameworkResourceRepository.getShared(myResourceFolder, true);
+    assertTrue(withLocaleResources.isWithLocaleResources());
+    assertSame(withLocaleResources, FrameworkResourceRepository.getShared(myResourceFolder, true));
+    // The repository with locale-specific resources is also shared with the users that don't need them.
+    assertSame(withLocaleResources, FrameworkResourceRepository.getShared(myResourceFolder, false));
+  }
+
   private static void compareContents(@NotNull ResourceRepository expected, @NotNull ResourceRepository actual) {
     List<ResourceItem> expectedItems = new ArrayList<>(expected.getAllResources());
     List<ResourceItem> actualItems = new ArrayList<>(actual.getAllResources());
@@ -22,6 +22,8 @@ import com.android.ide.common.resources.ResourceRepositoryUtil;
 import com.android.ide.common.resources.configuration.FolderConfiguration;
 import com.android.resources.ResourceType;
 import com.android.tools.lint.detector.api.Lint;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -39,6 +41,8 @@ import java.io.IOException;
 import java.util.*;
 
 import static com.android.ide.common.rendering.api.ResourceNamespace.RES_AUTO;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @SuppressWarnings("SpellCheckingInspection")
 public class ModuleResourceRepositoryTest extends AndroidTestCase {
@@ -485,6 +489,32 @@ public class ModuleResourceRepositoryTest extends AndroidTestCase {
     }
   }
 
+  public void testInvalidationIsLimitedToChangedTypes() {
+    TestLocalResourceRepository strings = new TestLocalResourceRepository();
+    TestLocalResourceRepository layouts = new TestLocalResourceRepository();
+    strings.getMap(RES_AUTO, ResourceType.STRING, true).put("first", createItem("first"));
+    layouts.getMap(RES_AUTO, ResourceType.LAYOUT, true).put("main", createItem("main"));
+    ModuleResourceRepository repository = ModuleResourceRepository.createForTest(myFacet, Arrays.asList(strings, layouts));
+
+    ListMultimap<String, ResourceItem> mergedLayouts = repository.getResources(RES_AUTO, ResourceType.LAYOUT);
+    assertEquals(ImmutableSet.of("first"), repository.getResources(RES_AUTO, ResourceType.STRING).keySet());
+
+    strings.getMap(RES_AUTO, ResourceType.STRING, true).put("second", createItem("second"));
+    repository.invalidateCache(strings, RES_AUTO, ResourceType.STRING);
+
+    // Only the changed type is merged again.
+    assertSame(mergedLayouts, repository.getResources(RES_AUTO, ResourceType.LAYOUT));
+    assertEquals(ImmutableSet.of("first", "second"), repository.getResources(RES_AUTO, ResourceType.STRING).keySet());
+  }
+
+  @NotNull
+  private static ResourceItem createItem(@NotNull String name) {
+    ResourceItem item = mock(ResourceItem.class);
+    when(item.getName()).thenReturn(name);
+    when(item.getConfiguration()).thenReturn(new FolderConfiguration());
+    return item;
+  }
+
   public void testAllowEmpty() {
     assertTrue(Lint.assertionsEnabled()); // this test should be run with assertions enabled!
     LocalResourceRepository repository = ModuleResourceRepository.createForTest(myFacet, Collections.emptyList());
@@ -3793,8 +3793,9 @@ public class ResourceFolderRepositoryTest extends AndroidTestCase {
     myRegistry.reset();
     final ResourceFolderRepository fromBlob = createRepository();
     assertNotNull(fromBlob);
-    // We don't count files that we explicitly skip against freshness.
+    // Density-based drawables are cached too, so none of them is parsed again.
     assertTrue(fromBlob.hasFreshFileCache());
+    assertEquals(0, fromBlob.myInitialScanState.numXmlReparsed);
 
     assertNotSame(resources, fromBlob);
     assertTrue(fromBlob.equalFilesItems(resources));
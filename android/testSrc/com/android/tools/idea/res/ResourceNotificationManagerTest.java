@@ -139,6 +139,7 @@ public class ResourceNotificationManagerTest extends AndroidTestCase {
     ensureCalled(called1, calledValue1, called2, calledValue2, Reason.EDIT);
     ResourceVersion version2 = manager.getCurrentVersion(myFacet, layout1, configuration1);
     assertFalse(version1.toString(), version1.equals(version2));
+    assertTrue(version2.toString(), version2.isFileEditOf(version1));
 
     // Next check: Modify a <string> value definition in a values file
     // and check that those changes are flagged too
@@ -148,6 +149,7 @@ public class ResourceNotificationManagerTest extends AndroidTestCase {
     ensureCalled(called1, calledValue1, called2, calledValue2, Reason.RESOURCE_EDIT);
     ResourceVersion version4 = manager.getCurrentVersion(myFacet, layout1, configuration1);
     assertFalse(version4.toString(), version3.equals(version4));
+    assertFalse(version4.toString(), version4.isFileEditOf(version3));
 
     // Next check: Modify content in a comment and verify that no changes are fired
     clear(called1, calledValue1, called2, calledValue2);
@@ -244,6 +244,8 @@ open class ThumbnailManager protected constructor(facet: AndroidFacet) : Android
       .withPsiFile(file)
       .build()
     task?.setDecorations(false)
+    // Thumbnails render in the background, so they shouldn't delay the renders of the design surface
+    task?.setPriority(RenderService.Priority.LOW)
     return task
   }
 
@@ -693,6 +693,14 @@ public class LayoutlibSceneManager extends SceneManager {
     }
   }
 
+  @VisibleForTesting
+  @Nullable
+  RenderTask getRenderTask() {
+    synchronized (myRenderingTaskLock) {
+      return myRenderTask;
+    }
+  }
+
   @Nullable
   public RenderResult getRenderResult() {
     myRenderResultLock.readLock().lock();
@@ -818,26 +826,36 @@ public class LayoutlibSceneManager extends SceneManager {
       // Record the current version we're rendering from; we'll use that in #activate to make sure we're picking up any
       // external changes
       AndroidFacet facet = getModel().getFacet();
+      ResourceNotificationManager.ResourceVersion previousVersion = myRenderedVersion;
       myRenderedVersion = resourceNotificationManager.getCurrentVersion(facet, getModel().getFile(), configuration);
 
-      RenderService renderService = RenderService.getInstance(getModel().getProject());
-      if (myRenderTask != null && !myRenderTask.isDisposed()) {
-        myRenderTask.dispose();
+      if (myRenderTask != null && !myRenderTask.isDisposed() && previousVersion != null &&
+          myRenderedVersion.isFileEditOf(previousVersion)) {
+        // Only the layout itself was edited since the task was inflated, so its callback, class loader and assets are still valid
+        // and only its session needs to be inflated again
+        result = reinflate(myRenderTask);
       }
 
-      RenderService.RenderTaskBuilder renderTaskBuilder = renderService.taskBuilder(facet, configuration)
-                                                                       .withPsiFile(getModel().getFile());
-      myRenderTask = setupRenderTaskBuilder(renderTaskBuilder).build();
-      if (myRenderTask != null) {
-        myRenderTask.getLayoutlibCallback()
-          .setAdaptiveIconMaskPath(getDesignSurface().getAdaptiveIconShape().getPathDescription());
-        result = myRenderTask.inflate();
-        if (result == null || !result.getRenderResult().isSuccess()) {
+      if (result == null) {
+        RenderService renderService = RenderService.getInstance(getModel().getProject());
+        if (myRenderTask != null && !myRenderTask.isDisposed()) {
           myRenderTask.dispose();
-          myRenderTask = null;
+        }
 
-          if (result == null) {
-            result = RenderResult.createBlank(getModel().getFile());
+        RenderService.RenderTaskBuilder renderTaskBuilder = renderService.taskBuilder(facet, configuration)
+                                                                         .withPsiFile(getModel().getFile());
+        myRenderTask = setupRenderTaskBuilder(renderTaskBuilder).build();
+        if (myRenderTask != null) {
+          myRenderTask.getLayoutlibCallback()
+            .setAdaptiveIconMaskPath(getDesignSurface().getAdaptiveIconShape().getPathDescription());
+          result = myRenderTask.inflate();
+          if (result == null || !result.getRenderResult().isSuccess()) {
+            myRenderTask.dispose();
+            myRenderTask = null;
+
+            if (result == null) {
+              result = RenderResult.createBlank(getModel().getFile());
+            }
           }
         }
       }
@@ -857,6 +875,28 @@ public class LayoutlibSceneManager extends SceneManager {
     return resultTask != null;
   }
 
+  /**
+   * Inflates the layout again in the given, already inflated, task.
+   *
+   * @return the result of the inflation, or null if it failed, in which case the caller should fall back to inflating a new task
+   */
+  @GuardedBy("myRenderingTaskLock")
+  @Nullable
+  private RenderResult reinflate(@NotNull RenderTask task) {
+    // The problems logged for the previous version of the layout might have been fixed by the edit, so they're not carried over
+    task.setLogger(RenderService.getInstance(getModel().getProject()).createLogger(getModel().getFacet()));
+    task.getLayoutlibCallback().setAdaptiveIconMaskPath(getDesignSurface().getAdaptiveIconShape().getPathDescription());
+    RenderResult result = task.inflate();
+    // The failure might be caused by state kept in the task, so it's not reported before trying with a new task
+    if (result == null || !result.getRenderResult().isSuccess()) {
+      if (result != null) {
+        result.dispose();
+      }
+      return null;
+    }
+    return result;
+  }
+
   @GuardedBy("myRenderResultLock")
   private void updateCachedRenderResult(RenderResult result) {
     if (result != null && result.getRenderResult().isSuccess()) {
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.scene;
+
+import com.android.tools.idea.common.SyncNlModel;
+import com.android.tools.idea.rendering.RenderResult;
+import com.android.tools.idea.rendering.RenderTask;
+import com.android.tools.idea.uibuilder.LayoutTestCase;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.xml.XmlTag;
+import org.jetbrains.annotations.NotNull;
+
+import static com.android.SdkConstants.*;
+
+public class LayoutlibSceneManagerTest extends LayoutTestCase {
+  private SyncNlModel myModel;
+  private LayoutlibSceneManager myManager;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myModel = model("linear.xml",
+                    component(LINEAR_LAYOUT)
+                      .withBounds(0, 0, 1000, 1000)
+                      .matchParentWidth()
+                      .matchParentHeight()
+                      .children(
+                        component(TEXT_VIEW)
+                          .withBounds(0, 0, 200, 200)
+                          .wrapContentWidth()
+                          .wrapContentHeight()))
+      .build();
+    // Avoid rendering any other components (nav bar and similar) so we do not have dependencies on the Material theme
+    myModel.getConfiguration().setTheme("android:Theme.NoTitleBar.Fullscreen");
+    myManager = (LayoutlibSceneManager)myModel.getSurface().getSceneManager();
+    myManager.updateModel();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myModel = null;
+      myManager = null;
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testEditOfLayoutReusesRenderTask() {
+    RenderTask task = myManager.getRenderTask();
+    assertNotNull(task);
+
+    setTextViewTagName("com.example.MissingView");
+    myManager.updateModel();
+    assertSame(task, myManager.getRenderTask());
+    RenderResult result = myManager.getRenderResult();
+    assertNotNull(result);
+    assertTrue(result.getRenderResult().isSuccess());
+    assertTrue(result.getLogger().getMissingClasses().contains("com.example.MissingView"));
+
+    // Fixing the problem reuses the task too, and the problem of the previous inflation isn't reported anymore.
+    setTextViewTagName(TEXT_VIEW);
+    myManager.updateModel();
+    assertSame(task, myManager.getRenderTask());
+    result = myManager.getRenderResult();
+    assertNotNull(result);
+    assertTrue(result.getRenderResult().isSuccess());
+    assertFalse(result.getLogger().hasProblems());
+  }
+
+  public void testOtherChangesCreateNewRenderTask() {
+    RenderTask task = myManager.getRenderTask();
+    assertNotNull(task);
+
+    // Changing the configuration along with the layout can't reuse the task.
+    myModel.getConfiguration().setTheme("android:Theme.Holo.NoActionBar.Fullscreen");
+    setTextViewTagName(BUTTON);
+    myManager.updateModel();
+    RenderTask newTask = myManager.getRenderTask();
+    assertNotNull(newTask);
+    assertNotSame(task, newTask);
+    assertTrue(task.isDisposed());
+
+    // Forcing an update without any change creates a new task as well.
+    myManager.updateModel();
+    assertNotSame(newTask, myManager.getRenderTask());
+    assertTrue(newTask.isDisposed());
+  }
+
+  private void setTextViewTagName(@NotNull String name) {
+    XmlTag rootTag = myModel.getFile().getRootTag();
+    assertNotNull(rootTag);
+    XmlTag tag = rootTag.getSubTags()[0];
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> tag.setName(name));
+  }
+}
@@ -34,57 +34,99 @@ import java.util.concurrent.*
  * /usr/local/google/home/ezemtsov/projects/android-apps/sum/app/src/main/cpp/native-lib.cpp:36:7
  *
  * More info about llvm-symbolizer: https://llvm.org/docs/CommandGuide/llvm-symbolizer.html
+ *
+ * Offsets of a module symbolized together are written to llvm-symbolizer in batches, and symbols that have already been
+ * looked up are read from [symbolCache] when one is given.
  */
 class LlvmSymbolizer(private val symbolizerExe: String,
                      private val symLocator: SymbolFilesLocator,
-                     private val timeoutMsc: Long = 5000) : NativeSymbolizer {
+                     private val timeoutMsc: Long = 5000,
+                     private val symbolCache: SymbolCache? = null) : NativeSymbolizer {
 
   private var procHolder : ProcessHolder? = null
   private val executor : ExecutorService = Executors.newSingleThreadExecutor()
 
   override fun symbolize(abiArch: String, module: String, offset: Long): Symbol? {
-    val symFiles = symLocator.findSymbolFiles(abiArch, module)
-
-    for (symFile in symFiles) {
-      val request = formatRequest(symFile, offset)
-
-      val holder = getProcHolder()
-      val future = executor.submit( Callable<List<String>> {
-        holder.stdin.write(request)
-        holder.stdin.flush()
-
-        val response: MutableList<String> = mutableListOf()
-        var responseLine: String?
-        while (true) {
-          responseLine = holder.stdout.readLine()
-          if (responseLine == null || responseLine.isEmpty()) {
-            break
-          }
-          response.add(responseLine)
-        }
-        response
-      })
-      val response : List<String>
-      try {
-        response = future.get(timeoutMsc, TimeUnit.MILLISECONDS)
-      } catch (e: TimeoutException) {
-        getLogger().warn("llvm-symbolizer timed out", e)
-        stop()
-        continue
-      } catch (e: ExecutionException) {
-        getLogger().warn("llvm-symbolizer communication failed", e)
-        stop()
-        continue
+    return symbolizeModule(abiArch, module, listOf(offset))[0]
+  }
+
+  override fun symbolize(abiArch: String, offsets: Map<String, List<Long>>): Map<String, List<Symbol?>> {
+    return offsets.mapValues { (module, moduleOffsets) -> symbolizeModule(abiArch, module, moduleOffsets) }
+  }
+
+  private fun symbolizeModule(abiArch: String, module: String, offsets: List<Long>): List<Symbol?> {
+    val result = arrayOfNulls<Symbol>(offsets.size)
+    // Indices of the offsets that haven't been found in the symbol files looked at so far.
+    var pending = offsets.indices.toList()
+    for (symFile in symLocator.findSymbolFiles(abiArch, module)) {
+      if (pending.isEmpty()) {
+        break
       }
+      val symbols = symbolizeInFile(symFile, module, pending.map { offsets[it] })
+      pending.forEachIndexed { i, index -> result[index] = symbols[i] }
+      pending = pending.filter { result[it] == null }
+    }
+    return result.asList()
+  }
 
-      val result = parseResponse(response, module)
-      if (result != null)
-        return result
+  private fun symbolizeInFile(symFile: File, module: String, offsets: List<Long>): List<Symbol?> {
+    val symbols = arrayOfNulls<Symbol>(offsets.size)
+    val cachedSymbols = symbolCache?.getSymbols(symFile)
+    val misses = offsets.indices.filter { cachedSymbols == null || !cachedSymbols.contains(offsets[it]) }
+    for (i in offsets.indices) {
+      symbols[i] = cachedSymbols?.get(offsets[i])?.copy(module = module)
+    }
+
+    // Requests are written to llvm-symbolizer in batches, and the responses read back in the same order.
+    for (batch in misses.chunked(REQUESTS_PER_BATCH)) {
+      val responses = query(symFile, batch.map { offsets[it] }) ?: continue
+      val found = HashMap<Long, Symbol?>()
+      batch.forEachIndexed { i, index ->
+        symbols[index] = parseResponse(responses[i], module)
+        found[offsets[index]] = symbols[index]
+      }
+      cachedSymbols?.putAll(found)
     }
+    return symbols.asList()
+  }
 
+  /**
+   * @return the response lines for each offset, or null if llvm-symbolizer failed to answer
+   */
+  private fun query(symFile: File, offsets: List<Long>): List<List<String>>? {
+    val request = offsets.joinToString("") { formatRequest(symFile, it) }
+
+    val holder = getProcHolder()
+    val future = executor.submit( Callable<List<List<String>>> {
+      holder.stdin.write(request)
+      holder.stdin.flush()
+      List(offsets.size) { readResponse(holder.stdout) }
+    })
+    try {
+      return future.get(timeoutMsc, TimeUnit.MILLISECONDS)
+    } catch (e: TimeoutException) {
+      getLogger().warn("llvm-symbolizer timed out", e)
+      stop()
+    } catch (e: ExecutionException) {
+      getLogger().warn("llvm-symbolizer communication failed", e)
+      stop()
+    }
     return null
   }
 
+  private fun readResponse(stdout: BufferedReader): List<String> {
+    val response: MutableList<String> = mutableListOf()
+    var responseLine: String?
+    while (true) {
+      responseLine = stdout.readLine()
+      if (responseLine == null || responseLine.isEmpty()) {
+        break
+      }
+      response.add(responseLine)
+    }
+    return response
+  }
+
   private fun getProcHolder() : ProcessHolder {
     var holder = procHolder
     if (holder == null || !holder.process.isAlive) {
@@ -146,6 +188,14 @@ class LlvmSymbolizer(private val symbolizerExe: String,
     procHolder = null
   }
 
+  private companion object {
+    /**
+     * Maximum number of requests written to llvm-symbolizer before reading the responses. It keeps both the requests
+     * and the responses within the size of the pipe buffers, and a batch within the timeout.
+     */
+    const val REQUESTS_PER_BATCH = 64
+  }
+
   private class ProcessHolder(val process: Process,
                               val stdout: BufferedReader,
                               val stdin: OutputStreamWriter) : Disposable {
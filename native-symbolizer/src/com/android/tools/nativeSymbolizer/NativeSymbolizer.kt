@@ -39,6 +39,19 @@ interface NativeSymbolizer {
    */
   @Throws(IOException::class)
   fun symbolize(abiArch: String, module: String, offset: Long): Symbol?
+
+  /**
+   * Obtains information about several offsets at once. Implementations can share work between the offsets of a module,
+   * or symbolize different modules in parallel.
+   * @param abiArch - CPU architecture of the modules
+   * @param offsets - offsets that need to be symbolized, grouped by module path
+   * @return for each module, symbols info for its offsets in the same order, or null for the ones that can't be found
+   */
+  @Throws(IOException::class)
+  fun symbolize(abiArch: String, offsets: Map<String, List<Long>>): Map<String, List<Symbol?>> {
+    return offsets.mapValues { (module, moduleOffsets) -> moduleOffsets.map { symbolize(abiArch, module, it) } }
+  }
+
   fun stop()
 }
 
@@ -51,9 +64,14 @@ fun createNativeSymbolizer(project: Project): NativeSymbolizer {
     log.debug("Native symbolizer paths for $arch is [$dirs]")
   }
   val symLocator = SymbolFilesLocator(symDirMap)
-  return LlvmSymbolizer(symbolizerPath, symLocator)
+  val symbolCache = getSharedSymbolCache()
+  // Each llvm-symbolizer process keeps the symbols of the modules it has seen in memory, so their number is kept small.
+  val processCount = Math.max(1, Math.min(MAX_SYMBOLIZER_PROCESSES, Runtime.getRuntime().availableProcessors() / 2))
+  return ParallelSymbolizer(List(processCount) { LlvmSymbolizer(symbolizerPath, symLocator, symbolCache = symbolCache) })
 }
 
+private const val MAX_SYMBOLIZER_PROCESSES = 4
+
 /**
  *  Get path to the llvm-symbolizer executable
  */
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.nativeSymbolizer
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import java.io.IOException
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Symbolizer that spreads the modules of a batch over several symbolizers (e.g. several llvm-symbolizer processes) and
+ * queries them in parallel. All the offsets of a module always go to the same symbolizer, so the module's symbols are
+ * only loaded by one of them. It can't be used anymore once it is stopped.
+ */
+class ParallelSymbolizer(private val symbolizers: List<NativeSymbolizer>) : NativeSymbolizer {
+  init {
+    if (symbolizers.isEmpty()) {
+      throw IllegalArgumentException("At least one symbolizer is required")
+    }
+  }
+
+  private val executor: ExecutorService =
+    Executors.newFixedThreadPool(symbolizers.size, ThreadFactoryBuilder().setNameFormat("native-symbolizer-%d").setDaemon(true).build())
+
+  override fun symbolize(abiArch: String, module: String, offset: Long): Symbol? {
+    return symbolizerFor(module).symbolize(abiArch, module, offset)
+  }
+
+  override fun symbolize(abiArch: String, offsets: Map<String, List<Long>>): Map<String, List<Symbol?>> {
+    val futures = offsets.entries.groupBy { symbolizerFor(it.key) }.map { (symbolizer, entries) ->
+      executor.submit(Callable<Map<String, List<Symbol?>>> {
+        symbolizer.symbolize(abiArch, entries.associate { it.key to it.value })
+      })
+    }
+
+    val result = HashMap<String, List<Symbol?>>()
+    for (future in futures) {
+      try {
+        result.putAll(future.get())
+      }
+      catch (e: ExecutionException) {
+        // A failing symbolizer doesn't drop the results of the others, it is only reported if there are no other results.
+        if (futures.size == 1 && e.cause is IOException) {
+          throw e.cause as IOException
+        }
+        getLogger().warn("Native symbolization failed", e.cause)
+      }
+    }
+    return result
+  }
+
+  override fun stop() {
+    executor.shutdown()
+    symbolizers.forEach { it.stop() }
+  }
+
+  private fun symbolizerFor(module: String): NativeSymbolizer = symbolizers[Math.floorMod(module.hashCode(), symbolizers.size)]
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.nativeSymbolizer
+
+import com.intellij.openapi.application.PathManager
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.Paths
+
+/**
+ * Persistent cache of symbolization results, stored in [cacheDir] with one file per symbol file.
+ *
+ * Results are keyed by the build-id of the symbol file, so they survive rebuilds that don't change the binary and are shared
+ * between projects and sessions. Symbol files without a build-id (e.g. most .dwo files) are keyed by their path, size and
+ * modification time instead.
+ *
+ * Offsets that couldn't be symbolized are only remembered in memory, by path, size and modification time of the symbol file: a
+ * stripped library and its unstripped copy share a build-id, and the misses of the stripped one must not hide the symbols of the other.
+ *
+ * Entries are appended to the files as they are added, so there must be a single instance per [cacheDir], see [getSharedSymbolCache].
+ * When the instance is created, the least recently used files are deleted until the cache fits in [maxSizeBytes].
+ */
+class SymbolCache(private val cacheDir: File, maxSizeBytes: Long = MAX_CACHE_SIZE_BYTES) {
+  private val persistedSymbols = HashMap<String, PersistedSymbols>()
+
+  /**
+   * Cached symbols by symbol file path, so reading the build-id of a file again is only needed when the file changes.
+   */
+  private val symbolsByPath = HashMap<String, FileSymbols>()
+
+  init {
+    evictLeastRecentlyUsed(maxSizeBytes)
+  }
+
+  /**
+   * @return the cached symbols of [symFile]. Symbols are stored without the device module they were looked up for.
+   */
+  @Synchronized
+  fun getSymbols(symFile: File): CachedSymbols {
+    val length = symFile.length()
+    val lastModified = symFile.lastModified()
+    val fileSymbols = symbolsByPath[symFile.absolutePath]
+    if (fileSymbols != null && fileSymbols.length == length && fileSymbols.lastModified == lastModified) {
+      return fileSymbols.symbols
+    }
+    val key = getCacheKey(symFile)
+    val symbols = CachedSymbols(persistedSymbols.getOrPut(key) { PersistedSymbols(File(cacheDir, "$key.txt")) })
+    symbolsByPath[symFile.absolutePath] = FileSymbols(length, lastModified, symbols)
+    return symbols
+  }
+
+  private fun evictLeastRecentlyUsed(maxSizeBytes: Long) {
+    val files = cacheDir.listFiles { file -> file.isFile && file.name.endsWith(".txt") } ?: return
+    var totalSize = files.map { it.length() }.sum()
+    for (file in files.sortedBy { it.lastModified() }) {
+      if (totalSize <= maxSizeBytes) {
+        break
+      }
+      val size = file.length()
+      if (file.delete()) {
+        totalSize -= size
+      }
+    }
+  }
+
+  private class FileSymbols(val length: Long, val lastModified: Long, val symbols: CachedSymbols)
+
+  /**
+   * Symbols of one version of a symbol file: the symbols found so far, shared by all the files with the same cache key, and the
+   * offsets that couldn't be symbolized in this file.
+   */
+  class CachedSymbols internal constructor(private val persisted: PersistedSymbols) {
+    private val misses = HashSet<Long>()
+
+    @Synchronized
+    fun contains(offset: Long): Boolean = misses.contains(offset) || persisted.contains(offset)
+
+    fun get(offset: Long): Symbol? = persisted.get(offset)
+
+    @Synchronized
+    fun putAll(newSymbols: Map<Long, Symbol?>) {
+      val found = HashMap<Long, Symbol>()
+      for ((offset, symbol) in newSymbols) {
+        if (symbol == null) {
+          misses.add(offset)
+        }
+        else {
+          found[offset] = symbol
+        }
+      }
+      persisted.putAll(found)
+    }
+  }
+
+  /**
+   * Symbols found in the symbol files with the same cache key. Entries are written to disk as they are added, one per line:
+   * <hex offset>\t<name>\t<source file>\t<line number>.
+   */
+  internal class PersistedSymbols(private val file: File) {
+    private val symbols = HashMap<Long, Symbol>()
+
+    init {
+      if (file.isFile) {
+        // Reading the file counts as a use, so it isn't the first one evicted.
+        file.setLastModified(System.currentTimeMillis())
+        try {
+          file.forEachLine { line ->
+            val parts = line.split('\t')
+            // Lines with only an offset are misses written by older versions of the cache, they are ignored.
+            val offset = parts[0].toLongOrNull(16) ?: return@forEachLine
+            if (parts.size >= 4) {
+              symbols[offset] = Symbol(parts[1], "", parts[2], parts[3].toIntOrNull() ?: 0)
+            }
+          }
+        }
+        catch (e: IOException) {
+          getLogger().warn("Failed to read symbol cache file $file", e)
+        }
+      }
+    }
+
+    @Synchronized
+    fun contains(offset: Long): Boolean = symbols.containsKey(offset)
+
+    @Synchronized
+    fun get(offset: Long): Symbol? = symbols[offset]
+
+    @Synchronized
+    fun putAll(newSymbols: Map<Long, Symbol>) {
+      if (newSymbols.isEmpty()) {
+        return
+      }
+      symbols.putAll(newSymbols)
+      val lines = StringBuilder()
+      for ((offset, symbol) in newSymbols) {
+        lines.append(java.lang.Long.toHexString(offset))
+          .append('\t').append(symbol.name).append('\t').append(symbol.sourceFile).append('\t').append(symbol.lineNumber)
+          .append('\n')
+      }
+      try {
+        file.parentFile.mkdirs()
+        file.appendText(lines.toString())
+      }
+      catch (e: IOException) {
+        getLogger().warn("Failed to write symbol cache file $file", e)
+      }
+    }
+  }
+
+  private fun getCacheKey(symFile: File): String {
+    val buildId = readBuildId(symFile)
+    if (buildId != null) {
+      return buildId
+    }
+    val fileKey = "${symFile.absolutePath}:${symFile.length()}:${symFile.lastModified()}"
+    return "${symFile.nameWithoutExtension}-${Integer.toHexString(fileKey.hashCode())}"
+  }
+}
+
+private const val MAX_CACHE_SIZE_BYTES = 64L * 1024 * 1024
+
+private val sharedSymbolCache by lazy { SymbolCache(Paths.get(PathManager.getSystemPath(), "native-symbols").toFile()) }
+
+/**
+ * @return the [SymbolCache] shared by all the symbolizers of the IDE, as only one instance may write to a cache directory.
+ */
+fun getSharedSymbolCache(): SymbolCache = sharedSymbolCache
+
+private const val SHT_NOTE = 7
+private const val NT_GNU_BUILD_ID = 3
+private const val ELF_HEADER_SIZE = 0x40
+private const val MAX_SECTION_HEADER_SIZE = 0x100
+// Note sections hold a few small records, anything bigger is not worth reading to look for a build-id.
+private const val MAX_NOTE_SECTION_SIZE = 64 * 1024
+
+/**
+ * Reads the GNU build-id note of an ELF file. Only the ELF header, the section headers and the note sections are read, so this is
+ * cheap even for large symbol files.
+ *
+ * @return the build-id as a hex string, or null if the file isn't an ELF file or doesn't have a build-id
+ */
+fun readBuildId(file: File): String? {
+  try {
+    RandomAccessFile(file, "r").use { raf ->
+      val channel = raf.channel
+      val elfHeader = readAt(channel, 0, ELF_HEADER_SIZE)
+      if (elfHeader.limit() < 0x34 || elfHeader.getInt(0) != 0x7F454C46) { // "\u007FELF"
+        return null
+      }
+      val is64Bit = elfHeader.get(4).toInt() == 2
+      val order = if (elfHeader.get(5).toInt() == 2) ByteOrder.BIG_ENDIAN else ByteOrder.LITTLE_ENDIAN
+      elfHeader.order(order)
+      if (is64Bit && elfHeader.limit() < ELF_HEADER_SIZE) {
+        return null
+      }
+      val sectionHeadersOffset = if (is64Bit) elfHeader.getLong(0x28) else elfHeader.getInt(0x20).toLong() and 0xFFFFFFFFL
+      val sectionHeaderSize = elfHeader.getShort(if (is64Bit) 0x3A else 0x2E).toInt() and 0xFFFF
+      val sectionCount = elfHeader.getShort(if (is64Bit) 0x3C else 0x30).toInt() and 0xFFFF
+      if (sectionHeadersOffset < 0 || sectionHeaderSize < (if (is64Bit) 0x28 else 0x18) || sectionHeaderSize > MAX_SECTION_HEADER_SIZE) {
+        return null
+      }
+      val sectionHeaders = readAt(channel, sectionHeadersOffset, sectionCount * sectionHeaderSize).order(order)
+      for (i in 0 until sectionCount) {
+        val header = i * sectionHeaderSize
+        if (header + sectionHeaderSize > sectionHeaders.limit() || sectionHeaders.getInt(header + 4) != SHT_NOTE) {
+          continue
+        }
+        val offset = if (is64Bit) sectionHeaders.getLong(header + 0x18) else sectionHeaders.getInt(header + 0x10).toLong() and 0xFFFFFFFFL
+        val size = if (is64Bit) sectionHeaders.getLong(header + 0x20) else sectionHeaders.getInt(header + 0x14).toLong() and 0xFFFFFFFFL
+        if (offset < 0 || size < 0 || size > MAX_NOTE_SECTION_SIZE) {
+          continue
+        }
+        val notes = readAt(channel, offset, size.toInt()).order(order)
+        val buildId = findBuildIdInNotes(notes, 0, notes.limit())
+        if (buildId != null) {
+          return buildId
+        }
+      }
+    }
+  }
+  catch (e: IOException) {
+    getLogger().warn("Failed to read build-id of $file", e)
+  }
+  return null
+}
+
+/**
+ * Reads up to [size] bytes of [channel] at [position]. The returned buffer is shorter if the file ends before.
+ */
+private fun readAt(channel: FileChannel, position: Long, size: Int): ByteBuffer {
+  val buffer = ByteBuffer.allocate(size)
+  while (buffer.hasRemaining()) {
+    if (channel.read(buffer, position + buffer.position()) <= 0) {
+      break
+    }
+  }
+  buffer.flip()
+  return buffer
+}
+
+private fun findBuildIdInNotes(buffer: ByteBuffer, start: Int, end: Int): String? {
+  var position = start
+  // Each note is made of a 12 bytes header followed by its name and its descriptor, both 4 bytes aligned.
+  while (position + 12 <= end) {
+    val nameSize = buffer.getInt(position)
+    val descriptorSize = buffer.getInt(position + 4)
+    val type = buffer.getInt(position + 8)
+    val descriptorStart = position + 12 + ((nameSize + 3) and 3.inv())
+    if (nameSize < 0 || descriptorSize < 0 || descriptorStart + descriptorSize > end) {
+      return null
+    }
+    if (type == NT_GNU_BUILD_ID && nameSize == 4 && isGnuNoteName(buffer, position + 12)) {
+      val buildId = StringBuilder()
+      for (i in descriptorStart until descriptorStart + descriptorSize) {
+        buildId.append(String.format("%02x", buffer.get(i)))
+      }
+      return buildId.toString()
+    }
+    position = descriptorStart + ((descriptorSize + 3) and 3.inv())
+  }
+  return null
+}
+
+private fun isGnuNoteName(buffer: ByteBuffer, position: Int): Boolean {
+  return buffer.get(position) == 'G'.toByte() && buffer.get(position + 1) == 'N'.toByte() && buffer.get(position + 2) == 'U'.toByte() &&
+         buffer.get(position + 3) == 0.toByte()
+}
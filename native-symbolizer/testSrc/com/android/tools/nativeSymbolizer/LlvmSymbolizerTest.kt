@@ -117,6 +117,25 @@ class LlvmSymbolizerTest {
     }
   }
 
+  @Test
+  fun testBatchSymbolizeMatchesSingleSymbolize() {
+    val symbolizer = createSymbolizer()
+    val symbolCache = createSymbolCache()
+    val cachedSymbolizer = ParallelSymbolizer(listOf(createSymbolizer(symbolCache), createSymbolizer(symbolCache)))
+    for (arch in architectures) {
+      val offsets = Paths.get(testDataDir, arch, EXPECTED_SYMBOLS_FILE_NAME).toFile().readLines().map { it.split('|')[0].toLong(16) + 1 }
+      // Unknown offsets and modules are part of the batch too.
+      val request = mapOf(Pair("/path/to/device/modules/" + LIB_FILE_NAME, offsets + 0xffffffffff),
+                          Pair("/p/libnotexists.so", listOf(12345L)))
+      val expected = request.mapValues { (module, moduleOffsets) -> moduleOffsets.map { symbolizer.symbolize(arch, module, it) } }
+      Assert.assertEquals(expected, symbolizer.symbolize(arch, request))
+      // The second batch is answered from the cache.
+      Assert.assertEquals(expected, cachedSymbolizer.symbolize(arch, request))
+      Assert.assertEquals(expected, cachedSymbolizer.symbolize(arch, request))
+    }
+    cachedSymbolizer.stop()
+  }
+
   @Test
   fun testExeRestart() {
     val symbolizer = createSymbolizer()
@@ -176,9 +195,13 @@ class LlvmSymbolizerTest {
     return result
   }
 
-  fun createSymbolizer(): NativeSymbolizer {
+  fun createSymbolizer(symbolCache: SymbolCache? = null): NativeSymbolizer {
     val symLocator = SymbolFilesLocator(getSymDirMap())
-    return LlvmSymbolizer(getLlvmSymbolizerPath(), symLocator)
+    return LlvmSymbolizer(getLlvmSymbolizerPath(), symLocator, symbolCache = symbolCache)
+  }
+
+  fun createSymbolCache(): SymbolCache {
+    return SymbolCache(FileUtil.createTempDirectory("llvm-symbolizer", "cache", true))
   }
 
 
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.nativeSymbolizer
+
+import com.android.testutils.TestUtils
+import com.intellij.openapi.util.io.FileUtil
+import org.junit.Assert
+import org.junit.Test
+import java.io.File
+
+class SymbolCacheTest {
+
+  val testDataDir = TestUtils.getWorkspaceFile("tools/adt/idea/native-symbolizer/testData/bin/").absolutePath
+
+  @Test
+  fun testReadBuildId() {
+    Assert.assertEquals("463de9a467d1bc1453c0e1f494308df8a8616b48", readBuildId(File(testDataDir, "arm/libnative-lib.so")))
+    Assert.assertEquals("9b3ea9b018209bd554c02186a62cf2c7cca3e915", readBuildId(File(testDataDir, "arm64/libnative-lib.so")))
+    Assert.assertEquals("77d9de6b9746662e7da8225fedd7533b57ded517", readBuildId(File(testDataDir, "x86/libnative-lib.so")))
+    Assert.assertEquals("415446799bd7b2495e1056857fc6dfc724ffc002", readBuildId(File(testDataDir, "x86_64/libnative-lib.so")))
+    Assert.assertNull(readBuildId(File(testDataDir, "arm/symbols.txt")))
+  }
+
+  @Test
+  fun testSymbolsArePersisted() {
+    val cacheDir = FileUtil.createTempDirectory("symbol-cache", "test", true)
+    val symFile = File(testDataDir, "arm/libnative-lib.so")
+    val symbol = Symbol("TestSimpleMethodCall(_JNIEnv*, _jobject*)", "", "/src/native-lib.cpp", 36)
+    SymbolCache(cacheDir).getSymbols(symFile).putAll(mapOf(Pair(0x909cL, symbol), Pair(0x10L, null)))
+    Assert.assertTrue(File(cacheDir, "463de9a467d1bc1453c0e1f494308df8a8616b48.txt").exists())
+
+    val symbols = SymbolCache(cacheDir).getSymbols(symFile)
+    Assert.assertEquals(symbol, symbols.get(0x909c))
+    // Misses are only kept in memory.
+    Assert.assertFalse(symbols.contains(0x10))
+    Assert.assertFalse(symbols.contains(0x20))
+  }
+
+  @Test
+  fun testMissesDoNotHideSymbolsOfFilesWithSameBuildId() {
+    val cacheDir = FileUtil.createTempDirectory("symbol-cache", "test", true)
+    val cache = SymbolCache(cacheDir)
+    // Stand-ins for a stripped library and its unstripped copy, which have the same build-id.
+    val stripped = FileUtil.createTempFile("stripped", ".so", true)
+    val unstripped = FileUtil.createTempFile("unstripped", ".so", true)
+    File(testDataDir, "arm/libnative-lib.so").copyTo(stripped, true)
+    File(testDataDir, "arm/libnative-lib.so").copyTo(unstripped, true)
+
+    cache.getSymbols(stripped).putAll(mapOf(Pair(0x909cL, null)))
+    Assert.assertTrue(cache.getSymbols(stripped).contains(0x909c))
+    Assert.assertFalse(cache.getSymbols(unstripped).contains(0x909c))
+
+    // Symbols found in one of them are shared with the other.
+    val symbol = Symbol("TestSimpleMethodCall(_JNIEnv*, _jobject*)", "", "/src/native-lib.cpp", 36)
+    cache.getSymbols(unstripped).putAll(mapOf(Pair(0x909cL, symbol)))
+    Assert.assertEquals(symbol, cache.getSymbols(stripped).get(0x909c))
+  }
+
+  @Test
+  fun testFilesWithoutBuildIdAreCachedSeparately() {
+    val cacheDir = FileUtil.createTempDirectory("symbol-cache", "test", true)
+    val cache = SymbolCache(cacheDir)
+    val first = FileUtil.createTempFile("first", ".dwo", true)
+    val second = FileUtil.createTempFile("second", ".dwo", true)
+    cache.getSymbols(first).putAll(mapOf(Pair(0x10L, Symbol("first", ""))))
+    Assert.assertFalse(cache.getSymbols(second).contains(0x10))
+  }
+
+  @Test
+  fun testLeastRecentlyUsedFilesAreEvicted() {
+    val cacheDir = FileUtil.createTempDirectory("symbol-cache", "test", true)
+    val oldest = File(cacheDir, "oldest.txt")
+    val newest = File(cacheDir, "newest.txt")
+    oldest.writeText("10\tfirst\t\t0\n")
+    newest.writeText("10\tsecond\t\t0\n")
+    oldest.setLastModified(1000)
+    newest.setLastModified(2000)
+
+    SymbolCache(cacheDir, newest.length())
+    Assert.assertFalse(oldest.exists())
+    Assert.assertTrue(newest.exists())
+  }
+
+  @Test
+  fun testSymbolFileChangesAreNoticed() {
+    val cacheDir = FileUtil.createTempDirectory("symbol-cache", "test", true)
+    val cache = SymbolCache(cacheDir)
+    val symFile = FileUtil.createTempFile("module", ".dwo", true)
+    val symbols = cache.getSymbols(symFile)
+    Assert.assertSame(symbols, cache.getSymbols(symFile))
+
+    symFile.writeText("rebuilt")
+    Assert.assertNotSame(symbols, cache.getSymbols(symFile))
+  }
+}
@@ -15,21 +15,56 @@
  */
 package com.android.tools.datastore;
 
+import com.android.tools.datastore.database.DataStoreTable;
+import com.android.annotations.VisibleForTesting;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
-public class DataStoreDatabase {
+/**
+ * Owns the connection to a single SQLite database. Autocommit is disabled on the connection and writes made through
+ * {@link DataStoreTable}s are group-committed on a dedicated commit thread, either every {@link #COMMIT_PERIOD_MS} or as
+ * soon as {@link #COMMIT_ROW_THRESHOLD} rows are pending, whichever comes first. This keeps the open transaction (and
+ * the memory SQLite holds for it) bounded during long profiling sessions.
+ */
+public class DataStoreDatabase implements DataStoreTable.DataStoreTableWriteCallback {
   public enum Characteristic {
     // TODO handle potential db file name clashes
     DURABLE,
     PERFORMANT
   }
 
+  /**
+   * Version of the schema created by the {@link DataStoreTable}s, stored in the database file as the SQLite user_version.
+   * Bump this whenever a table definition changes, and append the statements that upgrade the previous version to
+   * {@link #MIGRATIONS}, so durable databases from previous runs can still be reopened.
+   */
+  static final int SCHEMA_VERSION = 1;
+
+  /**
+   * MIGRATIONS[i] holds the statements that upgrade a database at schema version i + 1 to version i + 2.
+   */
+  private static final String[][] MIGRATIONS = {};
+
+  /**
+   * Upper bound of the file region SQLite memory-maps when reading a durable database, so reopened captures are paged in
+   * lazily by the OS instead of being read through SQLite's page cache.
+   */
+  private static final long MMAP_SIZE_BYTES = 1L << 30;
+
+  static final long COMMIT_PERIOD_MS = TimeUnit.SECONDS.toMillis(1);
+  static final int COMMIT_ROW_THRESHOLD = 5000;
+
   @NotNull
   private LogService.Logger getLogger() {
     return myLogService.getLogger(DataStoreDatabase.class);
@@ -39,6 +74,15 @@ public class DataStoreDatabase {
 
   private final Connection myConnection;
 
+  private boolean myReopened;
+
+  @NotNull private final ScheduledExecutorService myCommitExecutor;
+  private final AtomicInteger myPendingRowCount = new AtomicInteger();
+  private final AtomicBoolean myCommitRequested = new AtomicBoolean();
+  private final AtomicLong myCommitCount = new AtomicLong();
+  private final AtomicLong myLastCommitLatencyNs = new AtomicLong();
+  private final AtomicLong myMaxCommitLatencyNs = new AtomicLong();
+
   /**
    * @param dbPath the path to the backing DB file, if {@link Characteristic#DURABLE}.
    */
@@ -52,6 +96,19 @@ public class DataStoreDatabase {
                            @NotNull Characteristic characteristic,
                            @NotNull LogService logService,
                            @NotNull Consumer<Throwable> noPiiExceptionHandler) {
+    this(dbPath, characteristic, logService, noPiiExceptionHandler, COMMIT_PERIOD_MS);
+  }
+
+  /**
+   * @param commitPeriodMs the period of the commits made by the commit thread, or 0 to only commit once
+   *                       {@link #COMMIT_ROW_THRESHOLD} rows are pending or when {@link #commit()} is called.
+   */
+  @VisibleForTesting
+  public DataStoreDatabase(@NotNull String dbPath,
+                           @NotNull Characteristic characteristic,
+                           @NotNull LogService logService,
+                           @NotNull Consumer<Throwable> noPiiExceptionHandler,
+                           long commitPeriodMs) {
     myLogService = logService;
     Connection connection = null;
     try {
@@ -65,27 +122,19 @@ public class DataStoreDatabase {
           break;
         case DURABLE:
           File dbFile = new File(dbPath);
-          // Due to an incompatible update in SQLite we do not support loading SQL files from previous versions of studio.
-          // As a intermediate measure we delete the file until we support loading existing databases.
-          // TODO: Investigate removing this when we add a feature to restore sessions from prior Studio runs.
-          if (dbFile.exists()) {
-            dbFile.delete();
-          }
-
           File parent = dbFile.getParentFile();
           if (parent != null) {
             if (!parent.mkdirs() && !parent.exists()) {
               getLogger().error("Unable to create parent directory");
             }
           }
-          connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s", dbFile.getPath()));
+          connection = openDurableConnection(dbFile);
           break;
         default:
           throw new RuntimeException("Characteristic not handled!");
       }
 
-      // Performance optimization.
-      // TODO: Create a timer and commit the database transaction every X seconds.
+      // Performance optimization: writes are grouped into transactions which are committed by the commit thread.
       connection.setAutoCommit(false);
     }
     catch (ClassNotFoundException e) {
@@ -98,11 +147,225 @@ public class DataStoreDatabase {
       noPiiExceptionHandler.accept(e);
     }
     myConnection = connection;
+
+    myCommitExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "DataStoreCommitThread");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (myConnection != null) {
+      if (commitPeriodMs > 0) {
+        myCommitExecutor.scheduleWithFixedDelay(this::commitPendingWrites, commitPeriodMs, commitPeriodMs, TimeUnit.MILLISECONDS);
+      }
+      DataStoreTable.addDataStoreWriteCallback(this);
+    }
+  }
+
+  /**
+   * Opens the database file, reusing its content if it was written with a schema we can read or migrate. Files from
+   * unknown versions (including those written before the schema was versioned) are deleted and recreated.
+   */
+  @NotNull
+  private Connection openDurableConnection(@NotNull File dbFile) throws SQLException {
+    if (dbFile.exists()) {
+      Connection connection = null;
+      try {
+        connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s", dbFile.getPath()));
+        int version = getUserVersion(connection);
+        if (version > 0 && version <= SCHEMA_VERSION && migrate(connection, version)) {
+          myReopened = true;
+          configureDurableConnection(connection);
+          return connection;
+        }
+        getLogger().info(String.format("Discarding datastore with unsupported schema version %d", version));
+      }
+      catch (SQLException e) {
+        // Not a database we can read, e.g. a corrupted file. Fall through and recreate it.
+        getLogger().debug("Unable to reopen existing datastore", e);
+      }
+      if (connection != null) {
+        connection.close();
+      }
+      dbFile.delete();
+      // Also remove the write-ahead log, otherwise SQLite would replay it into the recreated file.
+      new File(dbFile.getPath() + "-wal").delete();
+      new File(dbFile.getPath() + "-shm").delete();
+    }
+
+    Connection connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s", dbFile.getPath()));
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(String.format("PRAGMA user_version = %d", SCHEMA_VERSION));
+    }
+    configureDurableConnection(connection);
+    return connection;
+  }
+
+  private static int getUserVersion(@NotNull Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement();
+         ResultSet result = statement.executeQuery("PRAGMA user_version")) {
+      return result.next() ? result.getInt(1) : 0;
+    }
+  }
+
+  /**
+   * Applies the {@link #MIGRATIONS} needed to bring a database from {@code fromVersion} to {@link #SCHEMA_VERSION}.
+   *
+   * @return false if any migration failed, in which case the database should be discarded.
+   */
+  private boolean migrate(@NotNull Connection connection, int fromVersion) {
+    if (fromVersion == SCHEMA_VERSION) {
+      return true;
+    }
+    try (Statement statement = connection.createStatement()) {
+      for (int version = fromVersion; version < SCHEMA_VERSION; version++) {
+        for (String sql : MIGRATIONS[version - 1]) {
+          statement.execute(sql);
+        }
+      }
+      statement.execute(String.format("PRAGMA user_version = %d", SCHEMA_VERSION));
+      return true;
+    }
+    catch (SQLException | ArrayIndexOutOfBoundsException e) {
+      getLogger().warn(e);
+      return false;
+    }
+  }
+
+  private static void configureDurableConnection(@NotNull Connection connection) throws SQLException {
+    // Write-ahead logging lets readers proceed while the commit thread is writing, and relaxing the sync level is
+    // safe in WAL mode as a crash can only lose the most recent commits, not corrupt the file.
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("PRAGMA journal_mode=WAL");
+      statement.execute("PRAGMA synchronous=NORMAL");
+      statement.execute(String.format("PRAGMA mmap_size = %d", MMAP_SIZE_BYTES));
+    }
+  }
+
+  /**
+   * @return true if this database was opened from a file written by a previous run, in which case its tables already
+   * contain the sessions recorded back then.
+   */
+  public boolean isReopened() {
+    return myReopened;
+  }
+
+  @Override
+  public void onDataStoreWrite(@NotNull Connection connection, int rowCount) {
+    if (connection != myConnection) {
+      return;
+    }
+    if (myPendingRowCount.addAndGet(rowCount) >= COMMIT_ROW_THRESHOLD && myCommitRequested.compareAndSet(false, true)) {
+      try {
+        myCommitExecutor.execute(this::commitPendingWrites);
+      }
+      catch (RejectedExecutionException ignored) {
+        // We are disconnecting, the final commit happens in disconnect().
+      }
+    }
+  }
+
+  /**
+   * Synchronously commits all writes that are pending on the connection. Normally this happens on the commit thread, but
+   * callers that need their writes to be visible to other connections right away can force it.
+   */
+  public void commit() {
+    if (myCommitExecutor.isShutdown()) {
+      return;
+    }
+    Future<?> future = myCommitExecutor.submit(this::commitPendingWrites);
+    try {
+      future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      getLogger().error(e);
+    }
+  }
+
+  private void commitPendingWrites() {
+    myCommitRequested.set(false);
+    int pendingRows = myPendingRowCount.getAndSet(0);
+    if (pendingRows == 0) {
+      return;
+    }
+    try {
+      if (myConnection.isClosed()) {
+        return;
+      }
+      long startNs = System.nanoTime();
+      myConnection.commit();
+      long latencyNs = System.nanoTime() - startNs;
+      myLastCommitLatencyNs.set(latencyNs);
+      myMaxCommitLatencyNs.accumulateAndGet(latencyNs, Math::max);
+      myCommitCount.incrementAndGet();
+    }
+    catch (SQLException e) {
+      // The rows stay in the open transaction, so count them towards the next commit.
+      myPendingRowCount.addAndGet(pendingRows);
+      getLogger().debug("Failed to commit pending writes", e);
+    }
+  }
+
+  /**
+   * @return the number of rows written since the last successful commit.
+   */
+  public int getPendingRowCount() {
+    return myPendingRowCount.get();
+  }
+
+  /**
+   * @return the number of commits performed by the commit thread.
+   */
+  public long getCommitCount() {
+    return myCommitCount.get();
+  }
+
+  public long getLastCommitLatencyNs() {
+    return myLastCommitLatencyNs.get();
+  }
+
+  public long getMaxCommitLatencyNs() {
+    return myMaxCommitLatencyNs.get();
+  }
+
+  /**
+   * @return the number of bytes used by the content of the database. Pages freed by deletions are not counted, as SQLite reuses
+   * them for new rows.
+   */
+  public long getUsedBytes() {
+    if (myConnection == null) {
+      return 0;
+    }
+    try (Statement statement = myConnection.createStatement()) {
+      return (queryPragma(statement, "page_count") - queryPragma(statement, "freelist_count")) * queryPragma(statement, "page_size");
+    }
+    catch (SQLException e) {
+      getLogger().debug("Failed to compute the database size", e);
+      return 0;
+    }
+  }
+
+  private static long queryPragma(@NotNull Statement statement, @NotNull String pragma) throws SQLException {
+    try (ResultSet result = statement.executeQuery(String.format("PRAGMA %s", pragma))) {
+      return result.next() ? result.getLong(1) : 0;
+    }
   }
 
   public void disconnect() {
+    DataStoreTable.removeDataStoreWriteCallback(this);
+    myCommitExecutor.shutdown();
+    try {
+      myCommitExecutor.awaitTermination(COMMIT_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
     try {
       myConnection.commit();
+      myPendingRowCount.set(0);
     }
     catch (SQLException e) {
       getLogger().error(e);
@@ -35,6 +35,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -54,6 +55,12 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
   private static final long REPORT_INITIAL_DELAY = TimeUnit.MINUTES.toMillis(15);
   private static final long REPORT_PERIOD = TimeUnit.HOURS.toMillis(1);
 
+  /**
+   * How often the {@link RetentionPolicy} is applied. Compaction only visits rows that crossed the raw data window since the
+   * previous run, so running it frequently keeps each run short.
+   */
+  private static final long RETENTION_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
   public static class BackingNamespace {
     public static final BackingNamespace DEFAULT_SHARED_NAMESPACE = new BackingNamespace("default.sql", DURABLE);
 
@@ -103,6 +110,18 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
 
   private final Timer myReportTimer;
 
+  @NotNull private volatile RetentionPolicy myRetentionPolicy = RetentionPolicy.DEFAULT;
+
+  /**
+   * How many bytes of each type of high-frequency samples the services may also keep in memory, 0 if they don't.
+   */
+  private final long mySampleStoreMaxBytes;
+
+  /**
+   * Sessions that the {@link RetentionPolicy} must not remove, e.g. the ones being viewed.
+   */
+  @NotNull private final Set<Long> myRetainedSessionIds = ConcurrentHashMap.newKeySet();
+
   /**
    * @param fetchExecutor A callback which is given a {@link Runnable} for each datastore service.
    *                      The runnable, when run, begins polling the target service. You probably
@@ -112,7 +131,19 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
                           @NotNull String datastoreDirectory,
                           @NotNull Consumer<Runnable> fetchExecutor,
                           @NotNull LogService logService) {
-    this(serviceName, datastoreDirectory, fetchExecutor, logService, null);
+    this(serviceName, datastoreDirectory, fetchExecutor, logService, null, 0);
+  }
+
+  /**
+   * @param sampleStoreMaxBytes how many bytes of each type of high-frequency samples (e.g. CPU and memory usage) are also kept
+   *                            in memory to speed up range queries, or 0 to only read them from the database.
+   */
+  public DataStoreService(@NotNull String serviceName,
+                          @NotNull String datastoreDirectory,
+                          @NotNull Consumer<Runnable> fetchExecutor,
+                          @NotNull LogService logService,
+                          long sampleStoreMaxBytes) {
+    this(serviceName, datastoreDirectory, fetchExecutor, logService, null, sampleStoreMaxBytes);
   }
 
   @VisibleForTesting
@@ -121,7 +152,17 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
                           @NotNull Consumer<Runnable> fetchExecutor,
                           @NotNull LogService logService,
                           @Nullable ServerInterceptor interceptor) {
+    this(serviceName, datastoreDirectory, fetchExecutor, logService, interceptor, 0);
+  }
+
+  private DataStoreService(@NotNull String serviceName,
+                           @NotNull String datastoreDirectory,
+                           @NotNull Consumer<Runnable> fetchExecutor,
+                           @NotNull LogService logService,
+                           @Nullable ServerInterceptor interceptor,
+                           long sampleStoreMaxBytes) {
     myLogService = logService;
+    mySampleStoreMaxBytes = sampleStoreMaxBytes;
     myFetchExecutor = fetchExecutor;
     myInterceptor = interceptor;
     myDatastoreDirectory = datastoreDirectory;
@@ -138,6 +179,7 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
 
     myReportTimer = new Timer("DataStoreReportTimer");
     myReportTimer.schedule(new ReportTimerTask(), REPORT_INITIAL_DELAY, REPORT_PERIOD);
+    myReportTimer.schedule(new RetentionTimerTask(), RETENTION_PERIOD, RETENTION_PERIOD);
     DataStoreTable.addDataStoreErrorCallback(this);
   }
 
@@ -145,6 +187,26 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
     myNoPiiExceptionHanlder = noPiiExceptionHanlder;
   }
 
+  public long getSampleStoreMaxBytes() {
+    return mySampleStoreMaxBytes;
+  }
+
+  public void setRetentionPolicy(@NotNull RetentionPolicy retentionPolicy) {
+    myRetentionPolicy = retentionPolicy;
+  }
+
+  /**
+   * Prevents the {@link RetentionPolicy} from removing a session, e.g. while it is selected or loaded, until
+   * {@link #releaseSession(long)} is called for it.
+   */
+  public void retainSession(long sessionId) {
+    myRetainedSessionIds.add(sessionId);
+  }
+
+  public void releaseSession(long sessionId) {
+    myRetainedSessionIds.remove(sessionId);
+  }
+
   @VisibleForTesting
   public Map<BackingNamespace, DataStoreDatabase> getDatabases() {
     return myDatabases;
@@ -162,6 +224,12 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
     registerService(new MemoryService(this, myFetchExecutor, myLogService));
     registerService(new NetworkService(this, myFetchExecutor));
     registerService(new EnergyService(this, myFetchExecutor, myLogService));
+
+    // No device is connected yet, so any session still ongoing in a reopened database was left behind by a previous run.
+    DataStoreDatabase sharedDatabase = myDatabases.get(BackingNamespace.DEFAULT_SHARED_NAMESPACE);
+    if (sharedDatabase != null && sharedDatabase.isReopened()) {
+      myProfilerService.endOngoingSessions();
+    }
   }
 
   @VisibleForTesting
@@ -244,6 +312,57 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
   }
 
 
+  /**
+   * Removes everything stored for the given session, which must have ended, from all the services.
+   */
+  public void deleteSessionData(long sessionId) {
+    for (ServicePassThrough service : myServices) {
+      service.deleteSessionData(sessionId);
+    }
+  }
+
+  /**
+   * Downsamples old samples and removes the ended sessions that the current {@link RetentionPolicy} does not allow to keep. This
+   * normally runs periodically on the report timer.
+   */
+  @VisibleForTesting
+  public void applyRetentionPolicy() {
+    RetentionPolicy policy = myRetentionPolicy;
+    if (policy.shouldDownsample()) {
+      for (ServicePassThrough service : myServices) {
+        service.compactData(policy.getRawDataWindowNs(), policy.getDownsampleIntervalNs());
+      }
+    }
+
+    if (!policy.shouldRemoveSessions()) {
+      return;
+    }
+    Map<Long, Long> endedSessions = myProfilerService.getEndedSessionStartTimesEpochMs();
+    Iterator<Map.Entry<Long, Long>> oldestFirst = endedSessions.entrySet().iterator();
+    int remainingCount = endedSessions.size();
+    long nowMs = System.currentTimeMillis();
+    while (oldestFirst.hasNext()) {
+      Map.Entry<Long, Long> session = oldestFirst.next();
+      if (myRetainedSessionIds.contains(session.getKey())) {
+        continue;
+      }
+      boolean tooOld = nowMs - session.getValue() > policy.getMaxSessionAgeMs();
+      if (!tooOld && remainingCount <= policy.getMaxSessionCount() && getUsedDatabaseBytes() <= policy.getMaxDatabaseBytes()) {
+        break;
+      }
+      deleteSessionData(session.getKey());
+      remainingCount--;
+    }
+  }
+
+  private long getUsedDatabaseBytes() {
+    long bytes = 0;
+    for (DataStoreDatabase db : myDatabases.values()) {
+      bytes += db.getUsedBytes();
+    }
+    return bytes;
+  }
+
   @VisibleForTesting
   List<ServicePassThrough> getRegisteredServices() {
     return myServices;
@@ -349,6 +468,19 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
     }
   }
 
+  private final class RetentionTimerTask extends TimerTask {
+    @Override
+    public void run() {
+      try {
+        applyRetentionPolicy();
+      }
+      catch (RuntimeException e) {
+        // The timer thread dies on uncaught exceptions, which would also stop the reports.
+        getLogger().warn(e);
+      }
+    }
+  }
+
   private final class ReportTimerTask extends TimerTask {
     private long myStartTime = System.nanoTime();
 
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how much profiling data the datastore keeps. Ended sessions are removed, oldest first, once they are older than
+ * {@link #getMaxSessionAgeMs()}, once there are more than {@link #getMaxSessionCount()} of them, or while the databases use more
+ * than {@link #getMaxDatabaseBytes()}. Independently, high-frequency samples of every session that are older than
+ * {@link #getRawDataWindowNs()} are downsampled to one sample per {@link #getDownsampleIntervalNs()}.
+ * <p>
+ * Sessions that are still ongoing, and the ones retained with {@link DataStoreService#retainSession(long)}, are never removed.
+ */
+public final class RetentionPolicy {
+  /**
+   * Keeps everything, as the datastore did before retention was introduced. Removing data is only done when it is configured.
+   */
+  public static final RetentionPolicy DEFAULT = new RetentionPolicy(Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 0);
+
+  private final long myMaxSessionAgeMs;
+  private final int myMaxSessionCount;
+  private final long myMaxDatabaseBytes;
+  private final long myRawDataWindowNs;
+  private final long myDownsampleIntervalNs;
+
+  /**
+   * @param maxSessionAgeMs       how long after they started ended sessions are kept.
+   * @param maxSessionCount       how many ended sessions are kept.
+   * @param maxDatabaseBytes      size above which ended sessions are removed until the databases fit again.
+   * @param rawDataWindowNs       how far back from the latest sample of a session samples are kept at full resolution.
+   * @param downsampleIntervalNs  the resolution older samples are downsampled to, or 0 to never downsample.
+   */
+  public RetentionPolicy(long maxSessionAgeMs, int maxSessionCount, long maxDatabaseBytes, long rawDataWindowNs, long downsampleIntervalNs) {
+    myMaxSessionAgeMs = maxSessionAgeMs;
+    myMaxSessionCount = maxSessionCount;
+    myMaxDatabaseBytes = maxDatabaseBytes;
+    myRawDataWindowNs = rawDataWindowNs;
+    myDownsampleIntervalNs = downsampleIntervalNs;
+  }
+
+  public long getMaxSessionAgeMs() {
+    return myMaxSessionAgeMs;
+  }
+
+  public int getMaxSessionCount() {
+    return myMaxSessionCount;
+  }
+
+  public long getMaxDatabaseBytes() {
+    return myMaxDatabaseBytes;
+  }
+
+  public long getRawDataWindowNs() {
+    return myRawDataWindowNs;
+  }
+
+  public long getDownsampleIntervalNs() {
+    return myDownsampleIntervalNs;
+  }
+
+  public boolean shouldDownsample() {
+    return myDownsampleIntervalNs > 0 && myRawDataWindowNs != Long.MAX_VALUE;
+  }
+
+  public boolean shouldRemoveSessions() {
+    return myMaxSessionAgeMs != Long.MAX_VALUE || myMaxSessionCount != Integer.MAX_VALUE || myMaxDatabaseBytes != Long.MAX_VALUE;
+  }
+}
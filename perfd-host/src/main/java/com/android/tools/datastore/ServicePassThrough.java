@@ -43,4 +43,16 @@ public interface ServicePassThrough {
    * @param connection {@link Connection} to the backing store
    */
   void setBackingStore(@NotNull DataStoreService.BackingNamespace namespace, @NotNull Connection connection);
+
+  /**
+   * Removes everything stored by this service for the given session. Only called for sessions that have ended.
+   */
+  default void deleteSessionData(long sessionId) {
+  }
+
+  /**
+   * Downsamples the high-frequency data stored by this service, see {@link com.android.tools.datastore.database.DataStoreTable#compact(long, long)}.
+   */
+  default void compactData(long rawDataWindowNs, long intervalNs) {
+  }
 }
@@ -40,6 +40,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
   private static final int DATA_COLUMN = 1;
@@ -61,6 +62,27 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
    */
   private final Map<Long, Set<Integer>> mySessionThreadIdsCache = Collections.synchronizedMap(new HashMap<>());
 
+  /**
+   * Optional in-memory copy of the {@link CpuUsageData} samples, used to serve range queries without going to the database.
+   */
+  @Nullable private final TimeSeriesStore<CpuUsageData> myCpuUsageSamples;
+
+  public CpuTable() {
+    this(0);
+  }
+
+  /**
+   * @param sampleStoreMaxBytes how many bytes of usage samples may also be kept in a {@link TimeSeriesStore} to speed up range
+   *                            queries, or 0 to only keep them in the database.
+   */
+  public CpuTable(long sampleStoreMaxBytes) {
+    // Usage data is inserted with INSERT OR REPLACE, so the last sample for a timestamp wins.
+    myCpuUsageSamples = sampleStoreMaxBytes > 0
+                        ? new TimeSeriesStore<>(TimeSeriesStore.DuplicatePolicy.REPLACE, CpuUsageData.parser()::parseFrom,
+                                                sampleStoreMaxBytes)
+                        : null;
+  }
+
   public enum CpuStatements {
     INSERT_THREAD_ACTIVITY,
     QUERY_ALL_DISTINCT_THREADS,
@@ -165,10 +187,37 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
   }
 
   public void insert(Common.Session session, CpuUsageData data) {
-    execute(CpuStatements.INSERT_CPU_DATA, session.getSessionId(), data.getEndTimestamp(), data.toByteArray());
+    byte[] bytes = data.toByteArray();
+    execute(CpuStatements.INSERT_CPU_DATA, session.getSessionId(), data.getEndTimestamp(), bytes);
+    if (myCpuUsageSamples != null) {
+      myCpuUsageSamples.append(session.getSessionId(), data.getEndTimestamp(), bytes);
+    }
+  }
+
+  /**
+   * Inserts all the given samples with a single batch statement.
+   */
+  public void insert(Common.Session session, List<CpuUsageData> dataList) {
+    if (dataList.isEmpty()) {
+      return;
+    }
+    executeBatch(CpuStatements.INSERT_CPU_DATA, dataList,
+                 data -> new Object[]{session.getSessionId(), data.getEndTimestamp(), data.toByteArray()});
+    if (myCpuUsageSamples != null) {
+      for (CpuUsageData data : dataList) {
+        myCpuUsageSamples.append(session.getSessionId(), data.getEndTimestamp(), data.toByteArray());
+      }
+    }
   }
 
   public List<CpuUsageData> getCpuDataByRequest(CpuDataRequest request) {
+    if (myCpuUsageSamples != null && !isClosed()) {
+      List<CpuUsageData> samples =
+        myCpuUsageSamples.query(request.getSession().getSessionId(), request.getStartTimestamp(), request.getEndTimestamp());
+      if (samples != null) {
+        return samples;
+      }
+    }
     List<CpuUsageData> cpuData = new ArrayList<>();
     try {
       ResultSet results =
@@ -191,11 +240,11 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
                                String name,
                                List<GetThreadsResponse.ThreadActivity> activities) {
     getThreadIdCacheForSession(session.getSessionId()).add(tid);
-    for (GetThreadsResponse.ThreadActivity activity : activities) {
-      // TODO: optimize it by adding the states in batches
-      execute(CpuStatements.INSERT_THREAD_ACTIVITY, session.getSessionId(), tid, activity.getTimestamp(), activity.getNewState().toString(),
-              name);
+    if (activities.isEmpty()) {
+      return;
     }
+    executeBatch(CpuStatements.INSERT_THREAD_ACTIVITY, activities,
+                 activity -> new Object[]{session.getSessionId(), tid, activity.getTimestamp(), activity.getNewState().toString(), name});
   }
 
   public void insertSnapshot(Common.Session session,
@@ -205,9 +254,13 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
     // For now, insert it as activity. TODO: differentiate the concepts of snapshot and activity
     for (GetThreadsResponse.ThreadSnapshot.Snapshot snapshot : snapshots) {
       idSet.add(snapshot.getTid());
-      execute(CpuStatements.INSERT_THREAD_ACTIVITY,
-              session.getSessionId(), snapshot.getTid(), timestamp, snapshot.getState().toString(), snapshot.getName());
     }
+    if (snapshots.isEmpty()) {
+      return;
+    }
+    executeBatch(CpuStatements.INSERT_THREAD_ACTIVITY, snapshots,
+                 snapshot -> new Object[]{session.getSessionId(), snapshot.getTid(), timestamp, snapshot.getState().toString(),
+                   snapshot.getName()});
   }
 
   public List<GetThreadsResponse.Thread> getThreadsDataByRequest(GetThreadsRequest request) {
@@ -351,6 +404,26 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
     return thread;
   }
 
+  @Override
+  public void deleteSessionData(long sessionId) {
+    super.deleteSessionData(sessionId);
+    mySessionThreadIdsCache.remove(sessionId);
+    if (myCpuUsageSamples != null) {
+      myCpuUsageSamples.removeSession(sessionId);
+    }
+  }
+
+  /**
+   * Usage samples carry cumulative CPU times, so keeping the latest sample of each interval preserves the average usage over it.
+   */
+  @Override
+  public void compact(long rawDataWindowNs, long intervalNs) {
+    Map<Long, Long> cutoffs = downsample("Cpu_Data", "Timestamp", "1 = 1", rawDataWindowNs, intervalNs);
+    if (myCpuUsageSamples != null) {
+      cutoffs.forEach((sessionId, cutoff) -> myCpuUsageSamples.downsample(sessionId, cutoff, intervalNs));
+    }
+  }
+
   @NotNull
   private Set<Integer> getThreadIdCacheForSession(long sessionId) {
     return mySessionThreadIdsCache.computeIfAbsent(sessionId, id -> Collections.synchronizedSet(new HashSet<>()));
@@ -28,14 +28,31 @@ import java.util.function.Function;
  */
 public abstract class DataStoreTable<T extends Enum> {
   private static final Set<DataStoreTableErrorCallback> ERROR_CALLBACKS = ConcurrentHashMap.newKeySet();
+  private static final Set<DataStoreTableWriteCallback> WRITE_CALLBACKS = ConcurrentHashMap.newKeySet();
 
   private Connection myConnection;
   private final ThreadLocal<Map<T, PreparedStatement>> myStatementMap = new ThreadLocal<>();
+  /**
+   * Tables created by this object that have a Session column, whose rows are removed by {@link #deleteSessionData(long)}.
+   */
+  private final Set<String> mySessionTables = new LinkedHashSet<>();
+  /**
+   * Per table and session, the timestamp up to which rows have already been downsampled by {@link #downsample}.
+   */
+  private final Map<String, Long> myDownsampledUpTo = new ConcurrentHashMap<>();
 
   public interface DataStoreTableErrorCallback {
     void onDataStoreError(Throwable t);
   }
 
+  /**
+   * Callback notified each time rows are written through a table, so the owner of the connection can decide when the
+   * pending transaction should be committed.
+   */
+  public interface DataStoreTableWriteCallback {
+    void onDataStoreWrite(@NotNull Connection connection, int rowCount);
+  }
+
   /**
    * Initialization function to create tables for the Database.
    *
@@ -59,6 +76,14 @@ public abstract class DataStoreTable<T extends Enum> {
     ERROR_CALLBACKS.remove(callback);
   }
 
+  public static void addDataStoreWriteCallback(@NotNull DataStoreTableWriteCallback callback) {
+    WRITE_CALLBACKS.add(callback);
+  }
+
+  public static void removeDataStoreWriteCallback(@NotNull DataStoreTableWriteCallback callback) {
+    WRITE_CALLBACKS.remove(callback);
+  }
+
   /**
    * A connection represents a link between code and the database layer. This link is accessed via multiple threads
    * as such means the only guarantee this function offers is the state of the connection at the time of the call.
@@ -87,6 +112,12 @@ public abstract class DataStoreTable<T extends Enum> {
     }
   }
 
+  private void onWrite(int rowCount) {
+    for (DataStoreTableWriteCallback callback : WRITE_CALLBACKS) {
+      callback.onDataStoreWrite(myConnection, rowCount);
+    }
+  }
+
   @NotNull
   protected Map<T, PreparedStatement> getStatementMap() {
     if (myStatementMap.get() == null) {
@@ -96,11 +127,85 @@ public abstract class DataStoreTable<T extends Enum> {
     return myStatementMap.get();
   }
 
+  /**
+   * Creates the table if it does not exist yet. Tables of a durable database reopened from a previous run keep their
+   * content, {@link com.android.tools.datastore.DataStoreDatabase} takes care of discarding incompatible files.
+   */
   protected void createTable(@NotNull String table, String... columns) throws SQLException {
-    myConnection.createStatement().execute(String.format("DROP TABLE IF EXISTS %s ", table));
     StringBuilder statement = new StringBuilder();
-    statement.append(String.format("CREATE TABLE %s", table));
+    statement.append(String.format("CREATE TABLE IF NOT EXISTS %s", table));
     executeUniqueStatement(statement, columns);
+    if (Arrays.stream(columns).anyMatch(column -> column.startsWith("Session "))) {
+      mySessionTables.add(table);
+    }
+  }
+
+  /**
+   * Removes all the rows of the given session from the tables created by this object. Subclasses that keep state per
+   * session outside of the database, or store sessions in a column not named Session, should extend this.
+   */
+  public void deleteSessionData(long sessionId) {
+    for (String table : mySessionTables) {
+      executeOneTimeUpdate(String.format("DELETE FROM %s WHERE Session = ?", table), sessionId);
+    }
+    myDownsampledUpTo.keySet().removeIf(key -> key.endsWith(":" + sessionId));
+  }
+
+  /**
+   * Downsamples the high-frequency data of this table older than {@code rawDataWindowNs} before the latest data of each session,
+   * so that at most one row remains per {@code intervalNs}. Tables without such data do nothing.
+   */
+  public void compact(long rawDataWindowNs, long intervalNs) {
+  }
+
+  /**
+   * Keeps only the latest row of each {@code intervalNs} bucket among the rows of {@code table} matching {@code filter} that are
+   * older than {@code rawDataWindowNs} before the latest matching row of their session. Buckets are aligned on multiples of
+   * {@code intervalNs}, and the rows downsampled by previous calls are not visited again.
+   *
+   * @return for each session that was downsampled, the timestamp before which its rows are now downsampled.
+   */
+  @NotNull
+  protected Map<Long, Long> downsample(@NotNull String table,
+                                       @NotNull String timestampColumn,
+                                       @NotNull String filter,
+                                       long rawDataWindowNs,
+                                       long intervalNs) {
+    Map<Long, Long> cutoffs = new HashMap<>();
+    if (isClosed() || intervalNs <= 0) {
+      return cutoffs;
+    }
+    String latestQuery = String.format("SELECT Session, MAX(%s) FROM %s WHERE %s GROUP BY Session", timestampColumn, table, filter);
+    try (PreparedStatement statement = myConnection.prepareStatement(latestQuery);
+         ResultSet results = statement.executeQuery()) {
+      while (results.next()) {
+        long latest = results.getLong(2);
+        if (latest - rawDataWindowNs > 0) {
+          cutoffs.put(results.getLong(1), (latest - rawDataWindowNs) / intervalNs * intervalNs);
+        }
+      }
+    }
+    catch (SQLException ex) {
+      onError(ex);
+      return new HashMap<>();
+    }
+
+    String delete = String.format(
+      "DELETE FROM %1$s WHERE Session = ? AND %3$s AND %2$s >= ? AND %2$s < ? AND %2$s NOT IN " +
+      "(SELECT MAX(%2$s) FROM %1$s WHERE Session = ? AND %3$s AND %2$s >= ? AND %2$s < ? GROUP BY %2$s / ?)",
+      table, timestampColumn, filter);
+    cutoffs.entrySet().removeIf(entry -> {
+      String key = table + ":" + filter + ":" + entry.getKey();
+      long from = myDownsampledUpTo.getOrDefault(key, Long.MIN_VALUE);
+      long to = entry.getValue();
+      if (to <= from) {
+        return true;
+      }
+      executeOneTimeUpdate(delete, entry.getKey(), from, to, entry.getKey(), from, to, intervalNs);
+      myDownsampledUpTo.put(key, to);
+      return false;
+    });
+    return cutoffs;
   }
 
   protected void createUniqueIndex(@NotNull String table, String... indexList) throws SQLException {
@@ -155,6 +260,7 @@ public abstract class DataStoreTable<T extends Enum> {
           throw new SQLException(String.format("Failed to insert batch element %d with result %d", i, results[i]));
         }
       }
+      onWrite(results.length);
     }
     catch (SQLException ex) {
       onError(ex);
@@ -169,6 +275,7 @@ public abstract class DataStoreTable<T extends Enum> {
       PreparedStatement stmt = getStatementMap().get(statement);
       applyParams(stmt, params);
       stmt.execute();
+      onWrite(1);
     }
     catch (SQLException ex) {
       onError(ex);
@@ -184,6 +291,23 @@ public abstract class DataStoreTable<T extends Enum> {
     return stmt.executeQuery();
   }
 
+  /**
+   * Executes a statement that modifies the table without caching it, for maintenance operations that run rarely.
+   */
+  protected void executeOneTimeUpdate(@NotNull String sql, Object... params) {
+    if (isClosed()) {
+      return;
+    }
+    try (PreparedStatement statement = myConnection.prepareStatement(sql)) {
+      applyParams(statement, params);
+      statement.execute();
+      onWrite(Math.max(statement.getUpdateCount(), 0));
+    }
+    catch (SQLException ex) {
+      onError(ex);
+    }
+  }
+
   protected ResultSet executeOneTimeQuery(@NotNull String sql, Object[] params) throws SQLException {
     if (isClosed()) {
       return new EmptyResultSet();
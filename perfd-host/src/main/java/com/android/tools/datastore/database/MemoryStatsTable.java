@@ -29,6 +29,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static com.android.tools.datastore.database.MemoryStatsTable.MemoryStatements.*;
 
@@ -86,6 +87,39 @@ public class MemoryStatsTable extends DataStoreTable<MemoryStatsTable.MemoryStat
     GC_STATS
   }
 
+  /**
+   * Optional in-memory copies of the MEMORY, ALLOC_STATS and GC_STATS samples. When present, range queries for these
+   * samples are served from them instead of the database.
+   */
+  @Nullable private final TimeSeriesStore<MemoryData.MemorySample> myMemorySamples;
+  @Nullable private final TimeSeriesStore<MemoryData.AllocStatsSample> myAllocStatsSamples;
+  @Nullable private final TimeSeriesStore<MemoryData.GcStatsSample> myGcStatsSamples;
+
+  public MemoryStatsTable() {
+    this(0);
+  }
+
+  /**
+   * @param sampleStoreMaxBytes how many bytes of each type of samples may also be kept in a {@link TimeSeriesStore} to speed up
+   *                            range queries, or 0 to only keep them in the database.
+   */
+  public MemoryStatsTable(long sampleStoreMaxBytes) {
+    if (sampleStoreMaxBytes > 0) {
+      // Samples are inserted with INSERT OR IGNORE, so the first sample for a timestamp wins.
+      myMemorySamples = new TimeSeriesStore<>(TimeSeriesStore.DuplicatePolicy.IGNORE, MemoryData.MemorySample.parser()::parseFrom,
+                                              sampleStoreMaxBytes);
+      myAllocStatsSamples = new TimeSeriesStore<>(TimeSeriesStore.DuplicatePolicy.IGNORE,
+                                                  MemoryData.AllocStatsSample.parser()::parseFrom, sampleStoreMaxBytes);
+      myGcStatsSamples = new TimeSeriesStore<>(TimeSeriesStore.DuplicatePolicy.IGNORE, MemoryData.GcStatsSample.parser()::parseFrom,
+                                               sampleStoreMaxBytes);
+    }
+    else {
+      myMemorySamples = null;
+      myAllocStatsSamples = null;
+      myGcStatsSamples = null;
+    }
+  }
+
   @Override
   public void initialize(@NotNull Connection connection) {
     super.initialize(connection);
@@ -125,11 +159,11 @@ public class MemoryStatsTable extends DataStoreTable<MemoryStatsTable.MemoryStat
     long startTime = request.getStartTime();
     long endTime = request.getEndTime();
     List<MemoryData.MemorySample> memorySamples =
-      getResultsInfo(QUERY_MEMORY, sessionId, startTime, endTime, MemoryData.MemorySample.getDefaultInstance());
+      getSamples(myMemorySamples, QUERY_MEMORY, sessionId, startTime, endTime, MemoryData.MemorySample.getDefaultInstance());
     List<MemoryData.AllocStatsSample> allocStatsSamples =
-      getResultsInfo(QUERY_ALLOC_STATS, sessionId, startTime, endTime, MemoryData.AllocStatsSample.getDefaultInstance());
+      getSamples(myAllocStatsSamples, QUERY_ALLOC_STATS, sessionId, startTime, endTime, MemoryData.AllocStatsSample.getDefaultInstance());
     List<MemoryData.GcStatsSample> gcStatsSamples =
-      getResultsInfo(QUERY_GC_STATS, sessionId, startTime, endTime, MemoryData.GcStatsSample.getDefaultInstance());
+      getSamples(myGcStatsSamples, QUERY_GC_STATS, sessionId, startTime, endTime, MemoryData.GcStatsSample.getDefaultInstance());
     List<HeapDumpInfo> heapDumpSamples =
       getResultsInfo(QUERY_HEAP_INFO_BY_TIME, sessionId, startTime, endTime, HeapDumpInfo.getDefaultInstance());
     List<AllocationsInfo> allocationSamples =
@@ -145,23 +179,68 @@ public class MemoryStatsTable extends DataStoreTable<MemoryStatsTable.MemoryStat
   }
 
   public void insertMemory(@NotNull Common.Session session, @NotNull List<MemoryData.MemorySample> samples) {
-    for (MemoryData.MemorySample sample : samples) {
-      execute(INSERT_SAMPLE, session.getSessionId(), sample.getTimestamp(), MemorySamplesType.MEMORY.ordinal(),
-              sample.toByteArray());
+    if (samples.isEmpty()) {
+      return;
+    }
+    executeBatch(INSERT_SAMPLE, samples,
+                 sample -> new Object[]{session.getSessionId(), sample.getTimestamp(), MemorySamplesType.MEMORY.ordinal(), sample.toByteArray()});
+    if (myMemorySamples != null) {
+      for (MemoryData.MemorySample sample : samples) {
+        myMemorySamples.append(session.getSessionId(), sample.getTimestamp(), sample.toByteArray());
+      }
     }
   }
 
   public void insertAllocStats(@NotNull Common.Session session, @NotNull List<MemoryData.AllocStatsSample> samples) {
-    for (MemoryData.AllocStatsSample sample : samples) {
-      execute(INSERT_SAMPLE, session.getSessionId(), sample.getTimestamp(), MemorySamplesType.ALLOC_STATS.ordinal(),
-              sample.toByteArray());
+    if (samples.isEmpty()) {
+      return;
+    }
+    executeBatch(INSERT_SAMPLE, samples,
+                 sample -> new Object[]{session.getSessionId(), sample.getTimestamp(), MemorySamplesType.ALLOC_STATS.ordinal(), sample.toByteArray()});
+    if (myAllocStatsSamples != null) {
+      for (MemoryData.AllocStatsSample sample : samples) {
+        myAllocStatsSamples.append(session.getSessionId(), sample.getTimestamp(), sample.toByteArray());
+      }
     }
   }
 
   public void insertGcStats(@NotNull Common.Session session, @NotNull List<MemoryData.GcStatsSample> samples) {
-    for (MemoryData.GcStatsSample sample : samples) {
-      execute(INSERT_SAMPLE, session.getSessionId(), sample.getStartTime(), MemorySamplesType.GC_STATS.ordinal(),
-              sample.toByteArray());
+    if (samples.isEmpty()) {
+      return;
+    }
+    executeBatch(INSERT_SAMPLE, samples,
+                 sample -> new Object[]{session.getSessionId(), sample.getStartTime(), MemorySamplesType.GC_STATS.ordinal(), sample.toByteArray()});
+    if (myGcStatsSamples != null) {
+      for (MemoryData.GcStatsSample sample : samples) {
+        myGcStatsSamples.append(session.getSessionId(), sample.getStartTime(), sample.toByteArray());
+      }
+    }
+  }
+
+  @Override
+  public void deleteSessionData(long sessionId) {
+    super.deleteSessionData(sessionId);
+    for (TimeSeriesStore<?> store : new TimeSeriesStore<?>[]{myMemorySamples, myAllocStatsSamples, myGcStatsSamples}) {
+      if (store != null) {
+        store.removeSession(sessionId);
+      }
+    }
+  }
+
+  /**
+   * Memory and allocation count samples are downsampled, keeping the latest sample of each interval. GC events are kept as-is.
+   */
+  @Override
+  public void compact(long rawDataWindowNs, long intervalNs) {
+    Map<Long, Long> memoryCutoffs =
+      downsample("Memory_Samples", "Timestamp", "Type = " + MemorySamplesType.MEMORY.ordinal(), rawDataWindowNs, intervalNs);
+    Map<Long, Long> allocStatsCutoffs =
+      downsample("Memory_Samples", "Timestamp", "Type = " + MemorySamplesType.ALLOC_STATS.ordinal(), rawDataWindowNs, intervalNs);
+    if (myMemorySamples != null) {
+      memoryCutoffs.forEach((sessionId, cutoff) -> myMemorySamples.downsample(sessionId, cutoff, intervalNs));
+    }
+    if (myAllocStatsSamples != null) {
+      allocStatsCutoffs.forEach((sessionId, cutoff) -> myAllocStatsSamples.downsample(sessionId, cutoff, intervalNs));
     }
   }
 
@@ -341,6 +420,24 @@ public class MemoryStatsTable extends DataStoreTable<MemoryStatsTable.MemoryStat
     return builder.build();
   }
 
+  /**
+   * Reads samples from the in-memory store if it can answer the query, or from the database otherwise.
+   */
+  private <T extends GeneratedMessageV3> List<T> getSamples(@Nullable TimeSeriesStore<T> store,
+                                                            @NotNull MemoryStatements query,
+                                                            long sessionId,
+                                                            long startTime,
+                                                            long endTime,
+                                                            @NotNull T defaultInstance) {
+    if (store != null && !isClosed()) {
+      List<T> samples = store.query(sessionId, startTime, endTime);
+      if (samples != null) {
+        return samples;
+      }
+    }
+    return getResultsInfo(query, sessionId, startTime, endTime, defaultInstance);
+  }
+
   /**
    * A helper method for querying samples for MemorySample, AllocStatsSample, GcStatsSample, HeapDumpInfo and AllocationsInfo
    */
@@ -142,6 +142,28 @@ public class NetworkTable extends DataStoreTable<NetworkTable.NetworkStatements>
             data.getEndTimestamp(), data.toByteArray());
   }
 
+  /**
+   * Inserts all the given data with a single batch statement.
+   */
+  public void insert(@NotNull Common.Session session, @NotNull List<NetworkProfiler.NetworkProfilerData> dataList) {
+    if (dataList.isEmpty()) {
+      return;
+    }
+    executeBatch(NetworkStatements.INSERT_NETWORK_DATA, dataList,
+                 data -> new Object[]{session.getSessionId(), DATACASE_REQUEST_TYPE_MAP.get(data.getDataCase()), data.getEndTimestamp(),
+                   data.toByteArray()});
+  }
+
+  /**
+   * Speed samples are downsampled, keeping the latest sample of each interval. Connectivity changes are kept as-is.
+   */
+  @Override
+  public void compact(long rawDataWindowNs, long intervalNs) {
+    downsample("Network_Data", "EndTime",
+               "Type = " + DATACASE_REQUEST_TYPE_MAP.get(NetworkProfiler.NetworkProfilerData.DataCase.SPEED_DATA), rawDataWindowNs,
+               intervalNs);
+  }
+
   public NetworkProfiler.HttpDetailsResponse getHttpDetailsResponseById(long connId,
                                                                         Common.Session session,
                                                                         NetworkProfiler.HttpDetailsRequest.Type type) {
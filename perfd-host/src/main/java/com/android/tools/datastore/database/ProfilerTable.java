@@ -25,6 +25,8 @@ import org.jetbrains.annotations.Nullable;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Class that wraps database access for profiler level services.
@@ -45,6 +47,8 @@ public class ProfilerTable extends DataStoreTable<ProfilerTable.ProfilerStatemen
     SELECT_SESSIONS,
     SELECT_SESSION_BY_ID,
     DELETE_SESSION_BY_ID,
+    SELECT_ENDED_SESSIONS,
+    END_ONGOING_SESSIONS,
     FIND_AGENT_STATUS,
     UPDATE_AGENT_STATUS,
     INSERT_BYTES,
@@ -109,6 +113,11 @@ public class ProfilerTable extends DataStoreTable<ProfilerTable.ProfilerStatemen
                       "SELECT * from Profiler_Sessions WHERE SessionId = ?");
       createStatement(ProfilerStatements.DELETE_SESSION_BY_ID,
                       "DELETE from Profiler_Sessions WHERE SessionId = ?");
+      createStatement(ProfilerStatements.SELECT_ENDED_SESSIONS,
+                      "SELECT SessionId, StartTimeEpochMs from Profiler_Sessions WHERE EndTime != ? ORDER BY StartTimeEpochMs ASC");
+      createStatement(ProfilerStatements.END_ONGOING_SESSIONS,
+                      "UPDATE Profiler_Sessions SET EndTime = MAX(StartTime, IFNULL((SELECT LastKnownTime FROM Profiler_Devices " +
+                      "WHERE Profiler_Devices.DeviceId = Profiler_Sessions.DeviceId), StartTime)) WHERE EndTime = ?");
       createStatement(ProfilerStatements.FIND_AGENT_STATUS,
                       "SELECT AgentStatus, IsAgentAttachable from Profiler_Processes WHERE DeviceId = ? AND ProcessId = ?");
       createStatement(ProfilerStatements.UPDATE_AGENT_STATUS,
@@ -287,6 +296,45 @@ public class ProfilerTable extends DataStoreTable<ProfilerTable.ProfilerStatemen
     }
   }
 
+  /**
+   * Removes the session and its cached bytes.
+   */
+  @Override
+  public void deleteSessionData(long sessionId) {
+    deleteSession(sessionId);
+    super.deleteSessionData(sessionId);
+  }
+
+  /**
+   * @return the wall clock start time of the sessions that have ended, by session id, with the sessions that started first
+   * first.
+   */
+  @NotNull
+  public Map<Long, Long> getEndedSessionStartTimesEpochMs() {
+    Map<Long, Long> startTimes = new LinkedHashMap<>();
+    if (isClosed()) {
+      return startTimes;
+    }
+    try {
+      ResultSet results = executeQuery(ProfilerStatements.SELECT_ENDED_SESSIONS, Long.MAX_VALUE);
+      while (results.next()) {
+        startTimes.put(results.getLong(1), results.getLong(2));
+      }
+    }
+    catch (SQLException ex) {
+      onError(ex);
+    }
+    return startTimes;
+  }
+
+  /**
+   * Ends the sessions that were still ongoing when a previous run of the datastore stopped writing to this table. They can't receive
+   * data anymore, so they are ended at the last time their device was known to be alive, or at their start if that time is unknown.
+   */
+  public void endOngoingSessions() {
+    execute(ProfilerStatements.END_ONGOING_SESSIONS, Long.MAX_VALUE);
+  }
+
   public void updateDeviceLastKnownTime(@NotNull Common.Device device, long lastKnownTimeNs) {
     synchronized (myLock) {
       execute(ProfilerStatements.UPDATE_DEVICE_LAST_KNOWN_TIME, lastKnownTimeNs, device.getDeviceId());
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process, columnar store of time-ordered samples, kept per session next to the SQLite tables. Timestamps are
+ * delta-encoded into {@code int} columns and samples are kept in their serialized form in a byte column, both split in
+ * bounded segments, so a range scan walks primitive columns and decodes the matching samples rather than running a SQLite
+ * query first.
+ * <p>
+ * The store only answers queries for series it has seen from the start and in timestamp order. Anything else (e.g. a
+ * session reopened from disk, an out-of-order insert, or samples dropped to stay within the byte budget) makes
+ * {@link #query(long, long, long)} return null, and the caller is expected to fall back to the database.
+ *
+ * @param <T> the type of sample stored.
+ */
+public final class TimeSeriesStore<T> {
+  static final int SEGMENT_SIZE = 1024;
+
+  /**
+   * Bytes accounted for each sample on top of its serialized form, for its timestamp delta and its offset.
+   */
+  static final int SAMPLE_OVERHEAD_BYTES = 8;
+
+  /**
+   * How samples with a timestamp equal to the last sample's timestamp are handled. This mirrors the conflict clause of
+   * the SQL statement the samples are also written with.
+   */
+  public enum DuplicatePolicy {
+    IGNORE,
+    REPLACE
+  }
+
+  /**
+   * Decodes a sample from the bytes it was appended with.
+   */
+  public interface Decoder<T> {
+    @NotNull
+    T decode(@NotNull byte[] data, int offset, int length) throws IOException;
+  }
+
+  @NotNull private final DuplicatePolicy myDuplicatePolicy;
+  @NotNull private final Decoder<T> myDecoder;
+  private final long myMaxBytes;
+  @NotNull private final Map<Long, Series> mySeries = new ConcurrentHashMap<>();
+  @NotNull private final AtomicLong myByteCount = new AtomicLong();
+
+  /**
+   * @param maxBytes the number of bytes the samples of all the sessions may use. Once it is reached, the samples of the
+   *                 sessions not being appended to are dropped first, then the oldest samples of the session being appended to.
+   */
+  public TimeSeriesStore(@NotNull DuplicatePolicy duplicatePolicy, @NotNull Decoder<T> decoder, long maxBytes) {
+    myDuplicatePolicy = duplicatePolicy;
+    myDecoder = decoder;
+    myMaxBytes = maxBytes;
+  }
+
+  public void append(long sessionId, long timestamp, @NotNull byte[] sample) {
+    Series series = mySeries.computeIfAbsent(sessionId, id -> new Series());
+    if (myByteCount.addAndGet(series.append(timestamp, sample, myDuplicatePolicy)) > myMaxBytes) {
+      evict(series);
+    }
+  }
+
+  /**
+   * @return the samples of the session with a timestamp in (startExclusive, endInclusive], in timestamp order, or null if
+   * this store cannot answer the query and the database should be used instead.
+   */
+  @Nullable
+  public List<T> query(long sessionId, long startExclusive, long endInclusive) {
+    Series series = mySeries.get(sessionId);
+    if (series == null) {
+      return null;
+    }
+    return series.query(startExclusive, endInclusive, myDecoder);
+  }
+
+  public void removeSession(long sessionId) {
+    Series series = mySeries.remove(sessionId);
+    if (series != null) {
+      myByteCount.addAndGet(-series.invalidate());
+    }
+  }
+
+  /**
+   * Keeps only the latest sample of each {@code intervalNs} bucket among the samples of the session older than
+   * {@code timestamp}, the same way {@link DataStoreTable#downsample} does in the database, so both keep answering the same.
+   */
+  public void downsample(long sessionId, long timestamp, long intervalNs) {
+    Series series = mySeries.get(sessionId);
+    if (series != null) {
+      myByteCount.addAndGet(-series.downsample(timestamp, intervalNs));
+    }
+  }
+
+  long getByteCount() {
+    return myByteCount.get();
+  }
+
+  private void evict(@NotNull Series appended) {
+    for (Series series : mySeries.values()) {
+      if (myByteCount.get() <= myMaxBytes) {
+        return;
+      }
+      if (series != appended) {
+        // The series stays in the map, so it isn't answered from samples appended after it was dropped.
+        myByteCount.addAndGet(-series.invalidate());
+      }
+    }
+    while (myByteCount.get() > myMaxBytes) {
+      long freed = appended.dropOldestSegment();
+      if (freed == 0) {
+        break;
+      }
+      myByteCount.addAndGet(-freed);
+    }
+  }
+
+  private static final class Series {
+    private final List<Segment> mySegments = new ArrayList<>();
+    private boolean myIsValid = true;
+    /**
+     * Samples with a timestamp lower than this were dropped by {@link #dropOldestSegment()}.
+     */
+    private long myFirstKeptTimestamp = Long.MIN_VALUE;
+    /**
+     * Samples with a timestamp lower than this are already downsampled.
+     */
+    private long myDownsampledUpTo = Long.MIN_VALUE;
+
+    /**
+     * @return the change of the byte count of this series.
+     */
+    synchronized long append(long timestamp, @NotNull byte[] sample, @NotNull DuplicatePolicy policy) {
+      if (!myIsValid) {
+        return 0;
+      }
+      Segment last = mySegments.isEmpty() ? null : mySegments.get(mySegments.size() - 1);
+      if (last != null) {
+        long lastTimestamp = last.myLastTimestamp;
+        if (timestamp < lastTimestamp) {
+          // Samples normally arrive in order. If they do not, the database is the only reliable source for this series.
+          return -invalidate();
+        }
+        if (timestamp == lastTimestamp) {
+          return policy == DuplicatePolicy.REPLACE ? last.replaceLast(sample) : 0;
+        }
+      }
+      if (last == null || !last.canAppend(timestamp)) {
+        last = new Segment(timestamp);
+        mySegments.add(last);
+      }
+      last.append(timestamp, sample, 0, sample.length);
+      return sample.length + SAMPLE_OVERHEAD_BYTES;
+    }
+
+    @Nullable
+    synchronized <T> List<T> query(long startExclusive, long endInclusive, @NotNull Decoder<T> decoder) {
+      if (!myIsValid) {
+        return null;
+      }
+      if (endInclusive <= startExclusive) {
+        return Collections.emptyList();
+      }
+      if (startExclusive + 1 < myFirstKeptTimestamp) {
+        return null;
+      }
+      List<T> result = new ArrayList<>();
+      try {
+        for (int i = findFirstSegment(startExclusive); i < mySegments.size(); i++) {
+          Segment segment = mySegments.get(i);
+          if (segment.myFirstTimestamp > endInclusive) {
+            break;
+          }
+          for (int j = segment.firstIndexAfter(startExclusive), to = segment.firstIndexAfter(endInclusive); j < to; j++) {
+            result.add(decoder.decode(segment.myData, segment.myOffsets[j], segment.getLength(j)));
+          }
+        }
+      }
+      catch (IOException ex) {
+        // The database holds the same bytes, so it will fail too, but it also reports the error.
+        return null;
+      }
+      return result;
+    }
+
+    /**
+     * @return the number of bytes freed.
+     */
+    synchronized long invalidate() {
+      myIsValid = false;
+      long bytes = getByteCount(mySegments);
+      mySegments.clear();
+      return bytes;
+    }
+
+    /**
+     * @return the number of bytes freed.
+     */
+    synchronized long dropOldestSegment() {
+      // The last segment is kept so the series keeps answering queries for the latest samples.
+      if (mySegments.size() < 2) {
+        return 0;
+      }
+      myFirstKeptTimestamp = mySegments.get(1).myFirstTimestamp;
+      return mySegments.remove(0).getByteCount();
+    }
+
+    /**
+     * Rewrites the segments holding samples in [{@link #myDownsampledUpTo}, timestamp) keeping the latest sample of each
+     * bucket, like the SQL {@code GROUP BY timestamp / intervalNs} does.
+     *
+     * @return the number of bytes freed.
+     */
+    synchronized long downsample(long timestamp, long intervalNs) {
+      if (!myIsValid || intervalNs <= 0 || timestamp <= myDownsampledUpTo) {
+        return 0;
+      }
+      long from = myDownsampledUpTo;
+      myDownsampledUpTo = timestamp;
+      int first = from == Long.MIN_VALUE ? 0 : findFirstSegment(from - 1);
+      int end = findFirstSegment(timestamp - 1);
+      if (end < mySegments.size() && mySegments.get(end).myFirstTimestamp < timestamp) {
+        // The segment holding the cutoff is rewritten too.
+        end++;
+      }
+      if (first >= end) {
+        return 0;
+      }
+
+      List<Segment> rewritten = mySegments.subList(first, end);
+      long bytesBefore = getByteCount(rewritten);
+      List<Segment> result = new ArrayList<>();
+      Segment current = null;
+      for (int i = 0; i < rewritten.size(); i++) {
+        Segment segment = rewritten.get(i);
+        Segment next = i + 1 < rewritten.size() ? rewritten.get(i + 1) : null;
+        long sampleTimestamp = segment.myFirstTimestamp;
+        for (int j = 0; j < segment.myCount; j++) {
+          if (j > 0) {
+            sampleTimestamp += segment.myDeltas[j];
+          }
+          if (sampleTimestamp >= from && sampleTimestamp < timestamp) {
+            long nextTimestamp = j + 1 < segment.myCount ? sampleTimestamp + segment.myDeltas[j + 1]
+                                                         : next != null ? next.myFirstTimestamp : Long.MAX_VALUE;
+            if (nextTimestamp < timestamp && nextTimestamp / intervalNs == sampleTimestamp / intervalNs) {
+              continue;
+            }
+          }
+          if (current == null || !current.canAppend(sampleTimestamp)) {
+            current = new Segment(sampleTimestamp);
+            result.add(current);
+          }
+          current.append(sampleTimestamp, segment.myData, segment.myOffsets[j], segment.getLength(j));
+        }
+      }
+      rewritten.clear();
+      rewritten.addAll(result);
+      return bytesBefore - getByteCount(result);
+    }
+
+    /**
+     * @return the index of the first segment that may contain a timestamp greater than {@code timestamp}.
+     */
+    private int findFirstSegment(long timestamp) {
+      int low = 0;
+      int high = mySegments.size() - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (mySegments.get(mid).myLastTimestamp <= timestamp) {
+          low = mid + 1;
+        }
+        else {
+          high = mid - 1;
+        }
+      }
+      return low;
+    }
+
+    private static long getByteCount(@NotNull List<Segment> segments) {
+      long bytes = 0;
+      for (Segment segment : segments) {
+        bytes += segment.getByteCount();
+      }
+      return bytes;
+    }
+  }
+
+  /**
+   * A block of at most {@link #SEGMENT_SIZE} samples. Each timestamp is stored as the delta from the previous one, and the
+   * absolute first and last timestamps are kept so segments can be located with a binary search. The serialized samples are
+   * stored back to back in a byte column, along with the offset of each one.
+   */
+  private static final class Segment {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long myFirstTimestamp;
+    private long myLastTimestamp;
+    private int[] myDeltas = new int[INITIAL_CAPACITY];
+    private int[] myOffsets = new int[INITIAL_CAPACITY];
+    private byte[] myData = new byte[INITIAL_CAPACITY * 16];
+    private int myDataSize;
+    private int myCount;
+
+    Segment(long firstTimestamp) {
+      myFirstTimestamp = firstTimestamp;
+      myLastTimestamp = firstTimestamp;
+    }
+
+    boolean canAppend(long timestamp) {
+      return myCount < SEGMENT_SIZE && timestamp - myLastTimestamp <= Integer.MAX_VALUE;
+    }
+
+    void append(long timestamp, @NotNull byte[] data, int offset, int length) {
+      if (myCount == myDeltas.length) {
+        int capacity = Math.min(myDeltas.length * 2, SEGMENT_SIZE);
+        myDeltas = Arrays.copyOf(myDeltas, capacity);
+        myOffsets = Arrays.copyOf(myOffsets, capacity);
+      }
+      myDeltas[myCount] = myCount == 0 ? 0 : (int)(timestamp - myLastTimestamp);
+      myOffsets[myCount] = myDataSize;
+      writeData(data, offset, length);
+      myLastTimestamp = timestamp;
+      myCount++;
+    }
+
+    /**
+     * @return the change of the byte count of this segment.
+     */
+    long replaceLast(@NotNull byte[] data) {
+      int previousLength = getLength(myCount - 1);
+      myDataSize = myOffsets[myCount - 1];
+      writeData(data, 0, data.length);
+      return data.length - previousLength;
+    }
+
+    int getLength(int index) {
+      return (index + 1 < myCount ? myOffsets[index + 1] : myDataSize) - myOffsets[index];
+    }
+
+    long getByteCount() {
+      return myDataSize + (long)myCount * SAMPLE_OVERHEAD_BYTES;
+    }
+
+    /**
+     * @return the index of the first sample whose timestamp is strictly greater than {@code timestamp}.
+     */
+    int firstIndexAfter(long timestamp) {
+      if (timestamp < myFirstTimestamp) {
+        return 0;
+      }
+      if (timestamp >= myLastTimestamp) {
+        return myCount;
+      }
+      long current = myFirstTimestamp;
+      int index = 1;
+      while (index < myCount) {
+        current += myDeltas[index];
+        if (current > timestamp) {
+          break;
+        }
+        index++;
+      }
+      return index;
+    }
+
+    private void writeData(@NotNull byte[] data, int offset, int length) {
+      if (myDataSize + length > myData.length) {
+        myData = Arrays.copyOf(myData, Math.max(myData.length * 2, myDataSize + length));
+      }
+      System.arraycopy(data, offset, myData, myDataSize, length);
+      myDataSize += length;
+    }
+  }
+}
@@ -26,8 +26,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statements> {
   public enum Statements {
@@ -74,6 +74,12 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
                   "Data BLOB");
 
       createUniqueIndex("UnifiedEventsTable", "StreamId", "SessionId", "EventId", "Kind", "Type", "Timestamp");
+      // Group queries always filter on Kind, usually on SessionId, then either on a time range or by group. These indices cover the
+      // filtering, ordering and grouping of those queries, so only the Data of the matching rows is read from the table.
+      createIndex("UnifiedEventsTable", 0, "Kind", "SessionId", "Timestamp");
+      createIndex("UnifiedEventsTable", 1, "Kind", "SessionId", "EventId", "Timestamp");
+      // GetEventsRequest only carries a time range, so its query needs an index of its own.
+      createIndex("UnifiedEventsTable", 2, "Timestamp");
     }
     catch (SQLException ex) {
       onError(ex);
@@ -81,6 +87,11 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
   }
 
 
+  @Override
+  public void deleteSessionData(long sessionId) {
+    executeOneTimeUpdate("DELETE FROM [UnifiedEventsTable] WHERE SessionId = ?", sessionId);
+  }
+
   public void insertUnifiedEvents(long streamId, @NotNull List<Profiler.Event> eventList) {
     executeBatch(Statements.INSERT, eventList,
             (event -> new Object[]{streamId,
@@ -93,12 +104,83 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
   }
 
   public List<Profiler.Event> queryUnifiedEvents(@NotNull Profiler.GetEventsRequest request) {
-    return queryUnifiedEvents(Statements.QUERY_WITHIN_TIME, request.getFromTimestamp(), request.getToTimestamp());
+    List<Profiler.Event> records = new ArrayList<>();
+    queryUnifiedEvents(request, records::add);
+    return records;
   }
 
+  /**
+   * Streams the events within the requested time range to {@code consumer}, one at a time, instead of building a list of them.
+   */
+  public void queryUnifiedEvents(@NotNull Profiler.GetEventsRequest request, @NotNull Consumer<Profiler.Event> consumer) {
+    try {
+      forEachEvent(executeQuery(Statements.QUERY_WITHIN_TIME, request.getFromTimestamp(), request.getToTimestamp()), 1, consumer);
+    }
+    catch (SQLException ex) {
+      onError(ex);
+    }
+  }
+
+  /**
+   * Returns the events matching the request, grouped by EventId. Groups are ordered by EventId and events within a group by timestamp.
+   */
   public List<Profiler.EventGroup> queryUnifiedEventGroups(@NotNull Profiler.GetEventGroupsRequest request) {
     List<Object> params = new ArrayList<>();
-    StringBuilder sql = new StringBuilder("SELECT [Data] From [UnifiedEventsTable] WHERE Kind = ?");
+    String filter = buildFilter(request, params);
+    List<Profiler.EventGroup> groups = new ArrayList<>();
+    try {
+      // Rows come ordered by group from the index, so a group is complete as soon as the next one starts.
+      ResultSet results = executeOneTimeQuery("SELECT [EventId], [Data] FROM [UnifiedEventsTable] " + filter + " ORDER BY EventId, Timestamp",
+                                              params.toArray());
+      Profiler.EventGroup.Builder group = null;
+      long groupId = 0;
+      while (results.next()) {
+        long eventId = results.getLong(1);
+        if (group == null || eventId != groupId) {
+          if (group != null) {
+            groups.add(group.build());
+          }
+          group = Profiler.EventGroup.newBuilder();
+          groupId = eventId;
+        }
+        group.addEvents(Profiler.Event.parser().parseFrom(results.getBytes(2)));
+      }
+      if (group != null) {
+        groups.add(group.build());
+      }
+    }
+    catch (SQLException | InvalidProtocolBufferException ex) {
+      onError(ex);
+    }
+    return groups;
+  }
+
+  /**
+   * Returns the latest event of each group matching the request, ordered by EventId. Only the events returned are decoded, which makes
+   * this the query to use when only the current state of each group is needed (e.g. whether a session is still alive).
+   */
+  public List<Profiler.Event> queryLatestUnifiedEvents(@NotNull Profiler.GetEventGroupsRequest request) {
+    List<Object> params = new ArrayList<>();
+    String filter = buildFilter(request, params);
+    List<Profiler.Event> records = new ArrayList<>();
+    try {
+      // SQLite takes the bare columns of an aggregate query from the row holding the MAX value.
+      ResultSet results = executeOneTimeQuery(
+        "SELECT [Data], MAX(Timestamp) FROM [UnifiedEventsTable] " + filter + " GROUP BY EventId ORDER BY EventId", params.toArray());
+      forEachEvent(results, 1, records::add);
+    }
+    catch (SQLException ex) {
+      onError(ex);
+    }
+    return records;
+  }
+
+  /**
+   * Builds the WHERE clause of a group request, adding the values of its parameters to {@code params}.
+   */
+  @NotNull
+  private static String buildFilter(@NotNull Profiler.GetEventGroupsRequest request, @NotNull List<Object> params) {
+    StringBuilder sql = new StringBuilder("WHERE Kind = ?");
     params.add(request.getKind().getNumber());
     if (request.getSessionId() != 0) {
       sql.append(" AND SessionId = ?");
@@ -114,36 +196,21 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
       sql.append(" AND Timestamp <= ?");
       params.add(request.getToTimestamp());
     }
-
-    List<Profiler.EventGroup> groups = new ArrayList<>();
-    try {
-      ResultSet results = executeOneTimeQuery(sql.toString(), params.toArray());
-      HashMap<Long, Profiler.EventGroup.Builder> builderGroups = new HashMap<>();
-      while (results.next()) {
-        Profiler.Event event = Profiler.Event.parser().parseFrom(results.getBytes(1));
-        Profiler.EventGroup.Builder group = builderGroups.computeIfAbsent(event.getEventId(), key -> Profiler.EventGroup.newBuilder());
-        group.addEvents(event);
-      }
-      builderGroups.values().stream().forEach((builder) -> {
-        groups.add(builder.build());
-      });
-    } catch (SQLException | InvalidProtocolBufferException ex) {
-      onError(ex);
-    }
-    return groups;
+    return sql.toString();
   }
 
-  private List<Profiler.Event> queryUnifiedEvents(Statements stmt, Object... args) {
-    List<Profiler.Event> records = new ArrayList<>();
-    try {
-      ResultSet results = executeQuery(stmt, args);
-      while (results.next()) {
-        records.add(Profiler.Event.parser().parseFrom(results.getBytes(1)));
+  /**
+   * Decodes the events of a result set one row at a time, so no more than one event is held by this method.
+   */
+  private static void forEachEvent(@NotNull ResultSet results, int dataColumn, @NotNull Consumer<Profiler.Event> consumer)
+    throws SQLException {
+    while (results.next()) {
+      try {
+        consumer.accept(Profiler.Event.parser().parseFrom(results.getBytes(dataColumn)));
+      }
+      catch (InvalidProtocolBufferException ex) {
+        onError(ex);
       }
     }
-    catch (SQLException | InvalidProtocolBufferException ex) {
-      onError(ex);
-    }
-    return records;
   }
 }
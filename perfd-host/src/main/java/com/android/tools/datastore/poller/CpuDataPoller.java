@@ -76,8 +76,9 @@ public class CpuDataPoller extends PollRunner {
     CpuProfiler.CpuDataResponse response = myPollingService.getData(request.build());
     for (CpuProfiler.CpuUsageData data : response.getDataList()) {
       getDataStartNs = Math.max(getDataStartNs, data.getEndTimestamp());
-      myCpuTable.insert(mySession, data);
     }
+    myCpuTable.insert(mySession, response.getDataList());
+    reportPolledData(response.getDataCount());
 
     // Poll thread activities.
     long getThreadsStartNs = myDataRequestStartTimestampNs;
@@ -102,6 +103,7 @@ public class CpuDataPoller extends PollRunner {
       }
 
       myCpuTable.insertActivities(mySession, thread.getTid(), thread.getName(), activities);
+      reportPolledData(count);
     }
 
     // Poll profiling state.
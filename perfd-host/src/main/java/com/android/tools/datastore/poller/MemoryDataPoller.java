@@ -82,6 +82,8 @@ public class MemoryDataPoller extends PollRunner {
     myMemoryStatsTable.insertMemory(mySession, response.getMemSamplesList());
     myMemoryStatsTable.insertAllocStats(mySession, response.getAllocStatsSamplesList());
     myMemoryStatsTable.insertGcStats(mySession, response.getGcStatsSamplesList());
+    reportPolledData(response.getMemSamplesCount() + response.getAllocStatsSamplesCount() + response.getGcStatsSamplesCount() +
+                     response.getAllocationsInfoCount() + response.getHeapDumpInfosCount());
 
     List<AllocationsInfo> allocDumpsToFetch = new ArrayList<>();
     for (int i = 0; i < response.getAllocationsInfoCount(); i++) {
@@ -29,8 +29,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
 public class NativeSymbolsPoller extends PollRunner {
   private static final int MAX_SYMBOLS_PER_REQUEST = 1000;
@@ -78,16 +78,17 @@ public class NativeSymbolsPoller extends PollRunner {
 
     List<NativeCallStack.NativeFrame> framesToSymbolize =
       myLiveAllocationTable.queryNotsymbolizedNativeFrames(mySession, MAX_SYMBOLS_PER_REQUEST);
-    ArrayList<NativeCallStack.NativeFrame> symbolizedFrames = new ArrayList<>(framesToSymbolize.size());
-
-    for (NativeCallStack.NativeFrame frame : framesToSymbolize) {
-      NativeCallStack.NativeFrame symbolizedFrame = symbolize(frame);
-      symbolizedFrames.add(symbolizedFrame);
+    if (framesToSymbolize.isEmpty()) {
+      return;
     }
 
-    if (!symbolizedFrames.isEmpty()) {
-      myLiveAllocationTable.updateSymbolizedNativeFrames(mySession, symbolizedFrames);
+    Map<String, Map<Long, Symbol>> symbols = symbolize(framesToSymbolize);
+    ArrayList<NativeCallStack.NativeFrame> symbolizedFrames = new ArrayList<>(framesToSymbolize.size());
+    for (NativeCallStack.NativeFrame frame : framesToSymbolize) {
+      Symbol symbol = symbols.getOrDefault(frame.getModuleName(), Collections.emptyMap()).get(frame.getModuleOffset());
+      symbolizedFrames.add(toSymbolizedFrame(frame, symbol));
     }
+    myLiveAllocationTable.updateSymbolizedNativeFrames(mySession, symbolizedFrames);
   }
 
   @Nullable
@@ -102,19 +103,54 @@ public class NativeSymbolsPoller extends PollRunner {
     return null;
   }
 
+  /**
+   * Symbolizes each distinct (module, offset) pair of the given frames once. All the offsets of a module are sent to the
+   * symbolizer in a single batch.
+   *
+   * @return the symbols found, by module name and by module offset of the frames.
+   */
   @NotNull
-  private NativeCallStack.NativeFrame symbolize(NativeCallStack.NativeFrame frame) {
-    long offset = frame.getModuleOffset();
-    Symbol symbol = null;
+  private Map<String, Map<Long, Symbol>> symbolize(@NotNull List<NativeCallStack.NativeFrame> frames) {
+    Map<String, Set<Long>> offsetsByModule = new HashMap<>();
+    for (NativeCallStack.NativeFrame frame : frames) {
+      offsetsByModule.computeIfAbsent(frame.getModuleName(), module -> new LinkedHashSet<>()).add(frame.getModuleOffset());
+    }
+    Map<String, List<Long>> request = new HashMap<>();
+    offsetsByModule.forEach(
+      (module, offsets) -> request.put(module, offsets.stream().map(this::getOffsetOfPreviousInstruction).collect(Collectors.toList())));
+
+    Map<String, List<Symbol>> response;
     try {
-      long prevInstructionOffset = getOffsetOfPreviousInstruction(offset);
-      symbol = mySymbolizer.symbolize(myProcess.getAbiCpuArch(), frame.getModuleName(), prevInstructionOffset);
+      response = mySymbolizer.symbolize(myProcess.getAbiCpuArch(), request);
     }
     catch (IOException | RuntimeException e) {
       getLogger().warn(e);
+      return Collections.emptyMap();
     }
+
+    Map<String, Map<Long, Symbol>> symbols = new HashMap<>();
+    offsetsByModule.forEach((module, offsets) -> {
+      List<Symbol> moduleSymbols = response.get(module);
+      if (moduleSymbols == null) {
+        return;
+      }
+      Map<Long, Symbol> symbolsByOffset = new HashMap<>();
+      int index = 0;
+      for (Long offset : offsets) {
+        Symbol symbol = moduleSymbols.get(index++);
+        if (symbol != null) {
+          symbolsByOffset.put(offset, symbol);
+        }
+      }
+      symbols.put(module, symbolsByOffset);
+    });
+    return symbols;
+  }
+
+  @NotNull
+  private static NativeCallStack.NativeFrame toSymbolizedFrame(@NotNull NativeCallStack.NativeFrame frame, @Nullable Symbol symbol) {
     if (symbol == null) {
-      String unfoundSymbolName = String.format("0x%x", offset);
+      String unfoundSymbolName = String.format("0x%x", frame.getModuleOffset());
       return frame.toBuilder().setSymbolName(unfoundSymbolName).build();
     }
     return frame.toBuilder().setSymbolName(symbol.getName())
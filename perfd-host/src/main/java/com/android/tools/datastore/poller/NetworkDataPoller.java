@@ -50,8 +50,9 @@ public class NetworkDataPoller extends PollRunner {
 
     for (NetworkProfilerData data : response.getDataList()) {
       myDataRequestStartTimestampNs = Math.max(myDataRequestStartTimestampNs, data.getEndTimestamp());
-      myNetworkTable.insert(mySession, data);
     }
+    myNetworkTable.insert(mySession, response.getDataList());
+    reportPolledData(response.getDataCount());
     pollHttpRange();
   }
 
@@ -60,6 +61,7 @@ public class NetworkDataPoller extends PollRunner {
       .newBuilder().setSession(mySession).setStartTimestamp(myHttpRangeRequestStartTimeNs).setEndTimestamp(Long.MAX_VALUE);
     HttpRangeResponse httpRange = myPollingService.getHttpRange(requestBuilder.build());
 
+    reportPolledData(httpRange.getDataCount());
     for (HttpConnectionData connection : httpRange.getDataList()) {
       myHttpRangeRequestStartTimeNs = Math.max(myHttpRangeRequestStartTimeNs, connection.getStartTimestamp() + 1);
       myHttpRangeRequestStartTimeNs = Math.max(myHttpRangeRequestStartTimeNs, connection.getEndTimestamp() + 1);
@@ -24,11 +24,31 @@ import java.util.concurrent.TimeUnit;
 /**
  * A {@link RunnableFuture} which, while running, triggers a callback at a specified period
  * (which can be used to poll a target service at some frequency).
+ * <p>
+ * Pollers can report how many items each poll received via {@link #reportPolledData(int)}, in which case the period adapts to
+ * the amount of data the device produces: polls that come back empty back off exponentially up to {@link #MAX_IDLE_POLLING_DELAY_NS},
+ * and polls that return a backlog of at least {@link #BACKLOG_ITEM_COUNT} items are followed immediately by another poll so the
+ * host catches up instead of falling further behind.
  */
 public abstract class PollRunner implements RunnableFuture<Void> {
 
   public static final long POLLING_DELAY_NS = TimeUnit.MILLISECONDS.toNanos(250);
 
+  /**
+   * Upper bound of the polling period while the polled service has nothing to report.
+   */
+  public static final long MAX_IDLE_POLLING_DELAY_NS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Number of items received by a single poll above which we consider the device to be ahead of us and poll again right away.
+   */
+  public static final int BACKLOG_ITEM_COUNT = 500;
+
+  /**
+   * Value of {@link #myPolledItemCount} when the poller did not report anything, in which case the regular period is used.
+   */
+  private static final int UNKNOWN_ITEM_COUNT = -1;
+
   private long myPollPeriodNs;
 
   private boolean myIsRunning = false;
@@ -37,6 +57,9 @@ public abstract class PollRunner implements RunnableFuture<Void> {
 
   private CountDownLatch myIsDone = new CountDownLatch(1);
 
+  private int myPolledItemCount = UNKNOWN_ITEM_COUNT;
+
+  private int myIdlePollCount = 0;
 
   public PollRunner(long pollPeriodNs) {
     myPollPeriodNs = pollPeriodNs;
@@ -59,7 +82,7 @@ public abstract class PollRunner implements RunnableFuture<Void> {
       while (myRunning.getCount() > 0) {
         long startTimeNs = System.nanoTime();
         poll();
-        long sleepTime = Math.max(myPollPeriodNs - (System.nanoTime() - startTimeNs), 0L);
+        long sleepTime = Math.max(getNextPollPeriodNs() - (System.nanoTime() - startTimeNs), 0L);
         myRunning.await(sleepTime, TimeUnit.NANOSECONDS);
       }
     }
@@ -73,6 +96,33 @@ public abstract class PollRunner implements RunnableFuture<Void> {
 
   public abstract void poll();
 
+  /**
+   * Called by implementations during {@link #poll()} to report how many items were received from the device. Can be called more
+   * than once per poll, counts are accumulated.
+   */
+  protected void reportPolledData(int itemCount) {
+    myPolledItemCount = Math.max(myPolledItemCount, 0) + itemCount;
+  }
+
+  /**
+   * @return the delay between the start of the last poll and the start of the next one, based on what the last poll reported.
+   */
+  long getNextPollPeriodNs() {
+    int itemCount = myPolledItemCount;
+    myPolledItemCount = UNKNOWN_ITEM_COUNT;
+    if (itemCount == UNKNOWN_ITEM_COUNT) {
+      myIdlePollCount = 0;
+      return myPollPeriodNs;
+    }
+    if (itemCount == 0) {
+      // Shift by at most 30 bits so the period can't overflow before being clamped.
+      myIdlePollCount = Math.min(myIdlePollCount + 1, 30);
+      return Math.max(myPollPeriodNs, Math.min(myPollPeriodNs << myIdlePollCount, MAX_IDLE_POLLING_DELAY_NS));
+    }
+    myIdlePollCount = 0;
+    return itemCount >= BACKLOG_ITEM_COUNT ? 0 : myPollPeriodNs;
+  }
+
   @Override
   public boolean cancel(boolean mayInterruptIfRunning) {
     myRunning.countDown();
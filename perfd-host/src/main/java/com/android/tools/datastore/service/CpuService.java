@@ -62,7 +62,7 @@ public class CpuService extends CpuServiceGrpc.CpuServiceImplBase implements Ser
     myFetchExecutor = fetchExecutor;
     myService = dataStoreService;
     myLogService = logService;
-    myCpuTable = new CpuTable();
+    myCpuTable = new CpuTable(dataStoreService.getSampleStoreMaxBytes());
   }
 
   @Override
@@ -263,4 +263,14 @@ public class CpuService extends CpuServiceGrpc.CpuServiceImplBase implements Ser
     assert namespace == DataStoreService.BackingNamespace.DEFAULT_SHARED_NAMESPACE;
     myCpuTable.initialize(connection);
   }
+
+  @Override
+  public void deleteSessionData(long sessionId) {
+    myCpuTable.deleteSessionData(sessionId);
+  }
+
+  @Override
+  public void compactData(long rawDataWindowNs, long intervalNs) {
+    myCpuTable.compact(rawDataWindowNs, intervalNs);
+  }
 }
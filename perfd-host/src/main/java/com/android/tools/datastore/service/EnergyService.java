@@ -157,4 +157,9 @@ public class EnergyService extends EnergyServiceGrpc.EnergyServiceImplBase imple
     assert namespace == DataStoreService.BackingNamespace.DEFAULT_SHARED_NAMESPACE;
     myEnergyTable.initialize(connection);
   }
+
+  @Override
+  public void deleteSessionData(long sessionId) {
+    myEnergyTable.deleteSessionData(sessionId);
+  }
 }
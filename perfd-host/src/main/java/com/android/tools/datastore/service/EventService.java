@@ -165,4 +165,9 @@ public class EventService extends EventServiceGrpc.EventServiceImplBase implemen
     assert namespace == DataStoreService.BackingNamespace.DEFAULT_SHARED_NAMESPACE;
     myEventsTable.initialize(connection);
   }
+
+  @Override
+  public void deleteSessionData(long sessionId) {
+    myEventsTable.deleteSessionData(sessionId);
+  }
 }
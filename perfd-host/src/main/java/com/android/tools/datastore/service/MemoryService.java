@@ -96,7 +96,7 @@ public class MemoryService extends MemoryServiceGrpc.MemoryServiceImplBase imple
     myLogService = logService;
     myFetchExecutor = fetchExecutor;
     myService = dataStoreService;
-    myStatsTable = new MemoryStatsTable();
+    myStatsTable = new MemoryStatsTable(dataStoreService.getSampleStoreMaxBytes());
     myAllocationsTable = new MemoryLiveAllocationTable(myLogService);
   }
 
@@ -444,4 +444,15 @@ public class MemoryService extends MemoryServiceGrpc.MemoryServiceImplBase imple
       myAllocationsTable.initialize(connection);
     }
   }
+
+  @Override
+  public void deleteSessionData(long sessionId) {
+    myStatsTable.deleteSessionData(sessionId);
+    myAllocationsTable.deleteSessionData(sessionId);
+  }
+
+  @Override
+  public void compactData(long rawDataWindowNs, long intervalNs) {
+    myStatsTable.compact(rawDataWindowNs, intervalNs);
+  }
 }
\ No newline at end of file
@@ -146,4 +146,14 @@ public class NetworkService extends NetworkServiceGrpc.NetworkServiceImplBase im
     assert namespace == DataStoreService.BackingNamespace.DEFAULT_SHARED_NAMESPACE;
     myNetworkTable.initialize(connection);
   }
+
+  @Override
+  public void deleteSessionData(long sessionId) {
+    myNetworkTable.deleteSessionData(sessionId);
+  }
+
+  @Override
+  public void compactData(long rawDataWindowNs, long intervalNs) {
+    myNetworkTable.compact(rawDataWindowNs, intervalNs);
+  }
 }
\ No newline at end of file
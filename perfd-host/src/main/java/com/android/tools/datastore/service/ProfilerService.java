@@ -197,6 +197,8 @@ public class ProfilerService extends ProfilerServiceGrpc.ProfilerServiceImplBase
   public void importSession(ImportSessionRequest request, StreamObserver<ImportSessionResponse> responseObserver) {
     myTable.insertOrUpdateSession(request.getSession(), request.getSessionName(), request.getStartTimestampEpochMs(), false, false,
                                   request.getSessionType());
+    // The imported session is loaded and selected next, it's up to the client to release it when it is deselected.
+    myService.retainSession(request.getSession().getSessionId());
     responseObserver.onNext(ImportSessionResponse.newBuilder().build());
     responseObserver.onCompleted();
   }
@@ -250,6 +252,27 @@ public class ProfilerService extends ProfilerServiceGrpc.ProfilerServiceImplBase
     myUnifiedEventsTable.initialize(connection);
   }
 
+  @Override
+  public void deleteSessionData(long sessionId) {
+    myTable.deleteSessionData(sessionId);
+    myUnifiedEventsTable.deleteSessionData(sessionId);
+  }
+
+  /**
+   * Ends the sessions left ongoing by a previous run, see {@link ProfilerTable#endOngoingSessions()}.
+   */
+  public void endOngoingSessions() {
+    myTable.endOngoingSessions();
+  }
+
+  /**
+   * @return the wall clock start time of the sessions that have ended, by session id, oldest first.
+   */
+  @NotNull
+  public Map<Long, Long> getEndedSessionStartTimesEpochMs() {
+    return myTable.getEndedSessionStartTimesEpochMs();
+  }
+
   @Override
   public void execute(ExecuteRequest request, StreamObserver<ExecuteResponse> responseObserver) {
     ProfilerServiceGrpc.ProfilerServiceBlockingStub client =
@@ -261,8 +284,7 @@ public class ProfilerService extends ProfilerServiceGrpc.ProfilerServiceImplBase
   @Override
   public void getEvents(GetEventsRequest request, StreamObserver<GetEventsResponse> responseObserver) {
     GetEventsResponse.Builder response = GetEventsResponse.newBuilder();
-    Collection<Event> events = myUnifiedEventsTable.queryUnifiedEvents(request);
-    response.addAllEvents(events);
+    myUnifiedEventsTable.queryUnifiedEvents(request, response::addEvents);
     responseObserver.onNext(response.build());
     responseObserver.onCompleted();
   }
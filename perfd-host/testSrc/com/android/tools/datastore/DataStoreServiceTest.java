@@ -162,6 +162,39 @@ public class DataStoreServiceTest extends DataStorePollerTest {
     dataStoreService.shutdown();
   }
 
+  @Test
+  public void testDefaultRetentionPolicyKeepsEndedSessions() {
+    ProfilerServiceGrpc.ProfilerServiceBlockingStub stub = importEndedSessions(1, 2);
+    myDataStore.releaseSession(1);
+    myDataStore.releaseSession(2);
+    myDataStore.applyRetentionPolicy();
+    assertThat(stub.getSessions(GetSessionsRequest.getDefaultInstance()).getSessionsCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testRetentionPolicySkipsRetainedSessions() {
+    ProfilerServiceGrpc.ProfilerServiceBlockingStub stub = importEndedSessions(1, 2);
+    // Imported sessions stay retained until the client releases them, e.g. when they are deselected.
+    myDataStore.releaseSession(1);
+    myDataStore.setRetentionPolicy(new RetentionPolicy(Long.MAX_VALUE, 0, Long.MAX_VALUE, Long.MAX_VALUE, 0));
+    myDataStore.applyRetentionPolicy();
+
+    List<Common.Session> sessions = stub.getSessions(GetSessionsRequest.getDefaultInstance()).getSessionsList();
+    assertThat(sessions).hasSize(1);
+    assertThat(sessions.get(0).getSessionId()).isEqualTo(2);
+  }
+
+  @NotNull
+  private static ProfilerServiceGrpc.ProfilerServiceBlockingStub importEndedSessions(long... sessionIds) {
+    ProfilerServiceGrpc.ProfilerServiceBlockingStub stub =
+      ProfilerServiceGrpc.newBlockingStub(InProcessChannelBuilder.forName(SERVICE_NAME).usePlaintext(true).build());
+    for (long sessionId : sessionIds) {
+      Common.Session session = Common.Session.newBuilder().setSessionId(sessionId).setStartTimestamp(1).setEndTimestamp(2).build();
+      stub.importSession(ImportSessionRequest.newBuilder().setSession(session).setStartTimestampEpochMs(sessionId).build());
+    }
+    return stub;
+  }
+
   private static class MemoryServiceStub extends MemoryServiceGrpc.MemoryServiceImplBase {
   }
 
@@ -24,8 +24,10 @@ import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.CpuProfiler;
 import com.android.tools.profiler.protobuf3jarjar.ByteString;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -58,6 +60,8 @@ public class CpuTableTest extends DatabaseTest<CpuTable> {
     methodCalls.add((table) -> assertThat(table.getTraceData(Common.Session.getDefaultInstance(), 0)).isNull());
     methodCalls.add((table) -> assertThat(table.getTraceInfo(CpuProfiler.GetTraceInfoRequest.getDefaultInstance())).isEmpty());
     methodCalls.add((table) -> table.insert(Common.Session.getDefaultInstance(), CpuProfiler.CpuUsageData.getDefaultInstance()));
+    methodCalls.add((table) -> table.insert(Common.Session.getDefaultInstance(),
+                                            Collections.singletonList(CpuProfiler.CpuUsageData.getDefaultInstance())));
     methodCalls.add((table) -> {
       List<CpuProfiler.GetThreadsResponse.ThreadActivity> activities = new ArrayList<>();
       activities.add(CpuProfiler.GetThreadsResponse.ThreadActivity.getDefaultInstance());
@@ -151,6 +155,59 @@ public class CpuTableTest extends DatabaseTest<CpuTable> {
     }
   }
 
+  @Test
+  public void testCompactKeepsLatestSampleOfOldIntervals() {
+    // The latest samples are at offset + 9, so everything before offset + 5 is downsampled into a single interval.
+    getTable().compact(4, 5);
+
+    List<CpuProfiler.CpuUsageData> response = getTable().getCpuDataByRequest(
+      CpuProfiler.CpuDataRequest.newBuilder().setSession(SESSION_HUNDREDS).setStartTimestamp(0).setEndTimestamp(Long.MAX_VALUE).build());
+    List<Long> timestamps = new ArrayList<>();
+    response.forEach(data -> timestamps.add(data.getEndTimestamp()));
+    assertThat(timestamps).containsExactly(104L, 105L, 106L, 107L, 108L, 109L).inOrder();
+
+    // Thread activities are not downsampled.
+    CpuProfiler.GetThreadsRequest threadsRequest = CpuProfiler.GetThreadsRequest
+      .newBuilder().setSession(SESSION_HUNDREDS).setStartTimestamp(0).setEndTimestamp(Long.MAX_VALUE).build();
+    assertThat(getTable().getThreadsDataByRequest(threadsRequest).get(0).getActivitiesCount()).isEqualTo(TEST_DATA_COUNT);
+  }
+
+  @Test
+  public void testSampleStoreMatchesDatabaseAfterCompact() {
+    // The table under test reads from the database only, this one answers from its sample store when it can.
+    CpuTable storeTable = new CpuTable(1024 * 1024);
+    storeTable.initialize(getDatabase().getConnection());
+    Common.Session session = Common.Session.newBuilder().setSessionId(3L).setEndTimestamp(Long.MAX_VALUE).setPid(PROCESS_ID).build();
+
+    for (int i = 0; i < 300; i++) {
+      storeTable.insert(session, CpuProfiler.CpuUsageData.newBuilder().setAppCpuTimeInMillisec(i).setEndTimestamp(i * 3).build());
+    }
+    storeTable.compact(300, 50);
+    verifySameCpuData(storeTable, session);
+
+    // Compacting again only downsamples the samples inserted since.
+    for (int i = 300; i < 600; i++) {
+      storeTable.insert(session, CpuProfiler.CpuUsageData.newBuilder().setAppCpuTimeInMillisec(i).setEndTimestamp(i * 3).build());
+    }
+    storeTable.compact(300, 70);
+    verifySameCpuData(storeTable, session);
+  }
+
+  @Test
+  public void testDeleteSessionData() {
+    getTable().deleteSessionData(SESSION_THOUSANDS.getSessionId());
+
+    assertThat(getTable().getCpuDataByRequest(
+      CpuProfiler.CpuDataRequest.newBuilder().setSession(SESSION_THOUSANDS).setStartTimestamp(0).setEndTimestamp(Long.MAX_VALUE).build()))
+      .isEmpty();
+    assertThat(getTable().getThreadsDataByRequest(
+      CpuProfiler.GetThreadsRequest.newBuilder().setSession(SESSION_THOUSANDS).setStartTimestamp(0).setEndTimestamp(Long.MAX_VALUE).build()))
+      .isEmpty();
+    assertThat(getTable().getCpuDataByRequest(
+      CpuProfiler.CpuDataRequest.newBuilder().setSession(SESSION_HUNDREDS).setStartTimestamp(0).setEndTimestamp(Long.MAX_VALUE).build()))
+      .hasSize(TEST_DATA_COUNT);
+  }
+
   @Test
   public void testGetDataInvalidSession() {
     CpuProfiler.CpuDataRequest request = CpuProfiler.CpuDataRequest
@@ -340,4 +397,13 @@ public class CpuTableTest extends DatabaseTest<CpuTable> {
     assertThat(response.getBeingProfiled()).isTrue();
     assertThat(response.getConfiguration().getProfilerType()).isEqualTo(CpuProfiler.CpuProfilerType.ART);
   }
-}
\ No newline at end of file
+
+  private void verifySameCpuData(@NotNull CpuTable storeTable, @NotNull Common.Session session) {
+    long[][] ranges = {{-1, Long.MAX_VALUE}, {0, 300}, {100, 1000}, {500, 1799}, {1500, 1500}};
+    for (long[] range : ranges) {
+      CpuProfiler.CpuDataRequest request =
+        CpuProfiler.CpuDataRequest.newBuilder().setSession(session).setStartTimestamp(range[0]).setEndTimestamp(range[1]).build();
+      assertThat(storeTable.getCpuDataByRequest(request)).containsExactlyElementsIn(getTable().getCpuDataByRequest(request)).inOrder();
+    }
+  }
+}
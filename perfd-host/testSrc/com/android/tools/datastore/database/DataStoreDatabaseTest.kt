@@ -20,6 +20,7 @@ import org.junit.Test
 import java.io.BufferedOutputStream
 import java.io.File
 import java.io.FileOutputStream
+import java.sql.Connection
 
 class DataStoreDatabaseTest {
 
@@ -34,17 +35,54 @@ class DataStoreDatabaseTest {
   }
 
   @Test
-  fun testDatabaseDeletesExisitingFileOnLoad() {
+  fun testDatabaseDiscardsUnreadableFileOnLoad() {
     val outputStream = BufferedOutputStream(FileOutputStream(myDatabaseFile))
     outputStream.write(ByteArray(1024))
     outputStream.close()
     assertThat(myDatabaseFile.length()).isEqualTo(1024)
     val db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
-    assertThat(myDatabaseFile.length()).isEqualTo(0)
+    assertThat(db.isReopened).isFalse()
+    assertThat(db.connection.isClosed).isFalse()
     db.disconnect()
     assertThat(myDatabaseFile.exists()).isTrue()
   }
 
+  @Test
+  fun testDatabaseIsReopenedWithContent() {
+    myDatabaseFile.delete()
+    var db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    assertThat(db.isReopened).isFalse()
+    var table = CommitTestTable()
+    table.initialize(db.connection)
+    table.insert(5)
+    db.disconnect()
+
+    db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    assertThat(db.isReopened).isTrue()
+    table = CommitTestTable()
+    table.initialize(db.connection)
+    assertThat(table.count()).isEqualTo(5)
+    db.disconnect()
+  }
+
+  @Test
+  fun testDatabaseWithUnknownSchemaVersionIsDiscarded() {
+    myDatabaseFile.delete()
+    var db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    var table = CommitTestTable()
+    table.initialize(db.connection)
+    table.insert(5)
+    db.connection.createStatement().execute("PRAGMA user_version = 9999")
+    db.disconnect()
+
+    db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    assertThat(db.isReopened).isFalse()
+    table = CommitTestTable()
+    table.initialize(db.connection)
+    assertThat(table.count()).isEqualTo(0)
+    db.disconnect()
+  }
+
   @Test
   fun testConnectionIsOpen() {
     // Verify persistent database
@@ -63,4 +101,61 @@ class DataStoreDatabaseTest {
     db.disconnect()
     assertThat(db.connection.isClosed).isTrue()
   }
+
+  @Test
+  fun testDurableDatabaseUsesWriteAheadLog() {
+    val db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    db.connection.createStatement().executeQuery("PRAGMA journal_mode").use {
+      assertThat(it.next()).isTrue()
+      assertThat(it.getString(1)).isEqualToIgnoringCase("wal")
+    }
+    db.disconnect()
+  }
+
+  @Test
+  fun testWritesAreGroupCommitted() {
+    // Without periodic commits, so the pending rows are only committed when the test asks for it.
+    val db = DataStoreDatabase(myDatabaseFile.absolutePath, DataStoreDatabase.Characteristic.PERFORMANT, FakeLogService(), {}, 0)
+    val table = CommitTestTable()
+    table.initialize(db.connection)
+    table.insert(3)
+    assertThat(db.pendingRowCount).isEqualTo(3)
+
+    db.commit()
+    assertThat(db.pendingRowCount).isEqualTo(0)
+    assertThat(db.commitCount).isEqualTo(1)
+
+    // Nothing pending, so no additional commit is issued.
+    db.commit()
+    assertThat(db.commitCount).isEqualTo(1)
+    db.disconnect()
+  }
+
+  private enum class CommitTestStatement {
+    INSERT,
+    COUNT
+  }
+
+  private class CommitTestTable : DataStoreTable<CommitTestStatement>() {
+    override fun initialize(connection: Connection) {
+      super.initialize(connection)
+      createTable("Commit_Table", "Value INTEGER")
+    }
+
+    override fun prepareStatements() {
+      createStatement(CommitTestStatement.INSERT, "INSERT INTO Commit_Table (Value) VALUES (?)")
+      createStatement(CommitTestStatement.COUNT, "SELECT COUNT(*) FROM Commit_Table")
+    }
+
+    fun count(): Int {
+      val result = executeQuery(CommitTestStatement.COUNT)
+      return if (result.next()) result.getInt(1) else 0
+    }
+
+    fun insert(count: Int) {
+      for (i in 0 until count) {
+        execute(CommitTestStatement.INSERT, i)
+      }
+    }
+  }
 }
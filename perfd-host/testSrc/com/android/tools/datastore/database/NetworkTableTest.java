@@ -20,6 +20,7 @@ import com.android.tools.profiler.proto.NetworkProfiler;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -53,6 +54,8 @@ public class NetworkTableTest extends DatabaseTest<NetworkTable> {
     methodCalls
       .add((table) -> assertThat(table.getNetworkDataByRequest(NetworkProfiler.NetworkDataRequest.getDefaultInstance())).isEmpty());
     methodCalls.add((table) -> table.insert(Common.Session.getDefaultInstance(), NetworkProfiler.NetworkProfilerData.getDefaultInstance()));
+    methodCalls.add((table) -> table.insert(Common.Session.getDefaultInstance(),
+                                            Collections.singletonList(NetworkProfiler.NetworkProfilerData.getDefaultInstance())));
     methodCalls.add((table) -> {
       NetworkProfiler.HttpDetailsResponse defaultData = NetworkProfiler.HttpDetailsResponse.getDefaultInstance();
       table.insertOrReplace(Common.Session.getDefaultInstance(), defaultData, defaultData, defaultData, defaultData, defaultData,
@@ -26,6 +26,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.function.Consumer;
 
@@ -63,7 +64,9 @@ public class ProfilerTableTest extends DatabaseTest<ProfilerTable> {
       (table) -> table.updateAgentStatus(DeviceId.of(-1), Common.Process.getDefaultInstance(), AgentStatusResponse.getDefaultInstance()));
     methodCalls.add((table) -> table.updateDeviceLastKnownTime(Common.Device.getDefaultInstance(), 0));
     methodCalls.add((table) -> table.updateSessionEndTime(0, 0));
+    methodCalls.add((table) -> table.endOngoingSessions());
     methodCalls.add((table) -> table.deleteSession(-1));
+    methodCalls.add((table) -> assertThat(table.getEndedSessionStartTimesEpochMs()).isEmpty());
     return methodCalls;
   }
 
@@ -178,6 +181,49 @@ public class ProfilerTableTest extends DatabaseTest<ProfilerTable> {
     }
   }
 
+  @Test
+  public void testEndedSessionsAreListedOldestFirst() {
+    long[] startTimesEpochMs = {300, 100, 200};
+    for (int i = 0; i < startTimesEpochMs.length; i++) {
+      Common.Session session = Common.Session
+        .newBuilder().setSessionId(10 + i).setDeviceId(20).setPid(30).setStartTimestamp(i).setEndTimestamp(i + 1).build();
+      getTable().insertOrUpdateSession(session, "Ended", startTimesEpochMs[i], false, false, Common.SessionMetaData.SessionType.FULL);
+    }
+    Common.Session ongoing =
+      Common.Session.newBuilder().setSessionId(20).setDeviceId(20).setPid(30).setEndTimestamp(Long.MAX_VALUE).build();
+    getTable().insertOrUpdateSession(ongoing, "Ongoing", 0, false, false, Common.SessionMetaData.SessionType.FULL);
+
+    Map<Long, Long> endedSessions = getTable().getEndedSessionStartTimesEpochMs();
+    assertThat(endedSessions.keySet()).containsExactly(11L, 12L, 10L).inOrder();
+    assertThat(endedSessions.get(11L)).isEqualTo(100L);
+
+    getTable().deleteSessionData(11);
+    assertThat(getTable().getEndedSessionStartTimesEpochMs().keySet()).containsExactly(12L, 10L).inOrder();
+  }
+
+  @Test
+  public void testOngoingSessionsAreEndedAtLastKnownTime() {
+    Common.Device device = Common.Device.newBuilder().setDeviceId(20).build();
+    getTable().insertOrUpdateDevice(device);
+    getTable().updateDeviceLastKnownTime(device, 500);
+
+    Common.Session ended =
+      Common.Session.newBuilder().setSessionId(10).setDeviceId(20).setStartTimestamp(100).setEndTimestamp(200).build();
+    Common.Session ongoing =
+      Common.Session.newBuilder().setSessionId(11).setDeviceId(20).setStartTimestamp(300).setEndTimestamp(Long.MAX_VALUE).build();
+    // A device that never reported its time, so the session can only be ended at its start.
+    Common.Session unknownDevice =
+      Common.Session.newBuilder().setSessionId(12).setDeviceId(21).setStartTimestamp(400).setEndTimestamp(Long.MAX_VALUE).build();
+    for (Common.Session session : new Common.Session[]{ended, ongoing, unknownDevice}) {
+      getTable().insertOrUpdateSession(session, "Name", 0, false, false, Common.SessionMetaData.SessionType.FULL);
+    }
+
+    getTable().endOngoingSessions();
+    assertThat(getTable().getSessionById(10).getEndTimestamp()).isEqualTo(200);
+    assertThat(getTable().getSessionById(11).getEndTimestamp()).isEqualTo(500);
+    assertThat(getTable().getSessionById(12).getEndTimestamp()).isEqualTo(400);
+  }
+
   @Test
   public void testInsertAndGetSessionMetaData() {
     List<Common.SessionMetaData> metaDatas = new ArrayList<>();
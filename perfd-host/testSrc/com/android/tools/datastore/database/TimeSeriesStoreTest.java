@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TimeSeriesStoreTest {
+  private static final long SESSION_ID = 1;
+  private static final long OTHER_SESSION_ID = 2;
+
+  @Test
+  public void testRangeQueryIsExclusiveStartInclusiveEnd() {
+    TimeSeriesStore<String> store = createStore(TimeSeriesStore.DuplicatePolicy.IGNORE, Long.MAX_VALUE);
+    for (int i = 0; i < 10; i++) {
+      append(store, SESSION_ID, i * 10, "sample" + i);
+    }
+    assertThat(store.query(SESSION_ID, 10, 30)).containsExactly("sample2", "sample3").inOrder();
+    assertThat(store.query(SESSION_ID, -1, 0)).containsExactly("sample0");
+    assertThat(store.query(SESSION_ID, 90, 100)).isEmpty();
+    assertThat(store.query(SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE)).hasSize(10);
+  }
+
+  @Test
+  public void testQuerySpansSegments() {
+    TimeSeriesStore<String> store = createStore(TimeSeriesStore.DuplicatePolicy.IGNORE, Long.MAX_VALUE);
+    int count = TimeSeriesStore.SEGMENT_SIZE * 3 + 7;
+    for (long i = 0; i < count; i++) {
+      append(store, SESSION_ID, i, String.valueOf(i));
+    }
+    List<String> samples = store.query(SESSION_ID, 100, TimeSeriesStore.SEGMENT_SIZE * 2 + 100);
+    assertThat(samples).hasSize(TimeSeriesStore.SEGMENT_SIZE * 2);
+    assertThat(samples.get(0)).isEqualTo("101");
+    assertThat(samples.get(samples.size() - 1)).isEqualTo(String.valueOf(TimeSeriesStore.SEGMENT_SIZE * 2 + 100));
+  }
+
+  @Test
+  public void testLargeTimestampGapsStartNewSegment() {
+    TimeSeriesStore<String> store = createStore(TimeSeriesStore.DuplicatePolicy.IGNORE, Long.MAX_VALUE);
+    append(store, SESSION_ID, 0, "first");
+    append(store, SESSION_ID, Integer.MAX_VALUE * 4L, "second");
+    append(store, SESSION_ID, Integer.MAX_VALUE * 4L + 1, "third");
+    assertThat(store.query(SESSION_ID, -1, Long.MAX_VALUE)).containsExactly("first", "second", "third").inOrder();
+    assertThat(store.query(SESSION_ID, 0, Integer.MAX_VALUE * 4L)).containsExactly("second");
+  }
+
+  @Test
+  public void testDuplicatePolicy() {
+    TimeSeriesStore<String> ignore = createStore(TimeSeriesStore.DuplicatePolicy.IGNORE, Long.MAX_VALUE);
+    append(ignore, SESSION_ID, 5, "old");
+    append(ignore, SESSION_ID, 5, "newer");
+    assertThat(ignore.query(SESSION_ID, 0, 10)).containsExactly("old");
+
+    TimeSeriesStore<String> replace = createStore(TimeSeriesStore.DuplicatePolicy.REPLACE, Long.MAX_VALUE);
+    append(replace, SESSION_ID, 5, "old");
+    append(replace, SESSION_ID, 5, "newer");
+    append(replace, SESSION_ID, 6, "next");
+    assertThat(replace.query(SESSION_ID, 0, 10)).containsExactly("newer", "next").inOrder();
+    assertThat(replace.getByteCount()).isEqualTo("newer".length() + "next".length() + 2 * TimeSeriesStore.SAMPLE_OVERHEAD_BYTES);
+  }
+
+  @Test
+  public void testDownsampleKeepsLatestSampleOfEachInterval() {
+    TimeSeriesStore<String> store = createStore(TimeSeriesStore.DuplicatePolicy.IGNORE, Long.MAX_VALUE);
+    int count = TimeSeriesStore.SEGMENT_SIZE * 3;
+    for (long i = 0; i < count; i++) {
+      append(store, SESSION_ID, i, String.valueOf(i));
+    }
+    long bytes = store.getByteCount();
+    store.downsample(SESSION_ID, 2000, 1000);
+    assertThat(store.query(SESSION_ID, -1, 2001)).containsExactly("999", "1999", "2000", "2001").inOrder();
+    assertThat(store.getByteCount()).isLessThan(bytes);
+
+    // Only the samples not downsampled yet are visited, the ones before are kept as they are.
+    store.downsample(SESSION_ID, 3000, 500);
+    assertThat(store.query(SESSION_ID, -1, 3000))
+      .containsExactly("999", "1999", "2499", "2999", "3000").inOrder();
+    assertThat(store.query(SESSION_ID, -1, Long.MAX_VALUE)).hasSize(4 + count - 3000);
+  }
+
+  @Test
+  public void testBytesAreBounded() {
+    int sampleBytes = 4 + TimeSeriesStore.SAMPLE_OVERHEAD_BYTES;
+    long maxBytes = sampleBytes * TimeSeriesStore.SEGMENT_SIZE * 2L;
+    TimeSeriesStore<String> store = createStore(TimeSeriesStore.DuplicatePolicy.IGNORE, maxBytes);
+    for (long i = 0; i < TimeSeriesStore.SEGMENT_SIZE; i++) {
+      append(store, OTHER_SESSION_ID, i, String.format("%04d", i % 10000));
+    }
+
+    int count = TimeSeriesStore.SEGMENT_SIZE * 4;
+    for (long i = 0; i < count; i++) {
+      append(store, SESSION_ID, i, String.format("%04d", i % 10000));
+      assertThat(store.getByteCount()).isAtMost(maxBytes);
+    }
+    // The other session is dropped first, then the oldest samples of the session being appended to.
+    assertThat(store.query(OTHER_SESSION_ID, -1, Long.MAX_VALUE)).isNull();
+    assertThat(store.query(SESSION_ID, -1, Long.MAX_VALUE)).isNull();
+    assertThat(store.query(SESSION_ID, count - 11, count)).hasSize(10);
+
+    // Samples appended to the dropped session after the fact are not enough to answer its queries.
+    append(store, OTHER_SESSION_ID, TimeSeriesStore.SEGMENT_SIZE, "late");
+    assertThat(store.query(OTHER_SESSION_ID, -1, Long.MAX_VALUE)).isNull();
+  }
+
+  @Test
+  public void testUnknownOrOutOfOrderSeriesIsNotAnswered() {
+    TimeSeriesStore<String> store = createStore(TimeSeriesStore.DuplicatePolicy.IGNORE, Long.MAX_VALUE);
+    assertThat(store.query(SESSION_ID, 0, 10)).isNull();
+
+    append(store, SESSION_ID, 5, "a");
+    append(store, SESSION_ID, 3, "b");
+    assertThat(store.query(SESSION_ID, 0, 10)).isNull();
+    // Once invalidated, the series stays unanswered even if later samples are in order.
+    append(store, SESSION_ID, 20, "c");
+    assertThat(store.query(SESSION_ID, 0, 30)).isNull();
+    assertThat(store.getByteCount()).isEqualTo(0);
+  }
+
+  @NotNull
+  private static TimeSeriesStore<String> createStore(@NotNull TimeSeriesStore.DuplicatePolicy policy, long maxBytes) {
+    return new TimeSeriesStore<>(policy, (data, offset, length) -> new String(data, offset, length, StandardCharsets.UTF_8), maxBytes);
+  }
+
+  private static void append(@NotNull TimeSeriesStore<String> store, long sessionId, long timestamp, @NotNull String sample) {
+    store.append(sessionId, timestamp, sample.getBytes(StandardCharsets.UTF_8));
+  }
+}
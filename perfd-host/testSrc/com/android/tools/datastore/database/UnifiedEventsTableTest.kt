@@ -45,7 +45,12 @@ class UnifiedEventsTableTest : DatabaseTest<UnifiedEventsTable>() {
         it.queryUnifiedEventGroups(
           Profiler.GetEventGroupsRequest.newBuilder().setKind(Profiler.Event.Kind.SESSION).setSessionId(1).setToTimestamp(10).build())
       }),
-      (Consumer { it.queryUnifiedEvents(Profiler.GetEventsRequest.getDefaultInstance()) }))
+      (Consumer {
+        it.queryLatestUnifiedEvents(
+          Profiler.GetEventGroupsRequest.newBuilder().setKind(Profiler.Event.Kind.SESSION).setSessionId(1).setToTimestamp(10).build())
+      }),
+      (Consumer { it.queryUnifiedEvents(Profiler.GetEventsRequest.getDefaultInstance()) }),
+      (Consumer { it.queryUnifiedEvents(Profiler.GetEventsRequest.getDefaultInstance(), Consumer {}) }))
   }
 
   private fun insertData(count: Int, incrementSession: Boolean, incrementEventId: Boolean): List<Profiler.Event> {
@@ -155,6 +160,52 @@ class UnifiedEventsTableTest : DatabaseTest<UnifiedEventsTable>() {
                      .setToTimestamp(3).build())
   }
 
+  @Test
+  fun queryEventsStreamsInsertedEvents() {
+    val events = insertData(3, true, true)
+    val eventResult = mutableListOf<Profiler.Event>()
+    table.queryUnifiedEvents(Profiler.GetEventsRequest.newBuilder().setFromTimestamp(2).setToTimestamp(3).build(),
+                             Consumer { eventResult.add(it) })
+    assertThat(eventResult).containsExactly(events[1], events[2])
+  }
+
+  @Test
+  fun queryEventsUsesTimestampIndex() {
+    val plan = StringBuilder()
+    database.connection.createStatement().executeQuery(
+      "EXPLAIN QUERY PLAN " + UnifiedEventsTable.Statements.QUERY_WITHIN_TIME.statement).use {
+      while (it.next()) {
+        plan.append(it.getString("detail"))
+      }
+    }
+    assertThat(plan.toString()).contains("idx_UnifiedEventsTable_2_pk")
+  }
+
+  @Test
+  fun groupsAreOrderedByEventIdAndTimestamp() {
+    val inserted = events.flatten().sortedByDescending { it.timestamp }
+    table.insertUnifiedEvents(1, inserted)
+    val result = table.queryUnifiedEventGroups(Profiler.GetEventGroupsRequest.newBuilder().setKind(Profiler.Event.Kind.SESSION).build())
+    assertThat(result.map { it.getEvents(0).eventId }).containsExactly(1L, 2L).inOrder()
+    for (group in result) {
+      assertThat(group.eventsList.map { it.timestamp }).isOrdered()
+    }
+  }
+
+  @Test
+  fun queryLatestEventOfEachGroup() {
+    events.forEach { table.insertUnifiedEvents(1, it) }
+    var result = table.queryLatestUnifiedEvents(Profiler.GetEventGroupsRequest.newBuilder().setKind(Profiler.Event.Kind.SESSION)
+                                                  .setSessionId(1).build())
+    assertThat(result).containsExactly(events[0][3], events[1][0]).inOrder()
+
+    // Filters apply before picking the latest event.
+    result = table.queryLatestUnifiedEvents(Profiler.GetEventGroupsRequest.newBuilder().setKind(Profiler.Event.Kind.SESSION)
+                                              .setSessionId(2)
+                                              .setToTimestamp(3).build())
+    assertThat(result).containsExactly(events[0][4], events[1][2]).inOrder()
+  }
+
   private fun validateFilter(request: Profiler.GetEventGroupsRequest) {
     val results = mutableListOf<List<Profiler.Event>>()
     for (eventGroup in events) {
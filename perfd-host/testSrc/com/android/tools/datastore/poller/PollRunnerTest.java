@@ -20,11 +20,14 @@ import org.junit.Test;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class PollRunnerTest {
 
   private static final long TEST_PERIOD_NS = TimeUnit.MILLISECONDS.toNanos(1);
 
+  private static final long POLLING_PERIOD_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
   @Test
   public void testRun() throws Exception {
     PollRunnerMinimalImpl runner = new PollRunnerMinimalImpl(10, TEST_PERIOD_NS);
@@ -42,6 +45,37 @@ public class PollRunnerTest {
     assertEquals(runner.get(1, TimeUnit.SECONDS), null); // For code completion
   }
 
+  @Test
+  public void testPeriodAdaptsToReportedData() {
+    PollRunner runner = new PollRunner(POLLING_PERIOD_NS) {
+      @Override
+      public void poll() {
+      }
+    };
+    // Pollers that don't report anything keep the regular period.
+    assertEquals(POLLING_PERIOD_NS, runner.getNextPollPeriodNs());
+
+    // Empty polls back off exponentially, up to the idle maximum.
+    runner.reportPolledData(0);
+    assertEquals(POLLING_PERIOD_NS * 2, runner.getNextPollPeriodNs());
+    runner.reportPolledData(0);
+    assertEquals(POLLING_PERIOD_NS * 4, runner.getNextPollPeriodNs());
+    for (int i = 0; i < 40; i++) {
+      runner.reportPolledData(0);
+      assertTrue(runner.getNextPollPeriodNs() <= PollRunner.MAX_IDLE_POLLING_DELAY_NS);
+    }
+    assertEquals(PollRunner.MAX_IDLE_POLLING_DELAY_NS, runner.getNextPollPeriodNs());
+
+    // Receiving data resets the back off.
+    runner.reportPolledData(1);
+    assertEquals(POLLING_PERIOD_NS, runner.getNextPollPeriodNs());
+
+    // A backlog is drained right away, counts reported within a poll are accumulated.
+    runner.reportPolledData(PollRunner.BACKLOG_ITEM_COUNT - 1);
+    runner.reportPolledData(1);
+    assertEquals(0, runner.getNextPollPeriodNs());
+  }
+
   private static class PollRunnerMinimalImpl extends PollRunner {
     private long myLastCallbackTime = 0;
     private long myTickCallCount = 0;
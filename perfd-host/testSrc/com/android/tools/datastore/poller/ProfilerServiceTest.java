@@ -37,6 +37,7 @@ import java.util.Map;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ProfilerServiceTest extends DataStorePollerTest {
@@ -268,6 +269,8 @@ public class ProfilerServiceTest extends DataStorePollerTest {
   public void importSession() {
     // Import new session
     myProfilerService.importSession(ImportSessionRequest.newBuilder().setSession(END_SESSION_1).build(), mock(StreamObserver.class));
+    // The session is about to be loaded, so retention must not remove it.
+    verify(myDataStore).retainSession(END_SESSION_1.getSessionId());
     StreamObserver<GetSessionMetaDataResponse> metaDataObserver = mock(StreamObserver.class);
     GetSessionMetaDataResponse metaDataResponse =
       GetSessionMetaDataResponse.newBuilder().setData(Common.SessionMetaData.newBuilder().setSessionId(END_SESSION_1.getSessionId()))
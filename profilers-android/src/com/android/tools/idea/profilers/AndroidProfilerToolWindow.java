@@ -17,6 +17,7 @@ package com.android.tools.idea.profilers;
 
 import com.android.ddmlib.IDevice;
 import com.android.tools.adtui.model.AspectObserver;
+import com.android.tools.datastore.DataStoreService;
 import com.android.tools.idea.model.AndroidModuleInfo;
 import com.android.tools.idea.profilers.perfd.ProfilerServiceProxy;
 import com.android.tools.profiler.proto.Common;
@@ -255,10 +256,16 @@ public class AndroidProfilerToolWindow implements Disposable {
     @NotNull private final ToolWindow myWindow;
     @NotNull private final StudioProfilers myProfilers;
     @NotNull private final StudioProfilersView myView;
+    @NotNull private final DataStoreService myDataStoreService;
+    /**
+     * The selected session, which the datastore must not remove while it is viewed.
+     */
+    private long myRetainedSessionId;
 
     StudioProfilersWrapper(@NotNull Project project, @NotNull ToolWindow window, @NotNull ProfilerService service) {
       myProject = project;
       myWindow = window;
+      myDataStoreService = service.getDataStoreService();
 
       IdeProfilerServices ideProfilerServices = new IntellijProfilerServices(myProject);
       service.getDataStoreService().setNoPiiExceptionHanlder(ideProfilerServices::reportNoPiiException);
@@ -296,6 +303,7 @@ public class AndroidProfilerToolWindow implements Disposable {
     @Override
     public void dispose() {
       myProfilers.stop();
+      myDataStoreService.releaseSession(myRetainedSessionId);
     }
 
     @NotNull
@@ -323,6 +331,13 @@ public class AndroidProfilerToolWindow implements Disposable {
     }
 
     private void selectedSessionChanged() {
+      long selectedSessionId = myProfilers.getSessionsManager().getSelectedSession().getSessionId();
+      if (selectedSessionId != myRetainedSessionId) {
+        myDataStoreService.retainSession(selectedSessionId);
+        myDataStoreService.releaseSession(myRetainedSessionId);
+        myRetainedSessionId = selectedSessionId;
+      }
+
       Common.SessionMetaData metaData = myProfilers.getSessionsManager().getSelectedSessionMetaData();
       // setTitle appends to the ToolWindow's existing name (i.e. "Profiler"), hence we only
       // need to create and set the string for the session's name.
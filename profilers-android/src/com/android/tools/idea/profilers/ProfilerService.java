@@ -17,6 +17,8 @@ package com.android.tools.idea.profilers;
 
 import com.android.annotations.concurrency.GuardedBy;
 import com.android.tools.datastore.DataStoreService;
+import com.android.tools.datastore.RetentionPolicy;
+import com.android.tools.idea.flags.StudioFlags;
 import com.android.tools.idea.sdk.IdeSdks;
 import com.android.tools.nativeSymbolizer.NativeSymbolizer;
 import com.android.tools.nativeSymbolizer.NativeSymbolizerKt;
@@ -36,6 +38,7 @@ import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class ProfilerService implements Disposable {
   /**
@@ -85,9 +88,10 @@ public class ProfilerService implements Disposable {
 
     String datastoreName = DATASTORE_NAME_PREFIX + project.getLocationHash();
     myDataStoreService = new DataStoreService(datastoreName, datastoreDirectory, ApplicationManager.getApplication()::executeOnPooledThread,
-                                              new IntellijLogService());
+                                              new IntellijLogService(), StudioFlags.PROFILER_SAMPLE_STORE_MB.get() * 1024L * 1024L);
     Disposer.register(this, () -> myDataStoreService.shutdown());
     myDataStoreService.setNativeSymbolizer(symbolizer);
+    myDataStoreService.setRetentionPolicy(createRetentionPolicy());
 
     myManager = new StudioProfilerDeviceManager(myDataStoreService);
     Disposer.register(this, myManager);
@@ -104,6 +108,22 @@ public class ProfilerService implements Disposable {
     });
   }
 
+  /**
+   * @return the {@link RetentionPolicy} configured with the profiler flags, which keeps everything unless some limits are set.
+   */
+  @NotNull
+  private static RetentionPolicy createRetentionPolicy() {
+    int maxSessionAgeDays = StudioFlags.PROFILER_RETENTION_MAX_SESSION_AGE_DAYS.get();
+    int maxSessionCount = StudioFlags.PROFILER_RETENTION_MAX_SESSION_COUNT.get();
+    int maxDatabaseMb = StudioFlags.PROFILER_RETENTION_MAX_DATABASE_MB.get();
+    int rawDataMinutes = StudioFlags.PROFILER_RETENTION_RAW_DATA_MINUTES.get();
+    return new RetentionPolicy(maxSessionAgeDays > 0 ? TimeUnit.DAYS.toMillis(maxSessionAgeDays) : Long.MAX_VALUE,
+                               maxSessionCount > 0 ? maxSessionCount : Integer.MAX_VALUE,
+                               maxDatabaseMb > 0 ? maxDatabaseMb * 1024L * 1024L : Long.MAX_VALUE,
+                               rawDataMinutes > 0 ? TimeUnit.MINUTES.toNanos(rawDataMinutes) : Long.MAX_VALUE,
+                               rawDataMinutes > 0 ? TimeUnit.SECONDS.toNanos(1) : 0);
+  }
+
   @Override
   public void dispose() {
     // All actual disposing is done via Disposer.register in the constructor.
@@ -147,7 +147,10 @@ public class CpuCaptureView {
     @NotNull
     @Override
     protected String getDurationText() {
-      return TimeFormatter.getMultiUnitDurationString(TimeUnit.MILLISECONDS.toMicros(myStage.getCaptureParser().getParsingElapsedTimeMs()));
+      String duration =
+        TimeFormatter.getMultiUnitDurationString(TimeUnit.MILLISECONDS.toMicros(myStage.getCaptureParser().getParsingElapsedTimeMs()));
+      double progress = myStage.getCaptureParser().getParsingProgress();
+      return progress < 0 ? duration : String.format("%s (%d%%)", duration, (int)(progress * 100));
     }
 
     @Override
@@ -74,6 +74,7 @@ public class MemoryMonitorView extends ProfilerMonitorView<MemoryMonitor> {
     lineChart.setMaxLineMargin(40);
     lineChart.setRenderOffset(0, (int)LineConfig.DEFAULT_DASH_STROKE.getLineWidth() / 2);
     lineChart.setFillEndGap(true);
+    lineChart.setDownsamplingEnabled(true);
     getMonitor().addDependency(this).onChange(ProfilerMonitor.Aspect.FOCUS, () -> lineChart.setShowMaxLine(getMonitor().isFocused()));
 
     MemoryMonitor.MemoryLegend legends = getMonitor().getMemoryLegend();
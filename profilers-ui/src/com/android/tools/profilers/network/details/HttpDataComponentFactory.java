@@ -20,17 +20,21 @@ import static com.android.tools.profilers.ProfilerFonts.STANDARD_FONT;
 import com.android.tools.adtui.TreeWalker;
 import com.android.tools.adtui.common.AdtUiUtils;
 import com.android.tools.adtui.event.NestedScrollPaneMouseWheelListener;
+import com.android.tools.profiler.protobuf3jarjar.ByteString;
 import com.android.tools.profilers.ContentType;
 import com.android.tools.profilers.IdeProfilerComponents;
 import com.android.tools.profilers.dataviewer.DataViewer;
 import com.android.tools.profilers.network.NetworkConnectionsModel;
 import com.android.tools.profilers.network.httpdata.HttpData;
 import com.android.tools.profilers.network.httpdata.Payload;
+import com.android.tools.profilers.network.httpdata.PayloadStore;
 import com.google.common.annotations.VisibleForTesting;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ui.JBEmptyBorder;
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
 import java.awt.Color;
+import java.awt.Cursor;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.Arrays;
@@ -51,7 +55,13 @@ import org.jetbrains.annotations.Nullable;
  */
 final class HttpDataComponentFactory {
   private static final String ID_PAYLOAD_VIEWER = "PAYLOAD_VIEWER";
+  private static final String ID_SHOW_MORE = "SHOW_MORE";
   private static final Border PAYLOAD_BORDER = new JBEmptyBorder(6, 0, 0, 0);
+  /**
+   * Large text payloads are shown in the raw viewer by pages of this size.
+   */
+  @VisibleForTesting
+  static final int RAW_VIEWER_PAGE_BYTES = 1024 * 1024;
 
   private final NetworkConnectionsModel myModel;
   private final HttpData myHttpData;
@@ -108,7 +118,7 @@ final class HttpDataComponentFactory {
   @NotNull
   public JComponent createBodyComponent(@NotNull IdeProfilerComponents components, @NotNull ConnectionType type) {
     Payload payload = type.getPayload(myModel, myHttpData);
-    if (payload.getBytes().isEmpty()) {
+    if (payload.getContent().isEmpty()) {
       return TabUiUtils.createHideablePanel(getBodyTitle(type), new JLabel("Not available"), null);
     }
     JComponent rawDataComponent = createRawDataComponent(payload, components);
@@ -164,13 +174,82 @@ final class HttpDataComponentFactory {
   @NotNull
   private static JComponent createRawDataComponent(@NotNull Payload payload, @NotNull IdeProfilerComponents components) {
     ContentType contentType = ContentType.fromMimeType(payload.getContentType().getMimeType());
-    DataViewer viewer = components.createDataViewer(payload.getBytes().toByteArray(), contentType, DataViewer.Style.RAW);
+    PayloadStore.Content content = payload.getContent();
+    JComponent payloadComponent = new JPanel(new BorderLayout());
+    if (contentType.isImageType() || content.getSize() <= RAW_VIEWER_PAGE_BYTES) {
+      payloadComponent.add(createRawViewerComponent(content.getBytes(), contentType, components));
+    }
+    else {
+      showRawPages(payloadComponent, content, contentType, components, ByteString.EMPTY);
+    }
+    return payloadComponent;
+  }
+
+  /**
+   * Shows the bytes already shown of a large text payload followed by its next page, with a label to show one more, so the raw
+   * viewer doesn't hold the whole payload. Only the new page is read from the content.
+   */
+  private static void showRawPages(@NotNull JComponent payloadComponent,
+                                   @NotNull PayloadStore.Content content,
+                                   @NotNull ContentType contentType,
+                                   @NotNull IdeProfilerComponents components,
+                                   @NotNull ByteString previousBytes) {
+    payloadComponent.removeAll();
+    ByteString page = content.read(previousBytes.size(), RAW_VIEWER_PAGE_BYTES);
+    if (previousBytes.size() + page.size() < content.getSize()) {
+      // Don't split a multi-byte character across pages, its first bytes are shown with the next page instead.
+      int length = getUtf8PrefixLength(page);
+      if (length > 0) {
+        page = page.substring(0, length);
+      }
+    }
+    ByteString shownBytes = previousBytes.concat(page);
+    payloadComponent.add(createRawViewerComponent(shownBytes, contentType, components), BorderLayout.CENTER);
+    if (shownBytes.size() < content.getSize()) {
+      JLabel showMoreLabel = new JLabel(String.format("Showing %s of %s. Show more", StringUtil.formatFileSize(shownBytes.size()),
+                                                      StringUtil.formatFileSize(content.getSize())));
+      showMoreLabel.setName(ID_SHOW_MORE);
+      showMoreLabel.setFont(STANDARD_FONT);
+      showMoreLabel.setBorder(PAYLOAD_BORDER);
+      showMoreLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+      showMoreLabel.addMouseListener(new MouseAdapter() {
+        @Override
+        public void mouseClicked(MouseEvent e) {
+          showRawPages(payloadComponent, content, contentType, components, shownBytes);
+        }
+      });
+      payloadComponent.add(showMoreLabel, BorderLayout.SOUTH);
+    }
+    payloadComponent.revalidate();
+    payloadComponent.repaint();
+  }
+
+  /**
+   * @return the length of the longest prefix of {@code bytes} that doesn't end with an incomplete UTF-8 character.
+   */
+  @VisibleForTesting
+  static int getUtf8PrefixLength(@NotNull ByteString bytes) {
+    int size = bytes.size();
+    // A character is at most 4 bytes long, so its first byte is within the last 4 bytes.
+    for (int i = size - 1; i >= Math.max(0, size - 4); i--) {
+      int b = bytes.byteAt(i) & 0xFF;
+      if ((b & 0xC0) != 0x80) {
+        int characterLength = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+        return i + characterLength > size ? i : size;
+      }
+    }
+    return size;
+  }
+
+  @NotNull
+  private static JComponent createRawViewerComponent(@NotNull ByteString bytes,
+                                                     @NotNull ContentType contentType,
+                                                     @NotNull IdeProfilerComponents components) {
+    DataViewer viewer = components.createDataViewer(bytes.toByteArray(), contentType, DataViewer.Style.RAW);
     JComponent viewerComponent = viewer.getComponent();
     viewerComponent.setName(ID_PAYLOAD_VIEWER);
     viewerComponent.setBorder(PAYLOAD_BORDER);
-    JComponent payloadComponent = new JPanel(new BorderLayout());
-    payloadComponent.add(viewerComponent);
-    return payloadComponent;
+    return viewerComponent;
   }
 
   /**
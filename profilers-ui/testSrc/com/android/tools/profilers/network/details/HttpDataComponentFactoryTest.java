@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.network.details;
+
+import com.android.tools.profiler.protobuf3jarjar.ByteString;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class HttpDataComponentFactoryTest {
+
+  @Test
+  public void utf8PrefixKeepsCompleteCharacters() {
+    assertThat(HttpDataComponentFactory.getUtf8PrefixLength(ByteString.EMPTY)).isEqualTo(0);
+    assertThat(HttpDataComponentFactory.getUtf8PrefixLength(ByteString.copyFromUtf8("abc"))).isEqualTo(3);
+    // "é" is 2 bytes, "€" 3 bytes and "😀" 4 bytes long.
+    assertThat(HttpDataComponentFactory.getUtf8PrefixLength(ByteString.copyFromUtf8("aé"))).isEqualTo(3);
+    assertThat(HttpDataComponentFactory.getUtf8PrefixLength(ByteString.copyFromUtf8("a€"))).isEqualTo(4);
+    assertThat(HttpDataComponentFactory.getUtf8PrefixLength(ByteString.copyFromUtf8("a😀"))).isEqualTo(5);
+  }
+
+  @Test
+  public void utf8PrefixDropsIncompleteLastCharacter() {
+    assertThat(HttpDataComponentFactory.getUtf8PrefixLength(ByteString.copyFromUtf8("aé").substring(0, 2))).isEqualTo(1);
+    assertThat(HttpDataComponentFactory.getUtf8PrefixLength(ByteString.copyFromUtf8("a€").substring(0, 3))).isEqualTo(1);
+    assertThat(HttpDataComponentFactory.getUtf8PrefixLength(ByteString.copyFromUtf8("a😀").substring(0, 4))).isEqualTo(1);
+  }
+}
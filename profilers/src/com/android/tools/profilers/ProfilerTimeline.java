@@ -100,6 +100,11 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
    */
   private float myJumpFactor;
 
+  /**
+   * Whether the last update moved {@link #myViewRangeUs}, in which case it may still be interpolating.
+   */
+  private boolean myViewRangeMoved;
+
   public ProfilerTimeline(@NotNull Updater updater) {
     myDataRangeUs = new Range(0, 0);
     myViewRangeUs = new Range(0, 0);
@@ -109,6 +114,11 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
 
     myUpdater = updater;
     myUpdater.register(this);
+    // Range changes made by the user (e.g. zooming, panning or selecting) need the updater to tick, even when it idles.
+    myUpdater.wakeOn(myViewRangeUs, Range.Aspect.RANGE);
+    myUpdater.wakeOn(mySelectionRangeUs, Range.Aspect.RANGE);
+    myUpdater.wakeOn(myZoomLeft, Range.Aspect.RANGE);
+    myUpdater.wakeOn(this, Aspect.STREAMING);
   }
 
   /**
@@ -166,6 +176,9 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
     if (myIsPaused) {
       myPausedTime = myDataLengthNs;
     }
+    else {
+      myUpdater.wake();
+    }
   }
 
   @NotNull
@@ -188,6 +201,15 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
     return myTooltipRangeUs;
   }
 
+  /**
+   * The timeline keeps animating while the data range grows, and otherwise until the view range settles.
+   */
+  @Override
+  public boolean isAnimating() {
+    return !myIsPaused || myIsReset || myViewRangeMoved || myTargetRangeMaxUs >= 0 || myZoomLeft.getMin() != 0 ||
+           myZoomLeft.getMax() != 0;
+  }
+
   @Override
   public void update(long elapsedNs) {
     if (myIsReset) {
@@ -209,6 +231,8 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
       maxTimelineTimeNs = myPausedTime;
     }
 
+    double viewMinUs = myViewRangeUs.getMin();
+    double viewMaxUs = myViewRangeUs.getMax();
     long deviceNowNs = myDataStartTimeNs + maxTimelineTimeNs;
     long deviceNowUs = TimeUnit.NANOSECONDS.toMicros(deviceNowNs);
     myDataRangeUs.setMax(deviceNowUs);
@@ -225,6 +249,7 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
     handleZoomView(elapsedNs);
 
     handleJumpToTargetMax(elapsedNs);
+    myViewRangeMoved = viewMinUs != myViewRangeUs.getMin() || viewMaxUs != myViewRangeUs.getMax();
   }
 
   /**
@@ -294,6 +319,7 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
       assert target.getMin() < myViewRangeUs.getMin();
       myTargetRangeMaxUs = target.getMin() + myViewRangeUs.getLength();
     }
+    myUpdater.wake();
   }
 
   /**
@@ -329,6 +355,7 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
     targetMax = Math.max(targetMax, maxFromZero);
     // We limit the target max to data range's max, as we can't scroll further than the data.
     myTargetRangeMaxUs = Math.min(targetMax, myDataRangeUs.getMax());
+    myUpdater.wake();
   }
 
   /**
@@ -467,6 +494,7 @@ public final class ProfilerTimeline extends AspectModel<ProfilerTimeline.Aspect>
     setStreaming(true);
     myResetTimeNs = myUpdater.getTimer().getCurrentTimeNs();
     myIsReset = true;
+    myUpdater.wake();
   }
 
   public long getDataStartTimeNs() {
@@ -277,6 +277,19 @@ public class StudioProfilers extends AspectModel<ProfilerAspect> implements Upda
     return myAutoProfilingEnabled;
   }
 
+  /**
+   * Devices are polled once per second, which doesn't need the updater to keep ticking in between.
+   */
+  @Override
+  public boolean isAnimating() {
+    return false;
+  }
+
+  @Override
+  public long getIdleTimeNs() {
+    return Math.max(0, TimeUnit.SECONDS.toNanos(1) - myRefreshDevices);
+  }
+
   @Override
   public void update(long elapsedNs) {
     myRefreshDevices += elapsedNs;
@@ -37,7 +37,10 @@ import java.io.IOException;
 import java.nio.BufferUnderflowException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages the parsing of traces into {@link CpuCapture} objects and provide a way to retrieve them.
@@ -67,6 +70,12 @@ public class CpuCaptureParser {
    */
   private final Map<Integer, String> myTraceFiles;
 
+  /**
+   * {@link ArtTraceParser}s currently parsing a trace, so they can be stopped by {@link #abortParsing()}. Cancelling the
+   * {@link CompletableFuture<CpuCapture>} doesn't interrupt the thread doing the parsing.
+   */
+  private final Set<ArtTraceParser> myArtParsersInProgress = ConcurrentHashMap.newKeySet();
+
   /**
    * Services containing the {@link java.util.concurrent.Executor} responsible for parsing the capture.
    * This is also used for determining if large trace files should be parsed.
@@ -119,6 +128,7 @@ public class CpuCaptureParser {
    * Abort every capture parsing that might still be in progress.
    */
   public void abortParsing() {
+    myArtParsersInProgress.forEach(ArtTraceParser::cancel);
     myCaptures.forEach((id, capture) -> {
       boolean isCaptureCancelled = capture.cancel(true);
       if (!isCaptureCancelled) {
@@ -135,6 +145,14 @@ public class CpuCaptureParser {
     return System.currentTimeMillis() - myParsingStartTimeMs;
   }
 
+  /**
+   * @return the fraction, between 0 and 1, of the traces currently being parsed that has been processed, or a negative value if
+   * the parsers in progress don't report their progress.
+   */
+  public double getParsingProgress() {
+    return myArtParsersInProgress.stream().mapToDouble(ArtTraceParser::getProgress).min().orElse(-1);
+  }
+
   /**
    * Updates {@link #myIsParsing} to false once the given {@link CompletableFuture<CpuCapture>} is done.
    */
@@ -212,8 +230,11 @@ public class CpuCaptureParser {
   private CpuCapture tryParsingFileWithDifferentParsers(File traceFile) {
     try {
       // First try parsing the trace file as an ART trace.
-      ArtTraceParser artTraceParser = new ArtTraceParser();
-      return artTraceParser.parse(traceFile, IMPORTED_TRACE_ID);
+      return parseArtTrace(traceFile, IMPORTED_TRACE_ID);
+    }
+    catch (CancellationException e) {
+      // Parsing was aborted, so don't try the other parsers.
+      throw e;
     }
     catch (Exception ignored) {
       // We should go on and try parsing the file as a simpleperf or atrace trace.
@@ -315,11 +336,12 @@ public class CpuCaptureParser {
       }
       myTraceFiles.put(traceId, trace.getAbsolutePath());
 
-      TraceParser parser;
       if (profilerType == CpuProfilerType.ART) {
-        parser = new ArtTraceParser();
+        return parseArtTrace(trace, traceId);
       }
-      else if (profilerType == CpuProfilerType.SIMPLEPERF) {
+
+      TraceParser parser;
+      if (profilerType == CpuProfilerType.SIMPLEPERF) {
         parser = new SimpleperfTraceParser();
       }
       else if (profilerType == CpuProfilerType.ATRACE) {
@@ -335,4 +357,15 @@ public class CpuCaptureParser {
       throw new IllegalStateException(e);
     }
   }
+
+  private CpuCapture parseArtTrace(@NotNull File trace, int traceId) throws IOException {
+    ArtTraceParser parser = new ArtTraceParser();
+    myArtParsersInProgress.add(parser);
+    try {
+      return parser.parse(trace, traceId);
+    }
+    finally {
+      myArtParsersInProgress.remove(parser);
+    }
+  }
 }
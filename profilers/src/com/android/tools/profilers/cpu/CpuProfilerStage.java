@@ -252,6 +252,9 @@ public class CpuProfilerStage extends Stage implements CodeNavigator.Listener {
 
     myCaptureState = CaptureState.IDLE;
     myCaptureElapsedTimeUpdatable = new CaptureElapsedTimeUpdatable();
+    // The elapsed time of a capture animates while capturing or parsing, which may start while the updater idles.
+    profilers.getUpdater().wakeOn(myAspect, CpuProfilerAspect.CAPTURE_STATE);
+    profilers.getUpdater().wakeOn(myAspect, CpuProfilerAspect.CAPTURE_PARSING);
     myCaptureStateUpdatable = new CpuCaptureStateUpdatable(() -> updateProfilingState(true));
 
     myCaptureModel = new CaptureModel(this);
@@ -1167,9 +1170,14 @@ public class CpuProfilerStage extends Stage implements CodeNavigator.Listener {
   }
 
   private class CaptureElapsedTimeUpdatable implements Updatable {
+    @Override
+    public boolean isAnimating() {
+      return myCaptureState == CaptureState.CAPTURING || myCaptureParser.isParsing();
+    }
+
     @Override
     public void update(long elapsedNs) {
-      if (myCaptureState == CaptureState.CAPTURING || myCaptureParser.isParsing()) {
+      if (isAnimating()) {
         myAspect.changed(CpuProfilerAspect.CAPTURE_ELAPSED_TIME);
       }
     }
@@ -1193,6 +1201,11 @@ public class CpuProfilerStage extends Stage implements CodeNavigator.Listener {
       myCallback = callback;
     }
 
+    @Override
+    public boolean isAnimating() {
+      return false;
+    }
+
     @Override
     public void update(long elapsedNs) {
       if (myUpdateCount++ >= UPDATE_COUNT_TO_CALL_CALLBACK) {
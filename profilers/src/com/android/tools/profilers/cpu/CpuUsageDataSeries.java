@@ -15,7 +15,8 @@
  */
 package com.android.tools.profilers.cpu;
 
-import com.android.tools.adtui.model.DataSeries;
+import com.android.tools.adtui.model.LongSeriesView;
+import com.android.tools.adtui.model.LongValueDataSeries;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.SeriesData;
 import com.android.tools.profiler.proto.Common;
@@ -25,14 +26,13 @@ import com.android.tools.profiler.proto.CpuProfiler.CpuUsageData;
 import com.android.tools.profiler.proto.CpuServiceGrpc;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
  * This class is responsible for making an RPC call to perfd/datastore and converting the resulting proto into UI data.
  */
-public class CpuUsageDataSeries implements DataSeries<Long> {
+public class CpuUsageDataSeries implements LongValueDataSeries {
   @NotNull
   private CpuServiceGrpc.CpuServiceBlockingStub myClient;
 
@@ -47,14 +47,21 @@ public class CpuUsageDataSeries implements DataSeries<Long> {
 
   @Override
   public List<SeriesData<Long>> getDataForXRange(@NotNull Range timeCurrentRangeUs) {
-    List<SeriesData<Long>> seriesData = new ArrayList<>();
+    LongSeriesView view = new LongSeriesView();
+    getDataForXRange(timeCurrentRangeUs.getMin(), timeCurrentRangeUs.getMax(), view);
+    return view.toSeriesDataList();
+  }
+
+  @Override
+  public void getDataForXRange(double minUs, double maxUs, @NotNull LongSeriesView view) {
+    view.clear();
     // Get an extra padding on each side, to have a smooth rendering at the edges.
     // TODO: Change the CPU API to allow specifying this padding in the request as number of samples.
     long bufferNs = TimeUnit.SECONDS.toNanos(1);
     CpuDataRequest.Builder dataRequestBuilder = CpuDataRequest.newBuilder()
       .setSession(mySession)
-      .setStartTimestamp(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMin()) - bufferNs)
-      .setEndTimestamp(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMax()) + bufferNs);
+      .setStartTimestamp(TimeUnit.MICROSECONDS.toNanos((long)minUs) - bufferNs)
+      .setEndTimestamp(TimeUnit.MICROSECONDS.toNanos((long)maxUs) + bufferNs);
     CpuDataResponse response = myClient.getData(dataRequestBuilder.build());
     CpuUsageData lastCpuData = null;
     for (CpuUsageData data : response.getDataList()) {
@@ -67,14 +74,13 @@ public class CpuUsageDataSeries implements DataSeries<Long> {
       }
       CpuUsageDataSeries.UsageData usageData = getCpuUsageData(data, lastCpuData);
       if (myOtherProcesses) {
-        seriesData.add(new SeriesData<>(dataTimestamp, (long)usageData.getOtherProcessesUsage()));
+        view.add(dataTimestamp, (long)usageData.getOtherProcessesUsage());
       }
       else {
-        seriesData.add(new SeriesData<>(dataTimestamp, (long)usageData.getAppUsage()));
+        view.add(dataTimestamp, (long)usageData.getAppUsage());
       }
       lastCpuData = data;
     }
-    return seriesData;
   }
 
   private static UsageData getCpuUsageData(CpuUsageData data, CpuUsageData lastData) {
@@ -38,20 +38,13 @@ abstract class InMemoryDataSeries<T> implements DataSeries<T> {
     if (seriesDataList.isEmpty()) {
       return series;
     }
-    for (int i = 0; i < seriesDataList.size() - 1; i++) {
+    for (int i = findFirstIndexInRange(seriesDataList, min); i < seriesDataList.size() - 1; i++) {
       SeriesData<T> data = seriesDataList.get(i);
-      SeriesData<T> nextData = seriesDataList.get(i + 1);
       // If our series overlaps with the start of the range upto excluding the end. We add the series.
       if (data.x >= max) {
         break;
       }
-      // If our next series is greater than our min then we add our current element to the return set. This works because
-      // we want to add the element just before our range starts so checking the next element gives us that.
-      // After that point all elements will be greater than our min until our current element is > than our max in which case
-      // we break out of the loop.
-      if (nextData.x > min) {
-        series.add(data);
-      }
+      series.add(data);
     }
     SeriesData<T> lastElement = seriesDataList.get(seriesDataList.size() - 1);
     // Always add the last element if it is less than the max.
@@ -61,6 +54,27 @@ abstract class InMemoryDataSeries<T> implements DataSeries<T> {
     return series;
   }
 
+  /**
+   * Binary searches the first element to return for a range starting at {@code min}, which is the element just before the range starts:
+   * the first element whose next element is greater than our min. After that point all elements will be greater than our min until our
+   * current element is >= than our max. The last element of the list is handled separately.
+   * Note: this requires the list to be sorted by x, and to support fast random access as atrace series can be very large.
+   */
+  private static <T> int findFirstIndexInRange(@NotNull List<SeriesData<T>> seriesDataList, long min) {
+    int low = 0;
+    int high = seriesDataList.size() - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (seriesDataList.get(mid + 1).x > min) {
+        high = mid;
+      }
+      else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
   /**
    * Returns all the {@link SeriesData} stored in memory, to be filtered by range in {@link #getDataForXRange(Range)}
    */
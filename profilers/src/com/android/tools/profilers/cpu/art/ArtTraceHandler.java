@@ -117,7 +117,7 @@ public class ArtTraceHandler implements VmTraceHandler {
       CpuThreadInfo info = new CpuThreadInfo(id, name, name.equals(MAIN_THREAD_NAME));
 
       long topLevelGlobalStart = topLevelCall.getStartGlobal() + myStartTimeUs;
-      adjustNodesTimeAndDepth(topLevelCall, topLevelGlobalStart, 0);
+      CaptureNodeConstructor.adjustNodesTimeAndDepth(topLevelCall, myStartTimeUs, topLevelGlobalStart, 0);
 
       threadsGraph.put(info, topLevelCall);
     }
@@ -125,24 +125,6 @@ public class ArtTraceHandler implements VmTraceHandler {
     return threadsGraph;
   }
 
-  /**
-   * Adjusts global and thread time from relative to absolute time and the depth of nodes.
-   */
-  private void adjustNodesTimeAndDepth(CaptureNode node, long topLevelStart, int depth) {
-    node.setStartGlobal(myStartTimeUs + node.getStartGlobal());
-    node.setEndGlobal(myStartTimeUs + node.getEndGlobal());
-    node.setDepth(depth);
-    // Timestamps of ClockType.THREAD are stored in a different way: the first event on the thread is considered as the base
-    // and the subsequent events timestamps are stored in 32 bits relative to that base. We sum this timestamps to topLevelStart,
-    // so the first entry timestamp (represented as 0) is aligned (in wall clock time) with the top-level call start timestamp.
-    node.setStartThread(topLevelStart + node.getStartThread());
-    node.setEndThread(topLevelStart + node.getEndThread());
-
-    for (CaptureNode callee : node.getChildren()) {
-      adjustNodesTimeAndDepth(callee, topLevelStart, depth + 1);
-    }
-  }
-
   public long getElapsedTimeUs() {
     return myElapsedTimeUs;
   }
@@ -22,33 +22,84 @@ import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
 import com.android.tools.profilers.cpu.TraceParser;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 
 /**
- * Receives a binary trace file generated by using ART and parse it into a {@link CpuCapture}
+ * Receives a binary trace file generated by using ART and parse it into a {@link CpuCapture}.
+ * <p>
+ * Traces with a text header are parsed by {@link StreamingArtTraceParser}, which supports cancellation (see {@link #cancel()}) and
+ * progress reporting (see {@link #getProgress()}). Other traces (e.g. written by ART's streaming mode) are parsed by perflib's
+ * {@link VmTraceParser}.
  */
 public class ArtTraceParser implements TraceParser {
 
-  private final ArtTraceHandler myTraceHandler = new ArtTraceHandler();
+  @Nullable private volatile StreamingArtTraceParser myStreamingParser;
+
+  @Nullable private volatile ArtTraceHandler myTraceHandler;
+
+  private volatile boolean myIsCancelled;
 
   @Override
   public CpuCapture parse(File trace, int traceId) throws IOException {
-    VmTraceParser parser = new VmTraceParser(trace, myTraceHandler);
-    parser.parse();
+    if (StreamingArtTraceParser.hasTextHeader(trace)) {
+      StreamingArtTraceParser parser = new StreamingArtTraceParser(trace, () -> myIsCancelled);
+      myStreamingParser = parser;
+      parser.parse();
+    }
+    else {
+      ArtTraceHandler handler = new ArtTraceHandler();
+      VmTraceParser parser = new VmTraceParser(trace, handler);
+      parser.parse();
+      myTraceHandler = handler;
+    }
     return new CpuCapture(this, traceId, CpuProfiler.CpuProfilerType.ART);
   }
 
+  /**
+   * Requests the parsing in progress to stop. {@link #parse(File, int)} then throws a
+   * {@link java.util.concurrent.CancellationException}. Only traces with a text header can be cancelled once their parsing started.
+   */
+  public void cancel() {
+    myIsCancelled = true;
+  }
+
+  /**
+   * @return the fraction, between 0 and 1, of the trace parsed so far.
+   */
+  public double getProgress() {
+    if (myStreamingParser != null) {
+      return myStreamingParser.getProgress();
+    }
+    return myTraceHandler != null ? 1 : 0;
+  }
+
   @Override
   public Map<CpuThreadInfo, CaptureNode> getCaptureTrees() {
+    if (myStreamingParser != null) {
+      return myStreamingParser.getThreadsGraph();
+    }
+    assert myTraceHandler != null;
     return myTraceHandler.getThreadsGraph();
   }
 
   @Override
   public Range getRange() {
-    return new Range(myTraceHandler.getStartTimeUs(), myTraceHandler.getStartTimeUs() + myTraceHandler.getElapsedTimeUs());
+    long startTimeUs;
+    long elapsedTimeUs;
+    if (myStreamingParser != null) {
+      startTimeUs = myStreamingParser.getStartTimeUs();
+      elapsedTimeUs = myStreamingParser.getElapsedTimeUs();
+    }
+    else {
+      assert myTraceHandler != null;
+      startTimeUs = myTraceHandler.getStartTimeUs();
+      elapsedTimeUs = myTraceHandler.getElapsedTimeUs();
+    }
+    return new Range(startTimeUs, startTimeUs + elapsedTimeUs);
   }
 
   @Override
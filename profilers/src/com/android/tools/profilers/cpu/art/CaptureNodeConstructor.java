@@ -175,4 +175,22 @@ class CaptureNodeConstructor {
     fixUpCallStacks();
     return myTopLevelNode;
   }
+
+  /**
+   * Adjusts global and thread time from relative to absolute time and the depth of nodes.
+   */
+  static void adjustNodesTimeAndDepth(CaptureNode node, long startTimeUs, long topLevelStart, int depth) {
+    node.setStartGlobal(startTimeUs + node.getStartGlobal());
+    node.setEndGlobal(startTimeUs + node.getEndGlobal());
+    node.setDepth(depth);
+    // Timestamps of ClockType.THREAD are stored in a different way: the first event on the thread is considered as the base
+    // and the subsequent events timestamps are stored in 32 bits relative to that base. We sum this timestamps to topLevelStart,
+    // so the first entry timestamp (represented as 0) is aligned (in wall clock time) with the top-level call start timestamp.
+    node.setStartThread(topLevelStart + node.getStartThread());
+    node.setEndThread(topLevelStart + node.getEndThread());
+
+    for (CaptureNode callee : node.getChildren()) {
+      adjustNodesTimeAndDepth(callee, startTimeUs, topLevelStart, depth + 1);
+    }
+  }
 }
@@ -0,0 +1,527 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.art;
+
+import com.android.tools.perflib.vmtrace.TraceAction;
+import com.android.tools.profilers.cpu.CaptureNode;
+import com.android.tools.profilers.cpu.CpuThreadInfo;
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
+import com.android.tools.profilers.cpu.nodemodel.JavaMethodModel;
+import com.android.tools.profilers.cpu.nodemodel.SingleNameModel;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TLongObjectHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parses ART method traces that start with a text header (i.e. the traces written by {@code Debug.startMethodTracing} and
+ * by the profilers) into per-thread call trees, without materializing the trace.
+ * <p>
+ * The file is memory-mapped and its fixed-size records are decoded in place. A first pass splits the record section into one
+ * contiguous range per worker and indexes, in parallel, the records of each thread. The threads are then distributed across
+ * workers so each worker gets a similar number of records, and the workers build the call trees of their threads in parallel,
+ * only visiting the records of their own threads. The index costs 4 bytes per record, a fraction of the size of the records.
+ */
+final class StreamingArtTraceParser {
+  private static final String HEADER_VERSION = "*version";
+  private static final String HEADER_THREADS = "*threads";
+  private static final String HEADER_METHODS = "*methods";
+  private static final String HEADER_END = "*end";
+
+  private static final String KEY_CLOCK = "clock";
+  private static final String KEY_ELAPSED_TIME_US = "elapsed-time-usec";
+  private static final String MAIN_THREAD_NAME = "main";
+
+  private static final int TRACE_MAGIC = 0x574f4c53; // 'SLOW'
+  private static final int METHOD_ACTION_MASK = 0x03;
+
+  /**
+   * Number of records walked between two checks for cancellation and two progress updates.
+   */
+  private static final int RECORDS_PER_CHUNK = 1 << 16;
+
+  private enum ClockType {
+    THREAD_CPU,
+    WALL,
+    DUAL
+  }
+
+  private enum HeaderSection {
+    PROPERTIES,
+    THREADS,
+    METHODS
+  }
+
+  @NotNull private final File myTraceFile;
+
+  @NotNull private final BooleanSupplier myIsCancelled;
+
+  /**
+   * Map from thread ids to thread names. Only modified before the workers start.
+   */
+  private final Map<Integer, String> myThreads = new HashMap<>();
+
+  /**
+   * Map from method id to the method model of the methods declared in the header. Only modified before the workers start.
+   */
+  private final TLongObjectHashMap<CaptureNodeModel> myMethods = new TLongObjectHashMap<>();
+
+  /**
+   * Models of the method ids found in the records but not declared in the header. They are shared across workers, as a
+   * method exit is matched against the method entered by comparing the models.
+   */
+  private final Map<Long, CaptureNodeModel> myUnknownMethods = new ConcurrentHashMap<>();
+
+  @NotNull private ClockType myClockType = ClockType.THREAD_CPU;
+
+  private int myVersion;
+  private int myRecordSize;
+  private int myDataOffset;
+  private int myRecordCount;
+
+  private long myStartTimeUs;
+  private long myElapsedTimeUs;
+
+  /**
+   * Number of records processed by both passes, used to report progress.
+   */
+  private final AtomicLong myProcessedRecords = new AtomicLong();
+
+  @Nullable private Map<CpuThreadInfo, CaptureNode> myThreadsGraph;
+
+  StreamingArtTraceParser(@NotNull File traceFile, @NotNull BooleanSupplier isCancelled) {
+    myTraceFile = traceFile;
+    myIsCancelled = isCancelled;
+  }
+
+  /**
+   * @return whether the given file starts with the text header this parser expects.
+   */
+  static boolean hasTextHeader(@NotNull File traceFile) throws IOException {
+    byte[] expected = HEADER_VERSION.getBytes(StandardCharsets.US_ASCII);
+    byte[] actual = new byte[expected.length];
+    try (InputStream input = new FileInputStream(traceFile)) {
+      int read = 0;
+      while (read < actual.length) {
+        int count = input.read(actual, read, actual.length - read);
+        if (count < 0) {
+          return false;
+        }
+        read += count;
+      }
+    }
+    return Arrays.equals(expected, actual);
+  }
+
+  /**
+   * Parses the trace file and builds the call trees of its threads.
+   *
+   * @throws CancellationException if the parsing was cancelled.
+   */
+  void parse() throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(myTraceFile.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(String.format("Trace file too large to be parsed (%d bytes).", channel.size()));
+      }
+      // The mapping stays valid once the channel is closed.
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    parseTextHeader(buffer);
+    parseBinaryHeader(buffer);
+
+    TIntObjectHashMap<TIntArrayList> recordsPerThread = indexRecordsPerThread(buffer);
+    List<int[]> workerThreads = assignThreadsToWorkers(recordsPerThread);
+    Map<CpuThreadInfo, CaptureNode> threadsGraph = new ConcurrentHashMap<>(recordsPerThread.size());
+    IntStream.range(0, workerThreads.size()).parallel()
+      .forEach(worker -> threadsGraph.putAll(buildThreadTrees(buffer, workerThreads.get(worker), recordsPerThread)));
+    myThreadsGraph = threadsGraph;
+  }
+
+  @NotNull
+  Map<CpuThreadInfo, CaptureNode> getThreadsGraph() {
+    assert myThreadsGraph != null : "getThreadsGraph() called before parse()";
+    return myThreadsGraph;
+  }
+
+  long getStartTimeUs() {
+    return myStartTimeUs;
+  }
+
+  long getElapsedTimeUs() {
+    return myElapsedTimeUs;
+  }
+
+  /**
+   * @return the fraction, between 0 and 1, of the records processed so far.
+   */
+  double getProgress() {
+    if (myThreadsGraph != null) {
+      return 1;
+    }
+    // Each record is processed once by the indexing pass and once by the worker handling its thread.
+    return myRecordCount == 0 ? 0 : Math.min(1, myProcessedRecords.get() / (2.0 * myRecordCount));
+  }
+
+  private void parseTextHeader(@NotNull ByteBuffer buffer) throws IOException {
+    if (!HEADER_VERSION.equals(readLine(buffer))) {
+      throw new IOException("Trace file doesn't start with " + HEADER_VERSION);
+    }
+    // The version of the text header, which doesn't change how it's parsed.
+    readLine(buffer);
+
+    HeaderSection section = HeaderSection.PROPERTIES;
+    while (true) {
+      String line = readLine(buffer);
+      if (line == null) {
+        throw new IOException("Unexpected end of trace header.");
+      }
+      if (line.startsWith("*")) {
+        if (line.equals(HEADER_THREADS)) {
+          section = HeaderSection.THREADS;
+        }
+        else if (line.equals(HEADER_METHODS)) {
+          section = HeaderSection.METHODS;
+        }
+        else if (line.equals(HEADER_END)) {
+          return;
+        }
+        else {
+          throw new IOException("Unknown trace header section: " + line);
+        }
+        continue;
+      }
+
+      try {
+        switch (section) {
+          case PROPERTIES:
+            parseProperty(line);
+            break;
+          case THREADS:
+            parseThread(line);
+            break;
+          case METHODS:
+            parseMethod(line);
+            break;
+        }
+      }
+      catch (NumberFormatException e) {
+        throw new IOException("Malformed trace header entry: " + line, e);
+      }
+    }
+  }
+
+  private void parseProperty(@NotNull String line) {
+    int separator = line.indexOf('=');
+    if (separator < 0) {
+      return;
+    }
+    String key = line.substring(0, separator);
+    String value = line.substring(separator + 1);
+    if (key.equals(KEY_CLOCK)) {
+      if (value.equals("dual")) {
+        myClockType = ClockType.DUAL;
+      }
+      else if (value.equals("wall")) {
+        myClockType = ClockType.WALL;
+      }
+      else {
+        myClockType = ClockType.THREAD_CPU;
+      }
+    }
+    else if (key.equals(KEY_ELAPSED_TIME_US)) {
+      myElapsedTimeUs = Long.parseLong(value);
+    }
+  }
+
+  private void parseThread(@NotNull String line) throws IOException {
+    int separator = line.indexOf('\t');
+    if (separator < 0) {
+      separator = line.indexOf(' ');
+    }
+    if (separator < 0) {
+      throw new IOException("Malformed thread entry: " + line);
+    }
+    myThreads.put(Integer.parseInt(line.substring(0, separator)), line.substring(separator + 1));
+  }
+
+  /**
+   * Parses a method entry, in one of the forms handled by perflib's VmTraceParser: "id class method signature [pathname [line]]", or
+   * "id class pathname line" for methods whose name isn't known.
+   */
+  private void parseMethod(@NotNull String line) throws IOException {
+    String[] fields = line.split("\t");
+    if (fields.length < 3) {
+      throw new IOException("Malformed method entry: " + line);
+    }
+    String name = fields[2];
+    String signature = "";
+    if (fields.length > 3) {
+      if (fields[3].startsWith("(")) {
+        signature = fields[3];
+      }
+      else {
+        // The pathname/line form: validate the line number as perflib does, but only the class is known.
+        Integer.decode(fields[3]);
+        name = "";
+      }
+    }
+    myMethods.put(Long.decode(fields[0]), new JavaMethodModel(name, fields[1], signature));
+  }
+
+  /**
+   * @return the next line of the header, without its line terminator, or null if the end of the buffer was reached.
+   */
+  @Nullable
+  private static String readLine(@NotNull ByteBuffer buffer) {
+    if (!buffer.hasRemaining()) {
+      return null;
+    }
+    int start = buffer.position();
+    int end = start;
+    while (end < buffer.limit() && buffer.get(end) != '\n') {
+      end++;
+    }
+    buffer.position(Math.min(end + 1, buffer.limit()));
+    if (end > start && buffer.get(end - 1) == '\r') {
+      end--;
+    }
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void parseBinaryHeader(@NotNull ByteBuffer buffer) throws IOException {
+    int headerStart = buffer.position();
+    if (buffer.remaining() < 16 || buffer.getInt() != TRACE_MAGIC) {
+      throw new IOException("Invalid trace data header.");
+    }
+    myVersion = buffer.getShort();
+    int headerLength = buffer.getShort();
+    myStartTimeUs = buffer.getLong();
+
+    int minRecordSize = getThreadIdSize() + 4 + (myClockType == ClockType.DUAL ? 8 : 4);
+    if (myVersion == 1 || myVersion == 2) {
+      myRecordSize = minRecordSize;
+    }
+    else {
+      myRecordSize = buffer.getShort();
+    }
+    if (myRecordSize < minRecordSize) {
+      throw new IOException(String.format("Invalid trace record size %d for version %d.", myRecordSize, myVersion));
+    }
+
+    myDataOffset = headerStart + headerLength;
+    if (myDataOffset > buffer.limit()) {
+      throw new IOException("Invalid trace data offset.");
+    }
+    myRecordCount = (buffer.limit() - myDataOffset) / myRecordSize;
+  }
+
+  private int getThreadIdSize() {
+    return myVersion == 1 ? 1 : 2;
+  }
+
+  private int getThreadId(@NotNull ByteBuffer buffer, int recordOffset) {
+    return myVersion == 1 ? buffer.get(recordOffset) & 0xFF : buffer.getShort(recordOffset) & 0xFFFF;
+  }
+
+  /**
+   * Splits the record section into one contiguous range per processor and indexes the ranges in parallel.
+   *
+   * @return for each thread, the indices of its records in the order they appear in the trace.
+   */
+  @NotNull
+  private TIntObjectHashMap<TIntArrayList> indexRecordsPerThread(@NotNull ByteBuffer buffer) {
+    int rangeCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), myRecordCount / RECORDS_PER_CHUNK));
+    List<TIntObjectHashMap<TIntArrayList>> rangeIndices = IntStream.range(0, rangeCount).parallel()
+      .mapToObj(range -> indexRecords(buffer, (int)((long)myRecordCount * range / rangeCount),
+                                      (int)((long)myRecordCount * (range + 1) / rangeCount)))
+      .collect(Collectors.toList());
+
+    // Appending the ranges in order keeps the records of each thread in trace order.
+    TIntObjectHashMap<TIntArrayList> recordsPerThread = rangeIndices.get(0);
+    for (int range = 1; range < rangeCount; range++) {
+      rangeIndices.get(range).forEachEntry((threadId, records) -> {
+        TIntArrayList threadRecords = recordsPerThread.get(threadId);
+        if (threadRecords == null) {
+          recordsPerThread.put(threadId, records);
+        }
+        else {
+          threadRecords.add(records.toNativeArray());
+        }
+        return true;
+      });
+    }
+    return recordsPerThread;
+  }
+
+  @NotNull
+  private TIntObjectHashMap<TIntArrayList> indexRecords(@NotNull ByteBuffer buffer, int fromRecord, int toRecord) {
+    TIntObjectHashMap<TIntArrayList> recordsPerThread = new TIntObjectHashMap<>();
+    for (int record = fromRecord; record < toRecord; record++) {
+      if ((record - fromRecord) % RECORDS_PER_CHUNK == 0) {
+        checkCancelled();
+        myProcessedRecords.addAndGet(Math.min(RECORDS_PER_CHUNK, toRecord - record));
+      }
+      int threadId = getThreadId(buffer, myDataOffset + record * myRecordSize);
+      TIntArrayList records = recordsPerThread.get(threadId);
+      if (records == null) {
+        records = new TIntArrayList();
+        recordsPerThread.put(threadId, records);
+      }
+      records.add(record);
+    }
+    return recordsPerThread;
+  }
+
+  /**
+   * Distributes the threads across at most one worker per processor, greedily assigning the threads with the most records
+   * first to the least loaded worker.
+   *
+   * @return for each worker, the ids of the threads it handles.
+   */
+  @NotNull
+  private List<int[]> assignThreadsToWorkers(@NotNull TIntObjectHashMap<TIntArrayList> recordsPerThread) {
+    Integer[] threadIds = new Integer[recordsPerThread.size()];
+    int index = 0;
+    for (int threadId : recordsPerThread.keys()) {
+      threadIds[index++] = threadId;
+      // Threads not declared in the header still get a name, as in ArtTraceHandler.
+      myThreads.putIfAbsent(threadId, String.format("Thread id: %1$d", threadId));
+    }
+    Arrays.sort(threadIds, (a, b) -> Integer.compare(recordsPerThread.get(b).size(), recordsPerThread.get(a).size()));
+
+    int workerCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), threadIds.length));
+    long[] loads = new long[workerCount];
+    List<List<Integer>> assignments = new ArrayList<>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      assignments.add(new ArrayList<>());
+    }
+    for (int threadId : threadIds) {
+      int leastLoaded = 0;
+      for (int i = 1; i < workerCount; i++) {
+        if (loads[i] < loads[leastLoaded]) {
+          leastLoaded = i;
+        }
+      }
+      loads[leastLoaded] += recordsPerThread.get(threadId).size();
+      assignments.get(leastLoaded).add(threadId);
+    }
+
+    List<int[]> workerThreads = new ArrayList<>(workerCount);
+    for (List<Integer> assignment : assignments) {
+      workerThreads.add(assignment.stream().mapToInt(Integer::intValue).toArray());
+    }
+    return workerThreads;
+  }
+
+  /**
+   * Builds the call trees of the given threads from their indexed records. Called concurrently by the workers, so it only
+   * reads the state initialized while parsing the header and indexing the records.
+   */
+  @NotNull
+  private Map<CpuThreadInfo, CaptureNode> buildThreadTrees(@NotNull ByteBuffer sharedBuffer,
+                                                           @NotNull int[] threadIds,
+                                                           @NotNull TIntObjectHashMap<TIntArrayList> recordsPerThread) {
+    // Absolute reads don't modify the buffer, but each worker still gets its own view of it.
+    ByteBuffer buffer = sharedBuffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int threadIdSize = getThreadIdSize();
+    Map<CpuThreadInfo, CaptureNode> threadsGraph = new HashMap<>(threadIds.length);
+    for (int threadId : threadIds) {
+      String name = myThreads.get(threadId);
+      CaptureNodeConstructor constructor = new CaptureNodeConstructor(new SingleNameModel(name));
+      TIntArrayList records = recordsPerThread.get(threadId);
+      for (int i = 0; i < records.size(); i++) {
+        if (i % RECORDS_PER_CHUNK == 0) {
+          checkCancelled();
+          myProcessedRecords.addAndGet(Math.min(RECORDS_PER_CHUNK, records.size() - i));
+        }
+        int offset = myDataOffset + records.get(i) * myRecordSize + threadIdSize;
+        long methodValue = buffer.getInt(offset) & 0xFFFFFFFFL;
+        offset += 4;
+        int threadTime;
+        int globalTime;
+        switch (myClockType) {
+          case DUAL:
+            threadTime = buffer.getInt(offset);
+            globalTime = buffer.getInt(offset + 4);
+            break;
+          case WALL:
+            globalTime = buffer.getInt(offset);
+            threadTime = globalTime;
+            break;
+          case THREAD_CPU:
+          default:
+            threadTime = buffer.getInt(offset);
+            globalTime = threadTime;
+            break;
+        }
+
+        TraceAction action = (methodValue & METHOD_ACTION_MASK) == 0 ? TraceAction.METHOD_ENTER : TraceAction.METHOD_EXIT;
+        constructor.addTraceAction(getMethod(methodValue & ~METHOD_ACTION_MASK), action, threadTime, globalTime);
+      }
+
+      CaptureNode topLevelCall = constructor.getTopLevel();
+      long topLevelGlobalStart = topLevelCall.getStartGlobal() + myStartTimeUs;
+      CaptureNodeConstructor.adjustNodesTimeAndDepth(topLevelCall, myStartTimeUs, topLevelGlobalStart, 0);
+      threadsGraph.put(new CpuThreadInfo(threadId, name, name.equals(MAIN_THREAD_NAME)), topLevelCall);
+    }
+    return threadsGraph;
+  }
+
+  @NotNull
+  private CaptureNodeModel getMethod(long methodId) {
+    CaptureNodeModel model = myMethods.get(methodId);
+    if (model == null) {
+      model = myUnknownMethods.computeIfAbsent(methodId, id -> new SingleNameModel("unknown"));
+    }
+    return model;
+  }
+
+  private void checkCancelled() {
+    if (myIsCancelled.getAsBoolean()) {
+      throw new CancellationException("Parsing of " + myTraceFile.getName() + " was cancelled.");
+    }
+  }
+}
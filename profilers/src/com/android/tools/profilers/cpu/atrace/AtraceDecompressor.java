@@ -23,10 +23,12 @@ import org.jetbrains.annotations.Nullable;
 import trebuchet.io.BufferProducer;
 import trebuchet.io.DataSlice;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.zip.DataFormatException;
@@ -40,6 +42,10 @@ import java.util.zip.Inflater;
  */
 public class AtraceDecompressor implements BufferProducer {
   private static final int BUFFER_SIZE_BYTES = 2048;
+  /**
+   * Size of the blocks returned by {@link #nextChunk()}, large enough for the hand-off between pipeline stages to be negligible.
+   */
+  private static final int CHUNK_SIZE_BYTES = 64 * 1024;
   private byte[] myOutputBuffer = new byte[BUFFER_SIZE_BYTES];
   private byte[] myInputBuffer = new byte[BUFFER_SIZE_BYTES];
   private int myInputBufferOffset = BUFFER_SIZE_BYTES; //We have no data available to read so we point to end of buffer.
@@ -113,6 +119,10 @@ public class AtraceDecompressor implements BufferProducer {
    */
   private void fill() throws IOException {
     int readAmount = fillInputBuffer();
+    if (readAmount < 0) {
+      // The inflater needs more input, so the file ends in the middle of a compressed chunk.
+      throw new EOFException("Unexpected end of the trace file");
+    }
     myInflater.setInput(myInputBuffer, 0, readAmount + myInputBufferOffset);
     myInputBufferOffset = 0;
   }
@@ -144,45 +154,13 @@ public class AtraceDecompressor implements BufferProducer {
 
     // If we have more data in the file, and our queue is empty we get the next block of lines.
     while (myLineQueue.isEmpty()) {
-
-      // If we are finished with our decompression buffer, we either are done with our input,
-      // or we are done with this chunk of the file.
-      if (myInflater.finished()) {
-        // If we have no more input then we are at the end of the file, and have nothing left to
-        // decompress.
-        if (myInputStream.available() == 0) {
-          myIsFinished = true;
-          myInputStream.close();
-          myLineQueue.add(myLastPartialLine);
-          myLastPartialLine = "";
-          break;
-        }
-        else {
-
-          // We can get into a state where we read the exact amount of data into our buffer and as we reset to the head of our next
-          // file we want to refill the buffer.
-          if (myInputBufferOffset + HEADER.size() >= myInputBuffer.length) {
-            fillInputBuffer();
-          }
-          // If we are only done with one chunk of the file, then we read the header and reset our
-          // inflater.
-          verifyHeader();
-          myInflater = new Inflater();
-        }
+      int bytesInOutputBuffer = inflate(myOutputBuffer, 0, myOutputBuffer.length);
+      if (bytesInOutputBuffer < 0) {
+        myLineQueue.add(myLastPartialLine);
+        myLastPartialLine = "";
+        break;
       }
 
-      if (myInflater.needsInput()) {
-        fill();
-      }
-
-      // Need to keep track of where in our buffer the inflater has read to. To do this,
-      // we keep track of the total bytes in the inflater has consumed. So we subtract
-      // the previous total from our new total and add this to our buffer count.
-      int inputBufferTotal = myInflater.getTotalIn();
-      int bytesInOutputBuffer = myInflater.inflate(myOutputBuffer, 0, myOutputBuffer.length);
-      inputBufferTotal = myInflater.getTotalIn() - inputBufferTotal;
-      myInputBufferOffset += inputBufferTotal;
-
       // Create a string from our decompressed buffer, and split it into the lines for that string.
       myLastPartialLine += new String(myOutputBuffer, 0, bytesInOutputBuffer);
       // By default string split gets passed 0, this indicates that the string should return minimum number of split lines. -1 indicates
@@ -201,6 +179,78 @@ public class AtraceDecompressor implements BufferProducer {
     return myLineQueue.remove();
   }
 
+  /**
+   * Decompresses the next block of raw trace data, without splitting it into lines. This is the first stage of
+   * {@link AtracePipeline}: it must not be mixed with calls to {@link #getNextLine()} or {@link #next()} on the same decompressor,
+   * and the "# Initial Data Required by Importer" line is not part of the returned data.
+   *
+   * @return up to {@link #CHUNK_SIZE_BYTES} decompressed bytes, or null once the whole file has been decompressed.
+   */
+  @Nullable
+  byte[] nextChunk() throws IOException, DataFormatException {
+    byte[] chunk = new byte[CHUNK_SIZE_BYTES];
+    int size = 0;
+    while (size < chunk.length) {
+      int bytesInflated = inflate(chunk, size, chunk.length - size);
+      if (bytesInflated < 0) {
+        break;
+      }
+      size += bytesInflated;
+    }
+    if (size == 0) {
+      return null;
+    }
+    return size == chunk.length ? chunk : Arrays.copyOf(chunk, size);
+  }
+
+  /**
+   * Decompresses data from the input file into {@code output}, moving on to the next compressed chunk of the file when the current
+   * one is finished.
+   *
+   * @return the number of bytes decompressed, which can be 0 when crossing chunks, or -1 once the end of the file is reached.
+   */
+  private int inflate(byte[] output, int offset, int length) throws IOException, DataFormatException {
+    if (myIsFinished) {
+      return -1;
+    }
+
+    // If we are finished with our decompression buffer, we either are done with our input,
+    // or we are done with this chunk of the file.
+    if (myInflater.finished()) {
+      // If we have no more input then we are at the end of the file, and have nothing left to
+      // decompress.
+      if (myInputStream.available() == 0) {
+        myIsFinished = true;
+        myInputStream.close();
+        return -1;
+      }
+
+      // We can get into a state where we read the exact amount of data into our buffer and as we reset to the head of our next
+      // file we want to refill the buffer.
+      if (myInputBufferOffset + HEADER.size() >= myInputBuffer.length) {
+        fillInputBuffer();
+      }
+      // If we are only done with one chunk of the file, then we read the header and reset our
+      // inflater.
+      verifyHeader();
+      myInflater.end();
+      myInflater = new Inflater();
+    }
+
+    if (myInflater.needsInput()) {
+      fill();
+    }
+
+    // Need to keep track of where in our buffer the inflater has read to. To do this,
+    // we keep track of the total bytes in the inflater has consumed. So we subtract
+    // the previous total from our new total and add this to our buffer count.
+    int inputBufferTotal = myInflater.getTotalIn();
+    int bytesInflated = myInflater.inflate(output, offset, length);
+    inputBufferTotal = myInflater.getTotalIn() - inputBufferTotal;
+    myInputBufferOffset += inputBufferTotal;
+    return bytesInflated;
+  }
+
   /**
    * Required by {@link BufferProducer}, closes the streams held by the decompressor.
    */
@@ -19,6 +19,10 @@ import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.SeriesData;
 import com.android.tools.profilers.cpu.*;
 import com.android.tools.profilers.cpu.nodemodel.AtraceNodeModel;
+import gnu.trove.TByteArrayList;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntIntHashMap;
+import gnu.trove.TLongArrayList;
 import org.jetbrains.annotations.NotNull;
 import trebuchet.model.*;
 import trebuchet.model.base.SliceGroup;
@@ -59,18 +63,18 @@ public class AtraceParser implements TraceParser {
    * The TGID is the main thread of a user space process. All references to processes outside this class refer to user space
    * processes while threads refer to threads within those processes.
    */
-  private final Map<Integer, List<SeriesData<CpuThreadSliceInfo>>> myCpuSchedulingToCpuData;
+  private final Map<Integer, CpuSliceList> myCpuSchedulingToCpuData;
 
   /**
    * Map between thread id, and the thread state for each state transition on that thread.
    */
-  private final Map<Integer, List<SeriesData<CpuProfilerStage.ThreadState>>> myThreadStateData;
+  private final Map<Integer, ThreadStateList> myThreadStateData;
 
   /**
    * List of cpu utilization values for a specific process. The values range from 0 -> 100 in increments of CPU count.
    * The value needs to be a long as that is what {@link com.android.tools.adtui.model.RangedContinuousSeries} expects.
    */
-  private final List<SeriesData<Long>> myCpuUtilizationSeries;
+  private final LongSeriesList myCpuUtilizationSeries;
 
   private int myProcessId;
   /**
@@ -102,7 +106,7 @@ public class AtraceParser implements TraceParser {
     myCaptureTreeNodes = new HashMap<>();
     myThreadStateData = new HashMap<>();
     myCpuSchedulingToCpuData = new HashMap<>();
-    myCpuUtilizationSeries = new LinkedList<>();
+    myCpuUtilizationSeries = new LongSeriesList();
   }
 
   @Override
@@ -129,9 +133,12 @@ public class AtraceParser implements TraceParser {
    */
   private void parseModelIfNeeded(@NotNull File file) throws IOException {
     if (myModel == null) {
-      AtraceDecompressor reader = new AtraceDecompressor(file);
+      AtracePipeline reader = new AtracePipeline(file);
       ImportTask task = new ImportTask(new PrintlnImportFeedback());
-      myModel = task.importBuffer(reader);
+      Model model = task.importBuffer(reader);
+      // A trace that failed to decompress would only produce a partial model.
+      reader.throwIfFailed();
+      myModel = model;
       // We check if we have a parent timestamp. If not this could be from an imported trace.
       // In the case it is 0, we use the first timestamp of our capture as a reference point.
       if (Double.compare(myModel.getParentTimestamp(),0.0) == 0) {
@@ -247,12 +254,12 @@ public class AtraceParser implements TraceParser {
 
   @NotNull
   public Map<Integer, List<SeriesData<CpuProfilerStage.ThreadState>>> getThreadStateDataSeries() {
-    return myThreadStateData;
+    return Collections.unmodifiableMap(myThreadStateData);
   }
 
   @NotNull
   public Map<Integer, List<SeriesData<CpuThreadSliceInfo>>> getCpuThreadSliceInfoStates() {
-    return myCpuSchedulingToCpuData;
+    return Collections.unmodifiableMap(myCpuSchedulingToCpuData);
   }
 
   @NotNull
@@ -341,17 +348,17 @@ public class AtraceParser implements TraceParser {
    */
   private void buildThreadStateData() {
     for (ThreadModel thread : myProcessModel.getThreads()) {
-      List<SeriesData<CpuProfilerStage.ThreadState>> states = new ArrayList<>();
+      ThreadStateList states = new ThreadStateList();
       myThreadStateData.put(thread.getId(), states);
       CpuProfilerStage.ThreadState lastState = CpuProfilerStage.ThreadState.UNKNOWN;
       for (SchedSlice slice : thread.getSchedSlices()) {
-        long startTimeUs = convertToUserTimeUs(slice.getStartTime());
         CpuProfilerStage.ThreadState state = getState(slice);
         if (state != lastState) {
-          states.add(new SeriesData<>(startTimeUs, state));
+          states.add(convertToUserTimeUs(slice.getStartTime()), state);
           lastState = state;
         }
       }
+      states.trimToSize();
     }
   }
 
@@ -359,118 +366,90 @@ public class AtraceParser implements TraceParser {
    * Builds a map of CPU ids to a list of {@link CpuThreadInfo} series. While building the CPU map it also builds a CPU utilization series.
    */
   private void buildCpuStateData() {
-    // Add initial value to start of series for proper visualization.
-    myCpuUtilizationSeries.add(new SeriesData<>(convertToUserTimeUs(myModel.getBeginTimestamp()), 0L));
+    // Start and end times of the slices of our process on any CPU, from which the CPU utilization series is built.
+    TLongArrayList processStartTimesUs = new TLongArrayList();
+    TLongArrayList processEndTimesUs = new TLongArrayList();
+    // Thread information is shared by all the slices of a thread, across all CPUs.
+    List<CpuThreadSliceInfo> threads = new ArrayList<>();
+    TIntIntHashMap threadIdToIndex = new TIntIntHashMap();
     for (CpuModel cpu : myModel.getCpus()) {
-      ListIterator<SeriesData<Long>> cpuSeriesIt = myCpuUtilizationSeries.listIterator();
-      List<SeriesData<CpuThreadSliceInfo>> processList = new ArrayList<>();
+      CpuSliceList processList = new CpuSliceList(threads);
       CpuProcessSlice lastSlice = cpu.getSlices().get(0);
       for (CpuProcessSlice slice : cpu.getSlices()) {
         long sliceStartTimeUs = convertToUserTimeUs(slice.getStartTime());
         long sliceEndTimeUs = convertToUserTimeUs(slice.getEndTime());
-        long durationUs = sliceEndTimeUs - sliceStartTimeUs;
         if (slice.getStartTime() > lastSlice.getEndTime()) {
-          processList.add(new SeriesData<>(sliceEndTimeUs, CpuThreadSliceInfo.NULL_THREAD));
+          // The CPU is idle between the end of the last slice and the start of this one.
+          processList.addNullThread(convertToUserTimeUs(lastSlice.getEndTime()));
         }
-
-        processList.add(
-          new SeriesData<>(sliceStartTimeUs,
-                           new CpuThreadSliceInfo(slice.getThreadId(), slice.getThreadName(), slice.getId(), slice.getName(), durationUs)));
+        processList.add(sliceStartTimeUs, sliceEndTimeUs - sliceStartTimeUs, getThreadIndex(slice, threads, threadIdToIndex));
         lastSlice = slice;
 
-        // While looping the process slices we build our CPU utilization graph so we don't need to loop the same data twice.
+        // While looping the process slices we gather our CPU utilization data so we don't need to loop the same data twice.
         if (slice.getId() == myProcessId) {
-          buildCpuUtilizationData(cpuSeriesIt, sliceStartTimeUs, sliceEndTimeUs);
+          processStartTimesUs.add(sliceStartTimeUs);
+          processEndTimesUs.add(sliceEndTimeUs);
         }
       }
 
       // We are done with this Cpu so we add a null process at the end to properly render this segment.
-      processList.add(new SeriesData<>(convertToUserTimeUs(myModel.getEndTimestamp()), CpuThreadSliceInfo.NULL_THREAD));
+      processList.addNullThread(convertToUserTimeUs(myModel.getEndTimestamp()));
+      processList.trimToSize();
       myCpuSchedulingToCpuData.put(cpu.getId(), processList);
     }
-
-    // When we are done we have a count of how many processes are running at any time. Here we convert that count to % of CPU used.
-    myCpuUtilizationSeries.replaceAll((series) -> {
-      series.value *= (long)(100 / (myModel.getCpus().size() * 1.0));
-      return series;
-    });
+    buildCpuUtilizationData(processStartTimesUs, processEndTimesUs);
   }
 
   /**
-   * Helper function to build CPU utilization data series. This function loops the current cpu utilization series looking for
-   * the first element that is greater than our process start time and adds a new entry before that point. It then increments the value
-   * of each series element following. The iteration continues until it finds the first element greater than our process end time.
-   * A new series object is inserted just before this point. The result of this is the initial list is modified to have 2 elements added
-   * with each element in the middle incremented by one.
-   * <p>
-   * The start and end times represent a slice when the core is used continuously, and the core's utilization data before the start
-   * timestamp has been captured by cpuSeriesIt.
-   *
-   * @param cpuSeriesIt      An iterator to the list of utilization series data. This function will use the iterator in the current state and
-   *                         not reset it.
-   * @param sliceStartTimeUs The converted time of the slice start.
-   * @param sliceEndTimeUs   The converted time of the slice end.
-   * @return
+   * @return the index in {@code threads} of the thread running the given slice, adding it to the list if needed.
    */
-  @NotNull
-  private static SeriesData<Long> buildCpuUtilizationData(ListIterator<SeriesData<Long>> cpuSeriesIt,
-                                                          Long sliceStartTimeUs,
-                                                          Long sliceEndTimeUs) {
-    // Assume our CPU usage is 0, and we are changing it to 1.
-    Long usedCpuCount = 1L;
-    SeriesData<Long> last = null;
-    if (cpuSeriesIt.hasPrevious()) {
-      last = cpuSeriesIt.previous();
-    }
-    // Move a pointer through our current series looking for where we start beyond our current process.
-    // Process =     [xxxxxx]
-    // Series = |-------| |------|
-    // Pointer  ^  ->   ^
-    while (cpuSeriesIt.hasNext()) {
-      SeriesData<Long> current = cpuSeriesIt.next();
-      if (current.x > sliceStartTimeUs) {
-        // Note: previous returns the current node but it sets the index to be the previous index.
-        // If we wanted the previous element without storing last we need to call previous twice.
-        cpuSeriesIt.previous();
-        // Last can be null happen if the first element is greater than our process start time.
-        if (last != null) {
-          usedCpuCount = last.value + 1;
-        }
-        break;
+  private static int getThreadIndex(@NotNull CpuProcessSlice slice,
+                                    @NotNull List<CpuThreadSliceInfo> threads,
+                                    @NotNull TIntIntHashMap threadIdToIndex) {
+    if (threadIdToIndex.containsKey(slice.getThreadId())) {
+      int index = threadIdToIndex.get(slice.getThreadId());
+      CpuThreadSliceInfo thread = threads.get(index);
+      // Threads can be renamed during a capture, in which case they get a new entry.
+      if (thread.getName().equals(slice.getThreadName()) && thread.getProcessId() == slice.getId() &&
+          thread.getProcessName().equals(slice.getName())) {
+        return index;
       }
-      last = current;
     }
-    // Add a new entry into our series for the current process start time.
-    // Using the example above, we can see that we add an entry for the new process.
-    // Process =     [xxxxxx]
-    // Series = |----|--| |------|
-    // Pointer       ^
-    SeriesData<Long> startProcessPoint = new SeriesData<>(sliceStartTimeUs, usedCpuCount);
-    cpuSeriesIt.add(startProcessPoint);
-    last = startProcessPoint;
-    // Now we search for a time greater than our end time, and update the process count of each element along the way.
-    // Process =     [xxxxxx]
-    // Series = |----|--| |------|
-    // Pointer                   ^
-    while (cpuSeriesIt.hasNext()) {
-      SeriesData<Long> current = cpuSeriesIt.next();
-      if (current.x > sliceEndTimeUs) {
-        cpuSeriesIt.previous();
-        usedCpuCount = last.value;
-        break;
+    threads.add(new CpuThreadSliceInfo(slice.getThreadId(), slice.getThreadName(), slice.getId(), slice.getName()));
+    threadIdToIndex.put(slice.getThreadId(), threads.size() - 1);
+    return threads.size() - 1;
+  }
+
+  /**
+   * Builds the CPU utilization series of our process, from the start and end times of its slices on all CPUs. The series holds a point
+   * for each time the number of CPUs running the process changes, with the percentage of CPUs used from that point on. The values range
+   * from 0 -> 100 in increments of CPU count.
+   */
+  private void buildCpuUtilizationData(@NotNull TLongArrayList startTimesUs, @NotNull TLongArrayList endTimesUs) {
+    long cpuPercentage = (long)(100 / (myModel.getCpus().size() * 1.0));
+    // Add initial value to start of series for proper visualization.
+    myCpuUtilizationSeries.add(convertToUserTimeUs(myModel.getBeginTimestamp()), 0L);
+    startTimesUs.sort();
+    endTimesUs.sort();
+    int startIndex = 0;
+    int endIndex = 0;
+    long usedCpuCount = 0;
+    // Sweep the start and end times in order. Every start time has a matching end time that is greater or equal to it.
+    while (endIndex < endTimesUs.size()) {
+      long timeUs = startIndex < startTimesUs.size() ? Math.min(startTimesUs.get(startIndex), endTimesUs.get(endIndex))
+                                                      : endTimesUs.get(endIndex);
+      long lastCpuCount = usedCpuCount;
+      for (; startIndex < startTimesUs.size() && startTimesUs.get(startIndex) == timeUs; startIndex++) {
+        usedCpuCount++;
+      }
+      for (; endIndex < endTimesUs.size() && endTimesUs.get(endIndex) == timeUs; endIndex++) {
+        usedCpuCount--;
+      }
+      if (usedCpuCount != lastCpuCount) {
+        myCpuUtilizationSeries.add(timeUs, usedCpuCount * cpuPercentage);
       }
-      current.value++;
-      usedCpuCount = current.value;
-      cpuSeriesIt.set(current);
-      last = current;
     }
-
-    //Decrement current CPU count back to last CPU count and add element to our series.
-    usedCpuCount--;
-    SeriesData<Long> endProcessPoint = new SeriesData<>(sliceEndTimeUs, usedCpuCount);
-    cpuSeriesIt.add(endProcessPoint);
-    last = endProcessPoint;
-    return last;
+    myCpuUtilizationSeries.trimToSize();
   }
 
   /**
@@ -534,4 +513,114 @@ public class AtraceParser implements TraceParser {
       process.getThreads().stream().filter((thread) -> thread.getName().equalsIgnoreCase(RENDER_THREAD_NAME)).findFirst();
     return renderThread.map(ThreadModel::getId).orElse(INVALID_PROCESS);
   }
+
+  /**
+   * A read-only list of {@link SeriesData} stored as parallel primitive arrays, the {@link SeriesData} being created on access. The
+   * series built by this parser can hold millions of points, which would otherwise be as many objects kept alive for as long as the
+   * capture is opened.
+   */
+  private static abstract class PrimitiveSeriesList<T> extends AbstractList<SeriesData<T>> implements RandomAccess {
+    protected final TLongArrayList myTimestampsUs = new TLongArrayList();
+
+    @Override
+    public SeriesData<T> get(int index) {
+      return new SeriesData<>(myTimestampsUs.get(index), getValue(index));
+    }
+
+    @Override
+    public int size() {
+      return myTimestampsUs.size();
+    }
+
+    protected abstract T getValue(int index);
+
+    void trimToSize() {
+      myTimestampsUs.trimToSize();
+    }
+  }
+
+  private static final class LongSeriesList extends PrimitiveSeriesList<Long> {
+    private final TLongArrayList myValues = new TLongArrayList();
+
+    void add(long timestampUs, long value) {
+      myTimestampsUs.add(timestampUs);
+      myValues.add(value);
+    }
+
+    @Override
+    protected Long getValue(int index) {
+      return myValues.get(index);
+    }
+
+    @Override
+    void trimToSize() {
+      super.trimToSize();
+      myValues.trimToSize();
+    }
+  }
+
+  private static final class ThreadStateList extends PrimitiveSeriesList<CpuProfilerStage.ThreadState> {
+    private static final CpuProfilerStage.ThreadState[] STATES = CpuProfilerStage.ThreadState.values();
+
+    private final TByteArrayList myStates = new TByteArrayList();
+
+    void add(long timestampUs, @NotNull CpuProfilerStage.ThreadState state) {
+      myTimestampsUs.add(timestampUs);
+      myStates.add((byte)state.ordinal());
+    }
+
+    @Override
+    protected CpuProfilerStage.ThreadState getValue(int index) {
+      return STATES[myStates.get(index)];
+    }
+
+    @Override
+    void trimToSize() {
+      super.trimToSize();
+      myStates.trimToSize();
+    }
+  }
+
+  /**
+   * Slices of one CPU. Each slice only stores its duration and the index of its thread in a table shared by all CPUs.
+   */
+  private static final class CpuSliceList extends PrimitiveSeriesList<CpuThreadSliceInfo> {
+    private static final int NULL_THREAD_INDEX = -1;
+
+    @NotNull private final List<CpuThreadSliceInfo> myThreads;
+    private final TLongArrayList myDurationsUs = new TLongArrayList();
+    private final TIntArrayList myThreadIndices = new TIntArrayList();
+
+    CpuSliceList(@NotNull List<CpuThreadSliceInfo> threads) {
+      myThreads = threads;
+    }
+
+    void add(long timestampUs, long durationUs, int threadIndex) {
+      myTimestampsUs.add(timestampUs);
+      myDurationsUs.add(durationUs);
+      myThreadIndices.add(threadIndex);
+    }
+
+    void addNullThread(long timestampUs) {
+      add(timestampUs, 0, NULL_THREAD_INDEX);
+    }
+
+    @Override
+    protected CpuThreadSliceInfo getValue(int index) {
+      int threadIndex = myThreadIndices.get(index);
+      if (threadIndex == NULL_THREAD_INDEX) {
+        return CpuThreadSliceInfo.NULL_THREAD;
+      }
+      CpuThreadSliceInfo thread = myThreads.get(threadIndex);
+      return new CpuThreadSliceInfo(thread.getId(), thread.getName(), thread.getProcessId(), thread.getProcessName(),
+                                    myDurationsUs.get(index));
+    }
+
+    @Override
+    void trimToSize() {
+      super.trimToSize();
+      myDurationsUs.trimToSize();
+      myThreadIndices.trimToSize();
+    }
+  }
 }
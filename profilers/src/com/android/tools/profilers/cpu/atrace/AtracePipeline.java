@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.atrace;
+
+import com.google.common.base.Charsets;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import trebuchet.io.BufferProducer;
+import trebuchet.io.DataSlice;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+
+/**
+ * A {@link BufferProducer} that feeds an atrace file to trebuchet through a pipeline of three stages, each running on its own thread:
+ * <ol>
+ *   <li>Decompression, using {@link AtraceDecompressor#nextChunk()}.</li>
+ *   <li>Line tokenizing: lines are trimmed and truncated the same way {@link AtraceDecompressor#next()} does, and written back to back
+ *   into large batches instead of being handed over one at a time.</li>
+ *   <li>Slice building, by the trebuchet importer on the thread calling {@link #next()}.</li>
+ * </ol>
+ * Stages are connected by bounded queues, so the memory used by the pipeline does not depend on the size of the trace. If the trace
+ * can't be decompressed, the pipeline ends early and {@link #throwIfFailed()} throws the cause.
+ */
+public class AtracePipeline implements BufferProducer {
+  /**
+   * Lines are truncated to this many bytes, not counting the \n appended to them. See {@link AtraceDecompressor#next()}.
+   */
+  private static final int MAX_LINE_LENGTH = 1022;
+
+  private static final int BATCH_SIZE_BYTES = 64 * 1024;
+
+  /**
+   * Number of chunks or batches that can be waiting between two stages.
+   */
+  private static final int QUEUE_CAPACITY = 4;
+
+  private static final byte[] INITIAL_LINE = "# Initial Data Required by Importer\n".getBytes(Charsets.UTF_8);
+
+  private static final Chunk END_OF_CHUNKS = new Chunk(new byte[0], null);
+  private static final DataSlice END_OF_BATCHES = new DataSlice();
+
+  @NotNull private final AtraceDecompressor myDecompressor;
+  @NotNull private final BlockingQueue<Chunk> myChunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  @NotNull private final BlockingQueue<DataSlice> myBatches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  @NotNull private final Thread myDecompressThread;
+  @NotNull private final Thread myTokenizeThread;
+  private boolean myIsFinished = false;
+
+  /**
+   * Why the trace could not be decompressed, set by the tokenizer before it queues {@link #END_OF_BATCHES}.
+   */
+  @Nullable private volatile IOException myFailure;
+
+  public AtracePipeline(@NotNull File file) throws IOException {
+    myDecompressor = new AtraceDecompressor(file);
+    myDecompressThread = new Thread(this::decompress, "Atrace decompression");
+    myTokenizeThread = new Thread(this::tokenize, "Atrace tokenizer");
+    myDecompressThread.setDaemon(true);
+    myTokenizeThread.setDaemon(true);
+    myDecompressThread.start();
+    myTokenizeThread.start();
+  }
+
+  /**
+   * @return the next batch of lines, each of them ending with \n, or null when the whole trace has been read.
+   */
+  @Nullable
+  @Override
+  public DataSlice next() {
+    if (myIsFinished) {
+      return null;
+    }
+    try {
+      DataSlice batch = myBatches.take();
+      if (batch == END_OF_BATCHES) {
+        myIsFinished = true;
+        return null;
+      }
+      return batch;
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      myIsFinished = true;
+      return null;
+    }
+  }
+
+  /**
+   * Throws the error that ended the pipeline before the end of the trace, if any. Call it once {@link #next()} returned null, since
+   * {@link BufferProducer} has no way to report errors while reading.
+   */
+  public void throwIfFailed() throws IOException {
+    IOException failure = myFailure;
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Required by {@link BufferProducer}, stops the pipeline if it is still running. The decompression stage closes the file.
+   */
+  @Override
+  public void close() {
+    myIsFinished = true;
+    myDecompressThread.interrupt();
+    myTokenizeThread.interrupt();
+  }
+
+  private void decompress() {
+    try {
+      try {
+        byte[] data;
+        while ((data = myDecompressor.nextChunk()) != null) {
+          myChunks.put(new Chunk(data, null));
+        }
+        myChunks.put(END_OF_CHUNKS);
+      }
+      catch (IOException ex) {
+        myChunks.put(new Chunk(null, ex));
+      }
+      catch (DataFormatException ex) {
+        myChunks.put(new Chunk(null, new IOException(ex)));
+      }
+      finally {
+        myDecompressor.close();
+      }
+    }
+    catch (InterruptedException ignored) {
+      // The pipeline has been closed before the end of the trace.
+    }
+  }
+
+  private void tokenize() {
+    try {
+      byte[] batch = new byte[BATCH_SIZE_BYTES];
+      System.arraycopy(INITIAL_LINE, 0, batch, 0, INITIAL_LINE.length);
+      int batchSize = INITIAL_LINE.length;
+      // The current line is written in place in the batch, from lineStart. Leading whitespaces are skipped and lineLength counts the
+      // bytes after them, while trimmedLength excludes the trailing whitespaces seen so far.
+      int lineStart = batchSize;
+      int lineLength = 0;
+      int trimmedLength = 0;
+      Chunk chunk;
+      while ((chunk = myChunks.take()) != END_OF_CHUNKS) {
+        if (chunk.myFailure != null) {
+          // The lines read so far would only make a partial trace, so drop them.
+          myFailure = chunk.myFailure;
+          myBatches.put(END_OF_BATCHES);
+          return;
+        }
+        for (byte b : chunk.myData) {
+          if (b == '\n') {
+            batchSize = lineStart + Math.min(trimmedLength, MAX_LINE_LENGTH);
+            batch[batchSize++] = '\n';
+            // Lines never span two batches, so start a new batch when the current one can't hold a full line.
+            if (batch.length - batchSize <= MAX_LINE_LENGTH) {
+              myBatches.put(new DataSlice(batch, 0, batchSize));
+              batch = new byte[BATCH_SIZE_BYTES];
+              batchSize = 0;
+            }
+            lineStart = batchSize;
+            lineLength = 0;
+            trimmedLength = 0;
+            continue;
+          }
+          // Same definition of whitespace as String#trim.
+          boolean isWhitespace = (b & 0xFF) <= ' ';
+          if (lineLength == 0 && isWhitespace) {
+            continue;
+          }
+          if (lineLength < MAX_LINE_LENGTH) {
+            batch[lineStart + lineLength] = b;
+          }
+          lineLength++;
+          if (!isWhitespace) {
+            trimmedLength = lineLength;
+          }
+        }
+      }
+      // Like AtraceDecompressor, the data following the last \n is always returned as a line.
+      batchSize = lineStart + Math.min(trimmedLength, MAX_LINE_LENGTH);
+      batch[batchSize++] = '\n';
+      myBatches.put(new DataSlice(batch, 0, batchSize));
+      myBatches.put(END_OF_BATCHES);
+    }
+    catch (InterruptedException ignored) {
+      // The pipeline has been closed before the end of the trace.
+    }
+  }
+
+  /**
+   * Decompressed data handed over from the decompression stage to the tokenizer, or the error that stopped the decompression.
+   */
+  private static final class Chunk {
+    @Nullable private final byte[] myData;
+    @Nullable private final IOException myFailure;
+
+    private Chunk(@Nullable byte[] data, @Nullable IOException failure) {
+      myData = data;
+      myFailure = failure;
+    }
+  }
+}
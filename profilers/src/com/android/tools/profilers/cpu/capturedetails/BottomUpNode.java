@@ -21,6 +21,7 @@ import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
 import com.android.tools.profilers.cpu.nodemodel.SingleNameModel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
@@ -30,6 +31,11 @@ public class BottomUpNode extends CpuTreeNode<BottomUpNode> {
   private final boolean myIsRoot;
   private boolean myChildrenBuilt;
 
+  /**
+   * Intervals of {@link #myNodes} which answer {@link #update(Range)} without iterating over all the nodes, built on first use.
+   */
+  @Nullable private Intervals myIntervals;
+
   private BottomUpNode(String id) {
     super(id);
     myIsRoot = false;
@@ -127,41 +133,43 @@ public class BottomUpNode extends CpuTreeNode<BottomUpNode> {
     return true;
   }
 
+  @Override
+  protected void addNode(@NotNull CaptureNode node) {
+    super.addNode(node);
+    myIntervals = null;
+  }
+
   @Override
   public void update(@NotNull Range range) {
+    Intervals intervals = getIntervals();
     // how much time was spent in this call stack path, and in the functions it called
-    myGlobalTotal = 0;
+    myGlobalTotal = intervals.myOuter.getIntersection(range);
     // how much time was spent doing work directly in this call stack path
-    double self = 0;
-
-    // The node that is at the top of the call stack, e.g if the call stack looks like B [0..30] -> B [1..20],
-    // then the second method can't be outerSoFar.
-    // It's used to exclude nodes which aren't at the top of the
-    // call stack from the total time calculation.
-    CaptureNode outerSoFar = null;
-
-    // myNodes is sorted by CaptureNode#getStart() in increasing order,
-    // if they are equal then ancestor comes first
-    for (CaptureNode node : myNodes) {
-      if (outerSoFar == null || node.getEnd() > outerSoFar.getEnd()) {
-        if (outerSoFar != null) {
-          // |outerSoFar| is at the top of the call stack
-          myGlobalTotal += getIntersection(range, outerSoFar, ClockType.GLOBAL);
-        }
-        outerSoFar = node;
-      }
+    double self = intervals.mySelf.getIntersection(range);
+    myGlobalChildrenTotal = myGlobalTotal - self;
+  }
 
-      self += getIntersection(range, node, ClockType.GLOBAL);
-      for (CaptureNode child : node.getChildren()) {
-        self -= getIntersection(range, child, ClockType.GLOBAL);
-      }
-    }
+  @Override
+  public boolean inRange(Range range) {
+    // The outer nodes cover all the other nodes, so they overlap the range if and only if one of the nodes does.
+    Intervals intervals = getIntervals();
+    // All the nodes of a tree use the same clock.
+    boolean threadClock = !myNodes.isEmpty() && myNodes.get(0).getClockType() == ClockType.THREAD;
+    IntervalSums outer = threadClock ? intervals.myThreadOuter : intervals.myOuter;
+    return outer.overlaps(range.getMin(), range.getMax());
+  }
+
+  @Override
+  public void prepare() {
+    getIntervals();
+  }
 
-    if (outerSoFar != null) {
-      // |outerSoFar| is at the top of the call stack
-      myGlobalTotal += getIntersection(range, outerSoFar, ClockType.GLOBAL);
+  @NotNull
+  private Intervals getIntervals() {
+    if (myIntervals == null) {
+      myIntervals = new Intervals(myNodes);
     }
-    myGlobalChildrenTotal = myGlobalTotal - self;
+    return myIntervals;
   }
 
   @NotNull
@@ -183,4 +191,89 @@ public class BottomUpNode extends CpuTreeNode<BottomUpNode> {
     }
     return myPathNodes.get(0).getFilterType();
   }
+
+  private static class Intervals {
+    /**
+     * Nodes that are at the top of the call stack, e.g if the call stack looks like B [0..30] -> B [1..20], then only the first B.
+     * They don't overlap, and the time spent in this call stack path is the time they cover.
+     */
+    @NotNull private final IntervalSums myOuter;
+    /**
+     * Same as {@link #myOuter}, but using {@link ClockType#THREAD}.
+     */
+    @NotNull private final IntervalSums myThreadOuter;
+    /**
+     * The parts of the nodes that aren't covered by their children.
+     */
+    @NotNull private final IntervalSums mySelf;
+
+    private Intervals(@NotNull List<CaptureNode> nodes) {
+      IntervalSums.Builder self = new IntervalSums.Builder();
+      for (CaptureNode node : nodes) {
+        addSelf(node, self);
+      }
+      myOuter = buildOuter(nodes, ClockType.GLOBAL);
+      myThreadOuter = buildOuter(nodes, ClockType.THREAD);
+      mySelf = self.build();
+    }
+
+    @NotNull
+    private static IntervalSums buildOuter(@NotNull List<CaptureNode> nodes, @NotNull ClockType clock) {
+      IntervalSums.Builder outer = new IntervalSums.Builder();
+      // The nodes are sorted by start time in increasing order, if they are equal then ancestor comes first.
+      CaptureNode outerSoFar = null;
+      for (CaptureNode node : nodes) {
+        if (outerSoFar == null || getEnd(node, clock) > getEnd(outerSoFar, clock)) {
+          if (outerSoFar != null) {
+            outer.add(getStart(outerSoFar, clock), getEnd(outerSoFar, clock));
+          }
+          outerSoFar = node;
+        }
+      }
+      if (outerSoFar != null) {
+        outer.add(getStart(outerSoFar, clock), getEnd(outerSoFar, clock));
+      }
+      return outer.build();
+    }
+
+    private static long getStart(@NotNull CaptureNode node, @NotNull ClockType clock) {
+      return clock == ClockType.GLOBAL ? node.getStartGlobal() : node.getStartThread();
+    }
+
+    private static long getEnd(@NotNull CaptureNode node, @NotNull ClockType clock) {
+      return clock == ClockType.GLOBAL ? node.getEndGlobal() : node.getEndThread();
+    }
+
+    /**
+     * Adds the gaps between the children of the node, which don't overlap the gaps of any other node of the thread. If the children
+     * aren't laid out within the node, subtracts their intervals from the node's instead.
+     */
+    private static void addSelf(@NotNull CaptureNode node, @NotNull IntervalSums.Builder self) {
+      long gapStart = node.getStartGlobal();
+      boolean wellFormed = true;
+      for (CaptureNode child : node.getChildren()) {
+        if (child.getStartGlobal() < gapStart || child.getEndGlobal() < child.getStartGlobal() ||
+            child.getEndGlobal() > node.getEndGlobal()) {
+          wellFormed = false;
+          break;
+        }
+        gapStart = child.getEndGlobal();
+      }
+
+      if (!wellFormed) {
+        self.add(node.getStartGlobal(), node.getEndGlobal());
+        for (CaptureNode child : node.getChildren()) {
+          self.subtract(child.getStartGlobal(), child.getEndGlobal());
+        }
+        return;
+      }
+
+      gapStart = node.getStartGlobal();
+      for (CaptureNode child : node.getChildren()) {
+        self.add(gapStart, child.getStartGlobal());
+        gapStart = child.getEndGlobal();
+      }
+      self.add(gapStart, node.getEndGlobal());
+    }
+  }
 }
@@ -59,7 +59,11 @@ public interface CaptureDetails {
     @Nullable private final TopDownTreeModel myModel;
 
     public TopDown(@NotNull Range range, @Nullable CaptureNode node) {
-      myModel = node == null ? null : new TopDownTreeModel(range, new TopDownNode(node));
+      this(range, node == null ? null : new TopDownNode(node));
+    }
+
+    TopDown(@NotNull Range range, @Nullable TopDownNode node) {
+      myModel = node == null ? null : new TopDownTreeModel(range, node);
     }
 
     @Nullable
@@ -77,7 +81,11 @@ public interface CaptureDetails {
     @Nullable private BottomUpTreeModel myModel;
 
     public BottomUp(@NotNull Range range, @Nullable CaptureNode node) {
-      myModel = node == null ? null : new BottomUpTreeModel(range, new BottomUpNode(node));
+      this(range, node == null ? null : new BottomUpNode(node));
+    }
+
+    BottomUp(@NotNull Range range, @Nullable BottomUpNode node) {
+      myModel = node == null ? null : new BottomUpTreeModel(range, node);
     }
 
     @Nullable
@@ -133,16 +141,23 @@ public interface CaptureDetails {
     @NotNull private final AspectModel<Aspect> myAspectModel;
 
     public FlameChart(@NotNull Range selectionRange, @Nullable CaptureNode captureNode) {
+      this(selectionRange, captureNode == null ? null : new TopDownNode(captureNode));
+    }
+
+    /**
+     * @param topDownNode the top-down tree of the capture node, which may be shared with {@link TopDown}.
+     */
+    FlameChart(@NotNull Range selectionRange, @Nullable TopDownNode topDownNode) {
       mySelectionRange = selectionRange;
       myFlameRange = new Range();
       myAspectModel = new AspectModel<>();
 
-      if (captureNode == null) {
+      if (topDownNode == null) {
         myFlameNode = null;
         myTopDownNode = null;
         return;
       }
-      myTopDownNode = new TopDownNode(captureNode);
+      myTopDownNode = topDownNode;
 
       selectionRange.addDependency(myAspectModel).onChange(Range.Aspect.RANGE, this::selectionRangeChanged);
       selectionRangeChanged();
@@ -19,12 +19,14 @@ import com.android.tools.adtui.model.AspectModel;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.filter.Filter;
 import com.android.tools.perflib.vmtrace.ClockType;
+import com.android.tools.profilers.IdeProfilerServices;
 import com.android.tools.profilers.analytics.FeatureTracker;
 import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuProfilerAspect;
 import com.android.tools.profilers.cpu.CpuProfilerStage;
 import com.google.common.collect.ImmutableMap;
+import com.intellij.openapi.diagnostic.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -32,6 +34,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -76,6 +80,26 @@ public class CaptureModel {
   @Nullable
   private CaptureDetails myDetails;
 
+  /**
+   * Top-down and bottom-up trees of the selected thread built for the current filter. They're shared by the details that show them,
+   * so switching between details doesn't rebuild them.
+   */
+  @Nullable
+  private CaptureNodeAggregates myAggregates;
+
+  /**
+   * Completes when the trees needed by the requested details are built off the UI thread. Cancelled when other details are requested
+   * in the meantime, e.g when the selected thread or the filter changes.
+   */
+  @Nullable
+  private CompletableFuture<Void> myPendingDetails;
+
+  /**
+   * Index of the names of the selected thread's nodes, which the filter is matched against. Built on first use for each thread.
+   */
+  @Nullable
+  private CaptureNodeNameIndex myNameIndex;
+
   private int myTotalNodeCount;
 
   private int myFilterNodeCount;
@@ -173,7 +197,7 @@ public class CaptureModel {
   }
 
   public void setDetails(@Nullable CaptureDetails.Type type) {
-    if (type != null && myDetails != null && type == myDetails.getType()) {
+    if (type != null && myDetails != null && type == myDetails.getType() && myPendingDetails == null) {
       return;
     }
 
@@ -199,24 +223,112 @@ public class CaptureModel {
   }
 
   private void buildDetails(@Nullable CaptureDetails.Type type) {
+    cancelPendingDetails();
     updateCaptureConvertedRange();
-    myTotalNodeCount = 0;
-    myFilterNodeCount = 0;
-    if (type != null) {
-      CaptureNode node = getNode();
-      if (node != null) {
-        applyFilter(node, false);
+    CaptureNode node = getNode();
+    if (type == null || node == null) {
+      if (type == null) {
+        myFilter = Filter.EMPTY_FILTER;
       }
-      myDetails = type.build(myCaptureConvertedRange, node);
+      myAggregates = null;
+      myTotalNodeCount = 0;
+      myFilterNodeCount = 0;
+      updateDetails(type == null ? null : type.build(myCaptureConvertedRange, null));
+      return;
     }
-    else {
-      myFilter = Filter.EMPTY_FILTER;
-      myDetails = null;
+
+    if (myAggregates != null && myAggregates.isFor(node, myFilter) && myAggregates.isBuilt(type)) {
+      updateDetails(createDetails(type, myAggregates));
+      return;
     }
+    // The current details are kept until the new ones are ready.
+    buildDetailsAsync(type, node);
+  }
 
+  private void updateDetails(@Nullable CaptureDetails details) {
+    myDetails = details;
     myStage.getAspect().changed(CpuProfilerAspect.CAPTURE_DETAILS);
   }
 
+  /**
+   * Applies the current filter to the {@param node} unless it's already applied, and builds the trees needed by the details of the
+   * given type. The filter is matched and the trees are built in the pool executor, while the filter types of the nodes and the new
+   * details are set in the main executor, unless the details were cancelled in the meantime.
+   */
+  private void buildDetailsAsync(@NotNull CaptureDetails.Type type, @NotNull CaptureNode node) {
+    IdeProfilerServices services = myStage.getStudioProfilers().getIdeServices();
+    CompletableFuture<Void> pending = new CompletableFuture<>();
+    myPendingDetails = pending;
+
+    CompletableFuture<CaptureNodeAggregates> filtered;
+    if (myAggregates != null && myAggregates.isFor(node, myFilter)) {
+      filtered = CompletableFuture.completedFuture(myAggregates);
+    }
+    else {
+      Filter filter = myFilter;
+      CaptureNodeNameIndex index = myNameIndex != null && myNameIndex.getRoot() == node ? myNameIndex : null;
+      filtered = CompletableFuture
+        .supplyAsync(() -> (index != null ? index : CaptureNodeNameIndex.build(node, pending::isCancelled))
+          .match(filter, pending::isCancelled), services.getPoolExecutor())
+        .thenApplyAsync(match -> {
+          if (pending.isCancelled()) {
+            throw new CancellationException();
+          }
+          // Swaps all the filter types at once, so the views never see a partially filtered tree.
+          match.apply();
+          myNameIndex = match.getIndex();
+          myTotalNodeCount = myNameIndex.getNodeCount();
+          myFilterNodeCount = match.getMatchCount();
+          myAggregates = new CaptureNodeAggregates(node, filter);
+          return myAggregates;
+        }, services.getMainExecutor());
+    }
+
+    filtered
+      .thenApplyAsync(aggregates -> {
+        aggregates.build(type, pending::isCancelled);
+        return aggregates;
+      }, services.getPoolExecutor())
+      .whenCompleteAsync((aggregates, exception) -> {
+        if (pending.isCancelled()) {
+          return;
+        }
+        myPendingDetails = null;
+        if (exception != null) {
+          getLogger().warn("Unable to build the capture details.", exception);
+          pending.completeExceptionally(exception);
+          return;
+        }
+        updateDetails(createDetails(type, aggregates));
+        pending.complete(null);
+      }, services.getMainExecutor());
+  }
+
+  private void cancelPendingDetails() {
+    if (myPendingDetails != null) {
+      myPendingDetails.cancel(false);
+      myPendingDetails = null;
+    }
+  }
+
+  @NotNull
+  private CaptureDetails createDetails(@NotNull CaptureDetails.Type type, @NotNull CaptureNodeAggregates aggregates) {
+    switch (type) {
+      case TOP_DOWN:
+        return new CaptureDetails.TopDown(myCaptureConvertedRange, aggregates.getTopDown());
+      case BOTTOM_UP:
+        return new CaptureDetails.BottomUp(myCaptureConvertedRange, aggregates.getBottomUp());
+      case FLAME_CHART:
+        return new CaptureDetails.FlameChart(myCaptureConvertedRange, aggregates.getTopDown());
+      default:
+        return type.build(myCaptureConvertedRange, aggregates.getNode());
+    }
+  }
+
+  private static Logger getLogger() {
+    return Logger.getInstance(CaptureModel.class);
+  }
+
   @Nullable
   private CaptureNode getNode() {
     return myCapture != null ? myCapture.getCaptureNode(myThread) : null;
@@ -230,38 +342,6 @@ public class CaptureModel {
     return myFilterNodeCount;
   }
 
-  /**
-   * Applies the current filter {@link #myFilter} to the {@param node}.
-   *
-   * @param node    - a node to apply the current filter
-   * @param matches - whether there is a match to the filter in one of its ancestors.
-   */
-  private void applyFilter(@NotNull CaptureNode node, boolean matches) {
-    boolean nodeExactMatch = node.matchesToFilter(myFilter);
-    matches = matches || nodeExactMatch;
-    boolean allChildrenUnmatch = true;
-    myTotalNodeCount++;
-    if (nodeExactMatch) {
-      myFilterNodeCount++;
-    }
-    for (CaptureNode child : node.getChildren()) {
-      applyFilter(child, matches);
-      if (!child.isUnmatched()) {
-        allChildrenUnmatch = false;
-      }
-    }
-
-    if (!matches && allChildrenUnmatch) {
-      node.setFilterType(CaptureNode.FilterType.UNMATCH);
-    }
-    else if (nodeExactMatch && !myFilter.isEmpty()) {
-      node.setFilterType(CaptureNode.FilterType.EXACT_MATCH);
-    }
-    else {
-      node.setFilterType(CaptureNode.FilterType.MATCH);
-    }
-  }
-
   /**
    * When using ClockType.THREAD, we need to scale the selection to actually select a relevant range in the capture.
    * That happens because selection is based on wall-clock time, which is usually way greater than thread time.
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.capturedetails;
+
+import com.android.tools.adtui.model.filter.Filter;
+import com.android.tools.profilers.cpu.CaptureNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The top-down and bottom-up trees of a thread's {@link CaptureNode}, built for one {@link Filter}. They're shared by
+ * {@link CaptureDetails.TopDown}, {@link CaptureDetails.BottomUp} and {@link CaptureDetails.FlameChart}, so switching between them
+ * doesn't rebuild the trees, and the interval indexes of their nodes are built ahead of time so that range changes don't need to
+ * iterate over all the calls of the thread.
+ */
+class CaptureNodeAggregates {
+  @NotNull private final CaptureNode myNode;
+  @NotNull private final Filter myFilter;
+
+  @Nullable private volatile TopDownNode myTopDown;
+  @Nullable private volatile BottomUpNode myBottomUp;
+
+  CaptureNodeAggregates(@NotNull CaptureNode node, @NotNull Filter filter) {
+    myNode = node;
+    myFilter = filter;
+  }
+
+  @NotNull
+  CaptureNode getNode() {
+    return myNode;
+  }
+
+  /**
+   * @return true if the trees were built from the given node with the given filter applied.
+   */
+  boolean isFor(@NotNull CaptureNode node, @NotNull Filter filter) {
+    return myNode == node && isSameFilter(myFilter, filter);
+  }
+
+  /**
+   * {@link Filter#equals(Object)} doesn't consider non-empty filters equal, so they're compared by their settings instead.
+   */
+  private static boolean isSameFilter(@NotNull Filter first, @NotNull Filter second) {
+    if (first.isEmpty() || second.isEmpty()) {
+      return first.isEmpty() == second.isEmpty();
+    }
+    return first.getFilterString().equals(second.getFilterString()) &&
+           first.isMatchCase() == second.isMatchCase() &&
+           first.isRegex() == second.isRegex();
+  }
+
+  /**
+   * @return true if the tree shown by details of the given type is already built.
+   */
+  boolean isBuilt(@NotNull CaptureDetails.Type type) {
+    switch (type) {
+      case TOP_DOWN:
+      case FLAME_CHART:
+        return myTopDown != null;
+      case BOTTOM_UP:
+        return myBottomUp != null;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Builds the tree shown by details of the given type, if it isn't built yet. It is meant to run off the UI thread.
+   *
+   * @param isCancelled checked while building, the build stops with a {@link CancellationException} once it returns true.
+   */
+  void build(@NotNull CaptureDetails.Type type, @NotNull BooleanSupplier isCancelled) {
+    switch (type) {
+      case TOP_DOWN:
+      case FLAME_CHART:
+        if (myTopDown == null) {
+          TopDownNode topDown = new TopDownNode(myNode);
+          prepare(topDown, isCancelled);
+          myTopDown = topDown;
+        }
+        break;
+      case BOTTOM_UP:
+        if (myBottomUp == null) {
+          // Children of the bottom-up tree are built lazily when expanded, so only the ones built so far are prepared.
+          BottomUpNode bottomUp = new BottomUpNode(myNode);
+          prepare(bottomUp, isCancelled);
+          myBottomUp = bottomUp;
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  @NotNull
+  TopDownNode getTopDown() {
+    if (myTopDown == null) {
+      build(CaptureDetails.Type.TOP_DOWN, () -> false);
+    }
+    assert myTopDown != null;
+    return myTopDown;
+  }
+
+  @NotNull
+  BottomUpNode getBottomUp() {
+    if (myBottomUp == null) {
+      build(CaptureDetails.Type.BOTTOM_UP, () -> false);
+    }
+    assert myBottomUp != null;
+    return myBottomUp;
+  }
+
+  private static void prepare(@NotNull CpuTreeNode<?> root, @NotNull BooleanSupplier isCancelled) {
+    Deque<CpuTreeNode<?>> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      if (isCancelled.getAsBoolean()) {
+        throw new CancellationException();
+      }
+      CpuTreeNode<?> node = stack.pop();
+      node.prepare();
+      for (CpuTreeNode<?> child : node.getChildren()) {
+        stack.push(child);
+      }
+    }
+  }
+}
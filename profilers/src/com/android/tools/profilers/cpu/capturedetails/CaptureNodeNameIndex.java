@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.capturedetails;
+
+import com.android.tools.adtui.model.filter.Filter;
+import com.android.tools.profilers.cpu.CaptureNode;
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Index of the full names of the nodes of a call tree. A {@link Filter} is matched against each distinct name once, instead of
+ * against every node, and the filter types of the nodes are then derived from the positions of the matching nodes.
+ *
+ * The index doesn't change the nodes, so it can be built and matched off the UI thread. Only {@link Match#apply()} changes them.
+ */
+final class CaptureNodeNameIndex {
+  /**
+   * The nodes in pre-order, so the descendants of the node at i are the nodes from i + 1 until {@link #mySubtreeEnds}[i].
+   */
+  @NotNull private final CaptureNode[] myNodes;
+  /**
+   * Position of the parent of each node, or -1 for the root.
+   */
+  @NotNull private final int[] myParents;
+  @NotNull private final int[] mySubtreeEnds;
+  /**
+   * Distinct full names of the nodes.
+   */
+  @NotNull private final String[] myNames;
+  /**
+   * Positions of the nodes with each name of {@link #myNames}.
+   */
+  @NotNull private final int[][] myPostings;
+
+  private CaptureNodeNameIndex(@NotNull CaptureNode[] nodes,
+                               @NotNull int[] parents,
+                               @NotNull int[] subtreeEnds,
+                               @NotNull String[] names,
+                               @NotNull int[][] postings) {
+    myNodes = nodes;
+    myParents = parents;
+    mySubtreeEnds = subtreeEnds;
+    myNames = names;
+    myPostings = postings;
+  }
+
+  @NotNull
+  static CaptureNodeNameIndex build(@NotNull CaptureNode root, @NotNull BooleanSupplier isCancelled) {
+    List<CaptureNode> nodes = new ArrayList<>();
+    TIntArrayList parents = new TIntArrayList();
+    Map<String, TIntArrayList> postings = new HashMap<>();
+
+    // Pre-order traversal, pushing the children in reverse order so that the first child is visited first.
+    Deque<CaptureNode> stack = new ArrayDeque<>();
+    TIntArrayList stackParents = new TIntArrayList();
+    stack.push(root);
+    stackParents.add(-1);
+    while (!stack.isEmpty()) {
+      if (isCancelled.getAsBoolean()) {
+        throw new CancellationException();
+      }
+      CaptureNode node = stack.pop();
+      int position = nodes.size();
+      nodes.add(node);
+      parents.add(stackParents.remove(stackParents.size() - 1));
+      postings.computeIfAbsent(node.getData().getFullName(), name -> new TIntArrayList()).add(position);
+
+      List<CaptureNode> children = node.getChildren();
+      for (int i = children.size() - 1; i >= 0; --i) {
+        stack.push(children.get(i));
+        stackParents.add(position);
+      }
+    }
+
+    int[] parentPositions = parents.toNativeArray();
+    int[] subtreeEnds = new int[parentPositions.length];
+    // Children come after their parent, so visiting the nodes backwards finishes a subtree before its parent needs it.
+    for (int i = subtreeEnds.length - 1; i >= 0; --i) {
+      subtreeEnds[i] = Math.max(subtreeEnds[i], i + 1);
+      if (parentPositions[i] >= 0) {
+        subtreeEnds[parentPositions[i]] = Math.max(subtreeEnds[parentPositions[i]], subtreeEnds[i]);
+      }
+    }
+
+    String[] names = new String[postings.size()];
+    int[][] namePostings = new int[postings.size()][];
+    int index = 0;
+    for (Map.Entry<String, TIntArrayList> entry : postings.entrySet()) {
+      names[index] = entry.getKey();
+      namePostings[index] = entry.getValue().toNativeArray();
+      ++index;
+    }
+    return new CaptureNodeNameIndex(nodes.toArray(new CaptureNode[0]), parentPositions, subtreeEnds, names, namePostings);
+  }
+
+  @NotNull
+  CaptureNode getRoot() {
+    return myNodes[0];
+  }
+
+  int getNodeCount() {
+    return myNodes.length;
+  }
+
+  /**
+   * Computes the filter type of every node for the given filter, without changing the nodes.
+   *
+   * @param isCancelled checked while matching, the match stops with a {@link CancellationException} once it returns true.
+   */
+  @NotNull
+  Match match(@NotNull Filter filter, @NotNull BooleanSupplier isCancelled) {
+    CaptureNode.FilterType[] types = new CaptureNode.FilterType[myNodes.length];
+    if (filter.isEmpty()) {
+      // Every node matches an empty filter.
+      Arrays.fill(types, CaptureNode.FilterType.MATCH);
+      return new Match(types, myNodes.length);
+    }
+
+    boolean[] exact = new boolean[myNodes.length];
+    // The difference between the number of matching ancestors-or-self of a node and of its previous node in pre-order.
+    int[] coverage = new int[myNodes.length + 1];
+    boolean[] matchingDescendant = new boolean[myNodes.length];
+    int matchCount = 0;
+    for (int i = 0; i < myNames.length; ++i) {
+      if (isCancelled.getAsBoolean()) {
+        throw new CancellationException();
+      }
+      if (!filter.matches(myNames[i])) {
+        continue;
+      }
+      for (int position : myPostings[i]) {
+        exact[position] = true;
+        ++matchCount;
+        ++coverage[position];
+        --coverage[mySubtreeEnds[position]];
+        // Stop at the first ancestor that's already marked, as all of its ancestors are marked too.
+        for (int parent = myParents[position]; parent >= 0 && !matchingDescendant[parent]; parent = myParents[parent]) {
+          matchingDescendant[parent] = true;
+        }
+      }
+    }
+
+    int covered = 0;
+    for (int i = 0; i < myNodes.length; ++i) {
+      covered += coverage[i];
+      if (exact[i]) {
+        types[i] = CaptureNode.FilterType.EXACT_MATCH;
+      }
+      else if (covered > 0 || matchingDescendant[i]) {
+        types[i] = CaptureNode.FilterType.MATCH;
+      }
+      else {
+        types[i] = CaptureNode.FilterType.UNMATCH;
+      }
+    }
+    return new Match(types, matchCount);
+  }
+
+  /**
+   * The filter types of the nodes of the index for a filter.
+   */
+  final class Match {
+    @NotNull private final CaptureNode.FilterType[] myTypes;
+    private final int myMatchCount;
+
+    private Match(@NotNull CaptureNode.FilterType[] types, int matchCount) {
+      myTypes = types;
+      myMatchCount = matchCount;
+    }
+
+    @NotNull
+    CaptureNodeNameIndex getIndex() {
+      return CaptureNodeNameIndex.this;
+    }
+
+    /**
+     * @return the number of nodes whose name matches the filter.
+     */
+    int getMatchCount() {
+      return myMatchCount;
+    }
+
+    /**
+     * Sets the filter types of the nodes. It's meant to be called on the UI thread, which reads them.
+     */
+    void apply() {
+      for (int i = 0; i < myNodes.length; ++i) {
+        myNodes[i].setFilterType(myTypes[i]);
+      }
+    }
+  }
+}
@@ -20,6 +20,7 @@ import com.android.tools.perflib.vmtrace.ClockType;
 import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +39,12 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
   protected double myThreadTotal = 0;
   protected double myThreadChildrenTotal = 0;
 
+  /**
+   * Intervals of {@link #myNodes} and of their children, which answer {@link #update(Range)} without iterating over all the nodes.
+   * They are built on first use after the nodes change.
+   */
+  @Nullable private Intervals myIntervals;
+
   public CpuTreeNode(String id) {
     myId = id;
   }
@@ -48,6 +55,7 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
 
   protected void addNode(@NotNull CaptureNode node) {
     myNodes.add(node);
+    myIntervals = null;
   }
 
   protected void addNodes(@NotNull List<CaptureNode> nodes) {
@@ -84,34 +92,37 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
   }
 
   public void update(@NotNull Range range) {
-    myGlobalTotal = 0.0;
-    myGlobalChildrenTotal = 0;
-    myThreadTotal = 0.0;
-    myThreadChildrenTotal = 0;
+    Intervals intervals = getIntervals();
+    myGlobalTotal = intervals.myGlobal.getIntersection(range);
+    myGlobalChildrenTotal = intervals.myGlobalChildren.getIntersection(range);
+    myThreadTotal = intervals.myThread.getIntersection(range);
+    myThreadChildrenTotal = intervals.myThreadChildren.getIntersection(range);
+  }
 
-    for (CaptureNode node : myNodes) {
-      myGlobalTotal += getIntersection(range, node, ClockType.GLOBAL);
-      myThreadTotal += getIntersection(range, node, ClockType.THREAD);
-      for (CaptureNode child : node.getChildren()) {
-        myGlobalChildrenTotal += getIntersection(range, child, ClockType.GLOBAL);
-        myThreadChildrenTotal += getIntersection(range, child, ClockType.THREAD);
-      }
-    }
+  /**
+   * Builds the data needed to answer {@link #update(Range)} and {@link #inRange(Range)} quickly, if it isn't built yet. It's otherwise
+   * built on first use, so this is only useful to do the work ahead of time, e.g off the UI thread.
+   */
+  public void prepare() {
+    getIntervals();
   }
 
-  protected static double getIntersection(@NotNull Range range, @NotNull CaptureNode node, @NotNull ClockType type) {
-    Range intersection;
-    if (type == ClockType.GLOBAL) {
-      intersection = range.getIntersection(new Range(node.getStartGlobal(), node.getEndGlobal()));
-    }
-    else {
-      intersection = range.getIntersection(new Range(node.getStartThread(), node.getEndThread()));
+  @NotNull
+  private Intervals getIntervals() {
+    if (myIntervals == null) {
+      myIntervals = new Intervals(myNodes);
     }
-    return intersection.isEmpty() ? 0.0 : intersection.getLength();
+    return myIntervals;
   }
 
   public boolean inRange(Range range) {
-    return myNodes.stream().anyMatch(node -> node.getStart() < range.getMax() && range.getMin() < node.getEnd());
+    if (myNodes.isEmpty()) {
+      return false;
+    }
+    Intervals intervals = getIntervals();
+    // All the nodes of a tree use the same clock.
+    IntervalSums current = myNodes.get(0).getClockType() == ClockType.THREAD ? intervals.myThread : intervals.myGlobal;
+    return current.overlaps(range.getMin(), range.getMax());
   }
 
   public void reset() {
@@ -129,4 +140,30 @@ public abstract class CpuTreeNode<T extends CpuTreeNode> {
   public boolean isUnmatched() {
     return getFilterType() == CaptureNode.FilterType.UNMATCH;
   }
+
+  private static class Intervals {
+    @NotNull private final IntervalSums myGlobal;
+    @NotNull private final IntervalSums myThread;
+    @NotNull private final IntervalSums myGlobalChildren;
+    @NotNull private final IntervalSums myThreadChildren;
+
+    private Intervals(@NotNull List<CaptureNode> nodes) {
+      IntervalSums.Builder global = new IntervalSums.Builder();
+      IntervalSums.Builder thread = new IntervalSums.Builder();
+      IntervalSums.Builder globalChildren = new IntervalSums.Builder();
+      IntervalSums.Builder threadChildren = new IntervalSums.Builder();
+      for (CaptureNode node : nodes) {
+        global.add(node.getStartGlobal(), node.getEndGlobal());
+        thread.add(node.getStartThread(), node.getEndThread());
+        for (CaptureNode child : node.getChildren()) {
+          globalChildren.add(child.getStartGlobal(), child.getEndGlobal());
+          threadChildren.add(child.getStartThread(), child.getEndThread());
+        }
+      }
+      myGlobal = global.build();
+      myThread = thread.build();
+      myGlobalChildren = globalChildren.build();
+      myThreadChildren = threadChildren.build();
+    }
+  }
 }
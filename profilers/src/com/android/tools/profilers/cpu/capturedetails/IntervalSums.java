@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.capturedetails;
+
+import com.android.tools.adtui.model.Range;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Answers how much of a range is covered by a fixed set of intervals. When the intervals don't overlap, which is the case for the
+ * calls at one depth of a thread or for the self time of calls, the answer takes a binary search and a subtraction of prefix sums
+ * instead of a pass over all the intervals. Otherwise it falls back to summing the intersection with every interval.
+ *
+ * Intervals can also be subtracted, in which case the result is the covered length of the added intervals minus the covered length
+ * of the subtracted ones, and the fallback is always used.
+ */
+final class IntervalSums {
+  static final IntervalSums EMPTY = new Builder().build();
+
+  @NotNull private final long[] myStarts;
+  @NotNull private final long[] myEnds;
+  /**
+   * Either the sign of each interval, or, for disjoint positive intervals, the sum of the lengths of the intervals before each index.
+   */
+  @NotNull private final long[] myWeights;
+  private final boolean myDisjoint;
+
+  private IntervalSums(@NotNull long[] starts, @NotNull long[] ends, @NotNull long[] weights, boolean disjoint) {
+    myStarts = starts;
+    myEnds = ends;
+    myWeights = weights;
+    myDisjoint = disjoint;
+  }
+
+  /**
+   * @return the sum of the lengths of the intersections of the intervals with the given range.
+   */
+  double getIntersection(@NotNull Range range) {
+    double min = range.getMin();
+    double max = range.getMax();
+    if (range.isEmpty()) {
+      return 0;
+    }
+    if (!myDisjoint) {
+      double sum = 0;
+      for (int i = 0; i < myStarts.length; ++i) {
+        sum += myWeights[i] * intersection(i, min, max);
+      }
+      return sum;
+    }
+
+    int from = firstEndAbove(min);
+    int to = firstStartAtLeast(max);
+    if (from >= to) {
+      return 0;
+    }
+    double sum = myWeights[to] - myWeights[from];
+    // Only the first and last intervals can stick out of the range.
+    sum -= Math.max(0, min - myStarts[from]);
+    sum -= Math.max(0, myEnds[to - 1] - max);
+    return sum;
+  }
+
+  /**
+   * @return true if one of the intervals strictly overlaps the given range.
+   */
+  boolean overlaps(double min, double max) {
+    if (!myDisjoint) {
+      for (int i = 0; i < myStarts.length; ++i) {
+        if (myStarts[i] < max && min < myEnds[i]) {
+          return true;
+        }
+      }
+      return false;
+    }
+    int index = firstEndAbove(min);
+    return index < myStarts.length && myStarts[index] < max;
+  }
+
+  private double intersection(int index, double min, double max) {
+    return Math.max(0, Math.min(myEnds[index], max) - Math.max(myStarts[index], min));
+  }
+
+  private int firstEndAbove(double x) {
+    int low = 0;
+    int high = myEnds.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (myEnds[mid] <= x) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int firstStartAtLeast(double x) {
+    int low = 0;
+    int high = myStarts.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (myStarts[mid] < x) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  static final class Builder {
+    private long[] myStarts = new long[8];
+    private long[] myEnds = new long[8];
+    private long[] mySigns = new long[8];
+    private int mySize;
+
+    @NotNull
+    Builder add(long start, long end) {
+      return append(start, end, 1);
+    }
+
+    @NotNull
+    Builder subtract(long start, long end) {
+      return append(start, end, -1);
+    }
+
+    @NotNull
+    private Builder append(long start, long end, long sign) {
+      if (mySize == myStarts.length) {
+        myStarts = Arrays.copyOf(myStarts, mySize * 2);
+        myEnds = Arrays.copyOf(myEnds, mySize * 2);
+        mySigns = Arrays.copyOf(mySigns, mySize * 2);
+      }
+      myStarts[mySize] = start;
+      myEnds[mySize] = end;
+      mySigns[mySize] = sign;
+      ++mySize;
+      return this;
+    }
+
+    @NotNull
+    IntervalSums build() {
+      long[] starts = Arrays.copyOf(myStarts, mySize);
+      long[] ends = Arrays.copyOf(myEnds, mySize);
+      long[] signs = Arrays.copyOf(mySigns, mySize);
+
+      boolean sorted = true;
+      boolean positive = true;
+      for (int i = 0; i < mySize; ++i) {
+        sorted &= i == 0 || starts[i - 1] <= starts[i];
+        positive &= signs[i] > 0 && starts[i] <= ends[i];
+      }
+      if (!positive) {
+        return new IntervalSums(starts, ends, signs, false);
+      }
+      if (!sorted) {
+        sortByStart(starts, ends);
+      }
+      long[] prefixSums = new long[mySize + 1];
+      for (int i = 0; i < mySize; ++i) {
+        if (i > 0 && ends[i - 1] > starts[i]) {
+          return new IntervalSums(starts, ends, signs, false);
+        }
+        prefixSums[i + 1] = prefixSums[i] + ends[i] - starts[i];
+      }
+      return new IntervalSums(starts, ends, prefixSums, true);
+    }
+
+    private static void sortByStart(@NotNull long[] starts, @NotNull long[] ends) {
+      Integer[] order = new Integer[starts.length];
+      for (int i = 0; i < order.length; ++i) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Long.compare(starts[a], starts[b]));
+      long[] sortedStarts = new long[starts.length];
+      long[] sortedEnds = new long[ends.length];
+      for (int i = 0; i < order.length; ++i) {
+        sortedStarts[i] = starts[order[i]];
+        sortedEnds[i] = ends[order[i]];
+      }
+      System.arraycopy(sortedStarts, 0, starts, 0, starts.length);
+      System.arraycopy(sortedEnds, 0, ends, 0, ends.length);
+    }
+  }
+}
@@ -38,6 +38,8 @@ import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -88,6 +90,18 @@ public class SimpleperfTraceParser implements TraceParser {
    */
   private final Map<CpuThreadInfo, CaptureNode> myCaptureTrees;
 
+  /**
+   * Intern table of the models of the symbols found in call chains, keyed by file id (upper 32 bits) and symbol id (lower 32 bits), so
+   * each symbol is parsed by {@link NodeNameParser} once and its model is shared by all the nodes representing it. Shared by the threads
+   * building the call trees.
+   */
+  private final Map<Long, CaptureNodeModel> mySymbolModels = new ConcurrentHashMap<>();
+
+  /**
+   * Intern table of the models of call chain entries without a valid symbol, keyed by their name (file name and address).
+   */
+  private final Map<String, CaptureNodeModel> myNoSymbolModels = new ConcurrentHashMap<>();
+
   /**
    * Number of samples read from trace file.
    */
@@ -299,10 +313,17 @@ public class SimpleperfTraceParser implements TraceParser {
     // Split the samples per thread.
     Map<Integer, List<SimpleperfReport.Sample>> threadSamples = splitSamplesPerThread();
 
-    // Process the samples for each thread
-    for (Map.Entry<Integer, List<SimpleperfReport.Sample>> threadSamplesEntry : threadSamples.entrySet()) {
-      parseThreadSamples(threadSamplesEntry.getKey(), threadSamplesEntry.getValue());
+    // Process the samples of each thread in the fork-join pool. The tree of a thread only depends on the thread's samples, so the trees
+    // are built concurrently. Threads with the most samples are started first, as they take the longest.
+    List<Map.Entry<Integer, List<SimpleperfReport.Sample>>> threadSamplesEntries = new ArrayList<>(threadSamples.entrySet());
+    threadSamplesEntries.sort((e1, e2) -> Integer.compare(e2.getValue().size(), e1.getValue().size()));
+    Map<CpuThreadInfo, CaptureNode> captureTrees = new ConcurrentHashMap<>();
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(threadSamplesEntries.size());
+    for (Map.Entry<Integer, List<SimpleperfReport.Sample>> threadSamplesEntry : threadSamplesEntries) {
+      tasks.add(ForkJoinTask.adapt(() -> parseThreadSamples(threadSamplesEntry.getKey(), threadSamplesEntry.getValue(), captureTrees)));
     }
+    ForkJoinTask.invokeAll(tasks);
+    myCaptureTrees.putAll(captureTrees);
   }
 
   /**
@@ -333,9 +354,10 @@ public class SimpleperfTraceParser implements TraceParser {
   }
 
   /**
-   * Parses the list of samples of a thread into a {@link CaptureNode} tree.
+   * Parses the list of samples of a thread into a {@link CaptureNode} tree, which is added to the given map. Called concurrently for
+   * different threads.
    */
-  private void parseThreadSamples(int threadId, List<SimpleperfReport.Sample> threadSamples) {
+  private void parseThreadSamples(int threadId, List<SimpleperfReport.Sample> threadSamples, Map<CpuThreadInfo, CaptureNode> captureTrees) {
     if (threadSamples.isEmpty()) {
       getLog().warn(String.format("Warning: No samples read for thread %s (%d)", myThreads.get(threadId), threadId));
       return;
@@ -350,7 +372,7 @@ public class SimpleperfTraceParser implements TraceParser {
     SimpleperfReport.Thread thread = myThreads.get(threadId);
     CaptureNode root = createCaptureNode(new SingleNameModel(thread.getThreadName()), firstTimestamp);
     root.setDepth(0);
-    myCaptureTrees.put(new CpuThreadInfo(threadId, thread.getThreadName(), threadId == thread.getProcessId()), root);
+    captureTrees.put(new CpuThreadInfo(threadId, thread.getThreadName(), threadId == thread.getProcessId()), root);
 
     // Parse the first call chain so we have a value for lastCallchain
     List<SimpleperfReport.Sample.CallChainEntry> previousCallChain = Lists.reverse(threadSamples.get(0).getCallchainList());
@@ -463,11 +485,14 @@ public class SimpleperfTraceParser implements TraceParser {
       // if symbol_id is -1, we report the method as fileName+vAddress (e.g. program.so+0x3039)
       String hexAddress = "0x" + Long.toHexString(callChainEntry.getVaddrInFile());
       String methodName = fileNameFromPath(symbolFile.getPath()) + "+" + hexAddress;
-      return new NoSymbolModel(methodName);
+      return myNoSymbolModels.computeIfAbsent(methodName, NoSymbolModel::new);
     }
     // Otherwise, read the method from the symbol table and parse it into a CaptureNodeModel. User's code symbols come from
     // files located inside the app's directory, therefore we check if the symbol path has the same prefix of such directory.
-    boolean isUserWritten = symbolFile.getPath().startsWith(myAppDataFolderPrefix);
-    return NodeNameParser.parseNodeName(symbolFile.getSymbol(symbolId), isUserWritten);
+    long symbolKey = ((long)callChainEntry.getFileId() << 32) | (symbolId & 0xFFFFFFFFL);
+    return mySymbolModels.computeIfAbsent(symbolKey, key -> {
+      boolean isUserWritten = symbolFile.getPath().startsWith(myAppDataFolderPrefix);
+      return NodeNameParser.parseNodeName(symbolFile.getSymbol(symbolId), isUserWritten);
+    });
   }
 }
@@ -119,7 +119,7 @@ public class EnergyProfilerStage extends Stage implements CodeNavigator.Listener
 
     myInstructionsEaseOutModel = new EaseOutModel(profilers.getUpdater(), PROFILING_INSTRUCTIONS_EASE_OUT_NS);
 
-    myUpdatable = elapsedNs -> getStudioProfilers().getTimeline().getTooltipRange().changed(Range.Aspect.RANGE);
+    myUpdatable = new TooltipRangeUpdatable();
   }
 
   @Override
@@ -374,4 +374,19 @@ public class EnergyProfilerStage extends Stage implements CodeNavigator.Listener
       return myAlarmAndJobLegend;
     }
   }
+
+  /**
+   * Refreshes the tooltip as new data comes in. It never needs ticks of its own, the timeline keeps the updater ticking while it streams.
+   */
+  private class TooltipRangeUpdatable implements Updatable {
+    @Override
+    public boolean isAnimating() {
+      return false;
+    }
+
+    @Override
+    public void update(long elapsedNs) {
+      getStudioProfilers().getTimeline().getTooltipRange().changed(Range.Aspect.RANGE);
+    }
+  }
 }
@@ -15,7 +15,8 @@
  */
 package com.android.tools.profilers.memory;
 
-import com.android.tools.adtui.model.DataSeries;
+import com.android.tools.adtui.model.LongSeriesView;
+import com.android.tools.adtui.model.LongValueDataSeries;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.SeriesData;
 import com.android.tools.profiler.proto.Common;
@@ -25,19 +26,18 @@ import com.android.tools.profiler.proto.MemoryProfiler.MemoryRequest;
 import com.android.tools.profiler.proto.MemoryServiceGrpc;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
-public final class MemoryDataSeries implements DataSeries<Long> {
+public final class MemoryDataSeries implements LongValueDataSeries {
   @NotNull private MemoryServiceGrpc.MemoryServiceBlockingStub myClient;
   @NotNull private final Common.Session mySession;
-  @NotNull private Function<MemorySample, Long> mySampleTransformer;
+  @NotNull private ToLongFunction<MemorySample> mySampleTransformer;
 
   public MemoryDataSeries(@NotNull MemoryServiceGrpc.MemoryServiceBlockingStub client,
                           @NotNull Common.Session session,
-                          @NotNull Function<MemorySample, Long> transformer) {
+                          @NotNull ToLongFunction<MemorySample> transformer) {
     myClient = client;
     mySession = session;
     mySampleTransformer = transformer;
@@ -45,19 +45,24 @@ public final class MemoryDataSeries implements DataSeries<Long> {
 
   @Override
   public List<SeriesData<Long>> getDataForXRange(@NotNull Range timeCurrentRangeUs) {
+    LongSeriesView view = new LongSeriesView();
+    getDataForXRange(timeCurrentRangeUs.getMin(), timeCurrentRangeUs.getMax(), view);
+    return view.toSeriesDataList();
+  }
+
+  @Override
+  public void getDataForXRange(double minUs, double maxUs, @NotNull LongSeriesView view) {
+    view.clear();
     // TODO: Change the Memory API to allow specifying padding in the request as number of samples.
     long bufferNs = TimeUnit.SECONDS.toNanos(1);
     MemoryRequest.Builder dataRequestBuilder = MemoryRequest.newBuilder()
       .setSession(mySession)
-      .setStartTime(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMin()) - bufferNs)
-      .setEndTime(TimeUnit.MICROSECONDS.toNanos((long)timeCurrentRangeUs.getMax()) + bufferNs);
+      .setStartTime(TimeUnit.MICROSECONDS.toNanos((long)minUs) - bufferNs)
+      .setEndTime(TimeUnit.MICROSECONDS.toNanos((long)maxUs) + bufferNs);
     MemoryData response = myClient.getData(dataRequestBuilder.build());
 
-    List<SeriesData<Long>> seriesData = new ArrayList<>();
     for (MemoryData.MemorySample sample : response.getMemSamplesList()) {
-      long dataTimestamp = TimeUnit.NANOSECONDS.toMicros(sample.getTimestamp());
-      seriesData.add(new SeriesData<>(dataTimestamp, mySampleTransformer.apply(sample)));
+      view.add(TimeUnit.NANOSECONDS.toMicros(sample.getTimestamp()), mySampleTransformer.applyAsLong(sample));
     }
-    return seriesData;
   }
 }
@@ -443,6 +443,7 @@ public class MemoryProfilerStage extends Stage implements CodeNavigator.Listener
     }
 
     if (myTrackingAllocations) {
+      getStudioProfilers().getUpdater().wake();
       getStudioProfilers().getTimeline().setStreaming(true);
       getStudioProfilers().getIdeServices().getTemporaryProfilerPreferences().setBoolean(HAS_USED_MEMORY_CAPTURE, true);
       myInstructionsEaseOutModel.setCurrentPercentage(1);
@@ -881,6 +882,11 @@ public class MemoryProfilerStage extends Stage implements CodeNavigator.Listener
   }
 
   private class CaptureElapsedTimeUpdatable implements Updatable {
+    @Override
+    public boolean isAnimating() {
+      return myTrackingAllocations;
+    }
+
     @Override
     public void update(long elapsedNs) {
       if (myTrackingAllocations) {
@@ -890,6 +896,11 @@ public class MemoryProfilerStage extends Stage implements CodeNavigator.Listener
   }
 
   private class AllocationSamplingRateUpdatable implements Updatable {
+    @Override
+    public boolean isAnimating() {
+      return false;
+    }
+
     @Override
     public void update(long elapsedNs) {
       if (!useLiveAllocationTracking())
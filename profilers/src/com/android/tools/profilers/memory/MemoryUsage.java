@@ -23,7 +23,7 @@ import com.android.tools.profiler.proto.MemoryServiceGrpc;
 import com.android.tools.profilers.StudioProfilers;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 public class MemoryUsage extends LineChartModel {
 
@@ -40,7 +40,7 @@ public class MemoryUsage extends LineChartModel {
   protected RangedContinuousSeries createRangedSeries(StudioProfilers profilers,
                                                       String name,
                                                       Range range,
-                                                      Function<MemorySample, Long> getter) {
+                                                      ToLongFunction<MemorySample> getter) {
     MemoryServiceGrpc.MemoryServiceBlockingStub client = profilers.getClient().getMemoryClient();
     MemoryDataSeries series = new MemoryDataSeries(client, profilers.getSession(), getter);
     return new RangedContinuousSeries(name, profilers.getTimeline().getViewRange(), range, series);
@@ -39,6 +39,8 @@ public abstract class ClassifierSet implements MemoryObject {
   // Note that instances here can also appear in the set of snapshot instances (e.g. when a instance is allocated before the selection
   // and deallocation within the selection).
   @NotNull protected final Set<InstanceObject> myDeltaInstances = new LinkedHashSet<>(0);
+  // Groups of instances that are counted as delta allocations, but whose InstanceObjects are only created when they are requested.
+  @NotNull protected final List<LazyInstanceGroup> myLazyInstanceGroups = new ArrayList<>(0);
 
   // Lazily create the Classifier, as it is configurable and isn't necessary until nodes under this node needs to be classified.
   @Nullable protected Classifier myClassifier = null;
@@ -106,8 +108,27 @@ public abstract class ClassifierSet implements MemoryObject {
     return myDeltaDeallocations;
   }
 
+  /**
+   * Note - the retained sizes of {@link LazyInstanceGroup}s are only computed when this is first called, which can be expensive.
+   */
   public long getTotalRetainedSize() {
-    return myTotalRetainedSize;
+    return myTotalRetainedSize + getLazyRetainedSize();
+  }
+
+  private long getLazyRetainedSize() {
+    long retainedSize = 0L;
+    for (LazyInstanceGroup group : myLazyInstanceGroups) {
+      retainedSize += group.getRetainedSize();
+    }
+    if (myClassifier != null) {
+      // Like the other totals, only account for the children that aren't filtered out.
+      for (ClassifierSet classifierSet : myClassifier.getAllClassifierSets()) {
+        if (!classifierSet.getIsFiltered()) {
+          retainedSize += classifierSet.getLazyRetainedSize();
+        }
+      }
+    }
+    return retainedSize;
   }
 
   public long getTotalShallowSize() {
@@ -168,6 +189,27 @@ public abstract class ClassifierSet implements MemoryObject {
     myNeedsRefiltering = true;
   }
 
+  /**
+   * Add a group of instances as delta allocations, without creating their {@link InstanceObject}s. The group is classified as a whole
+   * based on its representative instance.
+   */
+  public void addLazyInstanceGroup(@NotNull LazyInstanceGroup group) {
+    if (myClassifier != null && !myClassifier.isTerminalClassifier()) {
+      myClassifier.getClassifierSet(group.getRepresentative(), true).addLazyInstanceGroup(group);
+    }
+    else {
+      myLazyInstanceGroups.add(group);
+    }
+
+    myDeltaAllocations += group.getCount();
+    myTotalNativeSize += group.getNativeSize();
+    myTotalShallowSize += group.getShallowSize();
+    if (group.getRepresentative().getCallStackDepth() > 0) {
+      myInstancesWithStackInfoCount += group.getCount();
+    }
+    myNeedsRefiltering = true;
+  }
+
   // Add delta alloc information into the ClassifierSet
   // Return true if the set did not contain the instance prior to invocation
   public boolean addDeltaInstanceObject(@NotNull InstanceObject instanceObject) {
@@ -273,6 +315,7 @@ public abstract class ClassifierSet implements MemoryObject {
   public void clearClassifierSets() {
     mySnapshotInstances.clear();
     myDeltaInstances.clear();
+    myLazyInstanceGroups.clear();
     myClassifier = createSubClassifier();
     mySnapshotObjectCount = 0;
     myDeltaAllocations = 0;
@@ -286,22 +329,28 @@ public abstract class ClassifierSet implements MemoryObject {
   }
 
   public int getInstancesCount() {
+    // Count the lazy instance groups without creating their instances.
+    int count = myLazyInstanceGroups.stream().mapToInt(LazyInstanceGroup::getCount).sum();
     if (myClassifier == null) {
       Set<InstanceObject> total = new HashSet<>(mySnapshotInstances);
       total.addAll(myDeltaInstances);
-      return total.size();
+      return count + total.size();
     }
     else {
-      return (int)getInstancesStream().count();
+      count += myClassifier.getAllClassifierSets().stream().mapToInt(ClassifierSet::getInstancesCount).sum();
+      return count + (int)Stream.concat(mySnapshotInstances.stream(), myDeltaInstances.stream()).distinct().count();
     }
   }
 
   /**
    * Gets a stream of all instances (including all descendants) in this ClassifierSet.
+   * Note - this creates the instances of all the {@link LazyInstanceGroup}s it goes through.
    */
   @NotNull
   public Stream<InstanceObject> getInstancesStream() {
-    Stream<InstanceObject> total = Stream.concat(mySnapshotInstances.stream(), myDeltaInstances.stream()).distinct();
+    Stream<InstanceObject> total = Stream.concat(
+      Stream.concat(mySnapshotInstances.stream(), myDeltaInstances.stream()).distinct(),
+      myLazyInstanceGroups.stream().flatMap(group -> group.getInstances().stream()));
     if (myClassifier == null) {
       return total;
     }
@@ -341,6 +390,20 @@ public abstract class ClassifierSet implements MemoryObject {
     }
   }
 
+  /**
+   * Return the stream of the lazy instance groups, which do not contribute to {@link #getDeltaInstanceStream()}.
+   */
+  @NotNull
+  protected Stream<LazyInstanceGroup> getLazyInstanceGroupStream() {
+    if (myClassifier == null) {
+      return myLazyInstanceGroups.stream();
+    }
+    else {
+      return Stream.concat(myClassifier.getAllClassifierSets().stream().flatMap(ClassifierSet::getLazyInstanceGroupStream),
+                           myLazyInstanceGroups.stream());
+    }
+  }
+
   public boolean hasStackInfo() {
     return myInstancesWithStackInfoCount > 0;
   }
@@ -361,18 +424,14 @@ public abstract class ClassifierSet implements MemoryObject {
    */
   @Nullable
   public ClassifierSet findContainingClassifierSet(@NotNull InstanceObject target) {
-    boolean instancesContainsTarget =
-      Stream.concat(mySnapshotInstances.stream(), myDeltaInstances.stream()).filter(instance -> target.equals(instance)).findAny()
-        .isPresent();
+    boolean instancesContainsTarget = containsImmediateInstance(target);
     if (instancesContainsTarget && myClassifier != null) {
       return this;
     }
     else if (instancesContainsTarget || myClassifier != null) {
       List<ClassifierSet> childrenClassifierSets = getChildrenClassifierSets();
       // mySnapshotInstances/myDeltaInstances can be updated after getChildrenClassiferSets so rebuild the stream.
-      boolean stillContainsTarget =
-        Stream.concat(mySnapshotInstances.stream(), myDeltaInstances.stream()).filter(instance -> target.equals(instance)).findAny()
-          .isPresent();
+      boolean stillContainsTarget = containsImmediateInstance(target);
       if (instancesContainsTarget && stillContainsTarget) {
         return this; // If after the partition the target still falls within the instances within this set, then return this set.
       }
@@ -387,6 +446,11 @@ public abstract class ClassifierSet implements MemoryObject {
     return null;
   }
 
+  private boolean containsImmediateInstance(@NotNull InstanceObject target) {
+    return Stream.concat(mySnapshotInstances.stream(), myDeltaInstances.stream()).anyMatch(instance -> target.equals(instance)) ||
+           myLazyInstanceGroups.stream().anyMatch(group -> group.contains(target));
+  }
+
   /**
    * Determines if {@code this} ClassifierSet's descendant children forms a superset (could be equivalent) of the given
    * {@code targetSet}'s immediate children.
@@ -408,6 +472,7 @@ public abstract class ClassifierSet implements MemoryObject {
     if (myClassifier == null) {
       myClassifier = createSubClassifier();
       myClassifier.partition(mySnapshotInstances, myDeltaInstances);
+      myClassifier.partitionLazyInstanceGroups(myLazyInstanceGroups);
     }
   }
 
@@ -556,5 +621,18 @@ public abstract class ClassifierSet implements MemoryObject {
       snapshotInstances.clear();
       deltaInstances.clear();
     }
+
+    /**
+     * Partitions the {@link LazyInstanceGroup}s in {@code groups} according to their representative instances. This will consume the
+     * groups from the input.
+     */
+    public final void partitionLazyInstanceGroups(@NotNull Collection<LazyInstanceGroup> groups) {
+      if (isTerminalClassifier()) {
+        return;
+      }
+
+      groups.forEach(group -> getClassifierSet(group.getRepresentative(), true).addLazyInstanceGroup(group));
+      groups.clear();
+    }
   }
 }
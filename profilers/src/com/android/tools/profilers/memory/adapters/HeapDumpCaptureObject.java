@@ -20,8 +20,9 @@ import com.android.tools.perflib.heap.ClassObj;
 import com.android.tools.perflib.heap.Heap;
 import com.android.tools.perflib.heap.Instance;
 import com.android.tools.perflib.heap.Snapshot;
+import com.android.tools.perflib.heap.StackTrace;
 import com.android.tools.perflib.heap.ext.NativeRegistryPostProcessor;
-import com.android.tools.perflib.heap.io.InMemoryBuffer;
+import com.android.tools.perflib.heap.io.MemoryMappedFileBuffer;
 import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.MemoryProfiler.DumpDataRequest;
 import com.android.tools.profiler.proto.MemoryProfiler.DumpDataResponse;
@@ -32,9 +33,14 @@ import com.android.tools.profilers.memory.MemoryProfiler;
 import com.android.tools.profilers.memory.MemoryProfilerStage;
 import com.android.tools.proguard.ProguardMap;
 import com.google.common.annotations.VisibleForTesting;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.*;
 import java.util.concurrent.Executor;
@@ -60,9 +66,6 @@ public class HeapDumpCaptureObject implements CaptureObject {
   @NotNull
   private final Map<ClassObj, InstanceObject> myClassObjectIndex = new HashMap<>();
 
-  @NotNull
-  private final Map<Instance, InstanceObject> myInstanceIndex = new HashMap<>();
-
   @NotNull
   private final ClassDb myClassDb = new ClassDb();
 
@@ -77,11 +80,26 @@ public class HeapDumpCaptureObject implements CaptureObject {
 
   private volatile boolean myIsLoadingError = false;
 
+  /**
+   * The temporary file holding the heap dump, and the mapping of it backing {@link #mySnapshot}. Both are released in {@link #unload()}.
+   */
+  @Nullable
+  private volatile File myHeapDumpFile;
+
+  @Nullable
+  private volatile MemoryMappedFileBuffer myBuffer;
+
   private boolean myHasNativeAllocations;
 
+  private volatile boolean myDominatorsComputed = false;
+
   @NotNull
   private final MemoryProfilerStage myStage;
 
+  private static Logger getLogger() {
+    return Logger.getInstance(HeapDumpCaptureObject.class);
+  }
+
   public HeapDumpCaptureObject(@NotNull MemoryServiceBlockingStub client,
                                @NotNull Common.Session session,
                                @NotNull HeapDumpInfo heapDumpInfo,
@@ -190,7 +208,21 @@ public class HeapDumpCaptureObject implements CaptureObject {
       return false;
     }
 
-    InMemoryBuffer buffer = new InMemoryBuffer(response.getData().asReadOnlyByteBuffer());
+    MemoryMappedFileBuffer buffer;
+    try {
+      myHeapDumpFile = FileUtil.createTempFile("heap_dump", ".hprof", true);
+      buffer = mapHeapDump(response, myHeapDumpFile);
+      myBuffer = buffer;
+    }
+    catch (IOException e) {
+      getLogger().warn("Unable to write the heap dump to a temporary file.", e);
+      myIsLoadingError = true;
+      unload();
+      return false;
+    }
+    // The dump is now backed by the file, so the copy received from the service can be collected while the snapshot is built.
+    response = null;
+
     Snapshot snapshot;
     NativeRegistryPostProcessor nativeRegistryPostProcessor = new NativeRegistryPostProcessor();
     if (myProguardMap != null) {
@@ -199,7 +231,6 @@ public class HeapDumpCaptureObject implements CaptureObject {
     else {
       snapshot = Snapshot.createSnapshot(buffer, new ProguardMap(), Arrays.asList(nativeRegistryPostProcessor));
     }
-    snapshot.computeDominators();
     myHasNativeAllocations = nativeRegistryPostProcessor.getHasNativeAllocations();
     mySnapshot = snapshot;
 
@@ -222,23 +253,26 @@ public class HeapDumpCaptureObject implements CaptureObject {
       HeapSet heapSet = heapSets.get(heap);
       heap.getClasses().forEach(classObj -> {
         InstanceObject classObject = createClassObjectInstance(finalJavaLangClassObject, classObj);
-        myInstanceIndex.put(classObj, classObject);
-        heapSet.addDeltaInstanceObject(classObject);
+        // Added as a group of one, so that its retained size (and the dominators) are not computed while loading.
+        heapSet.addLazyInstanceGroup(
+          new LazyInstanceGroup(classObject, 1, classObject.getShallowSize(), classObject.getNativeSize(),
+                                () -> Collections.singletonList(classObject), classObject::getRetainedSize));
       });
     }
 
+    // Only summarize the instances of each class (and allocation stack) here. Their InstanceObjects are created when the class is
+    // expanded, and other wrappers of the same instances (e.g. for fields and references) are created on demand by findInstanceObject.
     for (Heap heap : snapshot.getHeaps()) {
       HeapSet heapSet = heapSets.get(heap);
+      Map<ClassObj, Map<StackTrace, InstanceSummary>> summaries = new LinkedHashMap<>();
       heap.forEachInstance(instance -> {
-        assert !ClassDb.JAVA_LANG_CLASS.equals(getName());
-        ClassObj classObj = instance.getClassObj();
-        InstanceObject instanceObject =
-          new HeapDumpInstanceObject(this, getClassObjectInstance(instance), instance,
-                                     myClassDb.registerClass(classObj.getClassLoaderId(), classObj.getClassName()), null);
-        myInstanceIndex.put(instance, instanceObject);
-        heapSet.addDeltaInstanceObject(instanceObject);
+        summaries.computeIfAbsent(instance.getClassObj(), classObj -> new HashMap<>(1))
+          .computeIfAbsent(instance.getStack(), stack -> new InstanceSummary(instance))
+          .add(instance);
         return true;
       });
+      summaries.values().forEach(stackSummaries -> stackSummaries.values().forEach(
+        summary -> heapSet.addLazyInstanceGroup(createLazyInstanceGroup(heap.getId(), summary))));
     }
     heapSets.forEach((key, value) -> {
       if ("default".equals(key.getName())) {
@@ -256,6 +290,55 @@ public class HeapDumpCaptureObject implements CaptureObject {
     return true;
   }
 
+  @NotNull
+  private LazyInstanceGroup createLazyInstanceGroup(int heapId, @NotNull InstanceSummary summary) {
+    ClassObj classObj = summary.myFirstInstance.getClassObj();
+    StackTrace stack = summary.myFirstInstance.getStack();
+    return new LazyInstanceGroup(createInstanceObject(summary.myFirstInstance), summary.myCount, summary.myShallowSize,
+                                 summary.myNativeSize,
+                                 () -> {
+                                   List<InstanceObject> instances = new ArrayList<>(summary.myCount);
+                                   for (Instance instance : classObj.getHeapInstances(heapId)) {
+                                     if (instance.getStack() == stack) {
+                                       instances.add(createInstanceObject(instance));
+                                     }
+                                   }
+                                   return instances;
+                                 },
+                                 () -> {
+                                   ensureDominatorsComputed();
+                                   long retainedSize = 0L;
+                                   for (Instance instance : classObj.getHeapInstances(heapId)) {
+                                     if (instance.getStack() == stack) {
+                                       retainedSize += instance.getTotalRetainedSize();
+                                     }
+                                   }
+                                   return retainedSize;
+                                 });
+  }
+
+  /**
+   * Computes the dominators of the snapshot, which the retained sizes and depths of its instances depend on. As this is expensive, it is
+   * only done the first time one of them is requested rather than when loading the capture.
+   */
+  void ensureDominatorsComputed() {
+    if (myDominatorsComputed) {
+      return;
+    }
+    synchronized (this) {
+      Snapshot snapshot = mySnapshot;
+      if (!myDominatorsComputed && snapshot != null) {
+        snapshot.computeDominators();
+        myDominatorsComputed = true;
+      }
+    }
+  }
+
+  @VisibleForTesting
+  boolean isDominatorsComputed() {
+    return myDominatorsComputed;
+  }
+
   @Override
   public boolean isDoneLoading() {
     return mySnapshot != null || myIsLoadingError;
@@ -268,7 +351,19 @@ public class HeapDumpCaptureObject implements CaptureObject {
 
   @Override
   public void unload() {
-
+    MemoryMappedFileBuffer buffer = myBuffer;
+    myBuffer = null;
+    if (buffer != null) {
+      // The snapshot reads instances lazily from the buffer, so it can't be used past this point.
+      mySnapshot = null;
+      buffer.dispose();
+    }
+    // The mapping has to be released first, as mapped files can't be deleted on Windows.
+    File file = myHeapDumpFile;
+    myHeapDumpFile = null;
+    if (file != null) {
+      FileUtil.delete(file);
+    }
   }
 
   @NotNull
@@ -289,13 +384,45 @@ public class HeapDumpCaptureObject implements CaptureObject {
              .asList(InstanceAttribute.LABEL, InstanceAttribute.DEPTH, InstanceAttribute.SHALLOW_SIZE, InstanceAttribute.RETAINED_SIZE);
   }
 
+  /**
+   * Writes the heap dump received from the service to the given file and maps it, so the hprof data lives in the page cache rather than
+   * in the IDE's heap. The file has to outlive the mapping, so it is only deleted in {@link #unload()}, or on exit if that never happens.
+   */
+  @NotNull
+  private static MemoryMappedFileBuffer mapHeapDump(@NotNull DumpDataResponse response, @NotNull File file) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      response.getData().writeTo(out);
+    }
+    return new MemoryMappedFileBuffer(file);
+  }
+
+  @VisibleForTesting
+  @Nullable
+  File getHeapDumpFile() {
+    return myHeapDumpFile;
+  }
+
+  /**
+   * @return an {@link InstanceObject} wrapping the given instance. Apart from class objects, which are indexed, the wrapper is created on
+   * demand, which is fine as wrappers of the same instance are equal.
+   */
   @Nullable
   public InstanceObject findInstanceObject(@NotNull Instance instance) {
     if (mySnapshot == null) {
       return null;
     }
 
-    return myInstanceIndex.get(instance);
+    if (instance instanceof ClassObj) {
+      return myClassObjectIndex.get(instance);
+    }
+    return createInstanceObject(instance);
+  }
+
+  @NotNull
+  private InstanceObject createInstanceObject(@NotNull Instance instance) {
+    ClassObj classObj = instance.getClassObj();
+    return new HeapDumpInstanceObject(this, getClassObjectInstance(instance), instance,
+                                      myClassDb.registerClass(classObj.getClassLoaderId(), classObj.getClassName()), null);
   }
 
   @NotNull
@@ -323,4 +450,24 @@ public class HeapDumpCaptureObject implements CaptureObject {
     ClassObj classObj = instance.getClassObj();
     return myClassObjectIndex.get(classObj);
   }
+
+  /**
+   * The number and sizes of the instances of a class with the same allocation stack in a heap, which are gathered when loading.
+   */
+  private static final class InstanceSummary {
+    @NotNull private final Instance myFirstInstance;
+    private int myCount;
+    private long myShallowSize;
+    private long myNativeSize;
+
+    private InstanceSummary(@NotNull Instance firstInstance) {
+      myFirstInstance = firstInstance;
+    }
+
+    private void add(@NotNull Instance instance) {
+      myCount++;
+      myShallowSize += instance.getSize();
+      myNativeSize += instance.getNativeSize();
+    }
+  }
 }
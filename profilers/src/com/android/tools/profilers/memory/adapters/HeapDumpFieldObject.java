@@ -50,6 +50,8 @@ final class HeapDumpFieldObject implements FieldObject {
   private final int myHashCode;
 
   HeapDumpFieldObject(@NotNull HeapDumpCaptureObject captureObject, @NotNull Instance parentInstance, @NotNull FieldValue field) {
+    // The depths and retained sizes are read eagerly below.
+    captureObject.ensureDominatorsComputed();
     myField = field;
     Type type = myField.getField().getType();
     if (type == Type.OBJECT) {
@@ -53,7 +53,8 @@ class HeapDumpInstanceObject implements InstanceObject {
   @Nullable private final InstanceObject myClassInstanceObject;
   @NotNull private final Instance myInstance;
   @NotNull private final ClassDb.ClassEntry myClassEntry;
-  @NotNull private final String myMemoizedLabel;
+  // Computed on first use, as most instances of a heap dump are never displayed.
+  @Nullable private String myMemoizedLabel;
 
   @VisibleForTesting(visibility = VisibleForTesting.Visibility.PACKAGE)
   HeapDumpInstanceObject(@NotNull HeapDumpCaptureObject captureObject,
@@ -66,8 +67,6 @@ class HeapDumpInstanceObject implements InstanceObject {
     myInstance = instance;
     myClassEntry = classEntry;
 
-    myMemoizedLabel =
-      String.format(NAME_FORMATTER, myClassEntry.getSimpleClassName(), myInstance.getUniqueId(), myInstance.getUniqueId());
     if (precomputedValueType != null) {
       myValueType = precomputedValueType;
       return;
@@ -113,6 +112,10 @@ class HeapDumpInstanceObject implements InstanceObject {
   @Override
   public String getValueText() {
     // TODO show length of array instance
+    if (myMemoizedLabel == null) {
+      myMemoizedLabel =
+        String.format(NAME_FORMATTER, myClassEntry.getSimpleClassName(), myInstance.getUniqueId(), myInstance.getUniqueId());
+    }
     return myMemoizedLabel;
   }
 
@@ -160,6 +163,7 @@ class HeapDumpInstanceObject implements InstanceObject {
 
   @Override
   public int getDepth() {
+    myCaptureObject.ensureDominatorsComputed();
     return myInstance.getDistanceToGcRoot();
   }
 
@@ -175,6 +179,7 @@ class HeapDumpInstanceObject implements InstanceObject {
 
   @Override
   public long getRetainedSize() {
+    myCaptureObject.ensureDominatorsComputed();
     return myInstance.getTotalRetainedSize();
   }
 
@@ -312,6 +317,7 @@ class HeapDumpInstanceObject implements InstanceObject {
   @VisibleForTesting(visibility = VisibleForTesting.Visibility.PRIVATE)
   @NotNull
   public List<ReferenceObject> extractReferences() {
+    myCaptureObject.ensureDominatorsComputed();
     // Sort hard referrers to appear first.
     List<Instance> sortedReferences = new ArrayList<>(myInstance.getHardReverseReferences());
     sortedReferences.sort(DEPTH_COMPARATOR);
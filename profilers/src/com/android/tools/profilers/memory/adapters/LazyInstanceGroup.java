@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import com.android.annotations.VisibleForTesting;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A group of instances which are all classified the same way (e.g. the instances of one class in a heap dump). The group is counted
+ * when it is added to a {@link ClassifierSet}, but its {@link InstanceObject}s are only created the first time they are requested, e.g.
+ * when its {@link ClassSet} is expanded.
+ */
+public final class LazyInstanceGroup {
+  // An instance of the group, which is used to classify the whole group.
+  @NotNull private final InstanceObject myRepresentative;
+  private final int myCount;
+  private final long myShallowSize;
+  private final long myNativeSize;
+  @NotNull private final Supplier<List<InstanceObject>> myInstancesSupplier;
+  @NotNull private final LongSupplier myRetainedSizeSupplier;
+
+  @Nullable private List<InstanceObject> myInstances;
+  private long myRetainedSize = MemoryObject.INVALID_VALUE;
+
+  public LazyInstanceGroup(@NotNull InstanceObject representative,
+                           int count,
+                           long shallowSize,
+                           long nativeSize,
+                           @NotNull Supplier<List<InstanceObject>> instancesSupplier,
+                           @NotNull LongSupplier retainedSizeSupplier) {
+    myRepresentative = representative;
+    myCount = count;
+    myShallowSize = shallowSize;
+    myNativeSize = nativeSize;
+    myInstancesSupplier = instancesSupplier;
+    myRetainedSizeSupplier = retainedSizeSupplier;
+  }
+
+  @NotNull
+  public InstanceObject getRepresentative() {
+    return myRepresentative;
+  }
+
+  public int getCount() {
+    return myCount;
+  }
+
+  public long getShallowSize() {
+    return myShallowSize;
+  }
+
+  public long getNativeSize() {
+    return myNativeSize;
+  }
+
+  /**
+   * @return the total retained size of the instances, which is computed the first time it is requested.
+   */
+  public long getRetainedSize() {
+    if (myRetainedSize == MemoryObject.INVALID_VALUE) {
+      myRetainedSize = myRetainedSizeSupplier.getAsLong();
+    }
+    return myRetainedSize;
+  }
+
+  /**
+   * @return the instances of the group, which are created the first time they are requested.
+   */
+  @NotNull
+  public List<InstanceObject> getInstances() {
+    if (myInstances == null) {
+      myInstances = myInstancesSupplier.get();
+    }
+    return myInstances;
+  }
+
+  public boolean contains(@NotNull InstanceObject instance) {
+    // Only create the instances if the target could be one of them.
+    return instance.getClassEntry().equals(myRepresentative.getClassEntry()) &&
+           instance.getHeapId() == myRepresentative.getHeapId() &&
+           getInstances().contains(instance);
+  }
+
+  @VisibleForTesting
+  boolean isMaterialized() {
+    return myInstances != null;
+  }
+}
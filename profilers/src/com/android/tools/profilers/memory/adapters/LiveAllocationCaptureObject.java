@@ -328,8 +328,11 @@ public class LiveAllocationCaptureObject implements CaptureObject {
         List<InstanceObject> deltaFreeList = new ArrayList<>();
         List<InstanceObject> resetDeltaFreeList = new ArrayList<>();
 
-        // Clear and recreate the instance/heap sets if previous range does not intersect with the new one
-        boolean clear = myPreviousQueryEndTimeNs <= newStartTimeNs || newEndTimeNs <= myPreviousQueryStartTimeNs;
+        // Clear and recreate the instance/heap sets if there is no previous range to diff against, or if the new range is far enough
+        // from the previous one that diffing would go through more events than establishing a new snapshot.
+        boolean clear = myPreviousQueryStartTimeNs == Long.MIN_VALUE ||
+                        Math.abs(newStartTimeNs - myPreviousQueryStartTimeNs) + Math.abs(newEndTimeNs - myPreviousQueryEndTimeNs) >=
+                        newEndTimeNs - myCaptureStartTime;
         if (clear) {
           myInstanceMap.clear();
           // If we are resetting, then first establish the object snapshot at the query range's start point.
@@ -340,52 +343,20 @@ public class LiveAllocationCaptureObject implements CaptureObject {
           queryJavaInstanceDelta(newStartTimeNs, newEndTimeNs, deltaAllocationList, deltaFreeList, false);
           queryJniReferencesDelta(newStartTimeNs, newEndTimeNs, deltaAllocationList, deltaFreeList, false);
         }
+        else if (newStartTimeNs > myPreviousQueryStartTimeNs) {
+          // The differences are also applied when the new range does not intersect with the previous one, in which case the events
+          // between the two ranges are queried on both sides. The side that resets the instances' time data must be queried last so
+          // these events end up outside of the selection.
+          queryMaxDifferences(myPreviousQueryEndTimeNs, newEndTimeNs, deltaAllocationList, deltaFreeList, resetDeltaAllocationList,
+                              resetDeltaFreeList);
+          queryMinDifferences(myPreviousQueryStartTimeNs, newStartTimeNs, snapshotList, resetSnapshotList, deltaAllocationList,
+                              deltaFreeList, resetDeltaAllocationList, resetDeltaFreeList);
+        }
         else {
-          // Compute selection left differences.
-          List<InstanceObject> leftAllocations = new ArrayList<>();
-          List<InstanceObject> leftDeallocations = new ArrayList<>();
-          if (newStartTimeNs < myPreviousQueryStartTimeNs) {
-            // Selection's min shifts left
-            queryJavaInstanceDelta(newStartTimeNs, myPreviousQueryStartTimeNs, leftAllocations, leftDeallocations, false);
-            queryJniReferencesDelta(newStartTimeNs, myPreviousQueryStartTimeNs, leftAllocations, leftDeallocations, false);
-            // add data within this range to the deltas
-            deltaAllocationList.addAll(leftAllocations);
-            deltaFreeList.addAll(leftDeallocations);
-            // Allocations happen after selection min: remove instance from snapshot
-            resetSnapshotList.addAll(leftAllocations);
-            // Deallocations happen after selection min: add instance to snapshot
-            snapshotList.addAll(leftDeallocations);
-          }
-          else if (newStartTimeNs > myPreviousQueryStartTimeNs) {
-            // Selection's min shifts right
-            queryJavaInstanceDelta(myPreviousQueryStartTimeNs, newStartTimeNs, leftAllocations, leftDeallocations, true);
-            queryJniReferencesDelta(myPreviousQueryStartTimeNs, newStartTimeNs, leftAllocations, leftDeallocations, true);
-            // Remove data within this range from the deltas
-            resetDeltaAllocationList.addAll(leftAllocations);
-            resetDeltaFreeList.addAll(leftDeallocations);
-            // Allocations happen before the selection's min: add instance to snapshot
-            snapshotList.addAll(leftAllocations);
-            // Deallocations before the selection's min: remove instance from snapshot
-            resetSnapshotList.addAll(leftDeallocations);
-          }
-
-          // Compute selection right differences.
-          List<InstanceObject> rightAllocations = new ArrayList<>();
-          List<InstanceObject> rightDeallocations = new ArrayList<>();
-          if (newEndTimeNs < myPreviousQueryEndTimeNs) {
-            // Selection's max shifts left: remove data within this range from the deltas
-            queryJavaInstanceDelta(newEndTimeNs, myPreviousQueryEndTimeNs, rightAllocations, rightDeallocations, true);
-            queryJniReferencesDelta(newEndTimeNs, myPreviousQueryEndTimeNs, rightAllocations, rightDeallocations, true);
-            resetDeltaAllocationList.addAll(rightAllocations);
-            resetDeltaFreeList.addAll(rightDeallocations);
-          }
-          else if (newEndTimeNs > myPreviousQueryEndTimeNs) {
-            // Selection's max shifts right: add data within this range to the deltas
-            queryJavaInstanceDelta(myPreviousQueryEndTimeNs, newEndTimeNs, rightAllocations, rightDeallocations, false);
-            queryJniReferencesDelta(myPreviousQueryEndTimeNs, newEndTimeNs, rightAllocations, rightDeallocations, false);
-            deltaAllocationList.addAll(rightAllocations);
-            deltaFreeList.addAll(rightDeallocations);
-          }
+          queryMinDifferences(myPreviousQueryStartTimeNs, newStartTimeNs, snapshotList, resetSnapshotList, deltaAllocationList,
+                              deltaFreeList, resetDeltaAllocationList, resetDeltaFreeList);
+          queryMaxDifferences(myPreviousQueryEndTimeNs, newEndTimeNs, deltaAllocationList, deltaFreeList, resetDeltaAllocationList,
+                              resetDeltaFreeList);
         }
 
         myPreviousQueryStartTimeNs = newStartTimeNs;
@@ -422,6 +393,84 @@ public class LiveAllocationCaptureObject implements CaptureObject {
     }
   }
 
+  /**
+   * Queries the events between the previous and the new selection min, and adds them to the lists of instances to update.
+   */
+  private void queryMinDifferences(long previousStartTimeNs,
+                                   long newStartTimeNs,
+                                   @NotNull List<InstanceObject> snapshotList,
+                                   @NotNull List<InstanceObject> resetSnapshotList,
+                                   @NotNull List<InstanceObject> deltaAllocationList,
+                                   @NotNull List<InstanceObject> deltaFreeList,
+                                   @NotNull List<InstanceObject> resetDeltaAllocationList,
+                                   @NotNull List<InstanceObject> resetDeltaFreeList) {
+    List<InstanceObject> leftAllocations = new ArrayList<>();
+    List<InstanceObject> leftDeallocations = new ArrayList<>();
+    if (newStartTimeNs < previousStartTimeNs) {
+      // Selection's min shifts left
+      queryJavaInstanceDelta(newStartTimeNs, previousStartTimeNs, leftAllocations, leftDeallocations, false);
+      queryJniReferencesDelta(newStartTimeNs, previousStartTimeNs, leftAllocations, leftDeallocations, false);
+      // add data within this range to the deltas
+      deltaAllocationList.addAll(leftAllocations);
+      deltaFreeList.addAll(leftDeallocations);
+      // Allocations happen after selection min: remove instance from snapshot
+      resetSnapshotList.addAll(leftAllocations);
+      // Deallocations happen after selection min: add instance to snapshot
+      snapshotList.addAll(leftDeallocations);
+    }
+    else if (newStartTimeNs > previousStartTimeNs) {
+      // Selection's min shifts right
+      queryJavaInstanceDelta(previousStartTimeNs, newStartTimeNs, leftAllocations, leftDeallocations, true);
+      queryJniReferencesDelta(previousStartTimeNs, newStartTimeNs, leftAllocations, leftDeallocations, true);
+      // Remove data within this range from the deltas
+      resetDeltaAllocationList.addAll(leftAllocations);
+      resetDeltaFreeList.addAll(leftDeallocations);
+      // Allocations happen before the selection's min: add instance to snapshot
+      snapshotList.addAll(leftAllocations);
+      // Deallocations before the selection's min: remove instance from snapshot
+      resetSnapshotList.addAll(leftDeallocations);
+      // These instances are now entirely before the selection, so also drop the allocation time they may have gotten from the snapshot
+      // for them not to be kept as deltas.
+      leftDeallocations.forEach(LiveAllocationCaptureObject::resetAllocationTime);
+    }
+  }
+
+  private static void resetAllocationTime(@NotNull InstanceObject instance) {
+    if (instance instanceof LiveAllocationInstanceObject) {
+      ((LiveAllocationInstanceObject)instance).setAllocationTime(Long.MIN_VALUE);
+    }
+    else if (instance instanceof JniReferenceInstanceObject) {
+      ((JniReferenceInstanceObject)instance).setAllocationTime(Long.MIN_VALUE);
+    }
+  }
+
+  /**
+   * Queries the events between the previous and the new selection max, and adds them to the lists of instances to update.
+   */
+  private void queryMaxDifferences(long previousEndTimeNs,
+                                   long newEndTimeNs,
+                                   @NotNull List<InstanceObject> deltaAllocationList,
+                                   @NotNull List<InstanceObject> deltaFreeList,
+                                   @NotNull List<InstanceObject> resetDeltaAllocationList,
+                                   @NotNull List<InstanceObject> resetDeltaFreeList) {
+    List<InstanceObject> rightAllocations = new ArrayList<>();
+    List<InstanceObject> rightDeallocations = new ArrayList<>();
+    if (newEndTimeNs < previousEndTimeNs) {
+      // Selection's max shifts left: remove data within this range from the deltas
+      queryJavaInstanceDelta(newEndTimeNs, previousEndTimeNs, rightAllocations, rightDeallocations, true);
+      queryJniReferencesDelta(newEndTimeNs, previousEndTimeNs, rightAllocations, rightDeallocations, true);
+      resetDeltaAllocationList.addAll(rightAllocations);
+      resetDeltaFreeList.addAll(rightDeallocations);
+    }
+    else if (newEndTimeNs > previousEndTimeNs) {
+      // Selection's max shifts right: add data within this range to the deltas
+      queryJavaInstanceDelta(previousEndTimeNs, newEndTimeNs, rightAllocations, rightDeallocations, false);
+      queryJniReferencesDelta(previousEndTimeNs, newEndTimeNs, rightAllocations, rightDeallocations, false);
+      deltaAllocationList.addAll(rightAllocations);
+      deltaFreeList.addAll(rightDeallocations);
+    }
+  }
+
   @NotNull
   private LiveAllocationInstanceObject getOrCreateInstanceObject(int tag, int classTag, int stackId, int threadId, long size, int heapId) {
     LiveAllocationInstanceObject instance = myInstanceMap.get(tag);
@@ -602,7 +651,7 @@ public class LiveAllocationCaptureObject implements CaptureObject {
           break;
         case DELETE_GLOBAL_REF:
           if (resetInstance) {
-            refObject.setAllocationTime(Long.MAX_VALUE);
+            refObject.setDeallocTime(Long.MAX_VALUE);
           } else {
             refObject.setDeallocTime(event.getTimestamp());
             if (event.hasBacktrace()) {
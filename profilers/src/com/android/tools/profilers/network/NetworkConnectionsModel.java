@@ -17,6 +17,7 @@ package com.android.tools.profilers.network;
 
 import com.android.tools.adtui.model.Range;
 import com.android.tools.profilers.network.httpdata.HttpData;
+import com.android.tools.profilers.network.httpdata.PayloadStore;
 import com.android.tools.profiler.protobuf3jarjar.ByteString;
 import org.jetbrains.annotations.NotNull;
 
@@ -45,4 +46,10 @@ public interface NetworkConnectionsModel {
    */
   @NotNull
   ByteString requestBytes(@NotNull String id);
+
+  /**
+   * Returns the store of the decoded payloads fetched through {@link #requestBytes(String)}, shared by all the connections of the model.
+   */
+  @NotNull
+  PayloadStore getPayloadStore();
 }
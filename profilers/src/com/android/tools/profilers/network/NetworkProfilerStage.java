@@ -192,6 +192,8 @@ public class NetworkProfilerStage extends Stage implements CodeNavigator.Listene
     getStudioProfilers().getIdeServices().getCodeNavigator().removeListener(this);
 
     mySelectionModel.clearListeners();
+    // Stages aren't re-entered, so the payloads fetched by this one, and their temporary files, aren't needed anymore.
+    myConnectionsModel.getPayloadStore().clear();
   }
 
   @NotNull
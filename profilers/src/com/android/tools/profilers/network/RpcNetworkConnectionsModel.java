@@ -24,6 +24,7 @@ import com.android.tools.profiler.proto.Profiler.BytesResponse;
 import com.android.tools.profiler.proto.ProfilerServiceGrpc;
 import com.android.tools.profiler.protobuf3jarjar.ByteString;
 import com.android.tools.profilers.network.httpdata.HttpData;
+import com.android.tools.profilers.network.httpdata.PayloadStore;
 import com.intellij.openapi.util.text.StringUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -40,6 +41,7 @@ public class RpcNetworkConnectionsModel implements NetworkConnectionsModel {
   @NotNull private final ProfilerServiceGrpc.ProfilerServiceBlockingStub myProfilerService;
   @NotNull private final NetworkServiceGrpc.NetworkServiceBlockingStub myNetworkService;
   @NotNull private final Common.Session mySession;
+  @NotNull private final PayloadStore myPayloadStore = new PayloadStore();
 
   public RpcNetworkConnectionsModel(@NotNull ProfilerServiceGrpc.ProfilerServiceBlockingStub profilerService,
                                     @NotNull NetworkServiceGrpc.NetworkServiceBlockingStub networkService,
@@ -126,6 +128,12 @@ public class RpcNetworkConnectionsModel implements NetworkConnectionsModel {
     return response.getContents();
   }
 
+  @NotNull
+  @Override
+  public PayloadStore getPayloadStore() {
+    return myPayloadStore;
+  }
+
   private void requestHttpResponse(long connectionId, @NotNull HttpData.Builder httpBuilder) {
     NetworkProfiler.HttpDetailsResponse response = getDetails(connectionId, NetworkProfiler.HttpDetailsRequest.Type.RESPONSE);
     httpBuilder.setResponseFields(response.getResponse().getFields());
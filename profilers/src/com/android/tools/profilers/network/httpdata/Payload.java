@@ -17,11 +17,9 @@ package com.android.tools.profilers.network.httpdata;
 
 import com.android.tools.profilers.network.NetworkConnectionsModel;
 import com.android.tools.profiler.protobuf3jarjar.ByteString;
-import com.intellij.openapi.util.io.FileUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.zip.GZIPInputStream;
 
@@ -30,7 +28,7 @@ import java.util.zip.GZIPInputStream;
  */
 public abstract class Payload {
   @NotNull private final NetworkConnectionsModel myModel;
-  @Nullable private ByteString myCachedBytes;
+  @Nullable private PayloadStore.Content myContent;
 
   /**
    * Construct this class using {@link #newRequestPayload(NetworkConnectionsModel, HttpData)}
@@ -78,27 +76,45 @@ public abstract class Payload {
   protected abstract HttpData.Header getHeader();
 
   /**
-   * Get this payload as a byte string.
+   * Get this payload as a byte string. Large payloads are read back from disk, see {@link PayloadStore}; prefer
+   * {@link #getContent()} to only read part of them.
    */
   @NotNull
   public final ByteString getBytes() {
-    if (myCachedBytes != null) {
-      return myCachedBytes;
+    return getContent().getBytes();
+  }
+
+  /**
+   * Get the decoded content of this payload, fetching it into the model's {@link PayloadStore} the first time.
+   */
+  @NotNull
+  public final PayloadStore.Content getContent() {
+    if (myContent != null) {
+      return myContent;
     }
 
-    myCachedBytes = myModel.requestBytes(getId());
+    PayloadStore store = myModel.getPayloadStore();
+    String id = getId();
+    myContent = store.get(id);
+    if (myContent == null) {
+      myContent = store.put(id, decode(myModel.requestBytes(id)));
+    }
+    return myContent;
+  }
+
+  @NotNull
+  private ByteString decode(@NotNull ByteString bytes) {
     String contentEncoding = getHeader().getContentEncoding();
     if (contentEncoding.toLowerCase().contains("gzip")) {
-      try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(myCachedBytes.toByteArray()))) {
-        myCachedBytes = ByteString.copyFrom(FileUtil.loadBytes(inputStream));
+      try (GZIPInputStream inputStream = new GZIPInputStream(bytes.newInput())) {
+        return ByteString.readFrom(inputStream);
       }
       catch (IOException ignored) {
         // If we got here, it means we failed to unzip data that was supposedly zipped. Just
         // fallback and return the content directly.
       }
     }
-
-    return myCachedBytes;
+    return bytes;
   }
 
   @NotNull
@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.network.httpdata;
+
+import com.android.tools.profiler.protobuf3jarjar.ByteString;
+import com.google.common.annotations.VisibleForTesting;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed store of the decoded payloads of a network profiling session. Payloads with identical contents (e.g. the same image
+ * downloaded several times) share a single {@link Content}, and contents larger than a threshold are written to a temporary file and
+ * read back on demand, so they don't stay in the IDE's heap.
+ */
+public final class PayloadStore {
+  /**
+   * Contents larger than this are spilled to disk.
+   */
+  private static final int DEFAULT_SPILL_THRESHOLD_BYTES = 256 * 1024;
+
+  private final int mySpillThresholdBytes;
+
+  /**
+   * Contents by payload id.
+   */
+  private final Map<String, Content> myContentsById = new HashMap<>();
+
+  /**
+   * Contents by digest of their bytes, used to de-duplicate identical payloads.
+   */
+  private final Map<ByteString, Content> myContentsByDigest = new HashMap<>();
+
+  private static Logger getLogger() {
+    return Logger.getInstance(PayloadStore.class);
+  }
+
+  public PayloadStore() {
+    this(DEFAULT_SPILL_THRESHOLD_BYTES);
+  }
+
+  @VisibleForTesting
+  PayloadStore(int spillThresholdBytes) {
+    mySpillThresholdBytes = spillThresholdBytes;
+  }
+
+  /**
+   * @return the content stored for the given payload id, or null if none was stored yet.
+   */
+  @Nullable
+  public synchronized Content get(@NotNull String id) {
+    return myContentsById.get(id);
+  }
+
+  /**
+   * Stores the decoded bytes of the given payload id. If identical bytes were stored before, under any id, their content is reused.
+   */
+  @NotNull
+  public synchronized Content put(@NotNull String id, @NotNull ByteString bytes) {
+    Content content = myContentsById.get(id);
+    if (content != null) {
+      return content;
+    }
+
+    ByteString digest = digest(bytes);
+    content = myContentsByDigest.get(digest);
+    if (content == null) {
+      content = bytes.size() > mySpillThresholdBytes ? spill(bytes) : new Content(bytes);
+      myContentsByDigest.put(digest, content);
+    }
+    myContentsById.put(id, content);
+    return content;
+  }
+
+  /**
+   * @return the number of distinct contents in the store.
+   */
+  @VisibleForTesting
+  synchronized int getContentCount() {
+    return myContentsByDigest.size();
+  }
+
+  /**
+   * Removes all the contents, and deletes the files of the spilled ones.
+   */
+  public synchronized void clear() {
+    for (Content content : myContentsByDigest.values()) {
+      if (content.myFile != null) {
+        FileUtil.delete(content.myFile);
+      }
+    }
+    myContentsByDigest.clear();
+    myContentsById.clear();
+  }
+
+  @NotNull
+  private static ByteString digest(@NotNull ByteString bytes) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (ByteBuffer buffer : bytes.asReadOnlyByteBufferList()) {
+        digest.update(buffer);
+      }
+      return ByteString.copyFrom(digest.digest());
+    }
+    catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @NotNull
+  private static Content spill(@NotNull ByteString bytes) {
+    try {
+      File file = FileUtil.createTempFile("network_payload", ".bin", true);
+      try (FileOutputStream out = new FileOutputStream(file)) {
+        bytes.writeTo(out);
+      }
+      return new Content(file, bytes.size());
+    }
+    catch (IOException e) {
+      getLogger().warn("Unable to write a network payload to a temporary file, keeping it in memory.", e);
+      return new Content(bytes);
+    }
+  }
+
+  /**
+   * The bytes of a payload, either in memory or in a temporary file.
+   */
+  public static final class Content {
+    @Nullable private final ByteString myBytes;
+    @Nullable private final File myFile;
+    private final long mySize;
+
+    /**
+     * Bytes read from {@link #myFile}, kept until memory runs low.
+     */
+    @NotNull private SoftReference<ByteString> myLoadedBytes = new SoftReference<>(null);
+
+    private Content(@NotNull ByteString bytes) {
+      myBytes = bytes;
+      myFile = null;
+      mySize = bytes.size();
+    }
+
+    private Content(@NotNull File file, long size) {
+      myBytes = null;
+      myFile = file;
+      mySize = size;
+    }
+
+    public long getSize() {
+      return mySize;
+    }
+
+    public boolean isEmpty() {
+      return mySize == 0;
+    }
+
+    /**
+     * @return true if the bytes are in a temporary file rather than in memory.
+     */
+    public boolean isSpilled() {
+      return myFile != null;
+    }
+
+    /**
+     * @return all the bytes of the content, or {@link ByteString#EMPTY} if they can't be read anymore.
+     */
+    @NotNull
+    public synchronized ByteString getBytes() {
+      if (myBytes != null) {
+        return myBytes;
+      }
+      ByteString bytes = myLoadedBytes.get();
+      if (bytes == null) {
+        bytes = read(0, (int)Math.min(Integer.MAX_VALUE, mySize));
+        myLoadedBytes = new SoftReference<>(bytes);
+      }
+      return bytes;
+    }
+
+    /**
+     * Reads a page of the content, without loading the rest of it.
+     *
+     * @return up to {@code length} bytes starting at {@code offset}, or {@link ByteString#EMPTY} if they can't be read anymore.
+     */
+    @NotNull
+    public ByteString read(long offset, int length) {
+      if (offset >= mySize || length <= 0) {
+        return ByteString.EMPTY;
+      }
+      length = (int)Math.min(length, mySize - offset);
+      if (myBytes != null) {
+        return myBytes.substring((int)offset, (int)offset + length);
+      }
+
+      assert myFile != null;
+      try (RandomAccessFile file = new RandomAccessFile(myFile, "r")) {
+        byte[] page = new byte[length];
+        file.seek(offset);
+        file.readFully(page);
+        return ByteString.copyFrom(page);
+      }
+      catch (IOException e) {
+        getLogger().warn("Unable to read a network payload from its temporary file.", e);
+        return ByteString.EMPTY;
+      }
+    }
+
+    /**
+     * @return a stream over the bytes of the content, which reads spilled contents from their file as it goes.
+     */
+    @NotNull
+    public InputStream openStream() throws IOException {
+      if (myBytes != null) {
+        return myBytes.newInput();
+      }
+      assert myFile != null;
+      return new FileInputStream(myFile);
+    }
+  }
+}
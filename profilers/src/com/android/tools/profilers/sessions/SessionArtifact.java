@@ -96,6 +96,14 @@ public interface SessionArtifact<T extends GeneratedMessageV3> extends Updatable
   default void update(long elapseNs) {
   }
 
+  /**
+   * Artifacts only reflect the time elapsed on the ticks that happen, they never need the updater to keep ticking.
+   */
+  @Override
+  default boolean isAnimating() {
+    return false;
+  }
+
   /**
    * Helper method to jump to the ongoing capture. We don't jump to live immediately because the ongoing capture might not fit the current
    * zoom level. So first we adjust the zoom level to fit the current size of the ongoing capture + 10% of the view range, so the user can
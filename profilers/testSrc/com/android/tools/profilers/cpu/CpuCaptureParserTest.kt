@@ -64,6 +64,16 @@ class CpuCaptureParserTest {
     assertThat(parser.parse(ProfilersTestData.SESSION_DATA, ANY_TRACE_ID, largeTraceFile, CpuProfiler.CpuProfilerType.ART)).isNotNull()
   }
 
+  @Test
+  fun parsingProgressIsOnlyReportedWhileParsing() {
+    val parser = CpuCaptureParser(FakeIdeProfilerServices())
+    assertThat(parser.parsingProgress).isLessThan(0.0)
+
+    val traceBytes = CpuProfilerTestUtils.traceFileToByteString("valid_trace.trace")
+    checkValidCapture(parser.parse(ProfilersTestData.SESSION_DATA, ANY_TRACE_ID, traceBytes, CpuProfiler.CpuProfilerType.ART)!!.get())
+    assertThat(parser.parsingProgress).isLessThan(0.0)
+  }
+
   @Test
   fun corruptedTraceFileThrowsException() {
     val parser = CpuCaptureParser(FakeIdeProfilerServices())
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.art;
+
+import com.android.tools.perflib.vmtrace.VmTraceParser;
+import com.android.tools.profilers.cpu.CaptureNode;
+import com.android.tools.profilers.cpu.CpuProfilerTestUtils;
+import com.android.tools.profilers.cpu.CpuThreadInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class StreamingArtTraceParserTest {
+
+  @Test
+  public void treesMatchPerflibParser() throws IOException {
+    File trace = CpuProfilerTestUtils.getTraceFile("valid_trace.trace");
+    ArtTraceHandler handler = new ArtTraceHandler();
+    new VmTraceParser(trace, handler).parse();
+
+    StreamingArtTraceParser parser = new StreamingArtTraceParser(trace, () -> false);
+    parser.parse();
+
+    assertThat(parser.getStartTimeUs()).isEqualTo(handler.getStartTimeUs());
+    assertThat(parser.getElapsedTimeUs()).isEqualTo(handler.getElapsedTimeUs());
+    Map<Integer, CaptureNode> expectedTrees = byThreadId(handler.getThreadsGraph());
+    Map<Integer, CaptureNode> actualTrees = byThreadId(parser.getThreadsGraph());
+    assertThat(actualTrees.keySet()).containsExactlyElementsIn(expectedTrees.keySet());
+    for (Map.Entry<Integer, CaptureNode> entry : expectedTrees.entrySet()) {
+      assertSameTree(entry.getValue(), actualTrees.get(entry.getKey()));
+    }
+  }
+
+  @Test
+  public void progressIsCompleteAfterParsing() throws IOException {
+    StreamingArtTraceParser parser = new StreamingArtTraceParser(CpuProfilerTestUtils.getTraceFile("basic.trace"), () -> false);
+    assertThat(parser.getProgress()).isWithin(0.0).of(0);
+    parser.parse();
+    assertThat(parser.getProgress()).isWithin(0.0).of(1);
+  }
+
+  @Test
+  public void cancelledParsingThrows() throws IOException {
+    StreamingArtTraceParser parser = new StreamingArtTraceParser(CpuProfilerTestUtils.getTraceFile("valid_trace.trace"), () -> true);
+    try {
+      parser.parse();
+      fail();
+    }
+    catch (CancellationException expected) {
+    }
+  }
+
+  @Test
+  public void onlyTracesWithTextHeaderAreHandled() throws IOException {
+    assertThat(StreamingArtTraceParser.hasTextHeader(CpuProfilerTestUtils.getTraceFile("valid_trace.trace"))).isTrue();
+    assertThat(StreamingArtTraceParser.hasTextHeader(CpuProfilerTestUtils.getTraceFile("simpleperf_malformed.trace"))).isFalse();
+    assertThat(StreamingArtTraceParser.hasTextHeader(CpuProfilerTestUtils.getTraceFile("empty_trace.trace"))).isFalse();
+  }
+
+  @Test(expected = IOException.class)
+  public void malformedHeaderThrows() throws IOException {
+    new StreamingArtTraceParser(CpuProfilerTestUtils.getTraceFile("corrupted_trace.trace"), () -> false).parse();
+  }
+
+  @Test
+  public void methodsWithPathnameAndLineAreParsed() throws IOException {
+    File trace = FileUtil.createTempFile("pathname_methods", ".trace", true);
+    try (FileOutputStream out = new FileOutputStream(trace)) {
+      out.write(("*version\n3\nclock=thread-cpu\nelapsed-time-usec=10\n*threads\n1\tmain\n*methods\n" +
+                 "0x10\tcom.example.Foo\tFoo.java\t42\n" +
+                 "0x20\tcom.example.Bar\tbar\t()V\tBar.java\t7\n*end\n").getBytes(StandardCharsets.US_ASCII));
+      ByteBuffer header = ByteBuffer.allocate(32 + 2 * 10).order(ByteOrder.LITTLE_ENDIAN);
+      // 'SLOW' magic, version 3, header length, start time and record size.
+      header.putInt(0x574f4c53).putShort((short)3).putShort((short)32).putLong(0).putShort((short)10);
+      header.position(32);
+      // Records: thread id, method id and action, thread time.
+      header.putShort((short)1).putInt(0x10).putInt(1);
+      header.putShort((short)1).putInt(0x11).putInt(2);
+      out.write(header.array());
+    }
+
+    StreamingArtTraceParser parser = new StreamingArtTraceParser(trace, () -> false);
+    parser.parse();
+    CaptureNode main = parser.getThreadsGraph().values().iterator().next();
+    assertThat(main.getChildCount()).isEqualTo(1);
+    assertThat(main.getChildren().get(0).getData().getFullName()).isEqualTo("com.example.Foo.");
+  }
+
+  private static Map<Integer, CaptureNode> byThreadId(Map<CpuThreadInfo, CaptureNode> trees) {
+    Map<Integer, CaptureNode> result = new HashMap<>();
+    trees.forEach((thread, node) -> result.put(thread.getId(), node));
+    return result;
+  }
+
+  private static void assertSameTree(CaptureNode expected, CaptureNode actual) {
+    assertThat(actual.getData().getId()).isEqualTo(expected.getData().getId());
+    assertThat(actual.getStartGlobal()).isEqualTo(expected.getStartGlobal());
+    assertThat(actual.getEndGlobal()).isEqualTo(expected.getEndGlobal());
+    assertThat(actual.getStartThread()).isEqualTo(expected.getStartThread());
+    assertThat(actual.getEndThread()).isEqualTo(expected.getEndThread());
+    assertThat(actual.getDepth()).isEqualTo(expected.getDepth());
+    assertThat(actual.getChildCount()).isEqualTo(expected.getChildCount());
+    for (int i = 0; i < expected.getChildCount(); i++) {
+      assertSameTree(expected.getChildren().get(i), actual.getChildren().get(i));
+    }
+  }
+}
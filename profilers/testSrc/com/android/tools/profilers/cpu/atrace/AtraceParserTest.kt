@@ -133,6 +133,20 @@ class AtraceParserTest {
     assertThat(dataSeries[0]!![2].value.name).matches("rcu_preempt")
   }
 
+  @Test
+  fun testCpuProcessDataIsSortedByTime() {
+    // Series are binary searched by AtraceDataSeries, so idle (null process) entries must be placed where the idle time starts.
+    for (series in myParser.cpuThreadSliceInfoStates.values) {
+      for (i in 1 until series.size) {
+        assertThat(series[i].x).isAtLeast(series[i - 1].x)
+      }
+    }
+    val utilization = myParser.cpuUtilizationSeries
+    for (i in 1 until utilization.size) {
+      assertThat(utilization[i].x).isAtLeast(utilization[i - 1].x)
+    }
+  }
+
   @Test
   fun testInvalidProcessIdThrows() {
     var expectedExceptionCaught = false
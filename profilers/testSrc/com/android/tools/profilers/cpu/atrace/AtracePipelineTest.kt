@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.atrace
+
+import com.android.tools.profilers.cpu.CpuProfilerTestUtils
+import com.google.common.truth.Truth.assertThat
+import org.junit.Assert.fail
+import org.junit.Test
+import trebuchet.io.BufferProducer
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+
+class AtracePipelineTest {
+
+  @Test
+  fun testPipelineProducesSameDataAsDecompressor() {
+    assertSameData("atrace.ctrace")
+  }
+
+  @Test
+  fun testPipelineTruncatesLongLines() {
+    assertSameData("long_line.ctrace")
+  }
+
+  @Test
+  fun testPipelineHandlesExactBufferBounds() {
+    assertSameData("exact_size_atrace.ctrace")
+  }
+
+  @Test
+  fun testEndOfStreamReturnsNull() {
+    val pipeline = AtracePipeline(CpuProfilerTestUtils.getTraceFile("atrace.ctrace"))
+    while (pipeline.next() != null);
+    assertThat(pipeline.next()).isNull()
+    pipeline.close()
+  }
+
+  @Test
+  fun testClosingBeforeEndOfStream() {
+    val pipeline = AtracePipeline(CpuProfilerTestUtils.getTraceFile("atrace.ctrace"))
+    assertThat(pipeline.next()).isNotNull()
+    pipeline.close()
+    assertThat(pipeline.next()).isNull()
+  }
+
+  @Test
+  fun testTruncatedTraceThrowsAfterLastBatch() {
+    val pipeline = AtracePipeline(truncatedTraceFile())
+    while (pipeline.next() != null);
+    try {
+      pipeline.throwIfFailed()
+      fail("A truncated trace should not be read as a complete one")
+    }
+    catch (expected: IOException) {
+    }
+    pipeline.close()
+  }
+
+  @Test(expected = IOException::class)
+  fun testParsingTruncatedTraceThrows() {
+    AtraceParser(1).parse(truncatedTraceFile(), 0)
+  }
+
+  @Test
+  fun testCompleteTraceDoesNotThrow() {
+    val pipeline = AtracePipeline(CpuProfilerTestUtils.getTraceFile("atrace.ctrace"))
+    while (pipeline.next() != null);
+    pipeline.throwIfFailed()
+    pipeline.close()
+  }
+
+  private fun truncatedTraceFile(): File {
+    val bytes = CpuProfilerTestUtils.getTraceFile("atrace.ctrace").readBytes()
+    val file = File.createTempFile("truncated", ".ctrace")
+    file.deleteOnExit()
+    file.writeBytes(bytes.copyOf(bytes.size / 2))
+    return file
+  }
+
+  private fun assertSameData(traceName: String) {
+    val traceFile = CpuProfilerTestUtils.getTraceFile(traceName)
+    val expected = readAll(AtraceDecompressor(traceFile))
+    val actual = readAll(AtracePipeline(traceFile))
+    assertThat(String(actual)).isEqualTo(String(expected))
+  }
+
+  private fun readAll(producer: BufferProducer): ByteArray {
+    val output = ByteArrayOutputStream()
+    while (true) {
+      val slice = producer.next() ?: break
+      output.write(slice.buffer, slice.startIndex, slice.length)
+    }
+    producer.close()
+    return output.toByteArray()
+  }
+}
@@ -32,6 +32,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import javax.swing.tree.DefaultMutableTreeNode;
 import java.util.*;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -139,6 +140,31 @@ public class CaptureModelTest {
     checkChildrenFilterType(node.getChildAt(2), CaptureNode.FilterType.UNMATCH, CaptureNode.FilterType.UNMATCH);
   }
 
+  @Test
+  public void filterCountsMatchingNodesAndCanBeReverted() {
+    CpuThreadInfo info = new CpuThreadInfo(101, "main");
+    TraceParser parser = new FakeTraceParser(new Range(0, 30),
+                                             new ImmutableMap.Builder<CpuThreadInfo, CaptureNode>()
+                                               .put(info, createFilterTestTree())
+                                               .build(), false);
+    myModel.setCapture(new CpuCapture(parser, 200, CpuProfiler.CpuProfilerType.UNSPECIFIED_PROFILER));
+    myModel.setThread(101);
+    myModel.setDetails(CaptureDetails.Type.CALL_CHART);
+
+    myModel.setFilter(new Filter("myPackage"));
+    assertThat(myModel.getNodeCount()).isEqualTo(14);
+    assertThat(myModel.getFilterNodeCount()).isEqualTo(3);
+
+    myModel.setFilter(new Filter("method4"));
+    assertThat(myModel.getFilterNodeCount()).isEqualTo(5);
+    CaptureNode node = ((CaptureDetails.CallChart)myModel.getDetails()).getNode();
+    checkChildrenFilterType(node.getChildAt(2), CaptureNode.FilterType.UNMATCH, CaptureNode.FilterType.EXACT_MATCH);
+
+    myModel.setFilter(Filter.EMPTY_FILTER);
+    assertThat(myModel.getFilterNodeCount()).isEqualTo(14);
+    getDescendants(node).forEach(n -> assertThat(n.getFilterType()).isEqualTo(CaptureNode.FilterType.MATCH));
+  }
+
   @Test
   public void testEmptyFilter() {
     CaptureNode root = createFilterTestTree();
@@ -228,6 +254,50 @@ public class CaptureModelTest {
     assertThat(tracker.getLastCaptureDetailsType()).isNull();
   }
 
+  @Test
+  public void treesAreReusedWhenSwitchingDetails() {
+    CpuThreadInfo info = new CpuThreadInfo(101, "main");
+    TraceParser parser = new FakeTraceParser(new Range(0, 30),
+                                             new ImmutableMap.Builder<CpuThreadInfo, CaptureNode>()
+                                               .put(info, createFilterTestTree())
+                                               .build(), false);
+    myModel.setCapture(new CpuCapture(parser, 200, CpuProfiler.CpuProfilerType.UNSPECIFIED_PROFILER));
+    myModel.setThread(101);
+
+    myModel.setDetails(CaptureDetails.Type.TOP_DOWN);
+    Object topDown = getTopDownRoot();
+    myModel.setDetails(CaptureDetails.Type.BOTTOM_UP);
+    Object bottomUp = getBottomUpRoot();
+    myModel.setDetails(CaptureDetails.Type.FLAME_CHART);
+    myModel.setDetails(CaptureDetails.Type.TOP_DOWN);
+    assertThat(getTopDownRoot()).isSameAs(topDown);
+    myModel.setDetails(CaptureDetails.Type.BOTTOM_UP);
+    assertThat(getBottomUpRoot()).isSameAs(bottomUp);
+
+    // Filtering changes the trees, so they're rebuilt.
+    myModel.setFilter(new Filter("myPackage"));
+    assertThat(getBottomUpRoot()).isNotSameAs(bottomUp);
+    myModel.setDetails(CaptureDetails.Type.TOP_DOWN);
+    assertThat(getTopDownRoot()).isNotSameAs(topDown);
+
+    // An equivalent filter gives the same trees, so they're reused.
+    Object filteredTopDown = getTopDownRoot();
+    myModel.setFilter(new Filter("myPackage"));
+    assertThat(getTopDownRoot()).isSameAs(filteredTopDown);
+  }
+
+  private Object getTopDownRoot() {
+    TopDownTreeModel model = ((CaptureDetails.TopDown)myModel.getDetails()).getModel();
+    assertThat(model).isNotNull();
+    return ((DefaultMutableTreeNode)model.getRoot()).getUserObject();
+  }
+
+  private Object getBottomUpRoot() {
+    BottomUpTreeModel model = ((CaptureDetails.BottomUp)myModel.getDetails()).getModel();
+    assertThat(model).isNotNull();
+    return ((DefaultMutableTreeNode)model.getRoot()).getUserObject();
+  }
+
   private static void checkChildrenFilterType(CaptureNode node, CaptureNode.FilterType... filterTypes) {
     assertThat(node.getChildren().size()).isEqualTo(filterTypes.length);
     for (int i = 0; i < filterTypes.length; ++i) {
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.capturedetails;
+
+import com.android.tools.adtui.model.Range;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class IntervalSumsTest {
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  public void disjointIntervals() {
+    IntervalSums sums = new IntervalSums.Builder().add(20, 30).add(0, 10).add(40, 50).build();
+
+    assertThat(sums.getIntersection(new Range(0, 50))).isWithin(EPSILON).of(30);
+    assertThat(sums.getIntersection(new Range(5, 45))).isWithin(EPSILON).of(20);
+    assertThat(sums.getIntersection(new Range(10, 20))).isWithin(EPSILON).of(0);
+    assertThat(sums.getIntersection(new Range(22, 25))).isWithin(EPSILON).of(3);
+    assertThat(sums.getIntersection(new Range(60, 70))).isWithin(EPSILON).of(0);
+
+    assertThat(sums.overlaps(10, 20)).isFalse();
+    assertThat(sums.overlaps(9, 20)).isTrue();
+    assertThat(sums.overlaps(50, 60)).isFalse();
+  }
+
+  @Test
+  public void overlappingIntervals() {
+    IntervalSums sums = new IntervalSums.Builder().add(0, 30).add(10, 20).add(25, 40).build();
+
+    assertThat(sums.getIntersection(new Range(0, 40))).isWithin(EPSILON).of(55);
+    assertThat(sums.getIntersection(new Range(15, 26))).isWithin(EPSILON).of(17);
+    assertThat(sums.overlaps(40, 50)).isFalse();
+    assertThat(sums.overlaps(35, 50)).isTrue();
+  }
+
+  @Test
+  public void subtractedIntervals() {
+    IntervalSums sums = new IntervalSums.Builder().add(0, 100).subtract(10, 20).subtract(50, 80).build();
+
+    assertThat(sums.getIntersection(new Range(0, 100))).isWithin(EPSILON).of(60);
+    assertThat(sums.getIntersection(new Range(15, 60))).isWithin(EPSILON).of(30);
+  }
+
+  @Test
+  public void emptyIntervals() {
+    assertThat(IntervalSums.EMPTY.getIntersection(new Range(0, 100))).isWithin(EPSILON).of(0);
+    assertThat(IntervalSums.EMPTY.overlaps(0, 100)).isFalse();
+  }
+}
@@ -20,6 +20,7 @@ import com.android.tools.profiler.protobuf3jarjar.ByteString;
 import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
 import com.intellij.openapi.util.io.FileUtil;
 import org.junit.Before;
 import org.junit.Test;
@@ -134,6 +135,26 @@ public class SimpleperfTraceParserTest {
     }
   }
 
+  @Test
+  public void sameSymbolShouldShareModelAcrossThreads() throws IOException {
+    myParser.parse(myTraceFile, 0);
+    CaptureNodeModel startThreadModel = null;
+    int treesStartingWithStartThread = 0;
+    for (CaptureNode tree : myParser.getCaptureTrees().values()) {
+      CaptureNode firstChild = tree.getFirstChild();
+      if (firstChild == null || !firstChild.getData().getFullName().startsWith("__start_thread")) {
+        continue;
+      }
+      if (startThreadModel == null) {
+        startThreadModel = firstChild.getData();
+      }
+      // Models are interned, so all the threads use the same instance for the same symbol.
+      assertSame(startThreadModel, firstChild.getData());
+      treesStartingWithStartThread++;
+    }
+    assertTrue(treesStartingWithStartThread > 1);
+  }
+
   @Test
   public void mainProcessShouldBePresent() throws IOException {
     CpuCapture capture = myParser.parse(myTraceFile, 0);
@@ -30,6 +30,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -199,6 +200,62 @@ public class HeapDumpCaptureObjectTest {
     assertEquals(0, capture.getHeapSets().size());
   }
 
+  @Test
+  public void testUnloadReleasesHeapDumpFile() throws Exception {
+    MemoryProfiler.HeapDumpInfo dumpInfo = MemoryProfiler.HeapDumpInfo.newBuilder().setStartTime(3).setEndTime(8).build();
+    HeapDumpCaptureObject capture =
+      new HeapDumpCaptureObject(myGrpcChannel.getClient().getMemoryClient(), ProfilersTestData.SESSION_DATA, dumpInfo, null,
+                                myIdeProfilerServices.getFeatureTracker(), myStage);
+
+    myService.setExplicitSnapshotBuffer(new SnapshotBuilder(2, 0, 0).addReferences(1, 2).addRoot(1).getByteBuffer());
+    myService.setExplicitDumpDataStatus(MemoryProfiler.DumpDataResponse.Status.SUCCESS);
+    assertTrue(capture.load(null, null));
+    assertTrue(capture.isDoneLoading());
+    assertFalse(capture.isError());
+
+    // The snapshot reads from the mapped file, so it has to stay around while the capture is loaded.
+    File file = capture.getHeapDumpFile();
+    assertNotNull(file);
+    assertTrue(file.exists());
+
+    capture.unload();
+    assertNull(capture.getHeapDumpFile());
+    assertFalse(file.exists());
+
+    // Unloading again is a no-op.
+    capture.unload();
+  }
+
+  @Test
+  public void testInstancesAreCreatedWhenTheirClassIsExpanded() throws Exception {
+    MemoryProfiler.HeapDumpInfo dumpInfo = MemoryProfiler.HeapDumpInfo.newBuilder().setStartTime(3).setEndTime(8).build();
+    HeapDumpCaptureObject capture =
+      new HeapDumpCaptureObject(myGrpcChannel.getClient().getMemoryClient(), ProfilersTestData.SESSION_DATA, dumpInfo, null,
+                                myIdeProfilerServices.getFeatureTracker(), myStage);
+
+    myService.setExplicitSnapshotBuffer(new SnapshotBuilder(2, 0, 0).addReferences(1, 2).addRoot(1).getByteBuffer());
+    myService.setExplicitDumpDataStatus(MemoryProfiler.DumpDataResponse.Status.SUCCESS);
+    assertTrue(capture.load(null, null));
+
+    // Loading only counts the instances of each class, and doesn't compute the dominators.
+    HeapSet testHeap = capture.getHeapSets().stream().filter(heap -> "testHeap".equals(heap.getName())).findFirst().orElse(null);
+    assertNotNull(testHeap);
+    assertEquals(6, testHeap.getInstancesCount());
+    assertEquals(6, testHeap.getLazyInstanceGroupStream().count());
+    assertTrue(testHeap.getLazyInstanceGroupStream().noneMatch(LazyInstanceGroup::isMaterialized));
+    assertFalse(capture.isDominatorsComputed());
+
+    // Expanding a class only creates its own instances.
+    ClassSet class0 = findChildClassSetWithName(testHeap, "Class0");
+    assertEquals(1, class0.getInstancesStream().count());
+    assertEquals(1, testHeap.getLazyInstanceGroupStream().filter(LazyInstanceGroup::isMaterialized).count());
+    assertFalse(capture.isDominatorsComputed());
+
+    // The dominators are computed once retained sizes are requested.
+    testHeap.getTotalRetainedSize();
+    assertTrue(capture.isDominatorsComputed());
+  }
+
   private static void verifyInstance(@NotNull InstanceObject instance,
                                      @NotNull String valueText,
                                      int depth,
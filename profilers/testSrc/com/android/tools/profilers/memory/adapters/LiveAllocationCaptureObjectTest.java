@@ -37,7 +37,9 @@ import com.android.tools.profilers.memory.MemoryProfilerConfiguration;
 import com.android.tools.profilers.memory.MemoryProfilerStage;
 import com.google.common.util.concurrent.MoreExecutors;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -500,6 +502,37 @@ public class LiveAllocationCaptureObjectTest {
       verifyClassifierResult(heapSet, new LinkedList<>(expected_0_to_4), 0);
     }
 
+    @Test
+    public void testSelectionJumpMatchesFreshLoad() throws Exception {
+      LiveAllocationCaptureObject shiftedCapture = new LiveAllocationCaptureObject(myGrpcChannel.getClient().getMemoryClient(),
+                                                                                   ProfilersTestData.SESSION_DATA,
+                                                                                   CAPTURE_START_TIME,
+                                                                                   LOAD_SERVICE,
+                                                                                   myStage);
+      LiveAllocationCaptureObject freshCapture = new LiveAllocationCaptureObject(myGrpcChannel.getClient().getMemoryClient(),
+                                                                                 ProfilersTestData.SESSION_DATA,
+                                                                                 CAPTURE_START_TIME,
+                                                                                 LOAD_SERVICE,
+                                                                                 myStage);
+      HeapSet shiftedHeapSet = shiftedCapture.getHeapSet(myHeapId);
+      shiftedHeapSet.setClassGrouping(MemoryProfilerConfiguration.ClassGrouping.ARRANGE_BY_PACKAGE);
+      HeapSet freshHeapSet = freshCapture.getHeapSet(myHeapId);
+      freshHeapSet.setClassGrouping(MemoryProfilerConfiguration.ClassGrouping.ARRANGE_BY_PACKAGE);
+
+      // Move the selection to a range that does not intersect with the previous one. The events in between are diffed rather than
+      // establishing a new snapshot, which should yield the same result as loading the new range directly.
+      Range shiftedRange = new Range(CAPTURE_START_TIME + 3, CAPTURE_START_TIME + 4);
+      shiftedCapture.load(shiftedRange, LOAD_JOINER);
+      shiftedRange.set(CAPTURE_START_TIME + 5, CAPTURE_START_TIME + 7);
+      freshCapture.load(new Range(CAPTURE_START_TIME + 5, CAPTURE_START_TIME + 7), LOAD_JOINER);
+      verifySameClassifierSets(freshHeapSet, shiftedHeapSet);
+
+      // Moving the selection back over the same events should revert to the previous content.
+      shiftedRange.set(CAPTURE_START_TIME + 4, CAPTURE_START_TIME + 6);
+      freshCapture.load(new Range(CAPTURE_START_TIME + 4, CAPTURE_START_TIME + 6), LOAD_JOINER);
+      verifySameClassifierSets(freshHeapSet, shiftedHeapSet);
+    }
+
     @Test
     public void testInfoMessageBasedOnSelection() {
       MemoryProfiler.MemoryData memoryData = MemoryProfiler.MemoryData.newBuilder().setEndTimestamp(1)
@@ -776,6 +809,22 @@ public class LiveAllocationCaptureObjectTest {
     return currentNodeVisited;
   }
 
+  private static void verifySameClassifierSets(@NotNull ClassifierSet expected, @NotNull ClassifierSet actual) {
+    assertThat(actual.getName()).isEqualTo(expected.getName());
+    assertThat(actual.getDeltaAllocationCount()).isEqualTo(expected.getDeltaAllocationCount());
+    assertThat(actual.getDeltaDeallocationCount()).isEqualTo(expected.getDeltaDeallocationCount());
+    assertThat(actual.getTotalObjectCount()).isEqualTo(expected.getTotalObjectCount());
+    assertThat(actual.getInstancesCount()).isEqualTo(expected.getInstancesCount());
+
+    Map<String, ClassifierSet> actualChildren = new HashMap<>();
+    actual.getChildrenClassifierSets().forEach(child -> actualChildren.put(child.getName(), child));
+    assertThat(actualChildren.size()).isEqualTo(expected.getChildrenClassifierSets().size());
+    for (ClassifierSet expectedChild : expected.getChildrenClassifierSets()) {
+      assertThat(actualChildren).containsKey(expectedChild.getName());
+      verifySameClassifierSets(expectedChild, actualChildren.get(expectedChild.getName()));
+    }
+  }
+
   // Wait for the executor service to complete the task created in load(...)
   // NOTE - this works because myExecutorService is a single-threaded executor.
   private static void waitForLoadComplete(@NotNull LiveAllocationCaptureObject capture) throws InterruptedException, ExecutionException {
@@ -19,6 +19,7 @@ import com.android.tools.adtui.model.Range;
 import com.android.tools.profiler.protobuf3jarjar.ByteString;
 import com.android.tools.profilers.network.httpdata.HttpData;
 import com.android.tools.profilers.network.httpdata.Payload;
+import com.android.tools.profilers.network.httpdata.PayloadStore;
 import com.android.tools.profilers.network.httpdata.StackTrace;
 import com.google.common.collect.ImmutableMap;
 import org.jetbrains.annotations.NotNull;
@@ -270,6 +271,7 @@ public class HttpDataTest {
 
   private static final class FakeNetworkConnectionsModel implements NetworkConnectionsModel {
     private static final Map<String, ByteString> myBytesCache = new HashMap<>();
+    private final PayloadStore myPayloadStore = new PayloadStore();
 
     public void addBytes(@NotNull String id, @NotNull ByteString bytes) {
       myBytesCache.put(id, bytes);
@@ -286,5 +288,11 @@ public class HttpDataTest {
     public ByteString requestBytes(@NotNull String id) {
       return myBytesCache.getOrDefault(id, ByteString.EMPTY);
     }
+
+    @NotNull
+    @Override
+    public PayloadStore getPayloadStore() {
+      return myPayloadStore;
+    }
   }
 }
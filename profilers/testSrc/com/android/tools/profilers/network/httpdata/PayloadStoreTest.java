@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.network.httpdata;
+
+import com.android.tools.profiler.protobuf3jarjar.ByteString;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PayloadStoreTest {
+  private final PayloadStore myStore = new PayloadStore(8);
+
+  @After
+  public void tearDown() {
+    myStore.clear();
+  }
+
+  @Test
+  public void identicalPayloadsShareContent() {
+    PayloadStore.Content first = myStore.put("first", ByteString.copyFromUtf8("same"));
+    PayloadStore.Content second = myStore.put("second", ByteString.copyFromUtf8("same"));
+    PayloadStore.Content third = myStore.put("third", ByteString.copyFromUtf8("different"));
+
+    assertThat(second).isSameAs(first);
+    assertThat(third).isNotSameAs(first);
+    assertThat(myStore.getContentCount()).isEqualTo(2);
+    assertThat(myStore.get("second")).isSameAs(first);
+    assertThat(myStore.get("unknown")).isNull();
+  }
+
+  @Test
+  public void largePayloadsAreSpilled() throws IOException {
+    PayloadStore.Content small = myStore.put("small", ByteString.copyFromUtf8("small"));
+    PayloadStore.Content large = myStore.put("large", ByteString.copyFromUtf8("a large payload"));
+
+    assertThat(small.isSpilled()).isFalse();
+    assertThat(large.isSpilled()).isTrue();
+    assertThat(large.getSize()).isEqualTo(15);
+    assertThat(large.getBytes().toStringUtf8()).isEqualTo("a large payload");
+    try (InputStream stream = large.openStream()) {
+      assertThat(ByteString.readFrom(stream).toStringUtf8()).isEqualTo("a large payload");
+    }
+  }
+
+  @Test
+  public void contentsCanBeReadByPages() {
+    PayloadStore.Content small = myStore.put("small", ByteString.copyFromUtf8("small"));
+    PayloadStore.Content large = myStore.put("large", ByteString.copyFromUtf8("a large payload"));
+
+    assertThat(small.read(1, 3).toStringUtf8()).isEqualTo("mal");
+    assertThat(large.read(2, 5).toStringUtf8()).isEqualTo("large");
+    assertThat(large.read(8, 100).toStringUtf8()).isEqualTo("payload");
+    assertThat(large.read(15, 1).isEmpty()).isTrue();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.performance
+
+import com.android.tools.adtui.chart.hchart.DefaultHTreeChartReducer
+import com.android.tools.adtui.chart.linechart.DefaultLineChartReducer
+import com.android.tools.adtui.chart.linechart.LineConfig
+import com.android.tools.adtui.chart.statechart.DefaultStateChartReducer
+import com.android.tools.adtui.model.DefaultHNode
+import com.android.tools.adtui.model.LongSeriesView
+import org.junit.After
+import org.junit.Test
+import java.awt.Color
+import java.awt.geom.Path2D
+import java.awt.geom.Rectangle2D
+import java.util.Random
+
+/**
+ * Measures the chart reducers on inputs much larger than the number of pixels they are drawn to, as happens when a long session is
+ * zoomed out. Inputs are generated from a fixed seed so runs are comparable.
+ */
+class ChartReducerPerformanceTest {
+  companion object {
+    private const val POINT_COUNT = 1_000_000
+    private const val WIDTH_PX = 2000f
+    private const val HEIGHT_PX = 100f
+    private const val NODE_DEPTH = 16
+    private const val REDUCE_RUNS = 10
+  }
+
+  private val recorder = TimingRecorder("Chart Reducer Timings (Nanos)")
+  private val random = Random(0x123456789)
+
+  @After
+  fun tearDown() {
+    recorder.commit()
+  }
+
+  @Test
+  fun lineChartReducer() {
+    val reducer = DefaultLineChartReducer()
+    val config = LineConfig(Color.RED)
+    val data = LongSeriesView()
+    var y = 0L
+    for (i in 0 until POINT_COUNT) {
+      y = Math.max(0, y + random.nextInt(21) - 10)
+      data.add(i.toLong(), y)
+    }
+
+    val boxedData = data.toSeriesDataList()
+    recorder.measure("LineChart-ReduceData-Boxed", REDUCE_RUNS) { reducer.reduceData(boxedData, config) }
+    recorder.measure("LineChart-ReduceData", REDUCE_RUNS, setup = { LongSeriesView().apply { copyFrom(data) } }) {
+      reducer.reduceData(it, config)
+    }
+
+    val path = Path2D.Float()
+    for (i in 0 until data.size()) {
+      val x = WIDTH_PX * i / data.size()
+      val pathY = HEIGHT_PX - (data.getY(i) % HEIGHT_PX.toLong())
+      if (i == 0) path.moveTo(x, pathY) else path.lineTo(x, pathY)
+    }
+    recorder.measure("LineChart-ReducePath", REDUCE_RUNS) { reducer.reducePath(path, config) }
+  }
+
+  @Test
+  fun stateChartReducer() {
+    val reducer = DefaultStateChartReducer<Int>()
+    val rectangles = mutableListOf<Rectangle2D.Float>()
+    val values = mutableListOf<Int>()
+    val width = WIDTH_PX / POINT_COUNT
+    for (i in 0 until POINT_COUNT) {
+      // Runs of a few states, most of them narrower than a pixel.
+      rectangles.add(Rectangle2D.Float(i * width, 0f, width, HEIGHT_PX))
+      values.add(if (i > 0 && random.nextInt(4) != 0) values[i - 1] else random.nextInt(4))
+    }
+    recorder.measure("StateChart-Reduce", REDUCE_RUNS, setup = { Pair(ArrayList(rectangles), ArrayList(values)) }) {
+      reducer.reduce(it.first, it.second)
+    }
+  }
+
+  @Test
+  fun hTreeChartReducer() {
+    val reducer = DefaultHTreeChartReducer<DefaultHNode<String>>()
+    val nodes = mutableListOf<DefaultHNode<String>>()
+    val rectangles = mutableListOf<Rectangle2D.Float>()
+    // Each depth splits the whole range into twice as many nodes as the depth above, so the deepest levels are far narrower than a pixel.
+    for (depth in 0 until NODE_DEPTH) {
+      val count = 1 shl depth
+      val width = WIDTH_PX / count
+      for (i in 0 until count) {
+        val node = DefaultHNode("Node", i.toLong() * POINT_COUNT / count, (i + 1).toLong() * POINT_COUNT / count)
+        node.depth = depth
+        nodes.add(node)
+        rectangles.add(Rectangle2D.Float(i * width, depth * 15f, width, 15f))
+      }
+    }
+    recorder.log("HTreeChart-Node-Count", nodes.size.toLong())
+    recorder.measure("HTreeChart-Reduce", REDUCE_RUNS, setup = { Pair(ArrayList(rectangles), ArrayList(nodes)) }) {
+      reducer.reduce(it.first, it.second)
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.performance
+
+import com.android.testutils.TestUtils
+import com.android.tools.datastore.DataStoreDatabase
+import com.android.tools.datastore.FakeLogService
+import com.android.tools.datastore.database.CpuTable
+import com.android.tools.datastore.database.MemoryLiveAllocationTable
+import com.android.tools.datastore.database.NetworkTable
+import com.android.tools.profiler.proto.Common
+import com.android.tools.profiler.proto.CpuProfiler
+import com.android.tools.profiler.proto.NetworkProfiler
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the insert and query throughput of the datastore tables backing the profilers, on synthetic sessions generated with the
+ * same seeded generators as [DataSeriesPerformanceTest] so runs are reproducible.
+ */
+class DataStoreTablePerformanceTest {
+  companion object {
+    private val END_TIME = TimeUnit.MINUTES.toNanos(10)
+    private val INTERVAL = TimeUnit.MILLISECONDS.toNanos(200)
+    private val QUERY_INTERVAL = TimeUnit.SECONDS.toNanos(60)
+    private const val QUERY_RUNS = 10
+  }
+
+  private val recorder = TimingRecorder("DataStore Table Timings (Nanos)")
+  private lateinit var dbFile: File
+  private lateinit var database: DataStoreDatabase
+
+  @Before
+  fun setUp() {
+    dbFile = File(TestUtils.createTempDirDeletedOnExit(), "DataStoreTablePerformanceTest.sql")
+    database = DataStoreDatabase(dbFile.absolutePath, DataStoreDatabase.Characteristic.PERFORMANT, FakeLogService())
+  }
+
+  @After
+  fun tearDown() {
+    recorder.commit()
+    database.disconnect()
+    dbFile.delete()
+  }
+
+  @Test
+  fun memoryLiveAllocationTable() {
+    val session = generateSession("MemoryLiveAllocation", MemoryLiveAllocationGenerator(database.connection))
+    val table = MemoryLiveAllocationTable(FakeLogService())
+    table.initialize(database.connection)
+
+    val allocations = recorder.measure("MemoryLiveAllocation-Query-Allocations", QUERY_RUNS) {
+      table.getAllocations(session, END_TIME / 2, END_TIME / 2 + QUERY_INTERVAL)
+    }
+    recorder.log("MemoryLiveAllocation-Query-Allocations-Count", allocations.eventsCount.toLong())
+    recorder.measure("MemoryLiveAllocation-Query-Snapshot", QUERY_RUNS) { table.getSnapshot(session, END_TIME / 2) }
+    recorder.measure("MemoryLiveAllocation-Query-Contexts", QUERY_RUNS) { table.getAllocationContexts(session, 0, END_TIME) }
+  }
+
+  @Test
+  fun cpuTable() {
+    val session = generateSession("Cpu", CpuGenerator(database.connection))
+    val table = CpuTable()
+    table.initialize(database.connection)
+
+    recorder.measure("Cpu-Query-Usage", QUERY_RUNS) {
+      table.getCpuDataByRequest(CpuProfiler.CpuDataRequest.newBuilder()
+                                  .setSession(session)
+                                  .setStartTimestamp(END_TIME / 2)
+                                  .setEndTimestamp(END_TIME / 2 + QUERY_INTERVAL)
+                                  .build())
+    }
+    recorder.measure("Cpu-Query-Threads", QUERY_RUNS) {
+      table.getThreadsDataByRequest(CpuProfiler.GetThreadsRequest.newBuilder()
+                                      .setSession(session)
+                                      .setStartTimestamp(END_TIME / 2)
+                                      .setEndTimestamp(END_TIME / 2 + QUERY_INTERVAL)
+                                      .build())
+    }
+  }
+
+  @Test
+  fun networkTable() {
+    val session = generateSession("Network", NetworkGenerator(database.connection))
+    val table = NetworkTable()
+    table.initialize(database.connection)
+
+    recorder.measure("Network-Query-Data", QUERY_RUNS) {
+      table.getNetworkDataByRequest(NetworkProfiler.NetworkDataRequest.newBuilder()
+                                      .setSession(session)
+                                      .setStartTimestamp(END_TIME / 2)
+                                      .setEndTimestamp(END_TIME / 2 + QUERY_INTERVAL)
+                                      .setType(NetworkProfiler.NetworkDataRequest.Type.ALL)
+                                      .build())
+    }
+    recorder.measure("Network-Query-Connections", QUERY_RUNS) {
+      table.getNetworkConnectionDataByRequest(NetworkProfiler.HttpRangeRequest.newBuilder()
+                                                .setSession(session)
+                                                .setStartTimestamp(END_TIME / 2)
+                                                .setEndTimestamp(END_TIME / 2 + QUERY_INTERVAL)
+                                                .build())
+    }
+  }
+
+  /**
+   * Fills the database with a session worth of data from [generator], recording the time it took to insert it.
+   */
+  private fun generateSession(name: String, generator: DataGenerator): Common.Session {
+    val properties = GeneratorProperties.Builder(Common.Session.newBuilder().setSessionId(name.hashCode().toLong()).setPid(1).build())
+      .setPid(1)
+      .build()
+    recorder.measure("$name-Insert", 1, 0) {
+      for (i in 0..END_TIME step INTERVAL) {
+        generator.generate(i, properties)
+      }
+      database.connection.commit()
+    }
+    return properties.session
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.performance
+
+import com.android.tools.perflogger.Benchmark
+import com.android.tools.perflogger.Metric
+import com.android.tools.perflogger.WindowDeviationAnalyzer
+import java.time.Instant
+
+/**
+ * Times repeated runs of named workloads and reports them to a [Benchmark], with the same regression analysis as
+ * [DataSeriesPerformanceTest]. Each workload is warmed up before being measured so JIT compilation and one-time caches are
+ * not accounted for.
+ */
+class TimingRecorder(benchmarkName: String) {
+  private val benchmark = Benchmark.Builder(benchmarkName).setProject("Android Studio Profilers").build()
+  private val metrics = mutableMapOf<String, Metric>()
+
+  /**
+   * Calls [workload] [warmUpRuns] + [runs] times and records the duration of the last [runs] calls under [name]. The result of the
+   * last call is returned so callers can consume it, which prevents the work from being optimized away.
+   */
+  fun <T> measure(name: String, runs: Int, warmUpRuns: Int = 2, workload: () -> T): T {
+    return measure(name, runs, warmUpRuns, {}) { workload() }
+  }
+
+  /**
+   * Same as [measure], but calls [setup] before each run without timing it, e.g. to provide a fresh copy of an input that the
+   * workload modifies in place.
+   */
+  fun <S, T> measure(name: String, runs: Int, warmUpRuns: Int = 2, setup: () -> S, workload: (S) -> T): T {
+    val metric = metrics.getOrPut(name) { Metric(name) }
+    var result: T? = null
+    for (i in 0 until warmUpRuns + runs) {
+      val input = setup()
+      val startTime = System.nanoTime()
+      result = workload(input)
+      val elapsed = System.nanoTime() - startTime
+      if (i >= warmUpRuns) {
+        metric.addSamples(benchmark, Metric.MetricSample(Instant.now().toEpochMilli(), elapsed))
+      }
+    }
+    @Suppress("UNCHECKED_CAST")
+    return result as T
+  }
+
+  /**
+   * Logs a single value that is not a timing, e.g. the number of items processed by a workload.
+   */
+  fun log(name: String, value: Long) {
+    benchmark.log(name, value)
+  }
+
+  fun commit() {
+    metrics.values.forEach {
+      it.setAnalyzers(benchmark, setOf(WindowDeviationAnalyzer.Builder()
+                                         .addMeanTolerance(WindowDeviationAnalyzer.MeanToleranceParams.Builder().build())
+                                         .build()))
+      it.commit()
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.performance
+
+import com.android.tools.profilers.cpu.CpuProfilerTestUtils
+import com.android.tools.profilers.cpu.art.ArtTraceParser
+import com.android.tools.profilers.cpu.atrace.AtraceParser
+import com.android.tools.profilers.cpu.simpleperf.SimpleperfTraceParser
+import org.junit.After
+import org.junit.Test
+
+/**
+ * Measures how long the CPU trace parsers take to parse the traces checked in as test data.
+ */
+class TraceParserPerformanceTest {
+  companion object {
+    private const val PARSE_RUNS = 20
+    // Process id of the app in atrace.ctrace.
+    private const val ATRACE_PID = 2652
+  }
+
+  private val recorder = TimingRecorder("Trace Parser Timings (Nanos)")
+
+  @After
+  fun tearDown() {
+    recorder.commit()
+  }
+
+  @Test
+  fun artTraceParser() {
+    val trace = CpuProfilerTestUtils.getTraceFile("valid_trace.trace")
+    recorder.log("Art-Trace-Size", trace.length())
+    // A new parser is needed for each run, as parsers keep the state of the trace they parsed.
+    recorder.measure("Art-Parse", PARSE_RUNS) { ArtTraceParser().parse(trace, 0) }
+  }
+
+  @Test
+  fun simpleperfTraceParser() {
+    val trace = CpuProfilerTestUtils.getTraceFile("simpleperf.trace")
+    recorder.log("Simpleperf-Trace-Size", trace.length())
+    recorder.measure("Simpleperf-Parse", PARSE_RUNS) { SimpleperfTraceParser().parse(trace, 0) }
+  }
+
+  @Test
+  fun atraceParser() {
+    val trace = CpuProfilerTestUtils.getTraceFile("atrace.ctrace")
+    recorder.log("Atrace-Trace-Size", trace.length())
+    recorder.measure("Atrace-Parse", PARSE_RUNS) { AtraceParser(ATRACE_PID).parse(trace, 0) }
+  }
+}